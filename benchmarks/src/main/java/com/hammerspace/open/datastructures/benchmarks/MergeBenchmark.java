@@ -0,0 +1,129 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures.benchmarks;
+
+import com.hammerspace.open.datastructures.ArraySortedSet;
+import com.hammerspace.open.datastructures.SingletonSortedSet;
+import com.hammerspace.open.datastructures.SortedSetAlgebra;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging many small sets, mostly singletons, into one ordered walk: {@link SortedSetAlgebra} against collecting
+ * everything into a {@link TreeSet} first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+    @Param({"16", "1024"})
+    private int sets;
+
+    private List<SortedSet<Integer>> inputs;
+    private SortedSet<Integer> large;
+    private SortedSet<Integer> small;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        inputs = new ArrayList<>();
+        for (int i = 0; i < sets; i++) {
+            if (random.nextInt(10) < 8) {
+                inputs.add(new SingletonSortedSet<>(random.nextInt(1_000_000)));
+            } else {
+                TreeSet<Integer> set = new TreeSet<>();
+                for (int j = 0; j < 8; j++) {
+                    set.add(random.nextInt(1_000_000));
+                }
+                inputs.add(new ArraySortedSet<>(set));
+            }
+        }
+        TreeSet<Integer> largeElements = new TreeSet<>();
+        TreeSet<Integer> smallElements = new TreeSet<>();
+        for (int i = 0; i < 64 * sets; i++) {
+            largeElements.add(random.nextInt(1_000_000));
+        }
+        for (int i = 0; i < sets; i++) {
+            smallElements.add(random.nextInt(1_000_000));
+        }
+        large = new ArraySortedSet<>(largeElements);
+        small = new ArraySortedSet<>(smallElements);
+    }
+
+    @Benchmark
+    public long unionTreeSet() {
+        TreeSet<Integer> union = new TreeSet<>();
+        for (SortedSet<Integer> set : inputs) {
+            union.addAll(set);
+        }
+        long sum = 0;
+        for (Integer e : union) {
+            sum += e;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long unionAlgebra() {
+        long sum = 0;
+        for (Integer e : SortedSetAlgebra.union(inputs)) {
+            sum += e;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long merge() {
+        long sum = 0;
+        for (Iterator<Integer> merge = SortedSetAlgebra.merge(inputs); merge.hasNext(); ) {
+            sum += merge.next();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long intersectionTreeSet() {
+        TreeSet<Integer> intersection = new TreeSet<>(small);
+        intersection.retainAll(large);
+        return intersection.size();
+    }
+
+    @Benchmark
+    public long intersectionAlgebra() {
+        return SortedSetAlgebra.intersection(small, large).size();
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures.benchmarks;
+
+import com.hammerspace.open.datastructures.SingletonSortedSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link SingletonSortedSet} against the other ways of holding one element, including {@link Collections#singleton}
+ * which is not sorted and therefore is not part of {@link SortedSetBenchmark}. Also measures the cost of creating the
+ * set, which is what a {@code SortedSet} member that usually holds one element pays per owning object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingletonSetBenchmark {
+
+    @Param({"SingletonSortedSet", "Collections.singleton", "TreeSet", "ConcurrentSkipListSet"})
+    private String impl;
+
+    private Integer element;
+    private Integer equalElement;
+    private Integer otherElement;
+    private Supplier<Set<Integer>> factory;
+    private Set<Integer> set;
+    private Set<Integer> equalSet;
+
+    @Setup
+    public void setUp() {
+        element = 1000;
+        // new instances, since both are above the Integer cache, so that a lookup cannot succeed on identity alone
+        equalElement = Integer.valueOf(1000);
+        otherElement = Integer.valueOf(1001);
+        factory = factory(impl, element);
+        set = factory.get();
+        equalSet = new TreeSet<>(Collections.singleton(equalElement));
+    }
+
+    private static Supplier<Set<Integer>> factory(String impl, Integer element) {
+        switch (impl) {
+            case "SingletonSortedSet":
+                return () -> new SingletonSortedSet<>(element);
+            case "Collections.singleton":
+                return () -> Collections.singleton(element);
+            case "TreeSet":
+                return () -> {
+                    TreeSet<Integer> treeSet = new TreeSet<>();
+                    treeSet.add(element);
+                    return treeSet;
+                };
+            case "ConcurrentSkipListSet":
+                return () -> {
+                    ConcurrentSkipListSet<Integer> skipListSet = new ConcurrentSkipListSet<>();
+                    skipListSet.add(element);
+                    return skipListSet;
+                };
+            default:
+                throw new IllegalArgumentException("unknown implementation " + impl);
+        }
+    }
+
+    @Benchmark
+    public Set<Integer> create() {
+        return factory.get();
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return set.contains(equalElement);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return set.contains(otherElement);
+    }
+
+    @Benchmark
+    public int iterate() {
+        int sum = 0;
+        for (Integer e : set) {
+            sum += e;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int stream() {
+        return set.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Benchmark
+    public boolean equalsTreeSet() {
+        return set.equals(equalSet);
+    }
+
+    @Benchmark
+    public int hashCodeOfSet() {
+        return set.hashCode();
+    }
+}
@@ -0,0 +1,193 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures.benchmarks;
+
+import com.hammerspace.open.datastructures.AdaptiveSortedSet;
+import com.hammerspace.open.datastructures.ArraySortedSet;
+import com.hammerspace.open.datastructures.BTreeSortedSet;
+import com.hammerspace.open.datastructures.ConcurrentCompactSortedSet;
+import com.hammerspace.open.datastructures.LookupSortedSet;
+import com.hammerspace.open.datastructures.SingletonSortedSet;
+import com.hammerspace.open.datastructures.SortedSets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-side throughput of the compact sorted sets against the JDK's sorted sets, for sets of 1 to a million elements.
+ *
+ * {@code compact} is what our own code would pick for a read-mostly set of that size: a {@link SingletonSortedSet} for
+ * one element and an {@link ArraySortedSet} for more. {@code adaptive} is an {@link AdaptiveSortedSet} with the default
+ * tree threshold, so the larger sizes measure its tree representation. {@code concurrent} is a
+ * {@link ConcurrentCompactSortedSet}, which moves into a skip list above 32 elements. {@code btree} is a
+ * {@link BTreeSortedSet}, meant for the million-element end of the range.
+ *
+ * The probes cycle through a table of random elements (hits) or random gaps between elements (misses) so that the
+ * branch predictor cannot learn a single lookup path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedSetBenchmark {
+
+    private static final int PROBES = 1024; // a power of two, see nextHit() and nextMiss()
+    // above the Integer cache, so that Integer.valueOf() makes a new instance for every probe
+    private static final int FIRST_ELEMENT = 1000;
+
+    @Param({"1", "2", "8", "32", "128", "1000000"})
+    private int size;
+
+    @Param({"compact", "adaptive", "concurrent", "btree", "TreeSet", "ConcurrentSkipListSet"})
+    private String impl;
+
+    private NavigableSet<Integer> set;
+    private NavigableSet<Integer> equalSet;
+    private UnaryOperator<Integer> getElement;
+    private final Integer[] hits = new Integer[PROBES];
+    private final Integer[] misses = new Integer[PROBES];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        // the elements are the even numbers from FIRST_ELEMENT on and the misses are the odd numbers in between
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            elements.add(FIRST_ELEMENT + 2 * i);
+        }
+        set = create(impl, elements);
+        equalSet = new TreeSet<>(elements);
+        getElement = getElementFunction(set);
+
+        Random random = new Random(42);
+        for (int i = 0; i < PROBES; i++) {
+            // new instances, so that a lookup cannot succeed on identity alone
+            hits[i] = Integer.valueOf(FIRST_ELEMENT + 2 * random.nextInt(size));
+            misses[i] = Integer.valueOf(FIRST_ELEMENT + 2 * random.nextInt(size) + 1);
+        }
+    }
+
+    static NavigableSet<Integer> create(String impl, List<Integer> elements) {
+        switch (impl) {
+            case "compact":
+                return elements.size() == 1 ? new SingletonSortedSet<>(elements.get(0))
+                        : new ArraySortedSet<>(elements);
+            case "adaptive":
+                return new AdaptiveSortedSet<>(elements);
+            case "concurrent":
+                return new ConcurrentCompactSortedSet<>(elements);
+            case "btree":
+                return new BTreeSortedSet<>(elements);
+            case "TreeSet":
+                return new TreeSet<>(elements);
+            case "ConcurrentSkipListSet":
+                return new ConcurrentSkipListSet<>(elements);
+            default:
+                throw new IllegalArgumentException("unknown implementation " + impl);
+        }
+    }
+
+    /**
+     * The compact sets implement {@link LookupSortedSet}; the JDK sets are adapted with a single {@code ceiling()}
+     * call, the idiom they would need anyway to find the instance they hold.
+     */
+    private static UnaryOperator<Integer> getElementFunction(NavigableSet<Integer> set) {
+        return SortedSets.asLookupSet(set)::getElement;
+    }
+
+    private Integer nextHit() {
+        return hits[cursor++ & (PROBES - 1)];
+    }
+
+    private Integer nextMiss() {
+        return misses[cursor++ & (PROBES - 1)];
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return set.contains(nextHit());
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return set.contains(nextMiss());
+    }
+
+    @Benchmark
+    public Integer getElement() {
+        return getElement.apply(nextHit());
+    }
+
+    @Benchmark
+    public int iterate() {
+        int sum = 0;
+        for (Integer element : set) {
+            sum += element;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int stream() {
+        return set.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Benchmark
+    public boolean equalsTreeSet() {
+        return set.equals(equalSet);
+    }
+
+    @Benchmark
+    public int hashCodeOfSet() {
+        return set.hashCode();
+    }
+
+    @Benchmark
+    public Integer headSetLast() {
+        // a view plus a lookup on it, the usual "latest element before x" pattern
+        NavigableSet<Integer> head = set.headSet(nextMiss(), false);
+        return head.isEmpty() ? null : head.last();
+    }
+
+    @Benchmark
+    public int subSetIterate() {
+        Integer from = nextMiss();
+        int sum = 0;
+        for (Integer element : set.subSet(from, true, from + 8, false)) {
+            sum += element;
+        }
+        return sum;
+    }
+}
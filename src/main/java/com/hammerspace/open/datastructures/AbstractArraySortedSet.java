@@ -0,0 +1,569 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The implementation that {@link ArraySortedSet} and {@link ComparatorArraySortedSet} share: an immutable
+ * {@link NavigableSet} that holds its elements in a single sorted {@code Object[]}.
+ *
+ * Just like {@link java.util.TreeSet} the elements are ordered by {@link #comparator()}, or by their natural ordering
+ * when it is null. The comparator is not a field of this class, so that an {@link ArraySortedSet} does not pay a
+ * reference for it.
+ */
+abstract class AbstractArraySortedSet<T> extends AbstractSet<T> implements LookupSortedSet<T> {
+
+    // elements[from, to) holds the elements of this set in ascending order; slices share the array with their parent
+    private final Object[] elements;
+    private final int from;
+    private final int to;
+
+    AbstractArraySortedSet(Object[] elements, int from, int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Copies the elements of {@code c} into an array in the order of {@code comparator} (natural ordering if null).
+     * Duplicates are dropped, keeping the first one encountered. A {@link SortedSet} that is ordered by an equal
+     * comparator is copied as-is.
+     */
+    static Object[] sortedArray(Collection<?> c, @Nullable Comparator<?> comparator) {
+        Object[] array = c.toArray();
+        if (array.getClass() != Object[].class) {
+            // Collection.toArray() is not guaranteed to return an Object[] before Java 9
+            array = Arrays.copyOf(array, array.length, Object[].class);
+        }
+        for (Object o : array) {
+            if (o == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+        }
+        int length = array.length;
+        if (!(c instanceof SortedSet && Objects.equals(comparator, ((SortedSet<?>) c).comparator()))) {
+            Arrays.sort(array, objectComparator(comparator));
+            length = removeDuplicates(array, comparator);
+        }
+        return length == array.length ? array : Arrays.copyOf(array, length);
+    }
+
+    /**
+     * A range view of {@code elements[sliceFrom, sliceTo)} that shares the array with this set and was created with
+     * {@code bounds}; the range may be empty.
+     */
+    abstract NavigableSet<T> newSlice(int sliceFrom, int sliceTo, Ranges.Bounds<T> bounds);
+
+    /**
+     * The set handed out for every empty view of a set that is not a range view itself.
+     */
+    abstract NavigableSet<T> emptyView();
+
+    /**
+     * The bounds this set was created with if it is a range view, {@link Ranges.Bounds#none()} otherwise.
+     */
+    Ranges.Bounds<T> bounds() {
+        return Ranges.Bounds.none();
+    }
+
+    /*
+     * The backing array and the bounds of this set within it, for the code in this package that walks the elements
+     * without an iterator.
+     */
+
+    Object[] array() {
+        return elements;
+    }
+
+    int arrayFrom() {
+        return from;
+    }
+
+    int arrayTo() {
+        return to;
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElement(Comparable)}: returns the instance held by this set that compares
+     * equal to {@code element}, or null if there is none.
+     */
+    @Override
+    @Nullable
+    public T getElement(T element) {
+        if (element == null) {
+            return null;
+        }
+        int idx = indexOf(element);
+        return idx >= 0 ? elementAt(idx) : null;
+    }
+
+    /**
+     * The batch form of {@link #getElement(Object)}: passes the instance held by this set for every element of
+     * {@code probes} that it holds to {@code action}, in ascending order. When {@code probes} is in the same order as
+     * this set this is a single galloping pass over the array instead of a binary search per probe.
+     *
+     * @return the number of probes found
+     */
+    @Override
+    public int getElements(SortedSet<T> probes, Consumer<? super T> action) {
+        if (Objects.equals(comparator(), probes.comparator())) {
+            return SortedSetAlgebra.getElements(elements, from, to, comparator(), probes, action);
+        }
+        return LookupSortedSet.super.getElements(probes, action);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (compare(comparator(), fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        Ranges.Bounds<T> sliceBounds = bounds().sub(comparator(), fromElement, fromInclusive, toElement, toInclusive);
+        return slice(fromIndex(fromElement, fromInclusive), toIndex(toElement, toInclusive), sliceBounds);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        Ranges.Bounds<T> sliceBounds = bounds().head(comparator(), toElement, inclusive);
+        return slice(from, toIndex(toElement, inclusive), sliceBounds);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        Ranges.Bounds<T> sliceBounds = bounds().tail(comparator(), fromElement, inclusive);
+        return slice(fromIndex(fromElement, inclusive), to, sliceBounds);
+    }
+
+    private NavigableSet<T> slice(int sliceFrom, int sliceTo, Ranges.Bounds<T> sliceBounds) {
+        if (bounds().isNone()) {
+            // a view of all or none of the elements of a set that is not a range view is that set or the shared empty
+            // set, which take any bounds for their own views; the views of a range view keep their bounds
+            if (sliceFrom == from && sliceTo == to) {
+                return this;
+            }
+            if (sliceFrom >= sliceTo) {
+                return emptyView();
+            }
+        }
+        return newSlice(sliceFrom, sliceTo, sliceBounds);
+    }
+
+    private int indexOf(Object element) {
+        // like TreeSet, an element the ordering cannot handle makes it throw a ClassCastException; Arrays takes a null
+        // comparator for the natural ordering
+        return Arrays.binarySearch(elements, from, to, element, objectComparator(comparator()));
+    }
+
+    /**
+     * The index of the first element that is greater than (or equal to, if {@code inclusive}) {@code element}.
+     */
+    private int fromIndex(T element, boolean inclusive) {
+        int idx = indexOf(element);
+        if (idx >= 0) {
+            return inclusive ? idx : idx + 1;
+        }
+        return -(idx + 1);
+    }
+
+    /**
+     * The index following the last element that is less than (or equal to, if {@code inclusive}) {@code element}.
+     */
+    private int toIndex(T element, boolean inclusive) {
+        int idx = indexOf(element);
+        if (idx >= 0) {
+            return inclusive ? idx + 1 : idx;
+        }
+        return -(idx + 1);
+    }
+
+    @Override
+    public T lower(T t) {
+        return elementBefore(fromIndex(t, true));
+    }
+
+    @Override
+    public T floor(T t) {
+        return elementBefore(toIndex(t, true));
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return elementAtOrNull(fromIndex(t, true));
+    }
+
+    @Override
+    public T higher(T t) {
+        return elementAtOrNull(fromIndex(t, false));
+    }
+
+    private T elementBefore(int idx) {
+        return idx > from ? elementAt(idx - 1) : null;
+    }
+
+    private T elementAtOrNull(int idx) {
+        return idx < to ? elementAt(idx) : null;
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new DescendingArraySortedSetIterator();
+    }
+
+    @Override
+    public T first() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elementAt(from);
+    }
+
+    @Override
+    public T last() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elementAt(to - 1);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ArraySortedSetSpliterator(from, to);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ArraySortedSetIterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T1> T1[] toArray(T1[] a) {
+        int size = size();
+        if (a.length < size) {
+            a = (T1[]) Array.newInstance(a.getClass().getComponentType(), size);
+        }
+        System.arraycopy(elements, from, a, 0, size);
+        if (a.length > size) {
+            a[size] = null;
+        }
+        return a;
+    }
+
+    /*
+     * forEach() and removeIf() are overridden so that they walk the array instead of going through an iterator: they
+     * allocate nothing.
+     */
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (int i = from; i < to; i++) {
+            action.accept(elementAt(i));
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        for (int i = from; i < to; i++) {
+            if (filter.test(elementAt(i))) {
+                throw new UnsupportedOperationException();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A {@link SortedSet} in the same order as this set is checked in a single galloping pass over the array, instead
+     * of a binary search per element.
+     */
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof SortedSet && Objects.equals(comparator(), ((SortedSet<?>) c).comparator())) {
+            return SortedSetAlgebra.containsAll(elements, from, to, comparator(), (SortedSet<?>) c);
+        }
+        return super.containsAll(c);
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (contains(t)) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        // we cannot grow
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof AbstractArraySortedSet
+                && Objects.equals(comparator(), ((AbstractArraySortedSet<?>) o).comparator())) {
+            AbstractArraySortedSet<?> rhs = (AbstractArraySortedSet<?>) o;
+            if (size() != rhs.size()) {
+                return false;
+            }
+            for (int i = from, j = rhs.from; i < to; i++, j++) {
+                if (!elements[i].equals(rhs.elements[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = from; i < to; i++) {
+            hashCode += elements[i].hashCode();
+        }
+        return hashCode;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int idx) {
+        return (T) elements[idx];
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Comparator<Object> objectComparator(@Nullable Comparator<?> comparator) {
+        // every element in the array is a T, so the comparator can take any of them
+        return (Comparator<Object>) comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(@Nullable Comparator<?> comparator, Object a, Object b) {
+        return comparator == null ? ((Comparable<Object>) a).compareTo(b) : objectComparator(comparator).compare(a, b);
+    }
+
+    /**
+     * Compacts a sorted array in place so that its prefix holds each distinct element once; returns the length of
+     * that prefix.
+     */
+    private static int removeDuplicates(Object[] sorted, @Nullable Comparator<?> comparator) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int length = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (compare(comparator, sorted[length - 1], sorted[i]) != 0) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length;
+    }
+
+    private class ArraySortedSetIterator implements Iterator<T> {
+        private int cursor = from;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < to;
+        }
+
+        @Override
+        public T next() {
+            if (cursor >= to) {
+                throw new NoSuchElementException();
+            }
+            return elementAt(cursor++);
+        }
+    }
+
+    private class DescendingArraySortedSetIterator implements Iterator<T> {
+        private int cursor = to;
+
+        @Override
+        public boolean hasNext() {
+            return cursor > from;
+        }
+
+        @Override
+        public T next() {
+            if (cursor <= from) {
+                throw new NoSuchElementException();
+            }
+            return elementAt(--cursor);
+        }
+    }
+
+    private class ArraySortedSetSpliterator implements Spliterator<T> {
+        private static final int characteristics = ORDERED | DISTINCT | SORTED | SIZED | NONNULL | IMMUTABLE | SUBSIZED;
+        private int index;
+        private final int fence;
+
+        private ArraySortedSetSpliterator(int index, int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index < fence) {
+                action.accept(elementAt(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            int i = index;
+            index = fence;
+            for (; i < fence; i++) {
+                action.accept(elementAt(i));
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            // the prefix goes to the new spliterator, as the Spliterator contract requires for ORDERED spliterators
+            Spliterator<T> prefix = new ArraySortedSetSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public boolean hasCharacteristics(int characteristics) {
+            return (ArraySortedSetSpliterator.characteristics & characteristics) == characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator(); // same as the set, null for the natural ordering
+        }
+    }
+}
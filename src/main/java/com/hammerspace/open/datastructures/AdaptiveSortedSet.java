@@ -0,0 +1,1062 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A mutable {@link NavigableSet} that changes its internal representation as it grows and shrinks.
+ *
+ * A single element is stored inline, exactly like {@link SingletonSortedSet} does. Once a second element is added the
+ * elements move into a packed, sorted {@code Object[]} and once the set grows beyond {@code treeThreshold} elements
+ * they move into a {@link TreeSet}. Removals walk the same path backwards; the move from the tree back to the array
+ * only happens once the set has shrunk to half of {@code treeThreshold} so that a set hovering around the threshold
+ * does not keep copying its elements back and forth.
+ *
+ * Just like {@link SingletonSortedSet} the elements must implement {@link Comparable} and cannot be null.
+ */
+public class AdaptiveSortedSet<T extends Comparable<? super T>> extends AbstractSet<T>
+        implements LookupSortedSet<T> {
+
+    /**
+     * Number of elements above which the elements are moved from the packed array into a {@link TreeSet}.
+     */
+    public static final int DEFAULT_TREE_THRESHOLD = 32;
+
+    private static final int INITIAL_ARRAY_CAPACITY = 4;
+
+    private static final SortedSetMetrics METRICS = SortedSetMetrics.of(AdaptiveSortedSet.class);
+
+    // null when empty, the element itself when holding a single element, a sorted Object[] (of which only the first
+    // size slots are used) for small sets and a TreeSet once the set has grown beyond treeThreshold
+    private Object elements;
+    private int size;
+    private final int treeThreshold;
+
+    public AdaptiveSortedSet() {
+        this(DEFAULT_TREE_THRESHOLD);
+    }
+
+    public AdaptiveSortedSet(int treeThreshold) {
+        if (treeThreshold < 2) {
+            throw new IllegalArgumentException("treeThreshold must be at least 2");
+        }
+        this.treeThreshold = treeThreshold;
+        METRICS.created(0);
+    }
+
+    public AdaptiveSortedSet(Collection<? extends T> c) {
+        this.treeThreshold = DEFAULT_TREE_THRESHOLD;
+        for (T t : c) {
+            add(t);
+        }
+        METRICS.created(size);
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElement(Comparable)}: returns the instance held by this set that compares
+     * equal to {@code element}, or null if there is none.
+     */
+    @Override
+    @Nullable
+    public T getElement(T element) {
+        if (element == null) {
+            return null;
+        }
+        METRICS.lookup();
+        if (elements instanceof TreeSet) {
+            TreeSet<T> tree = tree();
+            T candidate = tree.ceiling(element);
+            return candidate != null && candidate.compareTo(element) == 0 ? candidate : null;
+        }
+        switch (size) {
+            case 0:
+                return null;
+            case 1:
+                T only = only();
+                return only.compareTo(element) == 0 ? only : null;
+            default:
+                Object[] array = array();
+                int idx = Arrays.binarySearch(array, 0, size, element);
+                return idx >= 0 ? elementAt(array, idx) : null;
+        }
+    }
+
+    /**
+     * Same as {@link ArraySortedSet#getElements(SortedSet, Consumer)}: a single galloping pass over the array for
+     * {@code probes} in natural order. Once the elements are in a tree, enough such probes are merged with an in-order
+     * walk of the tree instead of descending it once per probe.
+     *
+     * @return the number of probes found
+     */
+    @Override
+    public int getElements(SortedSet<T> probes, Consumer<? super T> action) {
+        if (probes.comparator() == null) {
+            if (size > 1 && !(elements instanceof TreeSet)) {
+                return SortedSetAlgebra.getElements(array(), 0, size, null, probes, action);
+            }
+            if (elements instanceof TreeSet && walkTree(probes.size())) {
+                return walkTree(probes, action);
+            }
+        }
+        return LookupSortedSet.super.getElements(probes, action);
+    }
+
+    /**
+     * A {@link SortedSet} in natural order is checked in a single pass over the array or the tree, like
+     * {@link #getElements(SortedSet, Consumer)}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof SortedSet && ((SortedSet<?>) c).comparator() == null) {
+            SortedSet<T> probes = (SortedSet<T>) c;
+            if (size > 1 && !(elements instanceof TreeSet)) {
+                return SortedSetAlgebra.containsAll(array(), 0, size, null, probes);
+            }
+            if (elements instanceof TreeSet && walkTree(probes.size())) {
+                int count = probes.size();
+                return count <= size && walkTree(probes, t -> { }) == count;
+            }
+        }
+        return super.containsAll(c);
+    }
+
+    /**
+     * Whether walking the whole tree is cheaper than a descent per probe.
+     */
+    private boolean walkTree(int probes) {
+        int depth = 32 - Integer.numberOfLeadingZeros(size);
+        return (long) probes * depth >= size;
+    }
+
+    private int walkTree(SortedSet<T> probes, Consumer<? super T> action) {
+        Iterator<T> iterator = tree().iterator();
+        T current = iterator.hasNext() ? iterator.next() : null;
+        int found = 0;
+        for (T probe : probes) {
+            while (current != null && current.compareTo(probe) < 0) {
+                current = iterator.hasNext() ? iterator.next() : null;
+            }
+            if (current == null) {
+                break;
+            }
+            if (current.compareTo(probe) == 0) {
+                action.accept(current);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The number of elements above which this set holds its elements in a {@link TreeSet}.
+     */
+    public int getTreeThreshold() {
+        return treeThreshold;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new SubSet(null, false, Objects.requireNonNull(toElement), inclusive);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new SubSet(Objects.requireNonNull(fromElement), inclusive, null, false);
+    }
+
+    @Override
+    public T lower(T t) {
+        return rangeLast(null, false, Objects.requireNonNull(t), false);
+    }
+
+    @Override
+    public T floor(T t) {
+        return rangeLast(null, false, Objects.requireNonNull(t), true);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return rangeFirst(Objects.requireNonNull(t), true, null, false);
+    }
+
+    @Override
+    public T higher(T t) {
+        return rangeFirst(Objects.requireNonNull(t), false, null, false);
+    }
+
+    @Override
+    public T pollFirst() {
+        T first = rangeFirst(null, false, null, false);
+        if (first != null) {
+            remove(first);
+        }
+        return first;
+    }
+
+    @Override
+    public T pollLast() {
+        T last = rangeLast(null, false, null, false);
+        if (last != null) {
+            remove(last);
+        }
+        return last;
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return rangeIterator(null, false, null, false, true);
+    }
+
+    @Override
+    public T first() {
+        T first = rangeFirst(null, false, null, false);
+        if (first == null) {
+            throw new NoSuchElementException();
+        }
+        return first;
+    }
+
+    @Override
+    public T last() {
+        T last = rangeLast(null, false, null, false);
+        if (last == null) {
+            throw new NoSuchElementException();
+        }
+        return last;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        METRICS.lookup();
+        if (elements instanceof TreeSet) {
+            return tree().contains(o);
+        }
+        switch (size) {
+            case 0:
+                return false;
+            case 1:
+                return only().compareTo(cast(o)) == 0;
+            default:
+                return Arrays.binarySearch(array(), 0, size, o) >= 0;
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return rangeIterator(null, false, null, false, false);
+    }
+
+    /*
+     * forEach(), toArray() and removeIf() are overridden so that they walk the representation directly instead of
+     * going through an iterator: on a set that holds one element or an array they allocate nothing beyond the array
+     * that toArray() returns.
+     */
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        if (elements instanceof TreeSet) {
+            tree().forEach(action);
+            return;
+        }
+        switch (size) {
+            case 0:
+                return;
+            case 1:
+                action.accept(only());
+                return;
+            default:
+                Object[] array = array();
+                for (int i = 0; i < size; i++) {
+                    action.accept(elementAt(array, i));
+                }
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        if (elements instanceof TreeSet) {
+            return tree().toArray();
+        }
+        switch (size) {
+            case 0:
+                return new Object[0];
+            case 1:
+                return new Object[]{elements};
+            default:
+                return Arrays.copyOf(array(), size);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T1> T1[] toArray(T1[] a) {
+        if (elements instanceof TreeSet) {
+            return tree().toArray(a);
+        }
+        if (a.length < size) {
+            a = (T1[]) Array.newInstance(a.getClass().getComponentType(), size);
+        }
+        if (size == 1) {
+            a[0] = (T1) elements;
+        } else if (size > 1) {
+            System.arraycopy(array(), 0, a, 0, size);
+        }
+        if (a.length > size) {
+            a[size] = null;
+        }
+        return a;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter);
+        if (elements instanceof TreeSet) {
+            TreeSet<T> tree = tree();
+            if (!tree.removeIf(filter)) {
+                return false;
+            }
+            size = tree.size();
+            shrinkTree();
+            return true;
+        }
+        switch (size) {
+            case 0:
+                return false;
+            case 1:
+                if (!filter.test(only())) {
+                    return false;
+                }
+                clear();
+                return true;
+            default:
+                return removeFromArrayIf(filter);
+        }
+    }
+
+    private boolean removeFromArrayIf(Predicate<? super T> filter) {
+        Object[] array = array();
+        int oldSize = size;
+        int kept = 0;
+        int i = 0;
+        try {
+            for (; i < oldSize; i++) {
+                if (!filter.test(elementAt(array, i))) {
+                    array[kept++] = array[i];
+                }
+            }
+        } finally {
+            // if the filter threw, keep the elements it has not seen yet
+            System.arraycopy(array, i, array, kept, oldSize - i);
+            kept += oldSize - i;
+            Arrays.fill(array, kept, oldSize, null);
+            size = kept;
+            if (size == 1) {
+                elements = array[0];
+            } else if (size == 0) {
+                elements = null;
+            }
+        }
+        return kept < oldSize;
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (t == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        if (elements instanceof TreeSet) {
+            if (!tree().add(t)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+        switch (size) {
+            case 0:
+                elements = t;
+                size = 1;
+                return true;
+            case 1:
+                T only = only();
+                int cmp = t.compareTo(only);
+                if (cmp == 0) {
+                    return false;
+                }
+                Object[] array = new Object[Math.min(INITIAL_ARRAY_CAPACITY, treeThreshold)];
+                array[0] = cmp < 0 ? t : only;
+                array[1] = cmp < 0 ? only : t;
+                elements = array;
+                size = 2;
+                METRICS.promoted();
+                return true;
+            default:
+                return addToArray(t);
+        }
+    }
+
+    private boolean addToArray(T t) {
+        Object[] array = array();
+        int idx = Arrays.binarySearch(array, 0, size, t);
+        if (idx >= 0) {
+            return false;
+        }
+        if (size == treeThreshold) {
+            TreeSet<T> tree = new TreeSet<>();
+            for (int i = 0; i < size; i++) {
+                tree.add(elementAt(array, i));
+            }
+            tree.add(t);
+            elements = tree;
+            size++;
+            METRICS.promoted();
+            return true;
+        }
+        int insertionPoint = -(idx + 1);
+        if (size == array.length) {
+            Object[] grown = new Object[Math.min(treeThreshold, size + (size >> 1))];
+            System.arraycopy(array, 0, grown, 0, insertionPoint);
+            System.arraycopy(array, insertionPoint, grown, insertionPoint + 1, size - insertionPoint);
+            array = grown;
+            elements = grown;
+        } else {
+            System.arraycopy(array, insertionPoint, array, insertionPoint + 1, size - insertionPoint);
+        }
+        array[insertionPoint] = t;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        if (elements instanceof TreeSet) {
+            if (!tree().remove(o)) {
+                return false;
+            }
+            size--;
+            shrinkTree();
+            return true;
+        }
+        switch (size) {
+            case 0:
+                return false;
+            case 1:
+                if (only().compareTo(cast(o)) != 0) {
+                    return false;
+                }
+                elements = null;
+                size = 0;
+                return true;
+            default:
+                int idx = Arrays.binarySearch(array(), 0, size, o);
+                if (idx < 0) {
+                    return false;
+                }
+                removeFromArray(idx);
+                return true;
+        }
+    }
+
+    private void removeFromArray(int idx) {
+        Object[] array = array();
+        System.arraycopy(array, idx + 1, array, idx, size - idx - 1);
+        array[--size] = null;
+        if (size == 1) {
+            elements = array[0];
+        }
+    }
+
+    /**
+     * Moves the elements out of the tree once it has shrunk to half of the threshold.
+     */
+    private void shrinkTree() {
+        if (size > treeThreshold / 2) {
+            return;
+        }
+        METRICS.demoted();
+        TreeSet<T> tree = tree();
+        switch (size) {
+            case 0:
+                elements = null;
+                break;
+            case 1:
+                elements = tree.first();
+                break;
+            default:
+                Object[] array = new Object[Math.min(treeThreshold, size + (size >> 1))];
+                int i = 0;
+                for (T t : tree) {
+                    array[i++] = t;
+                }
+                elements = array;
+                break;
+        }
+    }
+
+    @Override
+    public void clear() {
+        elements = null;
+        size = 0;
+    }
+
+    /*
+     * The methods below operate on the elements within a range and back both this set (with an unbounded range) and
+     * its range views. A null bound means that the range is unbounded on that side.
+     */
+
+    private int rangeSize(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        if (elements instanceof TreeSet) {
+            return lo == null && hi == null ? size : treeRange(lo, loInclusive, hi, hiInclusive).size();
+        }
+        switch (size) {
+            case 0:
+                return 0;
+            case 1:
+                return Ranges.inRange(only(), lo, loInclusive, hi, hiInclusive) ? 1 : 0;
+            default:
+                Object[] array = array();
+                return Math.max(0, toIndex(array, hi, hiInclusive) - fromIndex(array, lo, loInclusive));
+        }
+    }
+
+    @Nullable
+    private T rangeFirst(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        T first;
+        if (elements instanceof TreeSet) {
+            TreeSet<T> tree = tree();
+            if (lo == null) {
+                first = tree.isEmpty() ? null : tree.first();
+            } else {
+                first = loInclusive ? tree.ceiling(lo) : tree.higher(lo);
+            }
+        } else if (size == 0) {
+            return null;
+        } else if (size == 1) {
+            first = only();
+        } else {
+            int idx = fromIndex(array(), lo, loInclusive);
+            first = idx < size ? elementAt(array(), idx) : null;
+        }
+        return first != null && Ranges.inRange(first, lo, loInclusive, hi, hiInclusive) ? first : null;
+    }
+
+    @Nullable
+    private T rangeLast(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        T last;
+        if (elements instanceof TreeSet) {
+            TreeSet<T> tree = tree();
+            if (hi == null) {
+                last = tree.isEmpty() ? null : tree.last();
+            } else {
+                last = hiInclusive ? tree.floor(hi) : tree.lower(hi);
+            }
+        } else if (size == 0) {
+            return null;
+        } else if (size == 1) {
+            last = only();
+        } else {
+            int idx = toIndex(array(), hi, hiInclusive) - 1;
+            last = idx >= 0 ? elementAt(array(), idx) : null;
+        }
+        return last != null && Ranges.inRange(last, lo, loInclusive, hi, hiInclusive) ? last : null;
+    }
+
+    private Iterator<T> rangeIterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending) {
+        if (elements instanceof TreeSet) {
+            NavigableSet<T> range = treeRange(lo, loInclusive, hi, hiInclusive);
+            return new TreeIterator(tree(), descending ? range.descendingIterator() : range.iterator());
+        }
+        switch (size) {
+            case 0:
+                return Collections.emptyIterator();
+            case 1:
+                T only = only();
+                if (!Ranges.inRange(only, lo, loInclusive, hi, hiInclusive)) {
+                    return Collections.emptyIterator();
+                }
+                return new SingleElementIterator(only);
+            default:
+                Object[] array = array();
+                return new ArrayIterator(array, fromIndex(array, lo, loInclusive), toIndex(array, hi, hiInclusive),
+                        descending);
+        }
+    }
+
+    private NavigableSet<T> treeRange(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        TreeSet<T> tree = tree();
+        if (lo == null) {
+            return hi == null ? tree : tree.headSet(hi, hiInclusive);
+        }
+        return hi == null ? tree.tailSet(lo, loInclusive) : tree.subSet(lo, loInclusive, hi, hiInclusive);
+    }
+
+    /**
+     * The index of the first element of the array that is not below {@code lo}.
+     */
+    private int fromIndex(Object[] array, T lo, boolean loInclusive) {
+        if (lo == null) {
+            return 0;
+        }
+        int idx = Arrays.binarySearch(array, 0, size, lo);
+        if (idx >= 0) {
+            return loInclusive ? idx : idx + 1;
+        }
+        return -(idx + 1);
+    }
+
+    /**
+     * The index following the last element of the array that is not above {@code hi}.
+     */
+    private int toIndex(Object[] array, T hi, boolean hiInclusive) {
+        if (hi == null) {
+            return size;
+        }
+        int idx = Arrays.binarySearch(array, 0, size, hi);
+        if (idx >= 0) {
+            return hiInclusive ? idx + 1 : idx;
+        }
+        return -(idx + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T only() {
+        return (T) elements;
+    }
+
+    private Object[] array() {
+        return (Object[]) elements;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TreeSet<T> tree() {
+        return (TreeSet<T>) elements;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T elementAt(Object[] array, int idx) {
+        return (T) array[idx];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object o) {
+        return (T) o;
+    }
+
+    private class SingleElementIterator implements Iterator<T> {
+        private final T onlyElem;
+        private boolean returned;
+        private boolean removed;
+
+        private SingleElementIterator(T onlyElem) {
+            this.onlyElem = onlyElem;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !returned;
+        }
+
+        @Override
+        public T next() {
+            if (returned) {
+                throw new NoSuchElementException();
+            }
+            returned = true;
+            return onlyElem;
+        }
+
+        @Override
+        public void remove() {
+            if (!returned || removed) {
+                throw new IllegalStateException();
+            }
+            if (size != 1 || elements != onlyElem) {
+                throw new ConcurrentModificationException();
+            }
+            removed = true;
+            clear();
+        }
+    }
+
+    private class ArrayIterator implements Iterator<T> {
+        // removing elements never reallocates the array; it may only hand the last element over to the
+        // single-element representation, which leaves it in place at index 0
+        private final Object[] array;
+        private final boolean descending;
+        private int expectedSize;
+        private int cursor;
+        private int fence;
+        private int lastReturned = -1;
+
+        private ArrayIterator(Object[] array, int from, int to, boolean descending) {
+            this.array = array;
+            this.descending = descending;
+            this.expectedSize = size;
+            this.cursor = descending ? to : from;
+            this.fence = descending ? from : to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return descending ? cursor > fence : cursor < fence;
+        }
+
+        @Override
+        public T next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = descending ? --cursor : cursor++;
+            return elementAt(array, lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            if (size == 1) {
+                // the set has already handed its last element over to the single-element representation
+                clear();
+            } else {
+                removeFromArray(lastReturned);
+            }
+            if (!descending) {
+                // the elements that are still to come have shifted down by one
+                cursor = lastReturned;
+                fence--;
+            }
+            lastReturned = -1;
+            expectedSize = size;
+        }
+
+        private void checkForComodification() {
+            Object expected = size > 1 ? array : size == 1 ? array[0] : null;
+            if (size != expectedSize || elements != expected) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private class TreeIterator implements Iterator<T> {
+        // removals through this iterator never move the elements out of the tree, so the underlying iterator stays
+        // valid; the next call to remove(Object) takes care of shrinking the representation
+        private final TreeSet<T> tree;
+        private final Iterator<T> treeIterator;
+
+        private TreeIterator(TreeSet<T> tree, Iterator<T> treeIterator) {
+            this.tree = tree;
+            this.treeIterator = treeIterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return treeIterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return treeIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (elements != tree) {
+                throw new ConcurrentModificationException();
+            }
+            treeIterator.remove();
+            size--;
+        }
+    }
+
+    /**
+     * A live view of the elements of this set within a range; see {@link NavigableSet#subSet(Object, boolean, Object,
+     * boolean)}.
+     *
+     * The view does not hold on to any representation of the set, so it remains valid as the set moves between its
+     * representations. A null bound means that the view is unbounded on that side.
+     */
+    private class SubSet extends AbstractSet<T> implements LookupSortedSet<T> {
+        private final T lo;
+        private final boolean loInclusive;
+        private final T hi;
+        private final boolean hiInclusive;
+
+        private SubSet(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            METRICS.rangeView();
+        }
+
+        private boolean inRange(T t) {
+            return Ranges.inRange(t, lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Whether {@code t} can be used as a bound of a nested view; same as TreeMap's sub-maps, an exclusive bound may
+         * sit on an exclusive bound of this view.
+         */
+        private boolean inRange(T t, boolean inclusive) {
+            if (inclusive) {
+                return inRange(t);
+            }
+            return (lo == null || t.compareTo(lo) >= 0) && (hi == null || t.compareTo(hi) <= 0);
+        }
+
+        @Override
+        @Nullable
+        public T getElement(T element) {
+            return element != null && inRange(element) ? AdaptiveSortedSet.this.getElement(element) : null;
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return null; // we use the natural ordering of elements
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            if (!inRange(fromElement, fromInclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            if (!inRange(toElement, toInclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            if (!inRange(toElement, inclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(lo, loInclusive, toElement, inclusive);
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            if (!inRange(fromElement, inclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            return new SubSet(fromElement, inclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public T lower(T t) {
+            if (Ranges.tooHigh(t, hi, hiInclusive)) {
+                return rangeLast(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeLast(lo, loInclusive, t, false);
+        }
+
+        @Override
+        public T floor(T t) {
+            if (Ranges.tooHigh(t, hi, hiInclusive)) {
+                return rangeLast(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeLast(lo, loInclusive, t, true);
+        }
+
+        @Override
+        public T ceiling(T t) {
+            if (Ranges.tooLow(t, lo, loInclusive)) {
+                return rangeFirst(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeFirst(t, true, hi, hiInclusive);
+        }
+
+        @Override
+        public T higher(T t) {
+            if (Ranges.tooLow(t, lo, loInclusive)) {
+                return rangeFirst(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeFirst(t, false, hi, hiInclusive);
+        }
+
+        @Override
+        public T pollFirst() {
+            T first = rangeFirst(lo, loInclusive, hi, hiInclusive);
+            if (first != null) {
+                AdaptiveSortedSet.this.remove(first);
+            }
+            return first;
+        }
+
+        @Override
+        public T pollLast() {
+            T last = rangeLast(lo, loInclusive, hi, hiInclusive);
+            if (last != null) {
+                AdaptiveSortedSet.this.remove(last);
+            }
+            return last;
+        }
+
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new DescendingNavigableSet<>(this);
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return rangeIterator(lo, loInclusive, hi, hiInclusive, true);
+        }
+
+        @Override
+        public T first() {
+            T first = rangeFirst(lo, loInclusive, hi, hiInclusive);
+            if (first == null) {
+                throw new NoSuchElementException();
+            }
+            return first;
+        }
+
+        @Override
+        public T last() {
+            T last = rangeLast(lo, loInclusive, hi, hiInclusive);
+            if (last == null) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+
+        @Override
+        public int size() {
+            return rangeSize(lo, loInclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return rangeFirst(lo, loInclusive, hi, hiInclusive) == null;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && inRange(cast(o)) && AdaptiveSortedSet.this.contains(o);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return rangeIterator(lo, loInclusive, hi, hiInclusive, false);
+        }
+
+        @Override
+        public boolean add(T t) {
+            if (t == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            if (!inRange(t)) {
+                throw new IllegalArgumentException("element out of range");
+            }
+            return AdaptiveSortedSet.this.add(t);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o != null && inRange(cast(o)) && AdaptiveSortedSet.this.remove(o);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable {@link SortedMap} that holds its keys and values in two parallel arrays, the keys sorted.
+ *
+ * This is the {@link SortedMap} counterpart of {@link ArraySortedSet}, for maps that hold a handful of entries:
+ * instead of one {@code TreeMap.Entry} per entry, as a {@link java.util.TreeMap} would have, there are just the two
+ * arrays. {@link #get(Object)} and {@link #containsKey(Object)} are binary searches over the keys, and the range views
+ * are slices that share the arrays with this map; so does {@link #keySet()}, which is an {@link ArraySortedSet}. No
+ * entries are stored: the iterator of {@link #entrySet()} makes an immutable entry for every call to {@code next()},
+ * and {@link #forEach(BiConsumer)} hands out the keys and values without any entry at all.
+ *
+ * Just like {@link SingletonSortedMap} the keys must implement {@link Comparable}, and neither keys nor values can be
+ * null.
+ */
+public class ArraySortedMap<K extends Comparable<? super K>, V> implements SortedMap<K, V> {
+
+    // not an AbstractMap: its two cached view fields would add 8 bytes to every instance
+
+    // keys[from, to) holds the keys of this map in ascending order and values[from, to) their values; slices share
+    // both arrays with their parent
+    private final Object[] keys;
+    private final Object[] values;
+    private final int from;
+    private final int to;
+
+    /**
+     * Copies the entries of {@code m}. If {@code m} holds keys that compare equal but are not
+     * {@link Object#equals(Object)}, only the first one encountered is kept. There is no need to sort a
+     * {@link SortedMap} in natural order, so its entries are copied as-is.
+     */
+    public ArraySortedMap(Map<? extends K, ? extends V> m) {
+        Map.Entry<?, ?>[] entries = m.entrySet().toArray(new Map.Entry<?, ?>[0]);
+        boolean sorted = m instanceof SortedMap && ((SortedMap<?, ?>) m).comparator() == null;
+        if (!sorted) {
+            Arrays.sort(entries, (a, b) -> ArraySortedMap.<K>keyOf(a).compareTo(keyOf(b)));
+        }
+        Object[] keyArray = new Object[entries.length];
+        Object[] valueArray = new Object[entries.length];
+        int length = 0;
+        for (Map.Entry<?, ?> entry : entries) {
+            K key = keyOf(entry);
+            Object value = entry.getValue();
+            if (key == null) {
+                throw new IllegalArgumentException("cannot have null keys");
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("cannot have null values");
+            }
+            if (!sorted && length > 0 && key.compareTo(keyAt(keyArray, length - 1)) == 0) {
+                continue;
+            }
+            keyArray[length] = key;
+            valueArray[length] = value;
+            length++;
+        }
+        this.keys = length == keyArray.length ? keyArray : Arrays.copyOf(keyArray, length);
+        this.values = length == valueArray.length ? valueArray : Arrays.copyOf(valueArray, length);
+        this.from = 0;
+        this.to = length;
+    }
+
+    ArraySortedMap(Object[] keys, Object[] values, int from, int to) {
+        this.keys = keys;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return null; // we use the natural ordering of keys
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        // fromKey inclusive, toKey exclusive
+        if (fromKey.compareTo(toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return slice(indexOf(fromKey), indexOf(toKey));
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        // return all entries with keys strictly less than toKey
+        return slice(from, indexOf(toKey));
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        // return all entries with keys greater than or equal to fromKey
+        return slice(indexOf(fromKey), to);
+    }
+
+    private SortedMap<K, V> slice(int sliceFrom, int sliceTo) {
+        if (sliceFrom == from && sliceTo == to) {
+            return this;
+        }
+        if (sliceFrom >= sliceTo) {
+            return Collections.emptySortedMap();
+        }
+        return new ArraySortedMap<>(keys, values, sliceFrom, sliceTo);
+    }
+
+    /**
+     * The index of the first key that is greater than or equal to {@code key}.
+     */
+    private int indexOf(K key) {
+        int idx = Arrays.binarySearch(keys, from, to, key);
+        return idx >= 0 ? idx : -(idx + 1);
+    }
+
+    @Override
+    public K firstKey() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(keys, from);
+    }
+
+    @Override
+    public K lastKey() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(keys, to - 1);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public boolean containsKey(Object o) {
+        return o != null && Arrays.binarySearch(keys, from, to, o) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (o.equals(values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V get(Object o) {
+        return getOrDefault(o, null);
+    }
+
+    @Override
+    public V getOrDefault(Object o, V defaultValue) {
+        if (o == null) {
+            return defaultValue;
+        }
+        int idx = Arrays.binarySearch(keys, from, to, o);
+        return idx >= 0 ? valueAt(idx) : defaultValue;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = from; i < to; i++) {
+            action.accept(keyAt(keys, i), valueAt(i));
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return ArraySortedSet.view(keys, from, to);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
+
+    /**
+     * The iterator of the returned set makes an immutable entry per element; {@link #forEach(BiConsumer)} makes none.
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public V remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Map)) {
+            return false;
+        }
+        Map<?, ?> rhs = (Map<?, ?>) o;
+        if (rhs.size() != size()) {
+            return false;
+        }
+        try {
+            for (int i = from; i < to; i++) {
+                if (!values[i].equals(rhs.get(keys[i]))) {
+                    return false;
+                }
+            }
+        } catch (ClassCastException | NullPointerException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = from; i < to; i++) {
+            hashCode += keys[i].hashCode() ^ values[i].hashCode();
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                sb.append(", ");
+            }
+            sb.append(keys[i]).append('=').append(values[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K keyOf(Map.Entry<?, ?> entry) {
+        return (K) entry.getKey();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K keyAt(Object[] keys, int idx) {
+        return (K) keys[idx];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int idx) {
+        return (V) values[idx];
+    }
+
+    private class Values extends AbstractList<V> {
+        @Override
+        public V get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+            }
+            return valueAt(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            Object value = entry.getValue();
+            return value != null && value.equals(get(entry.getKey()));
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int cursor = from;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < to;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (cursor >= to) {
+                throw new NoSuchElementException();
+            }
+            int i = cursor++;
+            return new AbstractMap.SimpleImmutableEntry<>(keyAt(keys, i), valueAt(i));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+
+/**
+ * An immutable {@link NavigableSet} that holds its elements in a single sorted {@code Object[]}.
+ *
+ * This is the sibling of {@link SingletonSortedSet} for sets that hold a handful of elements (think 2 to 64): instead
+ * of one {@code TreeMap.Entry} per element, as a {@link java.util.TreeSet} would have, there is just the array.
+ * {@link #contains(Object)}, {@link #getElement(Comparable)} and the {@link NavigableSet} lookups are binary searches
+ * over the array, and the range views are slices that share the array with this set.
+ *
+ * Just like {@link SingletonSortedSet} the elements must implement {@link Comparable} and cannot be null.
+ */
+public class ArraySortedSet<T extends Comparable<? super T>> extends AbstractArraySortedSet<T> {
+
+    private static final SortedSetMetrics METRICS = SortedSetMetrics.of(ArraySortedSet.class);
+
+    /**
+     * Copies the elements of {@code c}. Duplicates (as defined by {@link Comparable#compareTo(Object)}) are dropped,
+     * keeping the first one encountered. There is no need to sort a {@link SortedSet} in natural order, so its
+     * elements are copied as-is.
+     */
+    public ArraySortedSet(Collection<? extends T> c) {
+        this(sortedArray(c, null));
+        METRICS.created(size());
+    }
+
+    private ArraySortedSet(Object[] elements) {
+        super(elements, 0, elements.length);
+    }
+
+    private ArraySortedSet(Object[] elements, int from, int to) {
+        super(elements, from, to);
+    }
+
+    /**
+     * A new set of {@code elements[from, to)}, which must be distinct, non-null and in ascending order, without
+     * copying them. The array must not change afterwards. Unlike the range views, these count as created sets in the
+     * {@link SortedSetMetrics}.
+     */
+    static <T extends Comparable<? super T>> ArraySortedSet<T> wrap(Object[] elements, int from, int to) {
+        METRICS.created(to - from);
+        return new ArraySortedSet<>(elements, from, to);
+    }
+
+    /**
+     * A view of {@code elements[from, to)}, such as the key set of an {@link ArraySortedMap}, with the same
+     * requirements as {@link #wrap}. It shares the array of a set or map that was already counted as created, so it
+     * counts as a range view in the {@link SortedSetMetrics} instead.
+     */
+    static <T extends Comparable<? super T>> ArraySortedSet<T> view(Object[] elements, int from, int to) {
+        METRICS.rangeView();
+        return new ArraySortedSet<>(elements, from, to);
+    }
+
+    @Override
+    NavigableSet<T> newSlice(int sliceFrom, int sliceTo, Ranges.Bounds<T> bounds) {
+        METRICS.rangeView();
+        return new Slice<>(array(), sliceFrom, sliceTo, bounds);
+    }
+
+    @Override
+    NavigableSet<T> emptyView() {
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    @Nullable
+    public T getElement(T element) {
+        if (element == null) {
+            return null;
+        }
+        METRICS.lookup();
+        return super.getElement(element);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        METRICS.lookup();
+        return super.contains(o);
+    }
+
+    /**
+     * A range view, which unlike the sets it is taken from also holds the bounds it was created with.
+     */
+    private static final class Slice<T extends Comparable<? super T>> extends ArraySortedSet<T> {
+        private final Ranges.Bounds<T> bounds;
+
+        private Slice(Object[] elements, int from, int to, Ranges.Bounds<T> bounds) {
+            super(elements, from, to);
+            this.bounds = bounds;
+        }
+
+        @Override
+        Ranges.Bounds<T> bounds() {
+            return bounds;
+        }
+    }
+}
@@ -0,0 +1,1269 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A mutable {@link NavigableSet} for large sets, laid out as a B+tree: the elements sit in sorted {@code Object[]}
+ * leaves of up to {@code nodeSize} elements each, chained both ways, and inner nodes of up to {@code nodeSize}
+ * children guide the lookups down to them. Compared to a {@link java.util.TreeSet}, which spends an entry object and
+ * its three pointers on every element, this holds a million elements in about twenty thousand arrays, a lookup reads
+ * four nodes instead of twenty, and iteration and range views walk consecutive array slots.
+ *
+ * Leaves and inner nodes other than the root are kept at least half full: an insert into a full node splits it and a
+ * removal from a node that drops below half borrows from a sibling or merges with it. A set built from a collection
+ * packs its leaves instead, and inserts in ascending order keep leaves full, so both stay close to one reference per
+ * element. The {@link Spliterator} splits along the tree, which makes parallel streams over the set balanced.
+ *
+ * Like {@link AdaptiveSortedSet}, whose top tier this is meant to replace for sets of many thousands of elements, the
+ * elements must implement {@link Comparable} and cannot be null. The iterators are fail-fast.
+ */
+public class BTreeSortedSet<T extends Comparable<? super T>> extends AbstractSet<T>
+        implements LookupSortedSet<T> {
+
+    /**
+     * The default maximum number of elements of a leaf and of children of an inner node. A node of 64 references
+     * spans four cache lines.
+     */
+    public static final int DEFAULT_NODE_SIZE = 64;
+
+    private static final int MIN_NODE_SIZE = 4;
+    private static final int INITIAL_LEAF_CAPACITY = 4;
+    private static final Object[] EMPTY = {};
+
+    private final int nodeSize;
+    // a Leaf while the set fits in one, an Inner above that
+    private Node root;
+    private Leaf firstLeaf;
+    private Leaf lastLeaf;
+    private int size;
+    private int modCount;
+
+    public BTreeSortedSet() {
+        this(DEFAULT_NODE_SIZE);
+    }
+
+    public BTreeSortedSet(int nodeSize) {
+        if (nodeSize < MIN_NODE_SIZE) {
+            throw new IllegalArgumentException("nodeSize must be at least " + MIN_NODE_SIZE + ": " + nodeSize);
+        }
+        this.nodeSize = nodeSize;
+        clear();
+    }
+
+    public BTreeSortedSet(Collection<? extends T> c) {
+        this(DEFAULT_NODE_SIZE, c);
+    }
+
+    /**
+     * Builds the tree bottom-up from the sorted elements of {@code c}, with every node as full as an even spread of the
+     * elements over the fewest nodes allows. A {@link SortedSet} in natural order is not sorted again.
+     */
+    public BTreeSortedSet(int nodeSize, Collection<? extends T> c) {
+        this(nodeSize);
+        Object[] array = c.toArray();
+        if (array.getClass() != Object[].class) {
+            array = Arrays.copyOf(array, array.length, Object[].class);
+        }
+        for (Object o : array) {
+            if (o == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+        }
+        int length = array.length;
+        if (!(c instanceof SortedSet && ((SortedSet<?>) c).comparator() == null)) {
+            Arrays.sort(array);
+            length = removeDuplicates(array);
+        }
+        if (length > 0) {
+            bulkLoad(array, length);
+        }
+    }
+
+    /**
+     * The maximum number of elements of a leaf and of children of an inner node.
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    @Override
+    @Nullable
+    public T getElement(T element) {
+        if (element == null) {
+            return null;
+        }
+        Leaf leaf = leafFor(element);
+        int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, element);
+        return idx >= 0 ? leaf.key(idx) : null;
+    }
+
+    /**
+     * Looks the probes up in one pass along the chained leaves when {@code probes} is in natural order: a probe in the
+     * current or the next leaf costs a binary search within that leaf, one further away a descent from the root.
+     */
+    @Override
+    public int getElements(SortedSet<T> probes, Consumer<? super T> action) {
+        if (probes.comparator() != null) {
+            return LookupSortedSet.super.getElements(probes, action);
+        }
+        if (size == 0) {
+            return 0;
+        }
+        Leaf leaf = firstLeaf;
+        int from = 0;
+        int found = 0;
+        for (T probe : probes) {
+            if (probe.compareTo(leaf.key(leaf.size - 1)) > 0) {
+                Leaf next = leaf.next;
+                if (next == null) {
+                    break;
+                }
+                leaf = probe.compareTo(next.key(next.size - 1)) <= 0 ? next : leafFor(probe);
+                from = 0;
+            }
+            int idx = Arrays.binarySearch(leaf.keys, from, leaf.size, probe);
+            if (idx >= 0) {
+                action.accept(leaf.key(idx));
+                found++;
+                from = idx + 1;
+            } else {
+                from = -(idx + 1);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new SubSet(null, false, Objects.requireNonNull(toElement), inclusive);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new SubSet(Objects.requireNonNull(fromElement), inclusive, null, false);
+    }
+
+    @Override
+    public T lower(T t) {
+        return floor(Objects.requireNonNull(t), false);
+    }
+
+    @Override
+    public T floor(T t) {
+        return floor(Objects.requireNonNull(t), true);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return ceiling(Objects.requireNonNull(t), true);
+    }
+
+    @Override
+    public T higher(T t) {
+        return ceiling(Objects.requireNonNull(t), false);
+    }
+
+    @Override
+    public T pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        T first = firstLeaf.key(0);
+        remove(first);
+        return first;
+    }
+
+    @Override
+    public T pollLast() {
+        if (size == 0) {
+            return null;
+        }
+        T last = lastLeaf.key(lastLeaf.size - 1);
+        remove(last);
+        return last;
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new LeafIterator(null, false, null, false, true);
+    }
+
+    @Override
+    public T first() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return firstLeaf.key(0);
+    }
+
+    @Override
+    public T last() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return lastLeaf.key(lastLeaf.size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        Leaf leaf = leafFor(o);
+        return Arrays.binarySearch(leaf.keys, 0, leaf.size, o) >= 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new LeafIterator(null, false, null, false, false);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new TreeSpliterator(root, 0, root.size, size, Spliterator.SIZED);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf leaf = firstLeaf; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; i++) {
+                action.accept(leaf.key(i));
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        return copyInto(new Object[size]);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T1> T1[] toArray(T1[] a) {
+        T1[] array = a.length >= size ? a : (T1[]) Array.newInstance(a.getClass().getComponentType(), size);
+        copyInto(array);
+        if (array.length > size) {
+            array[size] = null;
+        }
+        return array;
+    }
+
+    private <A> A[] copyInto(A[] array) {
+        int offset = 0;
+        for (Leaf leaf = firstLeaf; leaf != null; leaf = leaf.next) {
+            System.arraycopy(leaf.keys, 0, array, offset, leaf.size);
+            offset += leaf.size;
+        }
+        return array;
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (t == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        int before = size;
+        Node right = insert(root, t);
+        if (right != null) {
+            Inner newRoot = new Inner(nodeSize);
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.keys[0] = minimum(right);
+            newRoot.size = 2;
+            root = newRoot;
+        }
+        return size != before;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null || !remove(root, o)) {
+            return false;
+        }
+        if (root instanceof Inner && root.size == 1) {
+            root = ((Inner) root).children[0];
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Leaf leaf = new Leaf(EMPTY, 0);
+        root = leaf;
+        firstLeaf = leaf;
+        lastLeaf = leaf;
+        size = 0;
+        modCount++;
+    }
+
+    /*
+     * The tree. Within an inner node keys[i] separates children[i], whose elements are all smaller than keys[i], from
+     * children[i + 1], whose elements are all greater than or equal to it. Removals may leave a separator that is no
+     * longer an element; it still separates.
+     */
+
+    private Leaf leafFor(Object o) {
+        Node node = root;
+        while (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            node = inner.children[inner.childIndex(o)];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * The smallest element that is greater than (or equal to, if {@code inclusive}) {@code t}, or null.
+     */
+    @Nullable
+    private T ceiling(T t, boolean inclusive) {
+        Leaf leaf = leafFor(t);
+        int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, t);
+        int i = idx >= 0 ? (inclusive ? idx : idx + 1) : -(idx + 1);
+        if (i < leaf.size) {
+            return leaf.key(i);
+        }
+        return leaf.next != null ? leaf.next.key(0) : null;
+    }
+
+    /**
+     * The greatest element that is less than (or equal to, if {@code inclusive}) {@code t}, or null.
+     */
+    @Nullable
+    private T floor(T t, boolean inclusive) {
+        Leaf leaf = leafFor(t);
+        int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, t);
+        int i = idx >= 0 ? (inclusive ? idx : idx - 1) : -(idx + 1) - 1;
+        if (i >= 0) {
+            return leaf.key(i);
+        }
+        return leaf.prev != null ? leaf.prev.key(leaf.prev.size - 1) : null;
+    }
+
+    private static <T> T minimum(Node node) {
+        while (node instanceof Inner) {
+            node = ((Inner) node).children[0];
+        }
+        return ((Leaf) node).key(0);
+    }
+
+    /**
+     * Inserts {@code t} into the subtree of {@code node}.
+     *
+     * @return the new right sibling of {@code node} if it had to split, which its parent must adopt, or null
+     */
+    @Nullable
+    private Node insert(Node node, T t) {
+        if (node instanceof Leaf) {
+            return insert((Leaf) node, t);
+        }
+        Inner inner = (Inner) node;
+        int idx = inner.childIndex(t);
+        Node right = insert(inner.children[idx], t);
+        return right == null ? null : insertChild(inner, idx + 1, minimum(right), right);
+    }
+
+    @Nullable
+    private Leaf insert(Leaf leaf, T t) {
+        int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, t);
+        if (idx >= 0) {
+            return null;
+        }
+        int pos = -(idx + 1);
+        size++;
+        modCount++;
+        if (leaf.size < nodeSize) {
+            if (leaf.size == leaf.keys.length) {
+                leaf.keys = Arrays.copyOf(leaf.keys, Math.min(nodeSize, Math.max(INITIAL_LEAF_CAPACITY,
+                        2 * leaf.size)));
+            }
+            System.arraycopy(leaf.keys, pos, leaf.keys, pos + 1, leaf.size - pos);
+            leaf.keys[pos] = t;
+            leaf.size++;
+            return null;
+        }
+        // split the nodeSize + 1 elements between leaf and a new right sibling; appending to the last leaf leaves it
+        // full so that ascending inserts pack the leaves
+        int leftSize = leaf.next == null && pos == nodeSize ? nodeSize : (nodeSize + 1) / 2;
+        Leaf right = new Leaf(new Object[nodeSize], 0);
+        if (pos < leftSize) {
+            right.size = nodeSize - leftSize + 1;
+            System.arraycopy(leaf.keys, leftSize - 1, right.keys, 0, right.size);
+            System.arraycopy(leaf.keys, pos, leaf.keys, pos + 1, leftSize - 1 - pos);
+            leaf.keys[pos] = t;
+        } else {
+            int rightPos = pos - leftSize;
+            System.arraycopy(leaf.keys, leftSize, right.keys, 0, rightPos);
+            right.keys[rightPos] = t;
+            System.arraycopy(leaf.keys, pos, right.keys, rightPos + 1, nodeSize - pos);
+            right.size = nodeSize - leftSize + 1;
+        }
+        Arrays.fill(leaf.keys, leftSize, nodeSize, null);
+        leaf.size = leftSize;
+        right.prev = leaf;
+        right.next = leaf.next;
+        if (leaf.next != null) {
+            leaf.next.prev = right;
+        } else {
+            lastLeaf = right;
+        }
+        leaf.next = right;
+        return right;
+    }
+
+    /**
+     * Adds {@code child}, whose elements are all greater than or equal to {@code key}, at {@code pos} among the
+     * children of {@code inner}.
+     *
+     * @return the new right sibling of {@code inner} if it had to split, or null
+     */
+    @Nullable
+    private Inner insertChild(Inner inner, int pos, Object key, Node child) {
+        if (inner.size < nodeSize) {
+            System.arraycopy(inner.children, pos, inner.children, pos + 1, inner.size - pos);
+            System.arraycopy(inner.keys, pos - 1, inner.keys, pos, inner.size - pos);
+            inner.children[pos] = child;
+            inner.keys[pos - 1] = key;
+            inner.size++;
+            return null;
+        }
+        Node[] children = Arrays.copyOf(inner.children, nodeSize + 1);
+        Object[] keys = Arrays.copyOf(inner.keys, nodeSize);
+        System.arraycopy(children, pos, children, pos + 1, nodeSize - pos);
+        System.arraycopy(keys, pos - 1, keys, pos, nodeSize - pos);
+        children[pos] = child;
+        keys[pos - 1] = key;
+
+        // keys[leftSize - 1] separates the two halves; the parent recomputes it as the minimum of the right one
+        int leftSize = (nodeSize + 1) / 2;
+        Inner right = new Inner(nodeSize);
+        right.size = nodeSize + 1 - leftSize;
+        System.arraycopy(children, leftSize, right.children, 0, right.size);
+        System.arraycopy(keys, leftSize, right.keys, 0, right.size - 1);
+        System.arraycopy(children, 0, inner.children, 0, leftSize);
+        System.arraycopy(keys, 0, inner.keys, 0, leftSize - 1);
+        Arrays.fill(inner.children, leftSize, nodeSize, null);
+        Arrays.fill(inner.keys, leftSize - 1, nodeSize - 1, null);
+        inner.size = leftSize;
+        return right;
+    }
+
+    /**
+     * Removes {@code o} from the subtree of {@code node}, leaving {@code node} itself possibly less than half full for
+     * its parent to fix.
+     */
+    private boolean remove(Node node, Object o) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, o);
+            if (idx < 0) {
+                return false;
+            }
+            System.arraycopy(leaf.keys, idx + 1, leaf.keys, idx, leaf.size - idx - 1);
+            leaf.keys[--leaf.size] = null;
+            size--;
+            modCount++;
+            return true;
+        }
+        Inner inner = (Inner) node;
+        int idx = inner.childIndex(o);
+        if (!remove(inner.children[idx], o)) {
+            return false;
+        }
+        if (inner.children[idx].size < minNodeSize()) {
+            rebalance(inner, idx);
+        }
+        return true;
+    }
+
+    private int minNodeSize() {
+        return nodeSize / 2;
+    }
+
+    /**
+     * Brings the child at {@code idx} of {@code parent} back to half full, by borrowing an element (or a child) from a
+     * sibling that can spare one or else by merging it with a sibling.
+     */
+    private void rebalance(Inner parent, int idx) {
+        if (idx > 0 && parent.children[idx - 1].size > minNodeSize()) {
+            borrowFromLeft(parent, idx);
+        } else if (idx + 1 < parent.size && parent.children[idx + 1].size > minNodeSize()) {
+            borrowFromRight(parent, idx);
+        } else if (idx > 0) {
+            merge(parent, idx - 1);
+        } else {
+            merge(parent, idx);
+        }
+    }
+
+    private void borrowFromLeft(Inner parent, int idx) {
+        Node node = parent.children[idx];
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            Leaf left = (Leaf) parent.children[idx - 1];
+            leaf.ensureCapacity(leaf.size + 1, nodeSize);
+            System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.size);
+            leaf.keys[0] = left.keys[left.size - 1];
+            left.keys[--left.size] = null;
+            leaf.size++;
+            parent.keys[idx - 1] = leaf.keys[0];
+        } else {
+            Inner inner = (Inner) node;
+            Inner left = (Inner) parent.children[idx - 1];
+            System.arraycopy(inner.children, 0, inner.children, 1, inner.size);
+            System.arraycopy(inner.keys, 0, inner.keys, 1, inner.size - 1);
+            inner.children[0] = left.children[left.size - 1];
+            inner.keys[0] = parent.keys[idx - 1];
+            parent.keys[idx - 1] = left.keys[left.size - 2];
+            left.children[left.size - 1] = null;
+            left.keys[left.size - 2] = null;
+            left.size--;
+            inner.size++;
+        }
+    }
+
+    private void borrowFromRight(Inner parent, int idx) {
+        Node node = parent.children[idx];
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            Leaf right = (Leaf) parent.children[idx + 1];
+            leaf.ensureCapacity(leaf.size + 1, nodeSize);
+            leaf.keys[leaf.size++] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+            right.keys[--right.size] = null;
+            parent.keys[idx] = right.keys[0];
+        } else {
+            Inner inner = (Inner) node;
+            Inner right = (Inner) parent.children[idx + 1];
+            inner.children[inner.size] = right.children[0];
+            inner.keys[inner.size - 1] = parent.keys[idx];
+            parent.keys[idx] = right.keys[0];
+            System.arraycopy(right.children, 1, right.children, 0, right.size - 1);
+            System.arraycopy(right.keys, 1, right.keys, 0, right.size - 2);
+            right.children[right.size - 1] = null;
+            right.keys[right.size - 2] = null;
+            right.size--;
+            inner.size++;
+        }
+    }
+
+    /**
+     * Moves the contents of the child at {@code idx + 1} of {@code parent} into the child at {@code idx} and drops the
+     * emptied child.
+     */
+    private void merge(Inner parent, int idx) {
+        Node node = parent.children[idx];
+        if (node instanceof Leaf) {
+            Leaf left = (Leaf) node;
+            Leaf right = (Leaf) parent.children[idx + 1];
+            left.ensureCapacity(left.size + right.size, nodeSize);
+            System.arraycopy(right.keys, 0, left.keys, left.size, right.size);
+            left.size += right.size;
+            left.next = right.next;
+            if (right.next != null) {
+                right.next.prev = left;
+            } else {
+                lastLeaf = left;
+            }
+        } else {
+            Inner left = (Inner) node;
+            Inner right = (Inner) parent.children[idx + 1];
+            left.keys[left.size - 1] = parent.keys[idx];
+            System.arraycopy(right.keys, 0, left.keys, left.size, right.size - 1);
+            System.arraycopy(right.children, 0, left.children, left.size, right.size);
+            left.size += right.size;
+        }
+        System.arraycopy(parent.keys, idx + 1, parent.keys, idx, parent.size - 2 - idx);
+        System.arraycopy(parent.children, idx + 2, parent.children, idx + 1, parent.size - 2 - idx);
+        parent.keys[parent.size - 2] = null;
+        parent.children[parent.size - 1] = null;
+        parent.size--;
+    }
+
+    /**
+     * Builds the leaves and then each level of inner nodes above them, spreading the nodes of every level evenly over
+     * as few parents as possible.
+     */
+    private void bulkLoad(Object[] sorted, int length) {
+        int count = groups(length);
+        Node[] level = new Node[count];
+        Object[] minimums = new Object[count];
+        Leaf previous = null;
+        for (int i = 0, offset = 0; i < count; i++) {
+            int n = groupSize(length, count, i);
+            Leaf leaf = new Leaf(Arrays.copyOfRange(sorted, offset, offset + n), n);
+            if (previous == null) {
+                firstLeaf = leaf;
+            } else {
+                previous.next = leaf;
+                leaf.prev = previous;
+            }
+            previous = leaf;
+            level[i] = leaf;
+            minimums[i] = sorted[offset];
+            offset += n;
+        }
+        lastLeaf = previous;
+        while (count > 1) {
+            int parents = groups(count);
+            Node[] parentLevel = new Node[parents];
+            Object[] parentMinimums = new Object[parents];
+            for (int i = 0, offset = 0; i < parents; i++) {
+                int n = groupSize(count, parents, i);
+                Inner inner = new Inner(nodeSize);
+                System.arraycopy(level, offset, inner.children, 0, n);
+                System.arraycopy(minimums, offset + 1, inner.keys, 0, n - 1);
+                inner.size = n;
+                parentLevel[i] = inner;
+                parentMinimums[i] = minimums[offset];
+                offset += n;
+            }
+            level = parentLevel;
+            minimums = parentMinimums;
+            count = parents;
+        }
+        root = level[0];
+        size = length;
+    }
+
+    private int groups(int n) {
+        return (n + nodeSize - 1) / nodeSize;
+    }
+
+    private static int groupSize(int n, int groups, int i) {
+        return n / groups + (i < n % groups ? 1 : 0);
+    }
+
+    /**
+     * Compacts a sorted array in place so that its prefix holds each distinct element once; returns the length of that
+     * prefix.
+     */
+    @SuppressWarnings("unchecked")
+    private static int removeDuplicates(Object[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int length = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (((Comparable<Object>) sorted[length - 1]).compareTo(sorted[i]) != 0) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length;
+    }
+
+    /*
+     * The methods below operate on the elements within a range and back the range views. A null bound means that the
+     * range is unbounded on that side.
+     */
+
+    private int rangeSize(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        if (lo == null && hi == null) {
+            return size;
+        }
+        LeafIterator start = new LeafIterator(lo, loInclusive, null, false, false);
+        Leaf leaf = start.leaf;
+        int from = start.index;
+        int count = 0;
+        // whole leaves are counted without looking at their elements
+        while (leaf != null) {
+            if (!Ranges.tooHigh(leaf.key(leaf.size - 1), hi, hiInclusive)) {
+                count += leaf.size - from;
+                leaf = leaf.next;
+                from = 0;
+                continue;
+            }
+            int idx = Arrays.binarySearch(leaf.keys, from, leaf.size, hi);
+            int to = idx >= 0 ? (hiInclusive ? idx + 1 : idx) : -(idx + 1);
+            return count + Math.max(0, to - from);
+        }
+        return count;
+    }
+
+    @Nullable
+    private T rangeFirst(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        T first = lo == null ? (size == 0 ? null : firstLeaf.key(0)) : ceiling(lo, loInclusive);
+        return first != null && Ranges.inRange(first, lo, loInclusive, hi, hiInclusive) ? first : null;
+    }
+
+    @Nullable
+    private T rangeLast(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        T last = hi == null ? (size == 0 ? null : lastLeaf.key(lastLeaf.size - 1)) : floor(hi, hiInclusive);
+        return last != null && Ranges.inRange(last, lo, loInclusive, hi, hiInclusive) ? last : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object o) {
+        return (T) o;
+    }
+
+    private abstract static class Node {
+        // the number of elements of a leaf, the number of children of an inner node
+        int size;
+        // the elements of a leaf, the separators of an inner node
+        Object[] keys;
+    }
+
+    private static final class Leaf extends Node {
+        Leaf prev;
+        Leaf next;
+
+        Leaf(Object[] keys, int size) {
+            this.keys = keys;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T key(int idx) {
+            return (T) keys[idx];
+        }
+
+        void ensureCapacity(int capacity, int nodeSize) {
+            if (keys.length < capacity) {
+                keys = Arrays.copyOf(keys, nodeSize);
+            }
+        }
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(int nodeSize) {
+            this.keys = new Object[nodeSize - 1];
+            this.children = new Node[nodeSize];
+        }
+
+        /**
+         * The index of the child whose subtree holds {@code o}, if any does.
+         */
+        int childIndex(Object o) {
+            int idx = Arrays.binarySearch(keys, 0, size - 1, o);
+            return idx >= 0 ? idx + 1 : -(idx + 1);
+        }
+    }
+
+    /**
+     * Iterates over the elements within a range by walking the chained leaves. Removing an element may rearrange the
+     * leaves, so {@link #remove()} finds its place again by a lookup of the removed element.
+     */
+    private class LeafIterator implements Iterator<T> {
+        private final T lo;
+        private final boolean loInclusive;
+        private final T hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+        // the leaf and index of the next element, or a null leaf at the end
+        private Leaf leaf;
+        private int index;
+        private T lastReturned;
+        private int expectedModCount = modCount;
+
+        private LeafIterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+            if (descending) {
+                seekDown(hi, hiInclusive);
+            } else {
+                seekUp(lo, loInclusive);
+            }
+        }
+
+        private void seekUp(T from, boolean inclusive) {
+            if (from == null) {
+                leaf = firstLeaf;
+                index = 0;
+            } else {
+                leaf = leafFor(from);
+                int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, from);
+                index = idx >= 0 ? (inclusive ? idx : idx + 1) : -(idx + 1);
+            }
+            if (index >= leaf.size) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        private void seekDown(T from, boolean inclusive) {
+            if (from == null) {
+                leaf = lastLeaf;
+                index = leaf.size - 1;
+            } else {
+                leaf = leafFor(from);
+                int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, from);
+                index = idx >= 0 ? (inclusive ? idx : idx - 1) : -(idx + 1) - 1;
+            }
+            if (index < 0) {
+                leaf = leaf.prev;
+                index = leaf == null ? 0 : leaf.size - 1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (leaf == null) {
+                return false;
+            }
+            if (index >= leaf.size) {
+                return true; // the leaf has changed under this iterator, which next() reports
+            }
+            T next = leaf.key(index);
+            return descending ? !Ranges.tooLow(next, lo, loInclusive) : !Ranges.tooHigh(next, hi, hiInclusive);
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T next = leaf.key(index);
+            if (descending) {
+                if (--index < 0) {
+                    leaf = leaf.prev;
+                    index = leaf == null ? 0 : leaf.size - 1;
+                }
+            } else if (++index >= leaf.size) {
+                leaf = leaf.next;
+                index = 0;
+            }
+            lastReturned = next;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            BTreeSortedSet.this.remove(lastReturned);
+            if (descending) {
+                seekDown(lastReturned, false);
+            } else {
+                seekUp(lastReturned, false);
+            }
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Splits by handing out halves of the children of a node, descending a level when a single child is left, so that
+     * every split is balanced and costs no lookups. Traversal walks the chained leaves from the first leaf of the first
+     * child to the last leaf of the last one; a spliterator that has started to traverse does not split any more.
+     */
+    private final class TreeSpliterator implements Spliterator<T> {
+        private static final int BASE_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.NONNULL;
+
+        // the subtrees still to traverse: children [lo, hi) of an inner node, or elements [lo, hi) of a leaf
+        private Node node;
+        private int lo;
+        private int hi;
+        private long estimate;
+        private int characteristics;
+        private final int expectedModCount = modCount;
+        // once traversal has started: the position of the next element and the end of the range in the last leaf
+        private Leaf leaf;
+        private int index;
+        private Leaf endLeaf;
+        private int endIndex;
+
+        private TreeSpliterator(Node node, int lo, int hi, long estimate, int characteristics) {
+            this.node = node;
+            this.lo = lo;
+            this.hi = hi;
+            this.estimate = estimate;
+            this.characteristics = BASE_CHARACTERISTICS | characteristics;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (leaf != null) {
+                return null;
+            }
+            while (hi - lo == 1 && node instanceof Inner) {
+                node = ((Inner) node).children[lo];
+                lo = 0;
+                hi = node.size;
+            }
+            if (hi - lo < 2) {
+                return null;
+            }
+            int mid = (lo + hi) >>> 1;
+            long prefixEstimate = node instanceof Leaf ? mid - lo : estimate / 2;
+            TreeSpliterator prefix = new TreeSpliterator(node, lo, mid, prefixEstimate, 0);
+            lo = mid;
+            estimate = node instanceof Leaf ? hi - lo : estimate - prefixEstimate;
+            characteristics &= ~Spliterator.SIZED;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            start();
+            if (leaf == endLeaf && index >= endIndex) {
+                return false;
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            T next = leaf.key(index);
+            if (++index >= leaf.size && leaf != endLeaf) {
+                leaf = leaf.next;
+                index = 0;
+            }
+            estimate = Math.max(0, estimate - 1);
+            action.accept(next);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            start();
+            estimate = 0;
+            for (; leaf != endLeaf; leaf = leaf.next, index = 0) {
+                for (; index < leaf.size; index++) {
+                    action.accept(leaf.key(index));
+                }
+            }
+            for (; index < endIndex; index++) {
+                action.accept(leaf.key(index));
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        private void start() {
+            if (leaf != null) {
+                return;
+            }
+            if (node instanceof Leaf) {
+                leaf = (Leaf) node;
+                index = lo;
+                endLeaf = leaf;
+                endIndex = hi;
+                return;
+            }
+            Inner inner = (Inner) node;
+            Node first = inner.children[lo];
+            while (first instanceof Inner) {
+                first = ((Inner) first).children[0];
+            }
+            Node last = inner.children[hi - 1];
+            while (last instanceof Inner) {
+                last = ((Inner) last).children[last.size - 1];
+            }
+            leaf = (Leaf) first;
+            index = 0;
+            endLeaf = (Leaf) last;
+            endIndex = last.size;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return null; // natural ordering
+        }
+    }
+
+    /**
+     * A live view of the elements of this set within a range; see {@link NavigableSet#subSet(Object, boolean, Object,
+     * boolean)}. A null bound means that the view is unbounded on that side.
+     */
+    private class SubSet extends AbstractSet<T> implements LookupSortedSet<T> {
+        private final T lo;
+        private final boolean loInclusive;
+        private final T hi;
+        private final boolean hiInclusive;
+
+        private SubSet(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        private boolean inRange(T t) {
+            return Ranges.inRange(t, lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Whether {@code t} can be used as a bound of a nested view; same as TreeMap's sub-maps, an exclusive bound may
+         * sit on an exclusive bound of this view.
+         */
+        private boolean inRange(T t, boolean inclusive) {
+            if (inclusive) {
+                return inRange(t);
+            }
+            return (lo == null || t.compareTo(lo) >= 0) && (hi == null || t.compareTo(hi) <= 0);
+        }
+
+        @Override
+        @Nullable
+        public T getElement(T element) {
+            return element != null && inRange(element) ? BTreeSortedSet.this.getElement(element) : null;
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return null; // we use the natural ordering of elements
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            if (!inRange(fromElement, fromInclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            if (!inRange(toElement, toInclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            if (!inRange(toElement, inclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(lo, loInclusive, toElement, inclusive);
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            if (!inRange(fromElement, inclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            return new SubSet(fromElement, inclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public T lower(T t) {
+            if (Ranges.tooHigh(t, hi, hiInclusive)) {
+                return rangeLast(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeLast(lo, loInclusive, t, false);
+        }
+
+        @Override
+        public T floor(T t) {
+            if (Ranges.tooHigh(t, hi, hiInclusive)) {
+                return rangeLast(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeLast(lo, loInclusive, t, true);
+        }
+
+        @Override
+        public T ceiling(T t) {
+            if (Ranges.tooLow(t, lo, loInclusive)) {
+                return rangeFirst(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeFirst(t, true, hi, hiInclusive);
+        }
+
+        @Override
+        public T higher(T t) {
+            if (Ranges.tooLow(t, lo, loInclusive)) {
+                return rangeFirst(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeFirst(t, false, hi, hiInclusive);
+        }
+
+        @Override
+        public T pollFirst() {
+            T first = rangeFirst(lo, loInclusive, hi, hiInclusive);
+            if (first != null) {
+                BTreeSortedSet.this.remove(first);
+            }
+            return first;
+        }
+
+        @Override
+        public T pollLast() {
+            T last = rangeLast(lo, loInclusive, hi, hiInclusive);
+            if (last != null) {
+                BTreeSortedSet.this.remove(last);
+            }
+            return last;
+        }
+
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new DescendingNavigableSet<>(this);
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return new LeafIterator(lo, loInclusive, hi, hiInclusive, true);
+        }
+
+        @Override
+        public T first() {
+            T first = rangeFirst(lo, loInclusive, hi, hiInclusive);
+            if (first == null) {
+                throw new NoSuchElementException();
+            }
+            return first;
+        }
+
+        @Override
+        public T last() {
+            T last = rangeLast(lo, loInclusive, hi, hiInclusive);
+            if (last == null) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+
+        @Override
+        public int size() {
+            return rangeSize(lo, loInclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return rangeFirst(lo, loInclusive, hi, hiInclusive) == null;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && inRange(cast(o)) && BTreeSortedSet.this.contains(o);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new LeafIterator(lo, loInclusive, hi, hiInclusive, false);
+        }
+
+        @Override
+        public boolean add(T t) {
+            if (t == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            if (!inRange(t)) {
+                throw new IllegalArgumentException("element out of range");
+            }
+            return BTreeSortedSet.this.add(t);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o != null && inRange(cast(o)) && BTreeSortedSet.this.remove(o);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A {@link LookupSortedSet} view of a large {@link NavigableSet}, such as a {@link java.util.TreeSet} or a
+ * {@link BTreeSortedSet}, with a Bloom filter in front of its lookups. Most probes for an element that is not in the
+ * set are answered by a few bit tests in the filter, without descending into the wrapped set and without any
+ * {@code compareTo()} call; the probes that the filter lets through are answered by the wrapped set, so the answers
+ * are always exact.
+ *
+ * The filter is sized for the requested false positive rate (1% by default, about ten bits per element) and for
+ * twice the number of elements the set had when it was wrapped. {@link #add(Object)} sets the bits of each new
+ * element; when the set outgrows the filter, or many of its elements have been removed (a Bloom filter cannot forget
+ * an element), the filter is rebuilt from the set for twice its current size. {@link #negativeCount()},
+ * {@link #falsePositiveCount()} and {@link #falsePositiveRate()} tell how well the filter pays off for the workload.
+ *
+ * All changes must go through this view, its range views or their iterators: an element added to the wrapped set
+ * directly is unknown to the filter and is reported missing. Elements that are equal under the ordering of the set
+ * must have equal hash codes, which holds whenever that ordering is consistent with {@code equals()}. Like the sets it
+ * usually wraps this view is not thread-safe, but any number of threads may read it while no thread writes it.
+ */
+public class BloomFilterSortedSet<T> extends AbstractSet<T> implements LookupSortedSet<T> {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private final NavigableSet<T> delegate;
+    // shared by this set and all of its range views
+    private final Filter filter;
+
+    public BloomFilterSortedSet(NavigableSet<T> set) {
+        this(set, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * @param falsePositiveRate the fraction of probes for missing elements that the filter should let through to
+     *                          {@code set}, between 0 and 1 exclusive
+     */
+    public BloomFilterSortedSet(NavigableSet<T> set, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.delegate = set;
+        this.filter = new Filter(set, falsePositiveRate);
+    }
+
+    private BloomFilterSortedSet(NavigableSet<T> delegate, Filter filter) {
+        this.delegate = delegate;
+        this.filter = filter;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T getElement(T element) {
+        if (element == null) {
+            return null;
+        }
+        if (!filter.mightContain(element)) {
+            filter.negatives.increment();
+            return null;
+        }
+        T candidate = delegate.ceiling(element);
+        Comparator<? super T> comparator = delegate.comparator();
+        if (candidate != null && (comparator == null
+                ? ((Comparable<? super T>) candidate).compareTo(element)
+                : comparator.compare(candidate, element)) == 0) {
+            filter.hits.increment();
+            return candidate;
+        }
+        filter.falsePositives.increment();
+        return null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return delegate.contains(null); // let the wrapped set decide whether that is an error
+        }
+        if (!filter.mightContain(o)) {
+            filter.negatives.increment();
+            return false;
+        }
+        boolean found = delegate.contains(o);
+        (found ? filter.hits : filter.falsePositives).increment();
+        return found;
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (!delegate.add(t)) {
+            return false;
+        }
+        filter.added(t);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        // a missing element cannot be removed, so there is no need to ask the wrapped set
+        if (o != null && !filter.mightContain(o)) {
+            return false;
+        }
+        if (!delegate.remove(o)) {
+            return false;
+        }
+        filter.removed(1);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        int size = delegate.size();
+        delegate.clear();
+        filter.removed(size);
+    }
+
+    @Override
+    public T pollFirst() {
+        T first = delegate.pollFirst();
+        if (first != null) {
+            filter.removed(1);
+        }
+        return first;
+    }
+
+    @Override
+    public T pollLast() {
+        T last = delegate.pollLast();
+        if (last != null) {
+            filter.removed(1);
+        }
+        return last;
+    }
+
+    /**
+     * @return the number of lookups that the filter answered on its own, without touching the wrapped set
+     */
+    public long negativeCount() {
+        return filter.negatives.sum();
+    }
+
+    /**
+     * @return the number of lookups that the filter let through and that the wrapped set did not hold
+     */
+    public long falsePositiveCount() {
+        return filter.falsePositives.sum();
+    }
+
+    /**
+     * @return the number of lookups that found an element
+     */
+    public long hitCount() {
+        return filter.hits.sum();
+    }
+
+    /**
+     * @return the fraction of the lookups for missing elements that the filter let through to the wrapped set, or 0
+     *         if there have been none
+     */
+    public double falsePositiveRate() {
+        long falsePositives = falsePositiveCount();
+        long total = falsePositives + negativeCount();
+        return total == 0 ? 0 : (double) falsePositives / total;
+    }
+
+    /**
+     * @return the false positive rate that the filter should have for the elements it currently holds, including
+     *         those removed since it was last rebuilt
+     */
+    public double expectedFalsePositiveRate() {
+        return filter.expectedFalsePositiveRate();
+    }
+
+    /**
+     * @return the number of bits of the filter, which is shared with the range views
+     */
+    public long filterBits() {
+        return filter.bitCount;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return delegate.comparator();
+    }
+
+    @Override
+    public T lower(T t) {
+        return delegate.lower(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return delegate.floor(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return delegate.ceiling(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return delegate.higher(t);
+    }
+
+    @Override
+    public T first() {
+        return delegate.first();
+    }
+
+    @Override
+    public T last() {
+        return delegate.last();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new FilterIterator(delegate.iterator());
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new FilterIterator(delegate.descendingIterator());
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return delegate.spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return new BloomFilterSortedSet<>(delegate.subSet(fromElement, fromInclusive, toElement, toInclusive), filter);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new BloomFilterSortedSet<>(delegate.headSet(toElement, inclusive), filter);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new BloomFilterSortedSet<>(delegate.tailSet(fromElement, inclusive), filter);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    /**
+     * Passes removals through to the filter, so that it knows when it is due for a rebuild.
+     */
+    private class FilterIterator implements Iterator<T> {
+        private final Iterator<T> iterator;
+
+        private FilterIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+            filter.removed(1);
+        }
+    }
+
+    /**
+     * A Bloom filter over the hash codes of the elements of a set, with {@code hashes} probes per element derived from
+     * one 64-bit mix of the hash code by double hashing.
+     */
+    private static final class Filter {
+        // enough room for small sets to grow a while before the first rebuild
+        private static final int MIN_CAPACITY = 64;
+
+        private final NavigableSet<?> root;
+        private final double falsePositiveRate;
+        private long[] words;
+        private long bitCount;
+        private int hashes;
+        // the number of elements the filter is sized for, of elements whose bits are set and of those since removed
+        private int capacity;
+        private int inserted;
+        private int removed;
+
+        private final LongAdder negatives = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+
+        private Filter(NavigableSet<?> root, double falsePositiveRate) {
+            this.root = root;
+            this.falsePositiveRate = falsePositiveRate;
+            rebuild();
+        }
+
+        /**
+         * Sizes the filter for twice the current size of the set and sets the bits of all of its elements.
+         */
+        private void rebuild() {
+            int size = root.size();
+            capacity = (int) Math.min(Math.max(2L * size, MIN_CAPACITY), Integer.MAX_VALUE);
+            // m = -n ln(p) / ln(2)^2 bits and k = m / n ln(2) probes give the lowest false positive rate for n elements
+            double bitsPerElement = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+            long bits = (long) Math.ceil(capacity * bitsPerElement);
+            // at most 2^31 bits, so that index() cannot overflow
+            int wordCount = (int) Math.min((bits + 63) >>> 6, 1 << 25);
+            words = new long[wordCount];
+            bitCount = (long) wordCount << 6;
+            hashes = Math.max(1, (int) Math.round(bitsPerElement * Math.log(2)));
+            inserted = 0;
+            removed = 0;
+            for (Object element : root) {
+                put(element);
+                inserted++;
+            }
+        }
+
+        private void added(Object element) {
+            put(element);
+            if (++inserted > capacity) {
+                rebuild();
+            }
+        }
+
+        private void removed(int count) {
+            removed += count;
+            // the bits of removed elements only raise the false positive rate; once they are the majority, start over
+            if (removed > MIN_CAPACITY && removed > inserted - removed) {
+                rebuild();
+            }
+        }
+
+        private void put(Object element) {
+            long hash = mix(element.hashCode());
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = index(h1 + i * h2);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        private boolean mightContain(Object element) {
+            long hash = mix(element.hashCode());
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = index(h1 + i * h2);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Maps a 32-bit hash onto {@code [0, bitCount)} with a multiplication rather than a division.
+         */
+        private long index(int hash) {
+            return ((hash & 0xffffffffL) * bitCount) >>> 32;
+        }
+
+        private double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashes * inserted / bitCount), hashes);
+        }
+
+        /**
+         * Spreads a hash code over 64 bits, so that hash codes that differ in a few bits, such as those of small
+         * {@link Integer}s, still probe unrelated bits.
+         */
+        private static long mix(int hashCode) {
+            long x = hashCode * 0x9e3779b97f4a7c15L;
+            x ^= x >>> 32;
+            x *= 0xd6e8feb86659fd93L;
+            return x ^ (x >>> 32);
+        }
+    }
+}
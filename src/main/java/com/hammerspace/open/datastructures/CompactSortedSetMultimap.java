@@ -0,0 +1,282 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A map from keys to sorted sets of values, for the common case of a {@code Map<K, SortedSet<V>>} where most keys have
+ * a single value.
+ *
+ * A key with a single value maps straight to the value, without any set around it; only a key with more values gets
+ * a set, an {@link AdaptiveSortedSet}, which goes back to the bare value when all but one of the values are removed.
+ * Keys without values are not kept. Values are compared with {@link Comparable#compareTo(Object)}, as in a sorted
+ * set.
+ *
+ * The sets returned by {@link #get(Object)} are immutable snapshots; change the values of a key through
+ * {@link #put(Object, Comparable)} and {@link #remove(Object, Object)}. Neither keys nor values can be null. This
+ * class is not thread-safe, see {@link ConcurrentCompactSortedSetMultimap} for one that is.
+ */
+public class CompactSortedSetMultimap<K, V extends Comparable<? super V>> {
+
+    // a bare V for a key with a single value, an AdaptiveSortedSet<V> of at least two values for a key with more
+    private final Map<K, Object> map = new HashMap<>();
+    private int size;
+
+    /**
+     * Adds {@code value} to the values of {@code key}.
+     *
+     * @return true if the value was not there yet
+     */
+    public boolean put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("cannot have null keys");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        Object current = map.get(key);
+        if (current == null) {
+            map.put(key, value);
+        } else if (current instanceof AdaptiveSortedSet) {
+            if (!set(current).add(value)) {
+                return false;
+            }
+        } else {
+            V only = cast(current);
+            if (only.compareTo(value) == 0) {
+                return false;
+            }
+            AdaptiveSortedSet<V> set = new AdaptiveSortedSet<>();
+            set.add(only);
+            set.add(value);
+            map.put(key, set);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes {@code value} from the values of {@code key}.
+     *
+     * @return true if the value was there
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        Object current = map.get(key);
+        if (current == null) {
+            return false;
+        }
+        if (current instanceof AdaptiveSortedSet) {
+            AdaptiveSortedSet<V> set = set(current);
+            if (!set.remove(value)) {
+                return false;
+            }
+            if (set.size() == 1) {
+                // back to the bare value
+                map.put(cast(key), set.first());
+            }
+        } else {
+            V only = cast(current);
+            if (!only.getClass().isInstance(value) || only.compareTo(cast(value)) != 0) {
+                return false;
+            }
+            map.remove(key);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes every value of {@code key}.
+     *
+     * @return the values that were removed
+     */
+    public NavigableSet<V> removeAll(Object key) {
+        Object current = key == null ? null : map.remove(key);
+        NavigableSet<V> removed = asSet(current);
+        size -= removed.size();
+        return removed;
+    }
+
+    /**
+     * @return an immutable snapshot of the values of {@code key}, which is empty if there are none; later changes to
+     *         the values of the key do not show in it, whatever number of values the key has
+     */
+    public NavigableSet<V> get(Object key) {
+        Object current = key == null ? null : map.get(key);
+        if (current instanceof AdaptiveSortedSet) {
+            return SortedSets.copyOfSorted(set(current));
+        }
+        return asSet(current);
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElement(Comparable)}: returns the instance held for {@code key} that
+     * compares equal to {@code value}, or null if there is none.
+     */
+    @Nullable
+    public V getElement(Object key, V value) {
+        if (key == null || value == null) {
+            return null;
+        }
+        Object current = map.get(key);
+        if (current == null) {
+            return null;
+        }
+        if (current instanceof AdaptiveSortedSet) {
+            return set(current).getElement(value);
+        }
+        V only = cast(current);
+        return only.compareTo(value) == 0 ? only : null;
+    }
+
+    public boolean containsKey(Object key) {
+        return key != null && map.containsKey(key);
+    }
+
+    public boolean containsEntry(Object key, Object value) {
+        return value != null && values(key).contains(value);
+    }
+
+    /**
+     * @return the number of values of {@code key}
+     */
+    public int valueCount(Object key) {
+        Object current = key == null ? null : map.get(key);
+        if (current == null) {
+            return 0;
+        }
+        return current instanceof AdaptiveSortedSet ? set(current).size() : 1;
+    }
+
+    /**
+     * @return the number of key-value pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a read-only view of the keys that have at least one value
+     */
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Calls {@code action} for every key-value pair; the values of a key come in ascending order.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            Object current = entry.getValue();
+            if (current instanceof AdaptiveSortedSet) {
+                for (V value : set(current)) {
+                    action.accept(entry.getKey(), value);
+                }
+            } else {
+                action.accept(entry.getKey(), cast(current));
+            }
+        }
+    }
+
+    public void clear() {
+        map.clear();
+        size = 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof CompactSortedSetMultimap)) {
+            return false;
+        }
+        CompactSortedSetMultimap<?, ?> rhs = (CompactSortedSetMultimap<?, ?>) o;
+        if (size != rhs.size || map.size() != rhs.map.size()) {
+            return false;
+        }
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            if (!asSet(entry.getValue()).equals(rhs.values(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            hashCode += Objects.hashCode(entry.getKey()) ^ asSet(entry.getValue()).hashCode();
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('=').append(asSet(entry.getValue()));
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * The values of {@code key}, without the copy that {@link #get(Object)} makes: a live view, for use within this
+     * class only.
+     */
+    private NavigableSet<V> values(Object key) {
+        return asSet(key == null ? null : map.get(key));
+    }
+
+    private NavigableSet<V> asSet(Object current) {
+        if (current == null) {
+            return Collections.emptyNavigableSet();
+        }
+        if (current instanceof AdaptiveSortedSet) {
+            return set(current);
+        }
+        return new SingletonSortedSet<>(cast(current));
+    }
+
+    @SuppressWarnings("unchecked")
+    private AdaptiveSortedSet<V> set(Object current) {
+        return (AdaptiveSortedSet<V>) current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object o) {
+        return (T) o;
+    }
+}
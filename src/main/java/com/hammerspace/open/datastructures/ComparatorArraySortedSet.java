@@ -0,0 +1,95 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+
+/**
+ * The {@link Comparator} flavor of {@link ArraySortedSet}: an immutable {@link NavigableSet} that holds its elements in
+ * a single sorted {@code Object[]}, ordered by a comparator instead of by the natural ordering of the elements.
+ *
+ * The comparator is held by reference, so sets created through the same {@link ComparatorSortedSetFactory} share one
+ * comparator instance and pay a single reference for it. Just like {@link java.util.TreeSet} the comparator defines
+ * what a duplicate is: {@link #contains(Object)}, {@link #getElement(Object)}, the lookups and the range views all
+ * use it, and {@link #comparator()} and {@code spliterator().getComparator()} return it. Elements cannot be null.
+ */
+public class ComparatorArraySortedSet<T> extends AbstractArraySortedSet<T> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Comparator<? super T> comparator;
+    // the bounds of a range view, null for any other set
+    @Nullable
+    private final Ranges.Bounds<T> bounds;
+
+    /**
+     * Copies the elements of {@code c}. Duplicates (as defined by {@code comparator}) are dropped, keeping the first
+     * one encountered. A {@link SortedSet} that is ordered by an equal comparator is copied as-is.
+     */
+    public ComparatorArraySortedSet(Comparator<? super T> comparator, Collection<? extends T> c) {
+        this(comparator, sortedArray(c, checkComparator(comparator)));
+    }
+
+    private ComparatorArraySortedSet(Comparator<? super T> comparator, Object[] elements) {
+        this(comparator, elements, 0, elements.length, null);
+    }
+
+    private ComparatorArraySortedSet(Comparator<? super T> comparator, Object[] elements, int from, int to,
+                                     @Nullable Ranges.Bounds<T> bounds) {
+        super(elements, from, to);
+        this.comparator = comparator;
+        this.bounds = bounds;
+    }
+
+    /**
+     * An empty set ordered by {@code comparator}; unlike {@link java.util.Collections#emptyNavigableSet()} it keeps
+     * the comparator for {@link #comparator()} and for the (equally empty) views.
+     */
+    static <T> ComparatorArraySortedSet<T> empty(Comparator<? super T> comparator) {
+        return new ComparatorArraySortedSet<>(comparator, EMPTY);
+    }
+
+    private static <C extends Comparator<?>> C checkComparator(C comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("comparator cannot be null");
+        }
+        return comparator;
+    }
+
+    @Override
+    NavigableSet<T> newSlice(int sliceFrom, int sliceTo, Ranges.Bounds<T> bounds) {
+        return new ComparatorArraySortedSet<>(comparator, array(), sliceFrom, sliceTo, bounds);
+    }
+
+    @Override
+    NavigableSet<T> emptyView() {
+        return empty(comparator);
+    }
+
+    @Override
+    Ranges.Bounds<T> bounds() {
+        return bounds != null ? bounds : Ranges.Bounds.none();
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+}
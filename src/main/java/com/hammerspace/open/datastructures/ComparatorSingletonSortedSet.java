@@ -0,0 +1,403 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The {@link Comparator} flavor of {@link SingletonSortedSet}: an immutable {@link NavigableSet} of exactly one element
+ * that does not need to implement {@link Comparable}.
+ *
+ * The comparator is held by reference, so sets created through the same {@link ComparatorSortedSetFactory} share one
+ * comparator instance and pay a single reference for it. Just like {@link java.util.TreeSet} the comparator decides
+ * membership: {@link #contains(Object)}, {@link #getElement(Object)}, the lookups and the range views all use it, and
+ * {@link #comparator()} and {@code spliterator().getComparator()} return it. The element cannot be null.
+ */
+public class ComparatorSingletonSortedSet<T> extends AbstractSet<T> implements LookupSortedSet<T> {
+
+    private final Comparator<? super T> comparator;
+    private final T element;
+
+    public ComparatorSingletonSortedSet(Comparator<? super T> comparator, T element) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("comparator cannot be null");
+        }
+        if (element == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        this.comparator = comparator;
+        this.element = element;
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElement()}.
+     */
+    @Nonnull
+    public T getElement() {
+        return element;
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElement(Comparable)}, except that "equal" is decided by the comparator.
+     */
+    @Override
+    @Nullable
+    public T getElement(T element) {
+        if (element != null && comparator.compare(this.element, element) == 0) {
+            return this.element;
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElements(SortedSet, Consumer)}, except that "equal" is decided by the
+     * comparator.
+     *
+     * @return the number of probes found: 0 or 1
+     */
+    @Override
+    public int getElements(SortedSet<T> probes, Consumer<? super T> action) {
+        boolean found;
+        if (comparator.equals(probes.comparator())) {
+            found = probes.contains(element);
+        } else {
+            found = false;
+            for (T probe : probes) {
+                if (comparator.compare(element, probe) == 0) {
+                    found = true;
+                    break;
+                }
+            }
+        }
+        if (found) {
+            action.accept(element);
+        }
+        return found ? 1 : 0;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    /*
+     * As in SingletonSortedSet, every view is either this set or an empty set; the empty set keeps the comparator so
+     * that views of it keep ordering the same way.
+     */
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (comparator.compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        int fromCmp = comparator.compare(fromElement, element);
+        int toCmp = comparator.compare(toElement, element);
+        if ((fromCmp < 0 || (fromCmp == 0 && fromInclusive)) && (toCmp > 0 || (toCmp == 0 && toInclusive))) {
+            return this;
+        }
+        return ComparatorArraySortedSet.empty(comparator);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        int cmp = comparator.compare(toElement, element);
+        if (cmp > 0 || (cmp == 0 && inclusive)) {
+            return this;
+        }
+        return ComparatorArraySortedSet.empty(comparator);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        int cmp = comparator.compare(fromElement, element);
+        if (cmp < 0 || (cmp == 0 && inclusive)) {
+            return this;
+        }
+        return ComparatorArraySortedSet.empty(comparator);
+    }
+
+    @Override
+    public T lower(T t) {
+        return comparator.compare(element, t) < 0 ? element : null;
+    }
+
+    @Override
+    public T floor(T t) {
+        return comparator.compare(element, t) <= 0 ? element : null;
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return comparator.compare(element, t) >= 0 ? element : null;
+    }
+
+    @Override
+    public T higher(T t) {
+        return comparator.compare(element, t) > 0 ? element : null;
+    }
+
+    @Override
+    public T pollFirst() {
+        // a singleton set cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        // a singleton set cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return iterator(); // one element reads the same in both directions
+    }
+
+    @Override
+    public T first() {
+        return element;
+    }
+
+    @Override
+    public T last() {
+        return element;
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ComparatorSingletonSortedSetSpliterator();
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        // like TreeSet, an element the comparator cannot handle makes it throw a ClassCastException
+        return o != null && comparator.compare(element, (T) o) == 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ComparatorSingletonSortedSetIterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return new Object[]{element};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T1> T1[] toArray(T1[] a) {
+        if (a.length == 0) {
+            a = (T1[]) Array.newInstance(a.getClass().getComponentType(), 1);
+        }
+        a[0] = (T1) element;
+        if (a.length > 1) {
+            a[1] = null;
+        }
+        return a;
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        action.accept(element);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        if (filter.test(element)) {
+            // a singleton set cannot become an empty set
+            throw new UnsupportedOperationException();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (contains(t)) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        // a singleton set cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        // we cannot grow
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + element + "]";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof ComparatorSingletonSortedSet) {
+            ComparatorSingletonSortedSet<?> rhs = (ComparatorSingletonSortedSet<?>) o;
+            if (comparator.equals(rhs.comparator)) {
+                return element.equals(rhs.element);
+            }
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return element.hashCode();
+    }
+
+    private class ComparatorSingletonSortedSetIterator implements Iterator<T> {
+        private boolean done;
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        public T next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            done = true;
+            return element;
+        }
+    }
+
+    private class ComparatorSingletonSortedSetSpliterator implements Spliterator<T> {
+        private static final int characteristics = ORDERED | DISTINCT | SORTED | SIZED | NONNULL | IMMUTABLE | SUBSIZED;
+        private boolean done;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!done) {
+                done = true;
+                action.accept(element);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            tryAdvance(action);
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return getExactSizeIfKnown();
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return done ? 0 : 1;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public boolean hasCharacteristics(int characteristics) {
+            return (ComparatorSingletonSortedSetSpliterator.characteristics & characteristics) == characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator; // same as ComparatorSingletonSortedSet
+        }
+    }
+}
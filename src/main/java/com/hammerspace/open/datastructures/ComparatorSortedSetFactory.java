@@ -0,0 +1,79 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.NavigableSet;
+
+/**
+ * Creates {@link ComparatorSingletonSortedSet}s and {@link ComparatorArraySortedSet}s that all share one comparator.
+ *
+ * The compact sets hold their comparator by reference, so their footprint only stays small if the comparator is not
+ * allocated per set (as {@code Comparator.comparing(...)} does on every call). Keep one factory per ordering, typically
+ * in a {@code static final} field, and create every set of that ordering through it:
+ *
+ * <pre>
+ * private static final ComparatorSortedSetFactory&lt;File&gt; BY_MTIME = new ComparatorSortedSetFactory&lt;&gt;(
+ *         Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+ * ...
+ * NavigableSet&lt;File&gt; files = BY_MTIME.copyOf(list);
+ * </pre>
+ */
+public final class ComparatorSortedSetFactory<T> {
+
+    private final Comparator<? super T> comparator;
+    private final ComparatorArraySortedSet<T> empty;
+
+    public ComparatorSortedSetFactory(Comparator<? super T> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("comparator cannot be null");
+        }
+        this.comparator = comparator;
+        this.empty = ComparatorArraySortedSet.empty(comparator);
+    }
+
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @return the empty set of this ordering; the same instance on every call
+     */
+    public NavigableSet<T> empty() {
+        return empty;
+    }
+
+    public ComparatorSingletonSortedSet<T> singleton(T element) {
+        return new ComparatorSingletonSortedSet<>(comparator, element);
+    }
+
+    /**
+     * Copies {@code c} into the most compact set that can hold its elements: the shared empty set, a
+     * {@link ComparatorSingletonSortedSet} or a {@link ComparatorArraySortedSet}. Duplicates (as defined by the
+     * comparator) are dropped, keeping the first one encountered.
+     */
+    public NavigableSet<T> copyOf(Collection<? extends T> c) {
+        if (c.isEmpty()) {
+            return empty;
+        }
+        if (c.size() == 1) {
+            return singleton(c.iterator().next());
+        }
+        ComparatorArraySortedSet<T> set = new ComparatorArraySortedSet<>(comparator, c);
+        return set.size() == 1 ? singleton(set.first()) : set;
+    }
+}
@@ -0,0 +1,688 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe {@link NavigableSet} for sets that are shared between threads but usually hold a single element.
+ *
+ * While the set is small it is an immutable snapshot held in a single volatile field: the empty set, a
+ * {@link SingletonSortedSet} or an {@link ArraySortedSet}. Reads take no locks and never wait; they read the field once
+ * and answer from that snapshot, so a read of a one-element set costs about the same as a read of a
+ * {@link SingletonSortedSet}. Writes copy the snapshot, change the copy and install it with a compare-and-set, retrying
+ * if another thread got there first.
+ *
+ * Copying on every write only pays off for small sets with few writers. Once a write would make the set larger than
+ * the skip list threshold, or a single write loses the compare-and-set race more than the contention threshold allows,
+ * the elements move into a {@link ConcurrentSkipListSet} for good and every later operation is delegated to it.
+ *
+ * As with {@link ConcurrentSkipListSet} the iterators and views are weakly consistent: an iterator walks the snapshot
+ * it started with (or the skip list) and never throws {@link java.util.ConcurrentModificationException}, and bulk
+ * operations such as {@link #equals(Object)} or {@link #addAll(Collection)} are not atomic. {@link #snapshot()} and
+ * {@link #toArray()} are atomic while the set is a snapshot; once it has moved into the skip list they copy a weakly
+ * consistent iteration, as {@link ConcurrentSkipListSet} does. The elements must implement {@link Comparable} and
+ * cannot be null.
+ */
+public class ConcurrentCompactSortedSet<T extends Comparable<? super T>> extends AbstractSet<T>
+        implements LookupSortedSet<T> {
+
+    /**
+     * Number of elements above which the elements are moved into a {@link ConcurrentSkipListSet}.
+     */
+    public static final int DEFAULT_SKIP_LIST_THRESHOLD = 32;
+
+    /**
+     * Number of lost compare-and-set races within one write above which the elements are moved into a
+     * {@link ConcurrentSkipListSet}.
+     */
+    public static final int DEFAULT_CONTENTION_THRESHOLD = 4;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentCompactSortedSet, NavigableSet> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(ConcurrentCompactSortedSet.class, NavigableSet.class, "state");
+
+    // an immutable snapshot (empty, SingletonSortedSet or ArraySortedSet) or, once promoted, a ConcurrentSkipListSet
+    // that is never replaced again
+    private volatile NavigableSet<T> state = Collections.emptyNavigableSet();
+    private final int skipListThreshold;
+    private final int contentionThreshold;
+
+    public ConcurrentCompactSortedSet() {
+        this(DEFAULT_SKIP_LIST_THRESHOLD, DEFAULT_CONTENTION_THRESHOLD);
+    }
+
+    public ConcurrentCompactSortedSet(int skipListThreshold, int contentionThreshold) {
+        if (skipListThreshold < 1) {
+            throw new IllegalArgumentException("skipListThreshold must be at least 1");
+        }
+        if (contentionThreshold < 0) {
+            throw new IllegalArgumentException("contentionThreshold cannot be negative");
+        }
+        this.skipListThreshold = skipListThreshold;
+        this.contentionThreshold = contentionThreshold;
+    }
+
+    public ConcurrentCompactSortedSet(Collection<? extends T> c) {
+        this(DEFAULT_SKIP_LIST_THRESHOLD, DEFAULT_CONTENTION_THRESHOLD);
+        NavigableSet<T> initial = SortedSets.copyOf(c);
+        state = initial.size() > skipListThreshold ? new ConcurrentSkipListSet<>(initial) : initial;
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElement(Comparable)}: returns the instance held by this set that compares
+     * equal to {@code element}, or null if there is none.
+     */
+    @Override
+    @Nullable
+    public T getElement(T element) {
+        if (element == null) {
+            return null;
+        }
+        NavigableSet<T> s = state;
+        if (s instanceof LookupSortedSet) {
+            return ((LookupSortedSet<T>) s).getElement(element);
+        }
+        T candidate = s.ceiling(element);
+        return candidate != null && candidate.compareTo(element) == 0 ? candidate : null;
+    }
+
+    /**
+     * @return an immutable copy of the current elements; a snapshot is returned as-is, so this does not copy until the
+     *         set has moved into a skip list, and from then on the copy is only weakly consistent
+     */
+    public NavigableSet<T> snapshot() {
+        NavigableSet<T> s = state;
+        return s instanceof ConcurrentSkipListSet ? SortedSets.copyOfSorted(s) : s;
+    }
+
+    public int getSkipListThreshold() {
+        return skipListThreshold;
+    }
+
+    public int getContentionThreshold() {
+        return contentionThreshold;
+    }
+
+    /**
+     * Whether the elements have moved into a {@link ConcurrentSkipListSet}.
+     */
+    boolean isSkipList() {
+        return state instanceof ConcurrentSkipListSet;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        NavigableSet<T> s = state;
+        if (s instanceof SingletonSortedSet) {
+            // the common case, without the megamorphic call
+            return ((SingletonSortedSet<T>) s).getElement().equals(o);
+        }
+        return o != null && s.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return state.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return state.isEmpty();
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public T first() {
+        return state.first();
+    }
+
+    @Override
+    public T last() {
+        return state.last();
+    }
+
+    @Override
+    public T lower(T t) {
+        return state.lower(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return state.floor(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return state.ceiling(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return state.higher(t);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ConcurrentCompactSortedSetIterator(state.iterator());
+    }
+
+    /**
+     * Splits whatever the set holds at the time of the call: an immutable snapshot, which is {@code SIZED}, or the skip
+     * list, which is {@code CONCURRENT} and not {@code SIZED}, so that a stream does not trip over writes made while it
+     * runs.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return state.spliterator();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new ConcurrentCompactSortedSetIterator(state.descendingIterator());
+    }
+
+    @Override
+    public Object[] toArray() {
+        return state.toArray();
+    }
+
+    @Override
+    public <T1> T1[] toArray(T1[] a) {
+        return state.toArray(a);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        // the snapshot sets iterate without allocating; a skip list is weakly consistent, as its iterators are
+        state.forEach(action);
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (t == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        int failures = 0;
+        while (true) {
+            NavigableSet<T> s = state;
+            if (s instanceof ConcurrentSkipListSet) {
+                return s.add(t);
+            }
+            if (s.contains(t)) {
+                return false;
+            }
+            NavigableSet<T> next;
+            if (s.size() >= skipListThreshold || failures > contentionThreshold) {
+                ConcurrentSkipListSet<T> skipList = new ConcurrentSkipListSet<>(s);
+                skipList.add(t);
+                next = skipList;
+            } else {
+                next = with(s, t);
+            }
+            if (STATE.compareAndSet(this, s, next)) {
+                return true;
+            }
+            failures++;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        int failures = 0;
+        while (true) {
+            NavigableSet<T> s = state;
+            if (s instanceof ConcurrentSkipListSet) {
+                return s.remove(o);
+            }
+            if (!s.contains(o)) {
+                return false;
+            }
+            NavigableSet<T> next;
+            if (failures > contentionThreshold) {
+                ConcurrentSkipListSet<T> skipList = new ConcurrentSkipListSet<>(s);
+                skipList.remove(o);
+                next = skipList;
+            } else {
+                next = without(s, o);
+            }
+            if (STATE.compareAndSet(this, s, next)) {
+                return true;
+            }
+            failures++;
+        }
+    }
+
+    @Override
+    public T pollFirst() {
+        while (true) {
+            NavigableSet<T> s = state;
+            if (s instanceof ConcurrentSkipListSet) {
+                return s.pollFirst();
+            }
+            if (s.isEmpty()) {
+                return null;
+            }
+            T first = s.first();
+            if (STATE.compareAndSet(this, s, without(s, first))) {
+                return first;
+            }
+        }
+    }
+
+    @Override
+    public T pollLast() {
+        while (true) {
+            NavigableSet<T> s = state;
+            if (s instanceof ConcurrentSkipListSet) {
+                return s.pollLast();
+            }
+            if (s.isEmpty()) {
+                return null;
+            }
+            T last = s.last();
+            if (STATE.compareAndSet(this, s, without(s, last))) {
+                return last;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        while (true) {
+            NavigableSet<T> s = state;
+            if (s instanceof ConcurrentSkipListSet) {
+                // writers may still be adding to the skip list, so it cannot be swapped out
+                s.clear();
+                return;
+            }
+            if (STATE.compareAndSet(this, s, Collections.emptyNavigableSet())) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        if (toElement == null) {
+            throw new NullPointerException();
+        }
+        return new SubSet(null, false, toElement, inclusive);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        if (fromElement == null) {
+            throw new NullPointerException();
+        }
+        return new SubSet(fromElement, inclusive, null, false);
+    }
+
+    /**
+     * A snapshot with the elements of {@code snapshot} and {@code t}, which it does not contain. The elements of an
+     * {@link ArraySortedSet} are copied straight from its array, so they are copied once.
+     */
+    private static <T extends Comparable<? super T>> NavigableSet<T> with(NavigableSet<T> snapshot, T t) {
+        if (snapshot.isEmpty()) {
+            return new SingletonSortedSet<>(t);
+        }
+        if (!(snapshot instanceof ArraySortedSet)) {
+            T only = snapshot.first();
+            return only.compareTo(t) < 0 ? ArraySortedSet.wrap(new Object[]{only, t}, 0, 2)
+                    : ArraySortedSet.wrap(new Object[]{t, only}, 0, 2);
+        }
+        ArraySortedSet<T> set = (ArraySortedSet<T>) snapshot;
+        Object[] elements = set.array();
+        int from = set.arrayFrom();
+        int size = set.arrayTo() - from;
+        int idx = -(Arrays.binarySearch(elements, from, from + size, t) + 1) - from;
+        Object[] array = new Object[size + 1];
+        System.arraycopy(elements, from, array, 0, idx);
+        array[idx] = t;
+        System.arraycopy(elements, from + idx, array, idx + 1, size - idx);
+        return ArraySortedSet.wrap(array, 0, array.length);
+    }
+
+    /**
+     * A snapshot with the elements of {@code snapshot} but {@code o}, which it contains.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<? super T>> NavigableSet<T> without(NavigableSet<T> snapshot, Object o) {
+        if (!(snapshot instanceof ArraySortedSet)) {
+            return Collections.emptyNavigableSet();
+        }
+        ArraySortedSet<T> set = (ArraySortedSet<T>) snapshot;
+        Object[] elements = set.array();
+        int from = set.arrayFrom();
+        int size = set.arrayTo() - from;
+        int idx = Arrays.binarySearch(elements, from, from + size, o) - from;
+        if (size == 2) {
+            return new SingletonSortedSet<>((T) elements[from + 1 - idx]);
+        }
+        Object[] array = new Object[size - 1];
+        System.arraycopy(elements, from, array, 0, idx);
+        System.arraycopy(elements, from + idx + 1, array, idx, size - idx - 1);
+        return ArraySortedSet.wrap(array, 0, array.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object o) {
+        return (T) o;
+    }
+
+    /**
+     * Iterates over a snapshot (or the skip list) and removes through the set, so that a removal is not lost when
+     * the snapshot has been replaced in the meantime.
+     */
+    private class ConcurrentCompactSortedSetIterator implements Iterator<T> {
+        private final Iterator<T> iterator;
+        private T last;
+
+        private ConcurrentCompactSortedSetIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            last = iterator.next();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentCompactSortedSet.this.remove(last);
+            last = null;
+        }
+    }
+
+    /**
+     * A live view of the elements of this set within a range; see {@link NavigableSet#subSet(Object, boolean, Object,
+     * boolean)}.
+     *
+     * Every read takes the range of whatever the set holds at that moment, which is a slice of an immutable snapshot or
+     * a view of the skip list, so the view remains valid as the set changes representation. A null bound means that
+     * the view is unbounded on that side.
+     */
+    private class SubSet extends AbstractSet<T> implements LookupSortedSet<T> {
+        private final T lo;
+        private final boolean loInclusive;
+        private final T hi;
+        private final boolean hiInclusive;
+
+        private SubSet(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        private NavigableSet<T> range() {
+            NavigableSet<T> s = state;
+            if (lo == null) {
+                return s.headSet(hi, hiInclusive);
+            }
+            return hi == null ? s.tailSet(lo, loInclusive) : s.subSet(lo, loInclusive, hi, hiInclusive);
+        }
+
+        private boolean inRange(T t) {
+            return Ranges.inRange(t, lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Whether {@code t} can be used as a bound of a nested view; same as TreeMap's sub-maps, an exclusive bound may
+         * sit on an exclusive bound of this view.
+         */
+        private boolean inRange(T t, boolean inclusive) {
+            if (inclusive) {
+                return inRange(t);
+            }
+            return (lo == null || t.compareTo(lo) >= 0) && (hi == null || t.compareTo(hi) <= 0);
+        }
+
+        @Override
+        @Nullable
+        public T getElement(T element) {
+            return element != null && inRange(element) ? ConcurrentCompactSortedSet.this.getElement(element) : null;
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return null; // we use the natural ordering of elements
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            if (!inRange(fromElement, fromInclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            if (!inRange(toElement, toInclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            if (!inRange(toElement, inclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(lo, loInclusive, toElement, inclusive);
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            if (!inRange(fromElement, inclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            return new SubSet(fromElement, inclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public T lower(T t) {
+            return range().lower(t);
+        }
+
+        @Override
+        public T floor(T t) {
+            return range().floor(t);
+        }
+
+        @Override
+        public T ceiling(T t) {
+            return range().ceiling(t);
+        }
+
+        @Override
+        public T higher(T t) {
+            return range().higher(t);
+        }
+
+        @Override
+        public T pollFirst() {
+            while (true) {
+                NavigableSet<T> range = range();
+                if (range.isEmpty()) {
+                    return null;
+                }
+                T first = range.first();
+                if (ConcurrentCompactSortedSet.this.remove(first)) {
+                    return first;
+                }
+            }
+        }
+
+        @Override
+        public T pollLast() {
+            while (true) {
+                NavigableSet<T> range = range();
+                if (range.isEmpty()) {
+                    return null;
+                }
+                T last = range.last();
+                if (ConcurrentCompactSortedSet.this.remove(last)) {
+                    return last;
+                }
+            }
+        }
+
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new DescendingNavigableSet<>(this);
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return new ConcurrentCompactSortedSetIterator(range().descendingIterator());
+        }
+
+        @Override
+        public T first() {
+            return range().first();
+        }
+
+        @Override
+        public T last() {
+            return range().last();
+        }
+
+        @Override
+        public int size() {
+            return range().size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return range().isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && inRange(cast(o)) && ConcurrentCompactSortedSet.this.contains(o);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new ConcurrentCompactSortedSetIterator(range().iterator());
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return range().spliterator();
+        }
+
+        @Override
+        public Object[] toArray() {
+            return range().toArray();
+        }
+
+        @Override
+        public <T1> T1[] toArray(T1[] a) {
+            return range().toArray(a);
+        }
+
+        @Override
+        public boolean add(T t) {
+            if (t == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            if (!inRange(t)) {
+                throw new IllegalArgumentException("element out of range");
+            }
+            return ConcurrentCompactSortedSet.this.add(t);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o != null && inRange(cast(o)) && ConcurrentCompactSortedSet.this.remove(o);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * The thread-safe flavor of {@link CompactSortedSetMultimap}.
+ *
+ * A key with a single value maps straight to the value; a key with more values maps to an immutable
+ * {@link ArraySortedSet} that is replaced, not changed, when a value is added or removed. Reads take no locks: they
+ * look the key up in a {@link ConcurrentHashMap} and get either the bare value or an immutable set, so
+ * {@link #get(Object)} returns a consistent snapshot without copying. Writes to a key hold one of a fixed number of
+ * lock stripes, chosen by the hash of the key, which makes the read-modify-write of the key's values atomic while
+ * writes to keys of other stripes proceed in parallel.
+ *
+ * Since every write to a key copies its values, this is meant for keys with a handful of values; keys with thousands
+ * of values are better off in a map of {@link ConcurrentCompactSortedSet}s. Neither keys nor values can be null.
+ */
+public class ConcurrentCompactSortedSetMultimap<K, V extends Comparable<? super V>> {
+
+    /**
+     * Number of lock stripes of the default constructor.
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    // a bare V for a key with a single value, an immutable ArraySortedSet<V> of at least two values for a key with more
+    private final ConcurrentHashMap<K, Object> map = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentCompactSortedSetMultimap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes the number of locks that writes are spread over, rounded up to a power of two
+     */
+    public ConcurrentCompactSortedSetMultimap(int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("stripes must be between 1 and 65536: " + stripes);
+        }
+        int count = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adds {@code value} to the values of {@code key}.
+     *
+     * @return true if the value was not there yet
+     */
+    public boolean put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("cannot have null keys");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            Object current = map.get(key);
+            if (current == null) {
+                map.put(key, value);
+            } else {
+                if (contains(current, value)) {
+                    return false;
+                }
+                map.put(key, with(asSet(current), value));
+            }
+        } finally {
+            lock.unlock();
+        }
+        size.increment();
+        return true;
+    }
+
+    /**
+     * Removes {@code value} from the values of {@code key}.
+     *
+     * @return true if the value was there
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null || value == null || !containsEntry(key, value)) {
+            return false;
+        }
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            Object current = map.get(key);
+            if (!contains(current, value)) {
+                return false; // removed by another thread in the meantime
+            }
+            NavigableSet<V> values = asSet(current);
+            if (values.size() == 1) {
+                map.remove(key);
+            } else {
+                map.put(cast(key), without(values, value));
+            }
+        } finally {
+            lock.unlock();
+        }
+        size.decrement();
+        return true;
+    }
+
+    /**
+     * Removes every value of {@code key}.
+     *
+     * @return the values that were removed
+     */
+    public NavigableSet<V> removeAll(Object key) {
+        if (key == null) {
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<V> removed;
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            removed = asSet(map.remove(key));
+        } finally {
+            lock.unlock();
+        }
+        size.add(-removed.size());
+        return removed;
+    }
+
+    /**
+     * @return an immutable snapshot of the values of {@code key}, which is empty if there are none
+     */
+    public NavigableSet<V> get(Object key) {
+        return asSet(key == null ? null : map.get(key));
+    }
+
+    /**
+     * Same as {@link SingletonSortedSet#getElement(Comparable)}: returns the instance held for {@code key} that
+     * compares equal to {@code value}, or null if there is none.
+     */
+    @Nullable
+    public V getElement(Object key, V value) {
+        if (key == null || value == null) {
+            return null;
+        }
+        Object current = map.get(key);
+        if (current == null) {
+            return null;
+        }
+        if (current instanceof ArraySortedSet) {
+            return set(current).getElement(value);
+        }
+        V only = cast(current);
+        return only.compareTo(value) == 0 ? only : null;
+    }
+
+    public boolean containsKey(Object key) {
+        return key != null && map.containsKey(key);
+    }
+
+    public boolean containsEntry(Object key, Object value) {
+        return key != null && value != null && contains(map.get(key), value);
+    }
+
+    /**
+     * @return the number of values of {@code key}
+     */
+    public int valueCount(Object key) {
+        Object current = key == null ? null : map.get(key);
+        if (current == null) {
+            return 0;
+        }
+        return current instanceof ArraySortedSet ? set(current).size() : 1;
+    }
+
+    /**
+     * @return the number of key-value pairs; an estimate while writes are in progress
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size.sum()));
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * @return a read-only, weakly consistent view of the keys that have at least one value
+     */
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Calls {@code action} for every key-value pair; the values of a key come in ascending order and are a snapshot,
+     * but the iteration over the keys is weakly consistent.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            for (V value : asSet(entry.getValue())) {
+                action.accept(entry.getKey(), value);
+            }
+        }
+    }
+
+    public void clear() {
+        for (K key : map.keySet()) {
+            removeAll(key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        for (Map.Entry<K, Object> entry : map.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('=').append(asSet(entry.getValue()));
+        }
+        return sb.append('}').toString();
+    }
+
+    private ReentrantLock stripe(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16; // same spreading as HashMap, so that the high bits count
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    private boolean contains(Object current, Object value) {
+        if (current == null) {
+            return false;
+        }
+        if (current instanceof ArraySortedSet) {
+            return set(current).contains(value);
+        }
+        V only = cast(current);
+        return only.getClass().isInstance(value) && only.compareTo(cast(value)) == 0;
+    }
+
+    private NavigableSet<V> asSet(Object current) {
+        if (current == null) {
+            return Collections.emptyNavigableSet();
+        }
+        if (current instanceof ArraySortedSet) {
+            return set(current);
+        }
+        return SortedSets.singletonOf(this.<V>cast(current));
+    }
+
+    /**
+     * The values of {@code values} and {@code value}, which it does not contain.
+     */
+    private ArraySortedSet<V> with(NavigableSet<V> values, V value) {
+        Object[] elements = values.toArray();
+        int idx = -(Arrays.binarySearch(elements, value) + 1);
+        Object[] array = new Object[elements.length + 1];
+        System.arraycopy(elements, 0, array, 0, idx);
+        array[idx] = value;
+        System.arraycopy(elements, idx, array, idx + 1, elements.length - idx);
+        return ArraySortedSet.wrap(array, 0, array.length);
+    }
+
+    /**
+     * The values of {@code values} but {@code value}, which it contains; a bare value if there is only one left.
+     */
+    private Object without(NavigableSet<V> values, Object value) {
+        Object[] elements = values.toArray();
+        int idx = Arrays.binarySearch(elements, value);
+        if (elements.length == 2) {
+            return elements[1 - idx];
+        }
+        Object[] array = new Object[elements.length - 1];
+        System.arraycopy(elements, 0, array, 0, idx);
+        System.arraycopy(elements, idx + 1, array, idx, elements.length - idx - 1);
+        return ArraySortedSet.wrap(array, 0, array.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArraySortedSet<V> set(Object current) {
+        return (ArraySortedSet<V>) current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cast(Object o) {
+        return (T) o;
+    }
+}
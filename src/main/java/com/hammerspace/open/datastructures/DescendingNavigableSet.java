@@ -0,0 +1,157 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+
+/**
+ * The {@link NavigableSet#descendingSet()} view shared by the sets in this package: every method is answered by the
+ * mirror-image method of the wrapped set, so the view never copies the elements and reflects every change made to
+ * the wrapped set.
+ */
+class DescendingNavigableSet<T> extends AbstractSet<T> implements NavigableSet<T> {
+
+    private final NavigableSet<T> ascending;
+
+    DescendingNavigableSet(NavigableSet<T> ascending) {
+        this.ascending = ascending;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return Collections.reverseOrder(ascending.comparator());
+    }
+
+    @Override
+    public T lower(T t) {
+        return ascending.higher(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return ascending.ceiling(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return ascending.floor(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return ascending.lower(t);
+    }
+
+    @Override
+    public T pollFirst() {
+        return ascending.pollLast();
+    }
+
+    @Override
+    public T pollLast() {
+        return ascending.pollFirst();
+    }
+
+    @Override
+    public T first() {
+        return ascending.last();
+    }
+
+    @Override
+    public T last() {
+        return ascending.first();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return ascending;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return ascending.descendingIterator();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return ascending.iterator();
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return new DescendingNavigableSet<>(ascending.subSet(toElement, toInclusive, fromElement, fromInclusive));
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new DescendingNavigableSet<>(ascending.tailSet(toElement, inclusive));
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new DescendingNavigableSet<>(ascending.headSet(fromElement, inclusive));
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public int size() {
+        return ascending.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ascending.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return ascending.contains(o);
+    }
+
+    @Override
+    public boolean add(T t) {
+        return ascending.add(t);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return ascending.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        ascending.clear();
+    }
+}
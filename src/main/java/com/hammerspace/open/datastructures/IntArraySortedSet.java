@@ -0,0 +1,435 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@code int} flavor of {@link ArraySortedSet}: an immutable {@link SortedSet} of {@link Integer}s that holds its
+ * elements unboxed, in a single sorted {@code int[]}.
+ *
+ * {@link #contains(int)}, {@link #firstInt()}, {@link #lastInt()} and {@link #forEach(IntConsumer)} never box.
+ * The {@link NavigableSet} methods are there for interoperability and box on the way in or out.
+ */
+public class IntArraySortedSet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+
+    private static final int SPLITERATOR_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT
+            | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+    // elements[from, to) holds the elements of this set in ascending order; slices share the array with their parent
+    private final int[] elements;
+    private final int from;
+    private final int to;
+
+    /**
+     * Copies, sorts and removes duplicates from {@code values}.
+     */
+    public IntArraySortedSet(int... values) {
+        int[] array = values.clone();
+        Arrays.sort(array);
+        int length = removeDuplicates(array);
+        this.elements = length == array.length ? array : Arrays.copyOf(array, length);
+        this.from = 0;
+        this.to = length;
+    }
+
+    public IntArraySortedSet(Collection<Integer> c) {
+        this(unbox(c));
+    }
+
+    IntArraySortedSet(int[] elements, int from, int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(elements, from, to, value) >= 0;
+    }
+
+    public int firstInt() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elements[from];
+    }
+
+    public int lastInt() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elements[to - 1];
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = from; i < to; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Integer> subSet(Integer fromElement, boolean fromInclusive, Integer toElement,
+                                        boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        Ranges.Bounds<Integer> sliceBounds = bounds().sub(null, fromElement, fromInclusive, toElement, toInclusive);
+        return slice(fromIndex(fromElement, fromInclusive), toIndex(toElement, toInclusive), sliceBounds);
+    }
+
+    @Override
+    public SortedSet<Integer> headSet(Integer toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Integer> headSet(Integer toElement, boolean inclusive) {
+        Ranges.Bounds<Integer> sliceBounds = bounds().head(null, toElement, inclusive);
+        return slice(from, toIndex(toElement, inclusive), sliceBounds);
+    }
+
+    @Override
+    public SortedSet<Integer> tailSet(Integer fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<Integer> tailSet(Integer fromElement, boolean inclusive) {
+        Ranges.Bounds<Integer> sliceBounds = bounds().tail(null, fromElement, inclusive);
+        return slice(fromIndex(fromElement, inclusive), to, sliceBounds);
+    }
+
+    private NavigableSet<Integer> slice(int sliceFrom, int sliceTo, Ranges.Bounds<Integer> sliceBounds) {
+        if (bounds().isNone()) {
+            // same as ArraySortedSet, the views of all or none of the elements of a set that is not a range view are
+            // that set and the shared empty set
+            if (sliceFrom == from && sliceTo == to) {
+                return this;
+            }
+            if (sliceFrom >= sliceTo) {
+                return Collections.emptyNavigableSet();
+            }
+        }
+        return new Slice(elements, sliceFrom, sliceTo, sliceBounds);
+    }
+
+    /**
+     * The bounds this set was created with if it is a range view, {@link Ranges.Bounds#none()} otherwise.
+     */
+    Ranges.Bounds<Integer> bounds() {
+        return Ranges.Bounds.none();
+    }
+
+    /**
+     * The index of the first element that is greater than (or equal to, if {@code inclusive}) {@code value}.
+     */
+    private int fromIndex(int value, boolean inclusive) {
+        int idx = Arrays.binarySearch(elements, from, to, value);
+        if (idx >= 0) {
+            return inclusive ? idx : idx + 1;
+        }
+        return -(idx + 1);
+    }
+
+    /**
+     * The index following the last element that is less than (or equal to, if {@code inclusive}) {@code value}.
+     */
+    private int toIndex(int value, boolean inclusive) {
+        int idx = Arrays.binarySearch(elements, from, to, value);
+        if (idx >= 0) {
+            return inclusive ? idx + 1 : idx;
+        }
+        return -(idx + 1);
+    }
+
+    @Override
+    public Integer lower(Integer value) {
+        int idx = fromIndex(value, true);
+        return idx > from ? elements[idx - 1] : null;
+    }
+
+    @Override
+    public Integer floor(Integer value) {
+        int idx = toIndex(value, true);
+        return idx > from ? elements[idx - 1] : null;
+    }
+
+    @Override
+    public Integer ceiling(Integer value) {
+        int idx = fromIndex(value, true);
+        return idx < to ? elements[idx] : null;
+    }
+
+    @Override
+    public Integer higher(Integer value) {
+        int idx = fromIndex(value, false);
+        return idx < to ? elements[idx] : null;
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Integer> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return new DescendingIntArraySortedSetIterator();
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return Spliterators.spliterator(elements, from, to, SPLITERATOR_CHARACTERISTICS);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains(((Integer) o).intValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntArraySortedSetIterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size()];
+        for (int i = from; i < to; i++) {
+            array[i - from] = elements[i];
+        }
+        return array;
+    }
+
+    /**
+     * @return a copy of the elements of this set, in ascending order
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        if (contains(value.intValue())) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        // we cannot grow
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof IntArraySortedSet) {
+            IntArraySortedSet rhs = (IntArraySortedSet) o;
+            if (size() != rhs.size()) {
+                return false;
+            }
+            for (int i = from, j = rhs.from; i < to; i++, j++) {
+                if (elements[i] != rhs.elements[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = from; i < to; i++) {
+            hashCode += Integer.hashCode(elements[i]);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('[');
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                sb.append(", ");
+            }
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static int[] unbox(Collection<Integer> c) {
+        int[] array = new int[c.size()];
+        int i = 0;
+        for (Integer value : c) {
+            if (value == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            array[i++] = value;
+        }
+        return i == array.length ? array : Arrays.copyOf(array, i);
+    }
+
+    /**
+     * Compacts a sorted array in place so that its prefix holds each distinct value once; returns the length of that
+     * prefix.
+     */
+    private static int removeDuplicates(int[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int length = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[length - 1] != sorted[i]) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A range view, which unlike the sets it is taken from also holds the bounds it was created with.
+     */
+    private static final class Slice extends IntArraySortedSet {
+        private final Ranges.Bounds<Integer> bounds;
+
+        private Slice(int[] elements, int from, int to, Ranges.Bounds<Integer> bounds) {
+            super(elements, from, to);
+            this.bounds = bounds;
+        }
+
+        @Override
+        Ranges.Bounds<Integer> bounds() {
+            return bounds;
+        }
+    }
+
+    private class IntArraySortedSetIterator implements PrimitiveIterator.OfInt {
+        private int cursor = from;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < to;
+        }
+
+        @Override
+        public int nextInt() {
+            if (cursor >= to) {
+                throw new NoSuchElementException();
+            }
+            return elements[cursor++];
+        }
+    }
+
+    private class DescendingIntArraySortedSetIterator implements PrimitiveIterator.OfInt {
+        private int cursor = to;
+
+        @Override
+        public boolean hasNext() {
+            return cursor > from;
+        }
+
+        @Override
+        public int nextInt() {
+            if (cursor <= from) {
+                throw new NoSuchElementException();
+            }
+            return elements[--cursor];
+        }
+    }
+}
@@ -0,0 +1,340 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@code int} flavor of {@link SingletonSortedSet}: holds a single, unboxed {@code int} instead of a reference to
+ * a {@link Integer}, which saves the {@link Integer} object on top of the set itself.
+ *
+ * {@link #contains(int)}, {@link #firstInt()}, {@link #getInt()} and {@link #forEach(IntConsumer)} never box.
+ * The {@link NavigableSet} methods are there for interoperability and box on the way in or out.
+ */
+public class IntSingletonSortedSet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+
+    private final int element;
+
+    public IntSingletonSortedSet(int element) {
+        this.element = element;
+    }
+
+    public int getInt() {
+        return element;
+    }
+
+    public boolean contains(int value) {
+        return element == value;
+    }
+
+    public int firstInt() {
+        return element;
+    }
+
+    public int lastInt() {
+        return element;
+    }
+
+    public void forEach(IntConsumer action) {
+        action.accept(element);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    /*
+     * Just like for SingletonSortedSet, any view of this set is either the set itself or the empty set.
+     */
+
+    @Override
+    public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Integer> subSet(Integer fromElement, boolean fromInclusive, Integer toElement,
+                                        boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        if ((fromInclusive ? fromElement <= element : fromElement < element)
+                && (toInclusive ? toElement >= element : toElement > element)) {
+            return this;
+        }
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    public SortedSet<Integer> headSet(Integer toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Integer> headSet(Integer toElement, boolean inclusive) {
+        if (inclusive ? toElement >= element : toElement > element) {
+            return this;
+        }
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    public SortedSet<Integer> tailSet(Integer fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<Integer> tailSet(Integer fromElement, boolean inclusive) {
+        if (inclusive ? fromElement <= element : fromElement < element) {
+            return this;
+        }
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    public Integer lower(Integer value) {
+        return element < value ? element : null;
+    }
+
+    @Override
+    public Integer floor(Integer value) {
+        return element <= value ? element : null;
+    }
+
+    @Override
+    public Integer ceiling(Integer value) {
+        return element >= value ? element : null;
+    }
+
+    @Override
+    public Integer higher(Integer value) {
+        return element > value ? element : null;
+    }
+
+    @Override
+    public Integer pollFirst() {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer pollLast() {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Integer> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return iterator(); // one element reads the same in both directions
+    }
+
+    @Override
+    public Integer first() {
+        return element;
+    }
+
+    @Override
+    public Integer last() {
+        return element;
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return new IntSingletonSortedSetSpliterator(element);
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && (Integer) o == element;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntSingletonSortedSetIterator(element);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return new Object[]{element};
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        if (value == element) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        // we cannot grow
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + element + "]";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof IntSingletonSortedSet) {
+            return element == ((IntSingletonSortedSet) o).element;
+        }
+        return o instanceof Set && ((Set<?>) o).size() == 1 && ((Set<?>) o).contains(element);
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(element);
+    }
+
+    private static class IntSingletonSortedSetIterator implements PrimitiveIterator.OfInt {
+        private final int onlyElem;
+        private boolean done;
+
+        private IntSingletonSortedSetIterator(int onlyElem) {
+            this.onlyElem = onlyElem;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        public int nextInt() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            done = true;
+            return onlyElem;
+        }
+    }
+
+    private static class IntSingletonSortedSetSpliterator implements Spliterator.OfInt {
+        private static final int characteristics = ORDERED | DISTINCT | SORTED | SIZED | NONNULL | IMMUTABLE | SUBSIZED;
+        private final int onlyElem;
+        private boolean done;
+
+        private IntSingletonSortedSetSpliterator(int onlyElem) {
+            this.onlyElem = onlyElem;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (done) {
+                return false;
+            }
+            done = true; // terminate
+            action.accept(onlyElem);
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Integer> action) {
+            if (done) {
+                return false;
+            }
+            done = true; // terminate
+            action.accept(onlyElem);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return done ? 0 : 1;
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null; // same as IntSingletonSortedSet
+        }
+    }
+}
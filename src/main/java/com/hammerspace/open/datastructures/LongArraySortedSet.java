@@ -0,0 +1,434 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+
+/**
+ * The {@code long} flavor of {@link ArraySortedSet}: an immutable {@link SortedSet} of {@link Long}s that holds its
+ * elements unboxed, in a single sorted {@code long[]}.
+ *
+ * {@link #contains(long)}, {@link #firstLong()}, {@link #lastLong()} and {@link #forEach(LongConsumer)} never box.
+ * The {@link NavigableSet} methods are there for interoperability and box on the way in or out.
+ */
+public class LongArraySortedSet extends AbstractSet<Long> implements NavigableSet<Long> {
+
+    private static final int SPLITERATOR_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT
+            | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+    // elements[from, to) holds the elements of this set in ascending order; slices share the array with their parent
+    private final long[] elements;
+    private final int from;
+    private final int to;
+
+    /**
+     * Copies, sorts and removes duplicates from {@code values}.
+     */
+    public LongArraySortedSet(long... values) {
+        long[] array = values.clone();
+        Arrays.sort(array);
+        int length = removeDuplicates(array);
+        this.elements = length == array.length ? array : Arrays.copyOf(array, length);
+        this.from = 0;
+        this.to = length;
+    }
+
+    public LongArraySortedSet(Collection<Long> c) {
+        this(unbox(c));
+    }
+
+    LongArraySortedSet(long[] elements, int from, int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(elements, from, to, value) >= 0;
+    }
+
+    public long firstLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elements[from];
+    }
+
+    public long lastLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elements[to - 1];
+    }
+
+    public void forEach(LongConsumer action) {
+        for (int i = from; i < to; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        Ranges.Bounds<Long> sliceBounds = bounds().sub(null, fromElement, fromInclusive, toElement, toInclusive);
+        return slice(fromIndex(fromElement, fromInclusive), toIndex(toElement, toInclusive), sliceBounds);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+        Ranges.Bounds<Long> sliceBounds = bounds().head(null, toElement, inclusive);
+        return slice(from, toIndex(toElement, inclusive), sliceBounds);
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+        Ranges.Bounds<Long> sliceBounds = bounds().tail(null, fromElement, inclusive);
+        return slice(fromIndex(fromElement, inclusive), to, sliceBounds);
+    }
+
+    private NavigableSet<Long> slice(int sliceFrom, int sliceTo, Ranges.Bounds<Long> sliceBounds) {
+        if (bounds().isNone()) {
+            // same as ArraySortedSet, the views of all or none of the elements of a set that is not a range view are
+            // that set and the shared empty set
+            if (sliceFrom == from && sliceTo == to) {
+                return this;
+            }
+            if (sliceFrom >= sliceTo) {
+                return Collections.emptyNavigableSet();
+            }
+        }
+        return new Slice(elements, sliceFrom, sliceTo, sliceBounds);
+    }
+
+    /**
+     * The bounds this set was created with if it is a range view, {@link Ranges.Bounds#none()} otherwise.
+     */
+    Ranges.Bounds<Long> bounds() {
+        return Ranges.Bounds.none();
+    }
+
+    /**
+     * The index of the first element that is greater than (or equal to, if {@code inclusive}) {@code value}.
+     */
+    private int fromIndex(long value, boolean inclusive) {
+        int idx = Arrays.binarySearch(elements, from, to, value);
+        if (idx >= 0) {
+            return inclusive ? idx : idx + 1;
+        }
+        return -(idx + 1);
+    }
+
+    /**
+     * The index following the last element that is less than (or equal to, if {@code inclusive}) {@code value}.
+     */
+    private int toIndex(long value, boolean inclusive) {
+        int idx = Arrays.binarySearch(elements, from, to, value);
+        if (idx >= 0) {
+            return inclusive ? idx + 1 : idx;
+        }
+        return -(idx + 1);
+    }
+
+    @Override
+    public Long lower(Long value) {
+        int idx = fromIndex(value, true);
+        return idx > from ? elements[idx - 1] : null;
+    }
+
+    @Override
+    public Long floor(Long value) {
+        int idx = toIndex(value, true);
+        return idx > from ? elements[idx - 1] : null;
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        int idx = fromIndex(value, true);
+        return idx < to ? elements[idx] : null;
+    }
+
+    @Override
+    public Long higher(Long value) {
+        int idx = fromIndex(value, false);
+        return idx < to ? elements[idx] : null;
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return new DescendingLongArraySortedSetIterator();
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public Spliterator.OfLong spliterator() {
+        return Spliterators.spliterator(elements, from, to, SPLITERATOR_CHARACTERISTICS);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && contains(((Long) o).longValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongArraySortedSetIterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size()];
+        for (int i = from; i < to; i++) {
+            array[i - from] = elements[i];
+        }
+        return array;
+    }
+
+    /**
+     * @return a copy of the elements of this set, in ascending order
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    public boolean add(Long value) {
+        if (contains(value.longValue())) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        // we cannot grow
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LongArraySortedSet) {
+            LongArraySortedSet rhs = (LongArraySortedSet) o;
+            if (size() != rhs.size()) {
+                return false;
+            }
+            for (int i = from, j = rhs.from; i < to; i++, j++) {
+                if (elements[i] != rhs.elements[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = from; i < to; i++) {
+            hashCode += Long.hashCode(elements[i]);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('[');
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                sb.append(", ");
+            }
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static long[] unbox(Collection<Long> c) {
+        long[] array = new long[c.size()];
+        int i = 0;
+        for (Long value : c) {
+            if (value == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            array[i++] = value;
+        }
+        return i == array.length ? array : Arrays.copyOf(array, i);
+    }
+
+    /**
+     * Compacts a sorted array in place so that its prefix holds each distinct value once; returns the length of that
+     * prefix.
+     */
+    private static int removeDuplicates(long[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int length = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[length - 1] != sorted[i]) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A range view, which unlike the sets it is taken from also holds the bounds it was created with.
+     */
+    private static final class Slice extends LongArraySortedSet {
+        private final Ranges.Bounds<Long> bounds;
+
+        private Slice(long[] elements, int from, int to, Ranges.Bounds<Long> bounds) {
+            super(elements, from, to);
+            this.bounds = bounds;
+        }
+
+        @Override
+        Ranges.Bounds<Long> bounds() {
+            return bounds;
+        }
+    }
+
+    private class LongArraySortedSetIterator implements PrimitiveIterator.OfLong {
+        private int cursor = from;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < to;
+        }
+
+        @Override
+        public long nextLong() {
+            if (cursor >= to) {
+                throw new NoSuchElementException();
+            }
+            return elements[cursor++];
+        }
+    }
+
+    private class DescendingLongArraySortedSetIterator implements PrimitiveIterator.OfLong {
+        private int cursor = to;
+
+        @Override
+        public boolean hasNext() {
+            return cursor > from;
+        }
+
+        @Override
+        public long nextLong() {
+            if (cursor <= from) {
+                throw new NoSuchElementException();
+            }
+            return elements[--cursor];
+        }
+    }
+}
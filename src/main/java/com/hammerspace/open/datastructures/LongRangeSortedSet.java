@@ -0,0 +1,913 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * A mutable {@link SortedSet} of {@link Long}s that stores runs of consecutive values instead of values: the disjoint
+ * ranges {@code [starts[i], ends[i]]}, sorted and never adjacent, in two {@code long[]}s. A set of block numbers or
+ * extent offsets that is mostly long contiguous stretches takes 16 bytes per stretch however long it is.
+ *
+ * {@link #add(long)} and {@link #addRange(long, long)} merge the new values with the runs they overlap or touch;
+ * {@link #remove(long)} and {@link #removeRange(long, long)} trim and split runs. Lookups are binary searches over the
+ * runs; inserting or removing a run shifts the runs after it, so the set suits data that changes by extending and
+ * trimming runs more than by creating them. Iterators and spliterators walk run by run, and range views are backed by
+ * the set. The set holds at most {@link Long#MAX_VALUE} elements and is not thread-safe.
+ */
+public class LongRangeSortedSet extends AbstractSet<Long> implements NavigableSet<Long> {
+
+    private static final int DEFAULT_CAPACITY = 4;
+    private static final int SPLITERATOR_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT
+            | Spliterator.SORTED | Spliterator.NONNULL;
+
+    // runs [starts[i], ends[i]] for i < runs, ascending, with at least one missing value between two runs
+    private long[] starts;
+    private long[] ends;
+    private int runs;
+    private long size;
+    private int modCount;
+
+    public LongRangeSortedSet() {
+        this.starts = new long[DEFAULT_CAPACITY];
+        this.ends = new long[DEFAULT_CAPACITY];
+    }
+
+    public LongRangeSortedSet(Collection<Long> c) {
+        this();
+        long[] values = new long[c.size()];
+        int i = 0;
+        for (Long value : c) {
+            if (value == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            values[i++] = value;
+        }
+        values = i == values.length ? values : Arrays.copyOf(values, i);
+        Arrays.sort(values);
+        // the values are sorted, so every one extends the last run or starts a new one
+        for (long value : values) {
+            addRange(value, value);
+        }
+    }
+
+    /**
+     * Adds the values {@code [start, end]}.
+     *
+     * @return the number of values that were not in the set yet
+     * @throws IllegalArgumentException if {@code start > end}
+     */
+    public long addRange(long start, long end) {
+        if (start > end) {
+            throw new IllegalArgumentException("start > end");
+        }
+        // the runs [first, last] overlap or touch [start, end]
+        int first = firstRunEndingAtOrAfter(start == Long.MIN_VALUE ? start : start - 1);
+        int last = lastRunStartingAtOrBefore(end == Long.MAX_VALUE ? end : end + 1);
+        long covered = 0;
+        for (int i = first; i <= last; i++) {
+            covered += ends[i] - starts[i] + 1;
+        }
+        long newStart = first <= last ? Math.min(start, starts[first]) : start;
+        long newEnd = first <= last ? Math.max(end, ends[last]) : end;
+        long added = newEnd - newStart + 1 - covered;
+        if (added == 0) {
+            return 0;
+        }
+        if (first > last) {
+            insertRun(first, newStart, newEnd);
+        } else {
+            starts[first] = newStart;
+            ends[first] = newEnd;
+            deleteRuns(first + 1, last + 1);
+        }
+        size += added;
+        modCount++;
+        return added;
+    }
+
+    /**
+     * Removes the values {@code [start, end]}.
+     *
+     * @return the number of values that were in the set
+     * @throws IllegalArgumentException if {@code start > end}
+     */
+    public long removeRange(long start, long end) {
+        if (start > end) {
+            throw new IllegalArgumentException("start > end");
+        }
+        // the runs [first, last] overlap [start, end]
+        int first = firstRunEndingAtOrAfter(start);
+        int last = lastRunStartingAtOrBefore(end);
+        if (first > last) {
+            return 0;
+        }
+        long removed = 0;
+        for (int i = first; i <= last; i++) {
+            removed += Math.min(end, ends[i]) - Math.max(start, starts[i]) + 1;
+        }
+        boolean keepHead = starts[first] < start;
+        boolean keepTail = ends[last] > end;
+        if (first == last && keepHead && keepTail) {
+            // a hole in the middle of a run splits it in two
+            insertRun(first + 1, end + 1, ends[first]);
+            ends[first] = start - 1;
+        } else {
+            int from = first;
+            int to = last + 1;
+            if (keepHead) {
+                ends[first] = start - 1;
+                from++;
+            }
+            if (keepTail) {
+                starts[last] = end + 1;
+                to--;
+            }
+            deleteRuns(from, to);
+        }
+        size -= removed;
+        modCount++;
+        return removed;
+    }
+
+    public boolean add(long value) {
+        return addRange(value, value) != 0;
+    }
+
+    public boolean remove(long value) {
+        return removeRange(value, value) != 0;
+    }
+
+    public boolean contains(long value) {
+        int run = lastRunStartingAtOrBefore(value);
+        return run >= 0 && ends[run] >= value;
+    }
+
+    public long firstLong() {
+        if (runs == 0) {
+            throw new NoSuchElementException();
+        }
+        return starts[0];
+    }
+
+    public long lastLong() {
+        if (runs == 0) {
+            throw new NoSuchElementException();
+        }
+        return ends[runs - 1];
+    }
+
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (int i = 0; i < runs; i++) {
+            for (long value = starts[i]; ; value++) {
+                action.accept(value);
+                if (value == ends[i]) {
+                    break;
+                }
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Passes each run to {@code action}, in ascending order.
+     */
+    public void forEachRun(RunConsumer action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (int i = 0; i < runs; i++) {
+            action.accept(starts[i], ends[i]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * @return the number of runs of consecutive values, which is what the memory of this set is proportional to
+     */
+    public int runCount() {
+        return runs;
+    }
+
+    /**
+     * The number of elements, which unlike {@link #size()} is not capped at {@link Integer#MAX_VALUE}.
+     */
+    public long longSize() {
+        return size;
+    }
+
+    /**
+     * A consumer of the runs of a {@link LongRangeSortedSet}.
+     */
+    @FunctionalInterface
+    public interface RunConsumer {
+        /**
+         * @param start the first value of the run
+         * @param end   the last value of the run, inclusive
+         */
+        void accept(long start, long end);
+    }
+
+    /**
+     * The index of the first run whose end is {@code >= value}, or {@code runs} if there is none.
+     */
+    private int firstRunEndingAtOrAfter(long value) {
+        int idx = Arrays.binarySearch(ends, 0, runs, value);
+        return idx >= 0 ? idx : -(idx + 1);
+    }
+
+    /**
+     * The index of the last run whose start is {@code <= value}, or -1 if there is none.
+     */
+    private int lastRunStartingAtOrBefore(long value) {
+        int idx = Arrays.binarySearch(starts, 0, runs, value);
+        return idx >= 0 ? idx : -(idx + 1) - 1;
+    }
+
+    private void insertRun(int index, long start, long end) {
+        if (runs == starts.length) {
+            int capacity = runs + (runs >> 1) + 1;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        System.arraycopy(starts, index, starts, index + 1, runs - index);
+        System.arraycopy(ends, index, ends, index + 1, runs - index);
+        starts[index] = start;
+        ends[index] = end;
+        runs++;
+    }
+
+    private void deleteRuns(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        System.arraycopy(starts, to, starts, from, runs - to);
+        System.arraycopy(ends, to, ends, from, runs - to);
+        runs -= to - from;
+    }
+
+    /*
+     * The methods below operate on the elements within an inclusive range [lo, hi] and back both this set (with the
+     * range of all longs) and its range views. Exclusive bounds are turned into inclusive ones by stepping to the
+     * neighboring value; a range with lo > hi is empty.
+     */
+
+    private Long rangeFirst(long lo, long hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int run = firstRunEndingAtOrAfter(lo);
+        if (run == runs) {
+            return null;
+        }
+        long first = Math.max(lo, starts[run]);
+        return first <= hi ? first : null;
+    }
+
+    private Long rangeLast(long lo, long hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int run = lastRunStartingAtOrBefore(hi);
+        if (run < 0) {
+            return null;
+        }
+        long last = Math.min(hi, ends[run]);
+        return last >= lo ? last : null;
+    }
+
+    private long rangeSize(long lo, long hi) {
+        if (lo == Long.MIN_VALUE && hi == Long.MAX_VALUE) {
+            return size;
+        }
+        long count = 0;
+        for (int i = lo > hi ? runs : firstRunEndingAtOrAfter(lo); i < runs && starts[i] <= hi; i++) {
+            count += Math.min(hi, ends[i]) - Math.max(lo, starts[i]) + 1;
+        }
+        return count;
+    }
+
+    private NavigableSet<Long> view(long lo, boolean loInclusive, long hi, boolean hiInclusive) {
+        if ((!loInclusive && lo == Long.MAX_VALUE) || (!hiInclusive && hi == Long.MIN_VALUE)) {
+            return new SubSet(1, 0, false, false); // nothing lies beyond the extreme values
+        }
+        return new SubSet(loInclusive ? lo : lo + 1, hiInclusive ? hi : hi - 1, !loInclusive, !hiInclusive);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return view(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+        return view(Long.MIN_VALUE, true, toElement, inclusive);
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+        return view(fromElement, inclusive, Long.MAX_VALUE, true);
+    }
+
+    @Override
+    public Long lower(Long value) {
+        return value == Long.MIN_VALUE ? null : rangeLast(Long.MIN_VALUE, value - 1);
+    }
+
+    @Override
+    public Long floor(Long value) {
+        return rangeLast(Long.MIN_VALUE, value);
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        return rangeFirst(value, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Long higher(Long value) {
+        return value == Long.MAX_VALUE ? null : rangeFirst(value + 1, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Long pollFirst() {
+        if (runs == 0) {
+            return null;
+        }
+        long first = starts[0];
+        remove(first);
+        return first;
+    }
+
+    @Override
+    public Long pollLast() {
+        if (runs == 0) {
+            return null;
+        }
+        long last = ends[runs - 1];
+        remove(last);
+        return last;
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return new RunIterator(Long.MIN_VALUE, Long.MAX_VALUE, true);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return runs == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && contains(((Long) o).longValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new RunIterator(Long.MIN_VALUE, Long.MAX_VALUE, false);
+    }
+
+    @Override
+    public Spliterator.OfLong spliterator() {
+        return new RunSpliterator(0, runs - 1, runs == 0 ? 0 : starts[0], runs == 0 ? -1 : ends[runs - 1], size,
+                true);
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long && remove(((Long) o).longValue());
+    }
+
+    @Override
+    public void clear() {
+        runs = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LongRangeSortedSet) {
+            // the runs of a set are unique, as adjacent runs are always merged
+            LongRangeSortedSet rhs = (LongRangeSortedSet) o;
+            if (runs != rhs.runs) {
+                return false;
+            }
+            for (int i = 0; i < runs; i++) {
+                if (starts[i] != rhs.starts[i] || ends[i] != rhs.ends[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (PrimitiveIterator.OfLong it = iterator(); it.hasNext(); ) {
+            hashCode += Long.hashCode(it.nextLong());
+        }
+        return hashCode;
+    }
+
+    /**
+     * Walks the values of the runs that overlap {@code [lo, hi]}, run by run, in either direction.
+     */
+    private class RunIterator implements PrimitiveIterator.OfLong {
+        private final long lo;
+        private final long hi;
+        private final boolean descending;
+        private boolean hasNext;
+        // the next value and the run that holds it
+        private long next;
+        private int run;
+        private long lastReturned;
+        private boolean canRemove;
+        private int expectedModCount = modCount;
+
+        private RunIterator(long lo, long hi, boolean descending) {
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+            Long from = descending ? rangeLast(lo, hi) : rangeFirst(lo, hi);
+            hasNext = from != null;
+            if (hasNext) {
+                seek(from);
+            }
+        }
+
+        private void seek(long value) {
+            next = value;
+            run = lastRunStartingAtOrBefore(value);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public long nextLong() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            long value = next;
+            if (descending) {
+                if (value == lo) {
+                    hasNext = false;
+                } else if (value > starts[run]) {
+                    next = value - 1;
+                } else if (run > 0 && ends[run - 1] >= lo) {
+                    next = ends[--run];
+                } else {
+                    hasNext = false;
+                }
+            } else {
+                if (value == hi) {
+                    hasNext = false;
+                } else if (value < ends[run]) {
+                    next = value + 1;
+                } else if (run + 1 < runs && starts[run + 1] <= hi) {
+                    next = starts[++run];
+                } else {
+                    hasNext = false;
+                }
+            }
+            lastReturned = value;
+            canRemove = true;
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            LongRangeSortedSet.this.remove(lastReturned);
+            expectedModCount = modCount;
+            canRemove = false;
+            if (hasNext) {
+                // removing a value may have split its run, which shifts the runs after it
+                seek(next);
+            }
+        }
+    }
+
+    /**
+     * Splits by handing out halves of its runs, and halves of the values of a run once it is down to one, so a set of
+     * a few long runs parallelizes as well as one of many short runs.
+     */
+    private class RunSpliterator implements Spliterator.OfLong {
+        // the values [next, last] of the runs [run, lastRun]
+        private int run;
+        private final int lastRun;
+        private long next;
+        private final long last;
+        private boolean done;
+        private long estimate;
+        private boolean sized;
+        private final int expectedModCount = modCount;
+
+        private RunSpliterator(int run, int lastRun, long next, long last, long estimate, boolean sized) {
+            this.run = run;
+            this.lastRun = lastRun;
+            this.next = next;
+            this.last = last;
+            this.done = run > lastRun;
+            this.estimate = estimate;
+            this.sized = sized;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            if (done) {
+                return null;
+            }
+            if (run < lastRun) {
+                int mid = (run + lastRun + 1) >>> 1;
+                long prefixEstimate = estimate / 2;
+                RunSpliterator prefix = new RunSpliterator(run, mid - 1, next, ends[mid - 1], prefixEstimate,
+                        run == mid - 1);
+                if (prefix.sized) {
+                    prefix.estimate = ends[mid - 1] - next + 1;
+                }
+                run = mid;
+                next = starts[mid];
+                estimate -= prefixEstimate;
+                sized = run == lastRun;
+                if (sized) {
+                    estimate = last - next + 1;
+                }
+                return prefix;
+            }
+            if (next == last) {
+                return null;
+            }
+            long mid = next + ((last - next) >>> 1);
+            RunSpliterator prefix = new RunSpliterator(run, run, next, mid, mid - next + 1, true);
+            next = mid + 1;
+            estimate = last - next + 1;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            Objects.requireNonNull(action);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (done) {
+                return false;
+            }
+            long value = next;
+            if (value == last) {
+                done = true;
+            } else if (value < ends[run]) {
+                next = value + 1;
+            } else {
+                next = starts[++run];
+            }
+            estimate = Math.max(0, estimate - 1);
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            Objects.requireNonNull(action);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (done) {
+                return;
+            }
+            for (int i = run; i <= lastRun; i++) {
+                long end = i == lastRun ? last : ends[i];
+                for (long value = i == run ? next : starts[i]; ; value++) {
+                    action.accept(value);
+                    if (value == end) {
+                        break;
+                    }
+                }
+            }
+            done = true;
+            estimate = 0;
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return sized ? SPLITERATOR_CHARACTERISTICS | Spliterator.SIZED : SPLITERATOR_CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null; // natural ordering
+        }
+    }
+
+    /**
+     * A view of the elements within {@code [lo, hi]}. Bounds are inclusive: an exclusive bound was turned into the
+     * neighboring value when the view was created, which is exact for longs, and is only remembered for the bounds of
+     * nested views.
+     */
+    private class SubSet extends AbstractSet<Long> implements NavigableSet<Long> {
+        private final long lo;
+        private final long hi;
+        // whether lo and hi were given as the exclusive bounds lo - 1 and hi + 1
+        private final boolean loExclusive;
+        private final boolean hiExclusive;
+
+        private SubSet(long lo, long hi, boolean loExclusive, boolean hiExclusive) {
+            this.lo = lo;
+            this.hi = hi;
+            this.loExclusive = loExclusive;
+            this.hiExclusive = hiExclusive;
+        }
+
+        private boolean inRange(long value) {
+            return lo <= value && value <= hi;
+        }
+
+        /**
+         * Whether {@code t} can be used as a bound of a nested view; same as TreeMap's sub-maps, an exclusive bound may
+         * sit on an exclusive bound of this view.
+         */
+        private boolean inRange(long t, boolean inclusive) {
+            if (inclusive) {
+                return inRange(t);
+            }
+            return (t >= lo || (loExclusive && t == lo - 1)) && (t <= hi || (hiExclusive && t == hi + 1));
+        }
+
+        @Override
+        public Comparator<? super Long> comparator() {
+            return null; // we use the natural ordering of elements
+        }
+
+        @Override
+        public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive, Long toElement,
+                                         boolean toInclusive) {
+            if (fromElement > toElement) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            if (!inRange(fromElement, fromInclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            if (!inRange(toElement, toInclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return view(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public SortedSet<Long> headSet(Long toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+            if (!inRange(toElement, inclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return view(loExclusive ? lo - 1 : lo, !loExclusive, toElement, inclusive);
+        }
+
+        @Override
+        public SortedSet<Long> tailSet(Long fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+            if (!inRange(fromElement, inclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            return view(fromElement, inclusive, hiExclusive ? hi + 1 : hi, !hiExclusive);
+        }
+
+        @Override
+        public Long lower(Long value) {
+            return value == Long.MIN_VALUE ? null : rangeLast(lo, Math.min(hi, value - 1));
+        }
+
+        @Override
+        public Long floor(Long value) {
+            return rangeLast(lo, Math.min(hi, value));
+        }
+
+        @Override
+        public Long ceiling(Long value) {
+            return rangeFirst(Math.max(lo, value), hi);
+        }
+
+        @Override
+        public Long higher(Long value) {
+            return value == Long.MAX_VALUE ? null : rangeFirst(Math.max(lo, value + 1), hi);
+        }
+
+        @Override
+        public Long pollFirst() {
+            Long first = rangeFirst(lo, hi);
+            if (first != null) {
+                LongRangeSortedSet.this.remove(first.longValue());
+            }
+            return first;
+        }
+
+        @Override
+        public Long pollLast() {
+            Long last = rangeLast(lo, hi);
+            if (last != null) {
+                LongRangeSortedSet.this.remove(last.longValue());
+            }
+            return last;
+        }
+
+        @Override
+        public NavigableSet<Long> descendingSet() {
+            return new DescendingNavigableSet<>(this);
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong descendingIterator() {
+            return new RunIterator(lo, hi, true);
+        }
+
+        @Override
+        public Long first() {
+            Long first = rangeFirst(lo, hi);
+            if (first == null) {
+                throw new NoSuchElementException();
+            }
+            return first;
+        }
+
+        @Override
+        public Long last() {
+            Long last = rangeLast(lo, hi);
+            if (last == null) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(rangeSize(lo, hi), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return rangeFirst(lo, hi) == null;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Long && inRange((Long) o) && LongRangeSortedSet.this.contains(((Long) o).longValue());
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+            return new RunIterator(lo, hi, false);
+        }
+
+        @Override
+        public Spliterator.OfLong spliterator() {
+            Long first = rangeFirst(lo, hi);
+            if (first == null) {
+                return new RunSpliterator(0, -1, 0, -1, 0, true);
+            }
+            long last = rangeLast(lo, hi);
+            int firstRun = lastRunStartingAtOrBefore(first);
+            int lastRun = lastRunStartingAtOrBefore(last);
+            return new RunSpliterator(firstRun, lastRun, first, last, rangeSize(lo, hi), true);
+        }
+
+        @Override
+        public boolean add(Long value) {
+            if (!inRange(value)) {
+                throw new IllegalArgumentException("element out of range");
+            }
+            return LongRangeSortedSet.this.add(value.longValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof Long && inRange((Long) o) && LongRangeSortedSet.this.remove(((Long) o).longValue());
+        }
+
+        @Override
+        public void clear() {
+            if (lo <= hi) {
+                removeRange(lo, hi);
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * The {@code long} flavor of {@link SingletonSortedSet}: holds a single, unboxed {@code long} instead of a reference to
+ * a {@link Long}, which saves the {@link Long} object on top of the set itself.
+ *
+ * {@link #contains(long)}, {@link #firstLong()}, {@link #getLong()} and {@link #forEach(LongConsumer)} never box.
+ * The {@link NavigableSet} methods are there for interoperability and box on the way in or out.
+ */
+public class LongSingletonSortedSet extends AbstractSet<Long> implements NavigableSet<Long> {
+
+    private final long element;
+
+    public LongSingletonSortedSet(long element) {
+        this.element = element;
+    }
+
+    public long getLong() {
+        return element;
+    }
+
+    public boolean contains(long value) {
+        return element == value;
+    }
+
+    public long firstLong() {
+        return element;
+    }
+
+    public long lastLong() {
+        return element;
+    }
+
+    public void forEach(LongConsumer action) {
+        action.accept(element);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    /*
+     * Just like for SingletonSortedSet, any view of this set is either the set itself or the empty set.
+     */
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        if ((fromInclusive ? fromElement <= element : fromElement < element)
+                && (toInclusive ? toElement >= element : toElement > element)) {
+            return this;
+        }
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+        if (inclusive ? toElement >= element : toElement > element) {
+            return this;
+        }
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+        if (inclusive ? fromElement <= element : fromElement < element) {
+            return this;
+        }
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    public Long lower(Long value) {
+        return element < value ? element : null;
+    }
+
+    @Override
+    public Long floor(Long value) {
+        return element <= value ? element : null;
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        return element >= value ? element : null;
+    }
+
+    @Override
+    public Long higher(Long value) {
+        return element > value ? element : null;
+    }
+
+    @Override
+    public Long pollFirst() {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return iterator(); // one element reads the same in both directions
+    }
+
+    @Override
+    public Long first() {
+        return element;
+    }
+
+    @Override
+    public Long last() {
+        return element;
+    }
+
+    @Override
+    public Spliterator.OfLong spliterator() {
+        return new LongSingletonSortedSetSpliterator(element);
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && (Long) o == element;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongSingletonSortedSetIterator(element);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return new Object[]{element};
+    }
+
+    @Override
+    public boolean add(Long value) {
+        if (value == element) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        // we cannot grow
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + element + "]";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LongSingletonSortedSet) {
+            return element == ((LongSingletonSortedSet) o).element;
+        }
+        return o instanceof Set && ((Set<?>) o).size() == 1 && ((Set<?>) o).contains(element);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(element);
+    }
+
+    private static class LongSingletonSortedSetIterator implements PrimitiveIterator.OfLong {
+        private final long onlyElem;
+        private boolean done;
+
+        private LongSingletonSortedSetIterator(long onlyElem) {
+            this.onlyElem = onlyElem;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        public long nextLong() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            done = true;
+            return onlyElem;
+        }
+    }
+
+    private static class LongSingletonSortedSetSpliterator implements Spliterator.OfLong {
+        private static final int characteristics = ORDERED | DISTINCT | SORTED | SIZED | NONNULL | IMMUTABLE | SUBSIZED;
+        private final long onlyElem;
+        private boolean done;
+
+        private LongSingletonSortedSetSpliterator(long onlyElem) {
+            this.onlyElem = onlyElem;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (done) {
+                return false;
+            }
+            done = true; // terminate
+            action.accept(onlyElem);
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            if (done) {
+                return false;
+            }
+            done = true; // terminate
+            action.accept(onlyElem);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return done ? 0 : 1;
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null; // same as LongSingletonSortedSet
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.function.Consumer;
+
+/**
+ * A {@link NavigableSet} that hands out the instances it holds: {@link #getElement(Object)} is as cheap as
+ * {@link #contains(Object)}, but returns the element that compares equal to its argument, so that the fields of that
+ * element which take no part in the ordering can be read or updated in place, without a remove and a re-add.
+ *
+ * Every compact set of this package that holds objects implements it; {@link SortedSets#asLookupSet(NavigableSet)}
+ * adapts any other {@link NavigableSet}, such as a {@link java.util.TreeSet} or a
+ * {@link java.util.concurrent.ConcurrentSkipListSet}.
+ */
+public interface LookupSortedSet<T> extends NavigableSet<T> {
+
+    /**
+     * @return the instance held by this set that compares equal to {@code element}, or null if there is none
+     */
+    @Nullable
+    T getElement(T element);
+
+    /**
+     * The batch form of {@link #getElement(Object)}: passes the instance held by this set for every element of
+     * {@code probes} that it holds to {@code action}, in the order of {@code probes}. This default looks the probes up
+     * one by one; the compact sets walk themselves and {@code probes} together when both share an ordering.
+     *
+     * @return the number of probes found
+     */
+    default int getElements(SortedSet<T> probes, Consumer<? super T> action) {
+        int found = 0;
+        for (T probe : probes) {
+            T element = getElement(probe);
+            if (element != null) {
+                action.accept(element);
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,786 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * The {@code long} flavor of {@link ArraySortedSet} for sets too large to keep on the heap: an immutable
+ * {@link SortedSet} of {@link Long}s stored in a file as one sorted run of 8-byte values and read through memory-mapped
+ * segments of up to 1 GiB. A set of hundreds of millions of elements costs the heap a few objects; the elements live
+ * in the page cache and are paged in by the lookups and iterations that touch them.
+ *
+ * The file is a 16-byte header (a magic number and the element count) followed by the elements in ascending order,
+ * big-endian. {@link #open(Path)} maps an existing file without reading or copying it. {@link #merge(long...)} adds a
+ * batch of elements: a batch above the last element is appended to the file in place, any other batch is merged with
+ * the elements into a new file that atomically replaces the old one. Either way the result is a new set; this set and
+ * its views keep seeing the elements they were created with. Only the newest set of a file can be merged into: the
+ * merges of a file take turns under a {@link FileLock}, and one that finds the file changed since its set was mapped
+ * throws {@link ConcurrentModificationException} rather than write over elements that it does not know of.
+ *
+ * Same as {@link LongArraySortedSet}, {@link #contains(long)}, {@link #firstLong()}, {@link #lastLong()},
+ * {@link #forEach(LongConsumer)} and the primitive iterators never box. A mapping is released when the set and all of
+ * its views and iterators are garbage collected.
+ */
+public class MappedLongSortedSet extends AbstractSet<Long> implements NavigableSet<Long> {
+
+    private static final long MAGIC = 0x48534c4f4e475331L; // "HSLONGS1"
+    static final int HEADER_SIZE = 16;
+    // 2^27 elements, or 1 GiB, per mapped segment
+    static final int DEFAULT_SEGMENT_SHIFT = 27;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // a FileLock is held by the whole JVM, so the threads of one JVM take turns on this before they ask for it
+    private static final Object WRITE_LOCK = new Object();
+
+    private static final int SPLITERATOR_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT
+            | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE | Spliterator.SIZED
+            | Spliterator.SUBSIZED;
+
+    private final Path path;
+    // element i is segments[i >>> segmentShift].get(i & segmentMask); views share the segments with their parent
+    private final LongBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    // the elements of this set are those at indexes [from, to) of the file
+    private final long from;
+    private final long to;
+    // the bounds a range view was created with, none for the set of the whole file
+    private final Ranges.Bounds<Long> bounds;
+    // the number of elements of the file and its identity, or null where the platform has none, for merge()
+    private final long count;
+    private final Object fileKey;
+
+    private MappedLongSortedSet(Path path, Object fileKey, LongBuffer[] segments, int segmentShift, long from, long to,
+                                Ranges.Bounds<Long> bounds, long count) {
+        this.path = path;
+        this.fileKey = fileKey;
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.from = from;
+        this.to = to;
+        this.bounds = bounds;
+        this.count = count;
+    }
+
+    /**
+     * Maps the set stored in {@code path}. Only the header is read; the elements are paged in on demand.
+     *
+     * @throws IOException if the file cannot be read or is not a set written by this class
+     */
+    public static MappedLongSortedSet open(Path path) throws IOException {
+        return open(path, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    static MappedLongSortedSet open(Path path, int segmentShift) throws IOException {
+        while (true) {
+            Object fileKey = fileKey(path);
+            MappedLongSortedSet set = map(path, fileKey, segmentShift);
+            // a merge may have replaced the file in between, in which case the key is not that of the mapped file
+            if (Objects.equals(fileKey, fileKey(path))) {
+                return set;
+            }
+        }
+    }
+
+    private static MappedLongSortedSet map(Path path, Object fileKey, int segmentShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long count = readCount(channel, path);
+            // a file can be longer than its count says when an append was interrupted; the extra bytes are ignored
+            if (count < 0 || channel.size() < HEADER_SIZE + count * Long.BYTES) {
+                throw new IOException("malformed count: " + count);
+            }
+            long segmentLength = 1L << segmentShift;
+            LongBuffer[] segments = new LongBuffer[(int) ((count + segmentLength - 1) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                long length = Math.min(segmentLength, count - (long) i * segmentLength);
+                long position = HEADER_SIZE + (long) i * segmentLength * Long.BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length * Long.BYTES).asLongBuffer();
+            }
+            return new MappedLongSortedSet(path, fileKey, segments, segmentShift, 0, count, Ranges.Bounds.none(),
+                    count);
+        }
+    }
+
+    private static long readCount(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("truncated header: " + path);
+            }
+        }
+        header.flip();
+        if (header.getLong() != MAGIC) {
+            throw new IOException("not a sorted long set: " + path);
+        }
+        return header.getLong();
+    }
+
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Sorts {@code values}, removes duplicates, writes them to {@code path} (replacing any file there) and maps the
+     * result. The sets of a replaced file keep their elements, but can no longer be merged into.
+     */
+    public static MappedLongSortedSet create(Path path, long... values) throws IOException {
+        long[] sorted = sortedBatch(values);
+        synchronized (WRITE_LOCK) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                replace(path, new ArrayIterator(sorted));
+                return open(path);
+            }
+        }
+    }
+
+    /**
+     * Adds {@code values} to the file of this set and returns a set of the result. A batch whose elements are all
+     * greater than the last element of the file is appended in place; any other batch is merged with the elements of
+     * the file, in one sequential pass, into a new file that then replaces the old one.
+     *
+     * @throws UnsupportedOperationException on a range view
+     * @throws ConcurrentModificationException if the file was merged into or replaced since this set was mapped
+     */
+    public MappedLongSortedSet merge(long... values) throws IOException {
+        if (from != 0 || to != count) {
+            throw new UnsupportedOperationException("cannot merge into a range view");
+        }
+        long[] batch = sortedBatch(values);
+        if (batch.length == 0) {
+            return this;
+        }
+        synchronized (WRITE_LOCK) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                // the count of a file only grows, and a replaced file has another key: when both match, the file
+                // holds exactly the elements of this set
+                if (!Objects.equals(fileKey, fileKey(path)) || readCount(channel, path) != count) {
+                    throw new ConcurrentModificationException("the file changed since this set was mapped: " + path);
+                }
+                if (count == 0 || batch[0] > get(count - 1)) {
+                    append(channel, batch);
+                } else {
+                    replace(path, new MergingIterator(iterator(), new ArrayIterator(batch)));
+                }
+                return open(path, segmentShift);
+            }
+        }
+    }
+
+    /**
+     * Writes the elements past the current end of the file first and the new count after them, so that a reader
+     * never sees a count that covers elements that are not there yet. The elements go past the count that every set
+     * of the file was mapped with, so they never land in a mapping.
+     */
+    private void append(FileChannel channel, long[] batch) throws IOException {
+        long position = HEADER_SIZE + count * Long.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        for (long value : batch) {
+            if (!buffer.hasRemaining()) {
+                position += writeFully(channel, buffer, position);
+            }
+            buffer.putLong(value);
+        }
+        writeFully(channel, buffer, position);
+        channel.force(false);
+        buffer.clear();
+        buffer.putLong(count + batch.length);
+        writeFully(channel, buffer, Long.BYTES);
+        channel.force(false);
+    }
+
+    /**
+     * Writes {@code sortedValues} to a new file that atomically replaces {@code path}, rather than truncating a file
+     * that sets may still map.
+     */
+    private static void replace(Path path, PrimitiveIterator.OfLong sortedValues) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".merge");
+        try {
+            write(temp, sortedValues);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void write(Path path, PrimitiveIterator.OfLong sortedValues) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            buffer.putLong(MAGIC).putLong(0); // the count is filled in at the end
+            long position = 0;
+            long count = 0;
+            while (sortedValues.hasNext()) {
+                if (!buffer.hasRemaining()) {
+                    position += writeFully(channel, buffer, position);
+                }
+                buffer.putLong(sortedValues.nextLong());
+                count++;
+            }
+            writeFully(channel, buffer, position);
+            buffer.clear();
+            buffer.putLong(count);
+            writeFully(channel, buffer, Long.BYTES);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Writes the bytes put into {@code buffer} at {@code position} and clears it.
+     *
+     * @return the number of bytes written
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        buffer.clear();
+        return length;
+    }
+
+    private static long[] sortedBatch(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[length - 1] != sorted[i]) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length == sorted.length ? sorted : Arrays.copyOf(sorted, length);
+    }
+
+    /**
+     * @return the file this set is stored in
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * The number of elements, which unlike {@link #size()} is not capped at {@link Integer#MAX_VALUE}.
+     */
+    public long longSize() {
+        return to - from;
+    }
+
+    private long get(long index) {
+        return segments[(int) (index >>> segmentShift)].get((int) (index & segmentMask));
+    }
+
+    /**
+     * Same contract as {@link Arrays#binarySearch(long[], int, int, long)}, over the indexes of the file.
+     */
+    private long binarySearch(long fromIndex, long toIndex, long value) {
+        long low = fromIndex;
+        long high = toIndex - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            long midValue = get(mid);
+            if (midValue < value) {
+                low = mid + 1;
+            } else if (midValue > value) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public boolean contains(long value) {
+        return binarySearch(from, to, value) >= 0;
+    }
+
+    public long firstLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return get(from);
+    }
+
+    public long lastLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return get(to - 1);
+    }
+
+    public void forEach(LongConsumer action) {
+        for (long i = from; i < to; i++) {
+            action.accept(get(i));
+        }
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        Ranges.Bounds<Long> sliceBounds = bounds.sub(null, fromElement, fromInclusive, toElement, toInclusive);
+        return slice(fromIndex(fromElement, fromInclusive), toIndex(toElement, toInclusive), sliceBounds);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+        return slice(from, toIndex(toElement, inclusive), bounds.head(null, toElement, inclusive));
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+        return slice(fromIndex(fromElement, inclusive), to, bounds.tail(null, fromElement, inclusive));
+    }
+
+    private NavigableSet<Long> slice(long sliceFrom, long sliceTo, Ranges.Bounds<Long> sliceBounds) {
+        if (bounds.isNone()) {
+            // same as ArraySortedSet, the views of all or none of the elements of the whole file are this set and the
+            // shared empty set
+            if (sliceFrom == from && sliceTo == to) {
+                return this;
+            }
+            if (sliceFrom >= sliceTo) {
+                return Collections.emptyNavigableSet();
+            }
+        }
+        return new MappedLongSortedSet(path, fileKey, segments, segmentShift, sliceFrom, sliceTo, sliceBounds, count);
+    }
+
+    /**
+     * The index of the first element that is greater than (or equal to, if {@code inclusive}) {@code value}.
+     */
+    private long fromIndex(long value, boolean inclusive) {
+        long idx = binarySearch(from, to, value);
+        if (idx >= 0) {
+            return inclusive ? idx : idx + 1;
+        }
+        return -(idx + 1);
+    }
+
+    /**
+     * The index following the last element that is less than (or equal to, if {@code inclusive}) {@code value}.
+     */
+    private long toIndex(long value, boolean inclusive) {
+        long idx = binarySearch(from, to, value);
+        if (idx >= 0) {
+            return inclusive ? idx + 1 : idx;
+        }
+        return -(idx + 1);
+    }
+
+    @Override
+    public Long lower(Long value) {
+        long idx = fromIndex(value, true);
+        return idx > from ? get(idx - 1) : null;
+    }
+
+    @Override
+    public Long floor(Long value) {
+        long idx = toIndex(value, true);
+        return idx > from ? get(idx - 1) : null;
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        long idx = fromIndex(value, true);
+        return idx < to ? get(idx) : null;
+    }
+
+    @Override
+    public Long higher(Long value) {
+        long idx = fromIndex(value, false);
+        return idx < to ? get(idx) : null;
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return new DescendingMappedLongSortedSetIterator();
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public Spliterator.OfLong spliterator() {
+        return new MappedLongSortedSetSpliterator(from, to);
+    }
+
+    /**
+     * The number of elements, or {@link Integer#MAX_VALUE} if there are more; see {@link #longSize()}.
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(to - from, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && contains(((Long) o).longValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new MappedLongSortedSetIterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = get(from + i);
+        }
+        return array;
+    }
+
+    /**
+     * @return a copy of the elements of this set, in ascending order
+     * @throws IllegalStateException if there are too many elements for an array
+     */
+    public long[] toLongArray() {
+        if (to - from > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("too many elements for an array: " + (to - from));
+        }
+        long[] array = new long[(int) (to - from)];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = get(from + i);
+        }
+        return array;
+    }
+
+    @Override
+    public boolean add(Long value) {
+        if (contains(value.longValue())) {
+            return false;
+        }
+        // see merge()
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        // see merge()
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof MappedLongSortedSet) {
+            MappedLongSortedSet rhs = (MappedLongSortedSet) o;
+            if (longSize() != rhs.longSize()) {
+                return false;
+            }
+            for (long i = from, j = rhs.from; i < to; i++, j++) {
+                if (get(i) != rhs.get(j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (long i = from; i < to; i++) {
+            hashCode += Long.hashCode(get(i));
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('[');
+        for (long i = from; i < to; i++) {
+            if (i > from) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    private class MappedLongSortedSetIterator implements PrimitiveIterator.OfLong {
+        private long cursor = from;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < to;
+        }
+
+        @Override
+        public long nextLong() {
+            if (cursor >= to) {
+                throw new NoSuchElementException();
+            }
+            return get(cursor++);
+        }
+    }
+
+    private class DescendingMappedLongSortedSetIterator implements PrimitiveIterator.OfLong {
+        private long cursor = to;
+
+        @Override
+        public boolean hasNext() {
+            return cursor > from;
+        }
+
+        @Override
+        public long nextLong() {
+            if (cursor <= from) {
+                throw new NoSuchElementException();
+            }
+            return get(--cursor);
+        }
+    }
+
+    private class MappedLongSortedSetSpliterator implements Spliterator.OfLong {
+        private long cursor;
+        private final long end;
+
+        private MappedLongSortedSetSpliterator(long cursor, long end) {
+            this.cursor = cursor;
+            this.end = end;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long mid = (cursor + end) >>> 1;
+            if (mid <= cursor) {
+                return null;
+            }
+            Spliterator.OfLong prefix = new MappedLongSortedSetSpliterator(cursor, mid);
+            cursor = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            Objects.requireNonNull(action);
+            if (cursor >= end) {
+                return false;
+            }
+            action.accept(get(cursor++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            Objects.requireNonNull(action);
+            while (cursor < end) {
+                action.accept(get(cursor++));
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - cursor;
+        }
+
+        @Override
+        public int characteristics() {
+            return SPLITERATOR_CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null; // natural ordering
+        }
+    }
+
+    private static final class ArrayIterator implements PrimitiveIterator.OfLong {
+        private final long[] values;
+        private int cursor;
+
+        private ArrayIterator(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < values.length;
+        }
+
+        @Override
+        public long nextLong() {
+            if (cursor >= values.length) {
+                throw new NoSuchElementException();
+            }
+            return values[cursor++];
+        }
+    }
+
+    /**
+     * The union of two ascending iterators without duplicates, in ascending order.
+     */
+    private static final class MergingIterator implements PrimitiveIterator.OfLong {
+        private final PrimitiveIterator.OfLong left;
+        private final PrimitiveIterator.OfLong right;
+        private boolean hasLeft;
+        private boolean hasRight;
+        private long nextLeft;
+        private long nextRight;
+
+        private MergingIterator(PrimitiveIterator.OfLong left, PrimitiveIterator.OfLong right) {
+            this.left = left;
+            this.right = right;
+            advanceLeft();
+            advanceRight();
+        }
+
+        private void advanceLeft() {
+            hasLeft = left.hasNext();
+            if (hasLeft) {
+                nextLeft = left.nextLong();
+            }
+        }
+
+        private void advanceRight() {
+            hasRight = right.hasNext();
+            if (hasRight) {
+                nextRight = right.nextLong();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasLeft || hasRight;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasLeft && !hasRight) {
+                throw new NoSuchElementException();
+            }
+            long next;
+            if (!hasRight || (hasLeft && nextLeft < nextRight)) {
+                next = nextLeft;
+                advanceLeft();
+            } else if (!hasLeft || nextRight < nextLeft) {
+                next = nextRight;
+                advanceRight();
+            } else {
+                next = nextLeft;
+                advanceLeft();
+                advanceRight();
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The {@link LookupSortedSet} view of any other {@link NavigableSet}, returned by
+ * {@link SortedSets#asLookupSet(NavigableSet)}. {@link #getElement(Object)} is a single {@link NavigableSet#ceiling}
+ * descent into the wrapped set, where a {@link java.util.TreeSet} would otherwise need a {@code remove()} and an
+ * {@code add()} to swap in an updated instance. Every other method is passed to the wrapped set, so the view reflects
+ * every change made to it and vice versa; the range views are lookup sets as well.
+ */
+class NavigableLookupSortedSet<T> extends AbstractSet<T> implements LookupSortedSet<T> {
+
+    private final NavigableSet<T> delegate;
+
+    NavigableLookupSortedSet(NavigableSet<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T getElement(T element) {
+        if (element == null) {
+            return null;
+        }
+        T candidate = delegate.ceiling(element);
+        if (candidate == null) {
+            return null;
+        }
+        Comparator<? super T> comparator = delegate.comparator();
+        int cmp = comparator == null
+                ? ((Comparable<? super T>) candidate).compareTo(element)
+                : comparator.compare(candidate, element);
+        return cmp == 0 ? candidate : null;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return delegate.comparator();
+    }
+
+    @Override
+    public T lower(T t) {
+        return delegate.lower(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return delegate.floor(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return delegate.ceiling(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return delegate.higher(t);
+    }
+
+    @Override
+    public T pollFirst() {
+        return delegate.pollFirst();
+    }
+
+    @Override
+    public T pollLast() {
+        return delegate.pollLast();
+    }
+
+    @Override
+    public T first() {
+        return delegate.first();
+    }
+
+    @Override
+    public T last() {
+        return delegate.last();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new NavigableLookupSortedSet<>(delegate.descendingSet());
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return delegate.descendingIterator();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return delegate.spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return new NavigableLookupSortedSet<>(delegate.subSet(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new NavigableLookupSortedSet<>(delegate.headSet(toElement, inclusive));
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new NavigableLookupSortedSet<>(delegate.tailSet(fromElement, inclusive));
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return delegate.contains(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return delegate.containsAll(c);
+    }
+
+    @Override
+    public boolean add(T t) {
+        return delegate.add(t);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return delegate.remove(o);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        return delegate.removeIf(filter);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || delegate.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,45 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+/**
+ * An immutable sorted set whose updates return new versions: {@link #with(Comparable)} and {@link #without(Object)}
+ * leave this set as it is and share with the new version everything that they do not change. A version is an
+ * ordinary immutable {@link java.util.NavigableSet}, so taking a snapshot is keeping a reference, and handing it to
+ * other threads needs nothing more than publishing that reference.
+ *
+ * {@link SingletonSortedSet} is the one-element version; {@link PersistentTreeSortedSet} is the empty version and
+ * the version of two or more elements. {@link #toBuilder()} starts a batch of updates that edits its own copy of the
+ * set in place, for bulk changes that would otherwise create a version per element.
+ */
+public interface PersistentSortedSet<T extends Comparable<? super T>> extends LookupSortedSet<T> {
+
+    /**
+     * @return a set of the elements of this set and {@code element}; this set itself if it already holds it
+     * @throws IllegalArgumentException if {@code element} is null
+     */
+    PersistentSortedSet<T> with(T element);
+
+    /**
+     * @return a set of the elements of this set except {@code element}; this set itself if it does not hold it
+     */
+    PersistentSortedSet<T> without(Object element);
+
+    /**
+     * @return a builder that starts out with the elements of this set; this set is not affected by its edits
+     */
+    PersistentTreeSortedSet.Builder<T> toBuilder();
+}
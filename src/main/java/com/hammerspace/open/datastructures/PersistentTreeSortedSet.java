@@ -0,0 +1,1309 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * The {@link PersistentSortedSet} of zero or two and more elements: an immutable B+tree of sorted {@code Object[]}
+ * nodes of up to {@value #NODE_SIZE} entries. {@link #with(Comparable)} and {@link #without(Object)} copy the nodes on
+ * the path from the root to the leaf they change, a few hundred references for a million elements, and share all the
+ * others with this set. A {@link Builder} edits the nodes it has copied in place, so a batch of updates copies each
+ * node at most once.
+ *
+ * Every field is final, so a set is safely published by any reference to it. The elements must implement
+ * {@link Comparable} and cannot be null; the {@link java.util.Set} mutators throw
+ * {@link UnsupportedOperationException}.
+ */
+public final class PersistentTreeSortedSet<T extends Comparable<? super T>> extends AbstractSet<T>
+        implements PersistentSortedSet<T> {
+
+    /**
+     * The maximum number of elements of a leaf and of children of an inner node. Nodes other than the root hold at
+     * least half as many.
+     */
+    public static final int NODE_SIZE = 32;
+
+    private static final int MIN_NODE_SIZE = NODE_SIZE / 2;
+
+    private static final PersistentTreeSortedSet<?> EMPTY = new PersistentTreeSortedSet<>(null, 0, 0);
+
+    // null for the empty set
+    private final Node root;
+    private final int size;
+    // the number of levels of nodes, 1 when the root is a leaf
+    private final int height;
+
+    private PersistentTreeSortedSet(Node root, int size, int height) {
+        this.root = root;
+        this.size = size;
+        this.height = height;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<? super T>> PersistentTreeSortedSet<T> empty() {
+        return (PersistentTreeSortedSet<T>) EMPTY;
+    }
+
+    public static <T extends Comparable<? super T>> Builder<T> builder() {
+        return new Builder<>(null, 0, 0);
+    }
+
+    /**
+     * Returns a persistent set of the elements of {@code c}, built bottom-up from the sorted elements with packed
+     * nodes. Duplicates are dropped, keeping the first one encountered; a {@link SortedSet} in natural order is not
+     * sorted again.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<? super T>> PersistentSortedSet<T> copyOf(Collection<? extends T> c) {
+        if (c instanceof PersistentSortedSet) {
+            return (PersistentSortedSet<T>) c; // immutable, so a set of a subtype of T can be handed out as a set of T
+        }
+        Object[] array = c.toArray();
+        if (array.getClass() != Object[].class) {
+            array = Arrays.copyOf(array, array.length, Object[].class);
+        }
+        for (Object o : array) {
+            if (o == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+        }
+        int length = array.length;
+        if (!(c instanceof SortedSet && ((SortedSet<?>) c).comparator() == null)) {
+            Arrays.sort(array);
+            length = removeDuplicates(array);
+        }
+        switch (length) {
+            case 0:
+                return empty();
+            case 1:
+                return SortedSets.singletonOf((T) array[0]);
+            default:
+                return bulkLoad(array, length);
+        }
+    }
+
+    /**
+     * A set of two elements, {@code lower} before {@code higher}.
+     */
+    static <T extends Comparable<? super T>> PersistentTreeSortedSet<T> of(T lower, T higher) {
+        return new PersistentTreeSortedSet<>(new Leaf(new Object[]{lower, higher}, 2, null), 2, 1);
+    }
+
+    @Override
+    public PersistentSortedSet<T> with(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        if (root == null) {
+            return SortedSets.singletonOf(element);
+        }
+        if (contains(root, element)) {
+            return this;
+        }
+        Node[] split = new Node[1];
+        Node newRoot = insert(root, element, null, split, true);
+        if (split[0] != null) {
+            return new PersistentTreeSortedSet<>(newRoot(newRoot, split[0], null), size + 1, height + 1);
+        }
+        return new PersistentTreeSortedSet<>(newRoot, size + 1, height);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public PersistentSortedSet<T> without(Object element) {
+        if (element == null || root == null || !contains(root, element)) {
+            return this;
+        }
+        if (size == 2) {
+            Leaf leaf = (Leaf) root;
+            int idx = Arrays.binarySearch(leaf.keys, 0, 2, element);
+            return SortedSets.singletonOf((T) leaf.keys[1 - idx]);
+        }
+        Node newRoot = remove(root, element, null);
+        if (newRoot instanceof Inner && newRoot.size == 1) {
+            return new PersistentTreeSortedSet<>(((Inner) newRoot).children[0], size - 1, height - 1);
+        }
+        return new PersistentTreeSortedSet<>(newRoot, size - 1, height);
+    }
+
+    @Override
+    public Builder<T> toBuilder() {
+        return new Builder<>(root, size, height);
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T getElement(T element) {
+        if (element == null || root == null) {
+            return null;
+        }
+        Leaf leaf = leafFor(root, element);
+        int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, element);
+        return idx >= 0 ? (T) leaf.keys[idx] : null;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new SubSet(null, false, Objects.requireNonNull(toElement), inclusive);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new SubSet(Objects.requireNonNull(fromElement), inclusive, null, false);
+    }
+
+    @Override
+    public T lower(T t) {
+        return root == null ? null : floor(root, Objects.requireNonNull(t), false);
+    }
+
+    @Override
+    public T floor(T t) {
+        return root == null ? null : floor(root, Objects.requireNonNull(t), true);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return root == null ? null : ceiling(root, Objects.requireNonNull(t), true);
+    }
+
+    @Override
+    public T higher(T t) {
+        return root == null ? null : ceiling(root, Objects.requireNonNull(t), false);
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return rangeIterator(null, false, null, false, true);
+    }
+
+    @Override
+    public T first() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        return minimum(root);
+    }
+
+    @Override
+    public T last() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        return maximum(root);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && root != null && contains(root, o);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return rangeIterator(null, false, null, false, false);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        if (root == null) {
+            return Spliterators.emptySpliterator();
+        }
+        return new TreeSpliterator<>(root, height - 1, 0, root.size, size, Spliterator.SIZED);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        if (root != null) {
+            forEach(root, action);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void forEach(Node node, Consumer<? super T> action) {
+        if (node instanceof Leaf) {
+            for (int i = 0; i < node.size; i++) {
+                action.accept((T) node.keys[i]);
+            }
+        } else {
+            Inner inner = (Inner) node;
+            for (int i = 0; i < inner.size; i++) {
+                forEach(inner.children[i], action);
+            }
+        }
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (contains(t)) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PersistentTreeSortedSet && ((PersistentTreeSortedSet<?>) o).root == root) {
+            return true; // versions that share their root are the same version
+        }
+        return super.equals(o);
+    }
+
+    /*
+     * The tree. Within an inner node keys[i] separates children[i], whose elements are all smaller than keys[i], from
+     * children[i + 1], whose elements are all greater than or equal to it.
+     *
+     * The methods below that change the tree take the owner of the edit: null for the copy-on-write updates of a set,
+     * the token of a builder for the batched ones. A node that carries the owner of the edit was created during the
+     * same batch and is not shared with any set yet, so it is changed in place; every other node is copied first. The
+     * copies of a set are exact-sized, those of a builder get room for NODE_SIZE entries.
+     */
+
+    private static boolean contains(Node root, Object o) {
+        Leaf leaf = leafFor(root, o);
+        return Arrays.binarySearch(leaf.keys, 0, leaf.size, o) >= 0;
+    }
+
+    private static Leaf leafFor(Node root, Object o) {
+        Node node = root;
+        while (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            node = inner.children[inner.childIndex(o)];
+        }
+        return (Leaf) node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T minimum(Node node) {
+        while (node instanceof Inner) {
+            node = ((Inner) node).children[0];
+        }
+        return (T) node.keys[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T maximum(Node node) {
+        while (node instanceof Inner) {
+            node = ((Inner) node).children[node.size - 1];
+        }
+        return (T) node.keys[node.size - 1];
+    }
+
+    /**
+     * The smallest element of the subtree of {@code node} that is greater than (or equal to, if {@code inclusive})
+     * {@code t}, or null.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static <T> T ceiling(Node node, Object t, boolean inclusive) {
+        if (node instanceof Leaf) {
+            int idx = Arrays.binarySearch(node.keys, 0, node.size, t);
+            int i = idx >= 0 ? (inclusive ? idx : idx + 1) : -(idx + 1);
+            return i < node.size ? (T) node.keys[i] : null;
+        }
+        Inner inner = (Inner) node;
+        int idx = inner.childIndex(t);
+        T ceiling = ceiling(inner.children[idx], t, inclusive);
+        if (ceiling == null && idx + 1 < inner.size) {
+            return minimum(inner.children[idx + 1]);
+        }
+        return ceiling;
+    }
+
+    /**
+     * The greatest element of the subtree of {@code node} that is less than (or equal to, if {@code inclusive})
+     * {@code t}, or null.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static <T> T floor(Node node, Object t, boolean inclusive) {
+        if (node instanceof Leaf) {
+            int idx = Arrays.binarySearch(node.keys, 0, node.size, t);
+            int i = idx >= 0 ? (inclusive ? idx : idx - 1) : -(idx + 1) - 1;
+            return i >= 0 ? (T) node.keys[i] : null;
+        }
+        Inner inner = (Inner) node;
+        int idx = inner.childIndex(t);
+        T floor = floor(inner.children[idx], t, inclusive);
+        if (floor == null && idx > 0) {
+            return maximum(inner.children[idx - 1]);
+        }
+        return floor;
+    }
+
+    private static Inner newRoot(Node left, Node right, Object owner) {
+        Inner root = new Inner(new Object[owner == null ? 1 : NODE_SIZE - 1], new Node[owner == null ? 2 : NODE_SIZE],
+                2, owner);
+        root.keys[0] = minimum(right);
+        root.children[0] = left;
+        root.children[1] = right;
+        return root;
+    }
+
+    /**
+     * Inserts {@code t}, which the subtree of {@code node} does not hold yet.
+     *
+     * @param split     receives the new right sibling of the returned node if {@code node} had to split
+     * @param rightmost whether {@code node} is the last node of its level; a full last leaf that is appended to keeps
+     *                  all of its elements, so that ascending inserts pack the leaves
+     * @return the node that replaces {@code node}, which is {@code node} itself if it was changed in place
+     */
+    private static Node insert(Node node, Object t, Object owner, Node[] split, boolean rightmost) {
+        if (node instanceof Leaf) {
+            int pos = -(Arrays.binarySearch(node.keys, 0, node.size, t) + 1);
+            if (node.size < NODE_SIZE) {
+                Leaf leaf = editable((Leaf) node, owner, node.size + 1);
+                System.arraycopy(leaf.keys, pos, leaf.keys, pos + 1, leaf.size - pos);
+                leaf.keys[pos] = t;
+                leaf.size++;
+                return leaf;
+            }
+            Object[] keys = new Object[NODE_SIZE + 1];
+            System.arraycopy(node.keys, 0, keys, 0, pos);
+            keys[pos] = t;
+            System.arraycopy(node.keys, pos, keys, pos + 1, NODE_SIZE - pos);
+            int leftSize = rightmost && pos == NODE_SIZE ? NODE_SIZE : (NODE_SIZE + 1) / 2;
+            split[0] = leaf(keys, leftSize, NODE_SIZE + 1 - leftSize, owner);
+            return leaf(keys, 0, leftSize, owner);
+        }
+        Inner inner = (Inner) node;
+        int idx = inner.childIndex(t);
+        Node child = inner.children[idx];
+        Node newChild = insert(child, t, owner, split, rightmost && idx == inner.size - 1);
+        Node sibling = split[0];
+        if (sibling == null) {
+            if (newChild == child) {
+                return inner;
+            }
+            Inner copy = editable(inner, owner, inner.size);
+            copy.children[idx] = newChild;
+            return copy;
+        }
+        split[0] = null;
+        if (inner.size < NODE_SIZE) {
+            Inner copy = editable(inner, owner, inner.size + 1);
+            System.arraycopy(copy.children, idx + 1, copy.children, idx + 2, copy.size - idx - 1);
+            System.arraycopy(copy.keys, idx, copy.keys, idx + 1, copy.size - idx - 1);
+            copy.children[idx] = newChild;
+            copy.children[idx + 1] = sibling;
+            copy.keys[idx] = minimum(sibling);
+            copy.size++;
+            return copy;
+        }
+        Node[] children = new Node[NODE_SIZE + 1];
+        Object[] keys = new Object[NODE_SIZE];
+        System.arraycopy(inner.children, 0, children, 0, idx);
+        System.arraycopy(inner.keys, 0, keys, 0, idx);
+        children[idx] = newChild;
+        children[idx + 1] = sibling;
+        keys[idx] = minimum(sibling);
+        System.arraycopy(inner.children, idx + 1, children, idx + 2, NODE_SIZE - idx - 1);
+        System.arraycopy(inner.keys, idx, keys, idx + 1, NODE_SIZE - idx - 1);
+        int leftSize = (NODE_SIZE + 1) / 2;
+        split[0] = inner(keys, children, leftSize, NODE_SIZE + 1 - leftSize, owner);
+        return inner(keys, children, 0, leftSize, owner);
+    }
+
+    /**
+     * Removes {@code o}, which the subtree of {@code node} holds.
+     *
+     * @return the node that replaces {@code node}, possibly less than half full for its parent to fix
+     */
+    private static Node remove(Node node, Object o, Object owner) {
+        if (node instanceof Leaf) {
+            int idx = Arrays.binarySearch(node.keys, 0, node.size, o);
+            if (owner != null && node.owner == owner) {
+                System.arraycopy(node.keys, idx + 1, node.keys, idx, node.size - idx - 1);
+                node.keys[--node.size] = null;
+                return node;
+            }
+            Object[] keys = new Object[owner == null ? node.size - 1 : NODE_SIZE];
+            System.arraycopy(node.keys, 0, keys, 0, idx);
+            System.arraycopy(node.keys, idx + 1, keys, idx, node.size - idx - 1);
+            return new Leaf(keys, node.size - 1, owner);
+        }
+        Inner inner = (Inner) node;
+        int idx = inner.childIndex(o);
+        Node child = inner.children[idx];
+        Node newChild = remove(child, o, owner);
+        if (newChild == child && newChild.size >= MIN_NODE_SIZE) {
+            return inner;
+        }
+        Inner copy = editable(inner, owner, inner.size);
+        copy.children[idx] = newChild;
+        if (newChild.size < MIN_NODE_SIZE) {
+            rebalance(copy, idx, owner);
+        }
+        return copy;
+    }
+
+    /**
+     * Merges the child at {@code idx} of {@code parent}, which has fallen below half full, with a sibling, or spreads
+     * the entries of both evenly over two new nodes if they do not fit into one. {@code parent} is changed in place.
+     */
+    private static void rebalance(Inner parent, int idx, Object owner) {
+        int left = idx > 0 ? idx - 1 : idx;
+        Node merged = concat(parent.children[left], parent.keys[left], parent.children[left + 1], owner);
+        if (merged.size <= NODE_SIZE) {
+            parent.children[left] = merged;
+            System.arraycopy(parent.keys, left + 1, parent.keys, left, parent.size - left - 2);
+            System.arraycopy(parent.children, left + 2, parent.children, left + 1, parent.size - left - 2);
+            parent.keys[parent.size - 2] = null;
+            parent.children[parent.size - 1] = null;
+            parent.size--;
+            return;
+        }
+        int leftSize = merged.size / 2;
+        Node right;
+        if (merged instanceof Leaf) {
+            parent.children[left] = leaf(merged.keys, 0, leftSize, owner);
+            right = leaf(merged.keys, leftSize, merged.size - leftSize, owner);
+        } else {
+            Node[] children = ((Inner) merged).children;
+            parent.children[left] = inner(merged.keys, children, 0, leftSize, owner);
+            right = inner(merged.keys, children, leftSize, merged.size - leftSize, owner);
+        }
+        parent.children[left + 1] = right;
+        parent.keys[left] = minimum(right);
+    }
+
+    /**
+     * The entries of {@code left} followed by those of {@code right}, in a node that may hold up to twice
+     * {@code NODE_SIZE} of them.
+     */
+    private static Node concat(Node left, Object separator, Node right, Object owner) {
+        int size = left.size + right.size;
+        if (left instanceof Leaf) {
+            Object[] keys = new Object[size <= NODE_SIZE && owner != null ? NODE_SIZE : size];
+            System.arraycopy(left.keys, 0, keys, 0, left.size);
+            System.arraycopy(right.keys, 0, keys, left.size, right.size);
+            return new Leaf(keys, size, owner);
+        }
+        Object[] keys = new Object[size <= NODE_SIZE && owner != null ? NODE_SIZE - 1 : size - 1];
+        Node[] children = new Node[size <= NODE_SIZE && owner != null ? NODE_SIZE : size];
+        System.arraycopy(left.keys, 0, keys, 0, left.size - 1);
+        keys[left.size - 1] = separator;
+        System.arraycopy(right.keys, 0, keys, left.size, right.size - 1);
+        System.arraycopy(((Inner) left).children, 0, children, 0, left.size);
+        System.arraycopy(((Inner) right).children, 0, children, left.size, right.size);
+        return new Inner(keys, children, size, owner);
+    }
+
+    /**
+     * A new leaf of the elements {@code keys[from, from + size)}.
+     */
+    private static Leaf leaf(Object[] keys, int from, int size, Object owner) {
+        Object[] copy = new Object[owner == null ? size : NODE_SIZE];
+        System.arraycopy(keys, from, copy, 0, size);
+        return new Leaf(copy, size, owner);
+    }
+
+    /**
+     * A new inner node of the children {@code children[from, from + size)} and the separators between them.
+     */
+    private static Inner inner(Object[] keys, Node[] children, int from, int size, Object owner) {
+        Object[] keysCopy = new Object[owner == null ? size - 1 : NODE_SIZE - 1];
+        Node[] childrenCopy = new Node[owner == null ? size : NODE_SIZE];
+        System.arraycopy(keys, from, keysCopy, 0, size - 1);
+        System.arraycopy(children, from, childrenCopy, 0, size);
+        return new Inner(keysCopy, childrenCopy, size, owner);
+    }
+
+    /**
+     * {@code leaf} itself if the edit owns it and it has room for {@code capacity} elements, else a copy that does.
+     */
+    private static Leaf editable(Leaf leaf, Object owner, int capacity) {
+        if (owner != null && leaf.owner == owner && leaf.keys.length >= capacity) {
+            return leaf;
+        }
+        return new Leaf(Arrays.copyOf(leaf.keys, owner == null ? capacity : NODE_SIZE), leaf.size, owner);
+    }
+
+    /**
+     * {@code inner} itself if the edit owns it and it has room for {@code capacity} children, else a copy that does.
+     */
+    private static Inner editable(Inner inner, Object owner, int capacity) {
+        if (owner != null && inner.owner == owner && inner.children.length >= capacity) {
+            return inner;
+        }
+        int length = owner == null ? capacity : NODE_SIZE;
+        return new Inner(Arrays.copyOf(inner.keys, length - 1), Arrays.copyOf(inner.children, length), inner.size,
+                owner);
+    }
+
+    /**
+     * Builds the leaves and then each level of inner nodes above them, spreading the nodes of every level evenly over
+     * as few parents as possible.
+     */
+    private static <T extends Comparable<? super T>> PersistentTreeSortedSet<T> bulkLoad(Object[] sorted,
+                                                                                        int length) {
+        int count = groups(length);
+        Node[] level = new Node[count];
+        for (int i = 0, offset = 0; i < count; i++) {
+            int n = groupSize(length, count, i);
+            level[i] = leaf(sorted, offset, n, null);
+            offset += n;
+        }
+        int height = 1;
+        while (count > 1) {
+            int parents = groups(count);
+            Node[] parentLevel = new Node[parents];
+            for (int i = 0, offset = 0; i < parents; i++) {
+                int n = groupSize(count, parents, i);
+                Object[] keys = new Object[n - 1];
+                for (int j = 1; j < n; j++) {
+                    keys[j - 1] = minimum(level[offset + j]);
+                }
+                parentLevel[i] = new Inner(keys, Arrays.copyOfRange(level, offset, offset + n), n, null);
+                offset += n;
+            }
+            level = parentLevel;
+            count = parents;
+            height++;
+        }
+        return new PersistentTreeSortedSet<>(level[0], length, height);
+    }
+
+    private static int groups(int n) {
+        return (n + NODE_SIZE - 1) / NODE_SIZE;
+    }
+
+    private static int groupSize(int n, int groups, int i) {
+        return n / groups + (i < n % groups ? 1 : 0);
+    }
+
+    /**
+     * Compacts a sorted array in place so that its prefix holds each distinct element once; returns the length of that
+     * prefix.
+     */
+    @SuppressWarnings("unchecked")
+    private static int removeDuplicates(Object[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int length = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (((Comparable<Object>) sorted[length - 1]).compareTo(sorted[i]) != 0) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length;
+    }
+
+    /*
+     * The methods below operate on the elements within a range and back both this set (with an unbounded range) and
+     * its range views. A null bound means that the range is unbounded on that side.
+     */
+
+    private int rangeSize(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        if (lo == null && hi == null) {
+            return size;
+        }
+        int count = 0;
+        for (Iterator<T> it = rangeIterator(lo, loInclusive, hi, hiInclusive, false); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Nullable
+    private T rangeFirst(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        if (root == null) {
+            return null;
+        }
+        T first = lo == null ? minimum(root) : ceiling(root, lo, loInclusive);
+        return first != null && Ranges.inRange(first, lo, loInclusive, hi, hiInclusive) ? first : null;
+    }
+
+    @Nullable
+    private T rangeLast(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        if (root == null) {
+            return null;
+        }
+        T last = hi == null ? maximum(root) : floor(root, hi, hiInclusive);
+        return last != null && Ranges.inRange(last, lo, loInclusive, hi, hiInclusive) ? last : null;
+    }
+
+    private Iterator<T> rangeIterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending) {
+        if (root == null) {
+            return Collections.emptyIterator();
+        }
+        Cursor<T> cursor = new Cursor<>(root, height - 1, 0, root.size, descending);
+        T from = descending ? hi : lo;
+        if (from != null) {
+            cursor.seek(from, descending ? hiInclusive : loInclusive);
+        }
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                if (cursor.exhausted) {
+                    return false;
+                }
+                T next = cursor.current();
+                return descending ? !Ranges.tooLow(next, lo, loInclusive) : !Ranges.tooHigh(next, hi, hiInclusive);
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T next = cursor.current();
+                cursor.advance();
+                return next;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object o) {
+        return (T) o;
+    }
+
+    private abstract static class Node {
+        // the elements of a leaf, the separators of an inner node
+        final Object[] keys;
+        // the number of elements of a leaf, the number of children of an inner node
+        int size;
+        // the builder edit that created this node and may still change it, or null
+        final Object owner;
+
+        Node(Object[] keys, int size, Object owner) {
+            this.keys = keys;
+            this.size = size;
+            this.owner = owner;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        Leaf(Object[] keys, int size, Object owner) {
+            super(keys, size, owner);
+        }
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(Object[] keys, Node[] children, int size, Object owner) {
+            super(keys, size, owner);
+            this.children = children;
+        }
+
+        /**
+         * The index of the child whose subtree holds {@code o}, if any does.
+         */
+        int childIndex(Object o) {
+            int idx = Arrays.binarySearch(keys, 0, size - 1, o);
+            return idx >= 0 ? idx + 1 : -(idx + 1);
+        }
+    }
+
+    /**
+     * A position in the tree, kept as the path from a top node down to a leaf, that walks the elements of the children
+     * (or elements, for a leaf) {@code [lo, hi)} of the top node in either direction.
+     */
+    private static final class Cursor<T> {
+        private final Node[] nodes;
+        private final int[] indexes;
+        private final int depth;
+        private final int lo;
+        private final int hi;
+        private final boolean descending;
+        private boolean exhausted;
+
+        private Cursor(Node top, int depth, int lo, int hi, boolean descending) {
+            this.nodes = new Node[depth + 1];
+            this.indexes = new int[depth + 1];
+            this.depth = depth;
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+            nodes[0] = top;
+            indexes[0] = descending ? hi - 1 : lo;
+            exhausted = lo >= hi;
+            if (!exhausted) {
+                descend(0);
+            }
+        }
+
+        /**
+         * Moves to the first element at or after (before, if descending) {@code t}, or past it unless
+         * {@code inclusive}. Only for a cursor over the whole tree.
+         */
+        private void seek(Object t, boolean inclusive) {
+            for (int level = 0; level < depth; level++) {
+                Inner inner = (Inner) nodes[level];
+                indexes[level] = inner.childIndex(t);
+                nodes[level + 1] = inner.children[indexes[level]];
+            }
+            Node leaf = nodes[depth];
+            int idx = Arrays.binarySearch(leaf.keys, 0, leaf.size, t);
+            if (descending) {
+                int i = idx >= 0 ? (inclusive ? idx : idx - 1) : -(idx + 1) - 1;
+                indexes[depth] = Math.max(i, 0);
+                if (i < 0) {
+                    advance();
+                }
+            } else {
+                int i = idx >= 0 ? (inclusive ? idx : idx + 1) : -(idx + 1);
+                indexes[depth] = Math.min(i, leaf.size - 1);
+                if (i >= leaf.size) {
+                    advance();
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T current() {
+            return (T) nodes[depth].keys[indexes[depth]];
+        }
+
+        private void advance() {
+            for (int level = depth; level >= 0; level--) {
+                if (descending) {
+                    if (--indexes[level] >= (level == 0 ? lo : 0)) {
+                        descend(level);
+                        return;
+                    }
+                } else if (++indexes[level] < (level == 0 ? hi : nodes[level].size)) {
+                    descend(level);
+                    return;
+                }
+            }
+            exhausted = true;
+        }
+
+        /**
+         * Fills in the path below {@code level} down to the first (last, if descending) element of the subtree at the
+         * current index of that level.
+         */
+        private void descend(int level) {
+            for (int l = level; l < depth; l++) {
+                Node child = ((Inner) nodes[l]).children[indexes[l]];
+                nodes[l + 1] = child;
+                indexes[l + 1] = descending ? child.size - 1 : 0;
+            }
+        }
+    }
+
+    /**
+     * Splits by handing out halves of the children of a node, descending a level when a single child is left, so that
+     * every split is balanced and costs no lookups.
+     */
+    private static final class TreeSpliterator<T> implements Spliterator<T> {
+        private static final int BASE_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+        // the subtrees still to traverse: children [lo, hi) of a node depth levels above the leaves
+        private Node node;
+        private int depth;
+        private int lo;
+        private int hi;
+        private long estimate;
+        private int characteristics;
+        private Cursor<T> cursor;
+
+        private TreeSpliterator(Node node, int depth, int lo, int hi, long estimate, int characteristics) {
+            this.node = node;
+            this.depth = depth;
+            this.lo = lo;
+            this.hi = hi;
+            this.estimate = estimate;
+            this.characteristics = BASE_CHARACTERISTICS | characteristics;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (cursor != null) {
+                return null;
+            }
+            while (hi - lo == 1 && depth > 0) {
+                node = ((Inner) node).children[lo];
+                depth--;
+                lo = 0;
+                hi = node.size;
+            }
+            if (hi - lo < 2) {
+                return null;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (depth == 0) {
+                // the elements of a single leaf: both halves know their exact sizes
+                TreeSpliterator<T> prefix = new TreeSpliterator<>(node, 0, lo, mid, mid - lo, Spliterator.SIZED);
+                lo = mid;
+                estimate = hi - lo;
+                characteristics |= Spliterator.SIZED;
+                return prefix;
+            }
+            long prefixEstimate = estimate / 2;
+            TreeSpliterator<T> prefix = new TreeSpliterator<>(node, depth, lo, mid, prefixEstimate, 0);
+            lo = mid;
+            estimate -= prefixEstimate;
+            characteristics &= ~Spliterator.SIZED;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (cursor == null) {
+                cursor = new Cursor<>(node, depth, lo, hi, false);
+            }
+            if (cursor.exhausted) {
+                return false;
+            }
+            T next = cursor.current();
+            cursor.advance();
+            estimate = Math.max(0, estimate - 1);
+            action.accept(next);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (cursor == null) {
+                // not started: walk the subtrees without a cursor
+                if (depth == 0) {
+                    for (int i = lo; i < hi; i++) {
+                        action.accept(cast(node.keys[i]));
+                    }
+                } else {
+                    for (int i = lo; i < hi; i++) {
+                        PersistentTreeSortedSet.forEach(((Inner) node).children[i], action);
+                    }
+                }
+                lo = hi;
+                cursor = new Cursor<>(node, depth, lo, hi, false);
+            } else {
+                while (!cursor.exhausted) {
+                    T next = cursor.current();
+                    cursor.advance();
+                    action.accept(next);
+                }
+            }
+            estimate = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T cast(Object o) {
+            return (T) o;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return null; // natural ordering
+        }
+    }
+
+    /**
+     * A transient, single-threaded editor of a {@link PersistentSortedSet}. It starts out sharing every node with the
+     * set it was created from and copies a node the first time it changes it; later changes to that node within the
+     * same builder happen in place. {@link #build()} hands out the current state as a persistent set, after which the
+     * builder copies nodes again, so the built set never changes.
+     */
+    public static final class Builder<T extends Comparable<? super T>> {
+        // identifies the nodes this builder has copied since the last build() and may change in place
+        private Object owner = new Object();
+        private Node root;
+        private int size;
+        private int height;
+        private final Node[] split = new Node[1];
+
+        private Builder(Node root, int size, int height) {
+            this.root = root;
+            this.size = size;
+            this.height = height;
+        }
+
+        /**
+         * Adds {@code element} unless it is already there.
+         *
+         * @throws IllegalArgumentException if {@code element} is null
+         */
+        public Builder<T> add(T element) {
+            if (element == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            if (root == null) {
+                root = new Leaf(new Object[NODE_SIZE], 0, owner);
+                height = 1;
+            } else if (PersistentTreeSortedSet.contains(root, element)) {
+                return this;
+            }
+            Node newRoot = insert(root, element, owner, split, true);
+            if (split[0] != null) {
+                newRoot = newRoot(newRoot, split[0], owner);
+                split[0] = null;
+                height++;
+            }
+            root = newRoot;
+            size++;
+            return this;
+        }
+
+        public Builder<T> addAll(Collection<? extends T> c) {
+            for (T element : c) {
+                add(element);
+            }
+            return this;
+        }
+
+        /**
+         * Removes {@code o} if it is there.
+         */
+        public Builder<T> remove(Object o) {
+            if (o == null || root == null || !PersistentTreeSortedSet.contains(root, o)) {
+                return this;
+            }
+            Node newRoot = PersistentTreeSortedSet.remove(root, o, owner);
+            if (newRoot instanceof Inner && newRoot.size == 1) {
+                newRoot = ((Inner) newRoot).children[0];
+                height--;
+            }
+            root = newRoot;
+            size--;
+            if (size == 0) {
+                root = null;
+                height = 0;
+            }
+            return this;
+        }
+
+        public boolean contains(Object o) {
+            return o != null && root != null && PersistentTreeSortedSet.contains(root, o);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the elements added so far as a persistent set: the empty {@link PersistentTreeSortedSet}, a
+         * {@link SingletonSortedSet} or a {@link PersistentTreeSortedSet}. The builder can be used on afterwards.
+         */
+        @SuppressWarnings("unchecked")
+        public PersistentSortedSet<T> build() {
+            // the nodes edited so far now belong to the built set: copy them before any further change
+            owner = new Object();
+            switch (size) {
+                case 0:
+                    return empty();
+                case 1:
+                    return SortedSets.singletonOf((T) root.keys[0]);
+                default:
+                    return new PersistentTreeSortedSet<>(root, size, height);
+            }
+        }
+    }
+
+    private class SubSet extends AbstractSet<T> implements LookupSortedSet<T> {
+        private final T lo;
+        private final boolean loInclusive;
+        private final T hi;
+        private final boolean hiInclusive;
+
+        private SubSet(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        private boolean inRange(T t) {
+            return Ranges.inRange(t, lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Whether {@code t} can be used as a bound of a nested view; same as TreeMap's sub-maps, an exclusive bound may
+         * sit on an exclusive bound of this view.
+         */
+        private boolean inRange(T t, boolean inclusive) {
+            if (inclusive) {
+                return inRange(t);
+            }
+            return (lo == null || t.compareTo(lo) >= 0) && (hi == null || t.compareTo(hi) <= 0);
+        }
+
+        @Override
+        @Nullable
+        public T getElement(T element) {
+            return element != null && inRange(element) ? PersistentTreeSortedSet.this.getElement(element) : null;
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return null; // we use the natural ordering of elements
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            if (!inRange(fromElement, fromInclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            if (!inRange(toElement, toInclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            if (!inRange(toElement, inclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(lo, loInclusive, toElement, inclusive);
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            if (!inRange(fromElement, inclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            return new SubSet(fromElement, inclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public T lower(T t) {
+            if (Ranges.tooHigh(t, hi, hiInclusive)) {
+                return rangeLast(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeLast(lo, loInclusive, t, false);
+        }
+
+        @Override
+        public T floor(T t) {
+            if (Ranges.tooHigh(t, hi, hiInclusive)) {
+                return rangeLast(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeLast(lo, loInclusive, t, true);
+        }
+
+        @Override
+        public T ceiling(T t) {
+            if (Ranges.tooLow(t, lo, loInclusive)) {
+                return rangeFirst(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeFirst(t, true, hi, hiInclusive);
+        }
+
+        @Override
+        public T higher(T t) {
+            if (Ranges.tooLow(t, lo, loInclusive)) {
+                return rangeFirst(lo, loInclusive, hi, hiInclusive);
+            }
+            return rangeFirst(t, false, hi, hiInclusive);
+        }
+
+        @Override
+        public T pollFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public T pollLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new DescendingNavigableSet<>(this);
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return rangeIterator(lo, loInclusive, hi, hiInclusive, true);
+        }
+
+        @Override
+        public T first() {
+            T first = rangeFirst(lo, loInclusive, hi, hiInclusive);
+            if (first == null) {
+                throw new NoSuchElementException();
+            }
+            return first;
+        }
+
+        @Override
+        public T last() {
+            T last = rangeLast(lo, loInclusive, hi, hiInclusive);
+            if (last == null) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+
+        @Override
+        public int size() {
+            return rangeSize(lo, loInclusive, hi, hiInclusive);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return rangeFirst(lo, loInclusive, hi, hiInclusive) == null;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && inRange(cast(o)) && PersistentTreeSortedSet.this.contains(o);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return rangeIterator(lo, loInclusive, hi, hiInclusive, false);
+        }
+
+        @Override
+        public boolean add(T t) {
+            if (contains(t)) {
+                return false;
+            }
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
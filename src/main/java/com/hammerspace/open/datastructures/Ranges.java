@@ -0,0 +1,148 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.Comparator;
+
+/**
+ * The bound checks of the range views of the sets of this package. A {@code null} bound is no bound at all.
+ */
+final class Ranges {
+
+    private Ranges() {
+    }
+
+    static <T extends Comparable<? super T>> boolean tooLow(T t, T lo, boolean loInclusive) {
+        if (lo == null) {
+            return false;
+        }
+        int cmp = t.compareTo(lo);
+        return cmp < 0 || (cmp == 0 && !loInclusive);
+    }
+
+    static <T extends Comparable<? super T>> boolean tooHigh(T t, T hi, boolean hiInclusive) {
+        if (hi == null) {
+            return false;
+        }
+        int cmp = t.compareTo(hi);
+        return cmp > 0 || (cmp == 0 && !hiInclusive);
+    }
+
+    static <T extends Comparable<? super T>> boolean inRange(T t, T lo, boolean loInclusive, T hi,
+                                                             boolean hiInclusive) {
+        return !tooLow(t, lo, loInclusive) && !tooHigh(t, hi, hiInclusive);
+    }
+
+    /**
+     * The bounds a range view was created with, for the views that find their elements by index (the array sets and
+     * {@link MappedLongSortedSet}) and so would otherwise forget them. The elements are ordered by a comparator, or by
+     * their natural ordering if it is null.
+     */
+    static final class Bounds<T> {
+        private static final Bounds<?> NONE = new Bounds<>(null, false, null, false);
+
+        @Nullable
+        private final T lo;
+        private final boolean loInclusive;
+        @Nullable
+        private final T hi;
+        private final boolean hiInclusive;
+
+        private Bounds(@Nullable T lo, boolean loInclusive, @Nullable T hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        /**
+         * The bounds of a set that is not a range view.
+         */
+        @SuppressWarnings("unchecked")
+        static <T> Bounds<T> none() {
+            return (Bounds<T>) NONE;
+        }
+
+        boolean isNone() {
+            return lo == null && hi == null;
+        }
+
+        /**
+         * The bounds of {@code headSet(toElement, inclusive)} of the view with these bounds.
+         *
+         * @throws IllegalArgumentException if {@code toElement} is out of the range of these bounds
+         */
+        Bounds<T> head(@Nullable Comparator<? super T> comparator, T toElement, boolean inclusive) {
+            if (!takes(comparator, toElement, inclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new Bounds<>(lo, loInclusive, toElement, inclusive);
+        }
+
+        /**
+         * The bounds of {@code tailSet(fromElement, inclusive)} of the view with these bounds.
+         *
+         * @throws IllegalArgumentException if {@code fromElement} is out of the range of these bounds
+         */
+        Bounds<T> tail(@Nullable Comparator<? super T> comparator, T fromElement, boolean inclusive) {
+            if (!takes(comparator, fromElement, inclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            return new Bounds<>(fromElement, inclusive, hi, hiInclusive);
+        }
+
+        /**
+         * The bounds of {@code subSet(fromElement, fromInclusive, toElement, toInclusive)} of the view with these
+         * bounds; the caller has checked that {@code fromElement} is not greater than {@code toElement}.
+         *
+         * @throws IllegalArgumentException if either element is out of the range of these bounds
+         */
+        Bounds<T> sub(@Nullable Comparator<? super T> comparator, T fromElement, boolean fromInclusive, T toElement,
+                      boolean toInclusive) {
+            if (!takes(comparator, fromElement, fromInclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            if (!takes(comparator, toElement, toInclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new Bounds<>(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        /**
+         * Whether {@code t} can be used as a bound of a nested view; same as TreeMap's sub-maps, an exclusive bound may
+         * sit on an exclusive bound of this view.
+         */
+        private boolean takes(@Nullable Comparator<? super T> comparator, T t, boolean inclusive) {
+            if (lo != null) {
+                int cmp = compare(comparator, t, lo);
+                if (cmp < 0 || (cmp == 0 && inclusive && !loInclusive)) {
+                    return false;
+                }
+            }
+            if (hi != null) {
+                int cmp = compare(comparator, t, hi);
+                return cmp < 0 || (cmp == 0 && (hiInclusive || !inclusive));
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> int compare(@Nullable Comparator<? super T> comparator, T a, T b) {
+            return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare(a, b);
+        }
+    }
+}
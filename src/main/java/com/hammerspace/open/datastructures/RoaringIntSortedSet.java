@@ -0,0 +1,1429 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable, compressed {@link SortedSet} of {@link Integer}s in the style of Roaring bitmaps: the elements are
+ * grouped by their high 16 bits into chunks of up to 65536 values, and each chunk keeps its low 16 bits in whichever
+ * container is smallest for it: a single {@code char} (the {@link SingletonSortedSet} idea applied per chunk), a sorted
+ * {@code char[]} of up to 4096 values, a 8 KB bitmap, or a list of runs of consecutive values. A sparse set of a few
+ * hundred chunk IDs takes about two bytes per element; a dense one about one bit per element, or less when it is
+ * mostly runs.
+ *
+ * {@link #and(RoaringIntSortedSet)}, {@link #or(RoaringIntSortedSet)} and {@link #andNot(RoaringIntSortedSet)} work
+ * chunk by chunk: array containers merge or filter, bitmap and run containers combine a 64-bit word at a time in plain
+ * loops over {@code long[]}s that the JIT compiler can vectorize. {@link #rank(int)} and {@link #select(int)} use the
+ * running element counts of the chunks and cost a binary search plus a lookup in one container.
+ *
+ * Same as {@link IntArraySortedSet}, {@link #contains(int)}, {@link #firstInt()}, {@link #lastInt()} and
+ * {@link #forEach(IntConsumer)} never box. The elements are ordered as signed ints, like {@link Integer}s are.
+ */
+public class RoaringIntSortedSet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+
+    // an array container holds at most this many values; more take less room as a bitmap
+    static final int MAX_ARRAY_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private static final int SPLITERATOR_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT
+            | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE | Spliterator.SIZED
+            | Spliterator.SUBSIZED;
+
+    private static final RoaringIntSortedSet EMPTY = new RoaringIntSortedSet(new char[0], new Container[0], 0);
+
+    // the high 16 bits of the elements of each container, with the sign bit flipped so that they sort like the
+    // elements do; ascending
+    private final char[] keys;
+    private final Container[] containers;
+    // cumulative[i] is the number of elements in the containers before i; null for a single container
+    private final int[] cumulative;
+    private final int size;
+
+    /**
+     * Copies, sorts and removes duplicates from {@code values}.
+     */
+    public RoaringIntSortedSet(int... values) {
+        this(build(values));
+    }
+
+    public RoaringIntSortedSet(Collection<Integer> c) {
+        this(build(unbox(c)));
+    }
+
+    private RoaringIntSortedSet(RoaringIntSortedSet built) {
+        this.keys = built.keys;
+        this.containers = built.containers;
+        this.cumulative = built.cumulative;
+        this.size = built.size;
+    }
+
+    private RoaringIntSortedSet(char[] keys, Container[] containers, int count) {
+        this.keys = keys.length == count ? keys : Arrays.copyOf(keys, count);
+        this.containers = containers.length == count ? containers : Arrays.copyOf(containers, count);
+        int[] cumulative = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            cumulative[i + 1] = cumulative[i] + containers[i].cardinality();
+        }
+        this.size = cumulative[count];
+        this.cumulative = count > 1 ? cumulative : null;
+    }
+
+    private static RoaringIntSortedSet build(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        char[] keys = new char[8];
+        Container[] containers = new Container[8];
+        int count = 0;
+        char[] lows = new char[Math.min(sorted.length, 1 << 16)];
+        for (int i = 0; i < sorted.length; ) {
+            char key = key(sorted[i]);
+            int n = 0;
+            for (; i < sorted.length && key(sorted[i]) == key; i++) {
+                char low = (char) sorted[i];
+                if (n == 0 || lows[n - 1] != low) {
+                    lows[n++] = low;
+                }
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                containers = Arrays.copyOf(containers, count * 2);
+            }
+            keys[count] = key;
+            containers[count++] = Container.ofSorted(lows, n);
+        }
+        return count == 0 ? EMPTY : new RoaringIntSortedSet(keys, containers, count);
+    }
+
+    private static int[] unbox(Collection<Integer> c) {
+        int[] array = new int[c.size()];
+        int i = 0;
+        for (Integer value : c) {
+            if (value == null) {
+                throw new IllegalArgumentException("cannot have null elements");
+            }
+            array[i++] = value;
+        }
+        return i == array.length ? array : Arrays.copyOf(array, i);
+    }
+
+    private static char key(int value) {
+        return (char) ((value >>> 16) ^ 0x8000);
+    }
+
+    private static int value(char key, int low) {
+        return ((key ^ 0x8000) << 16) | low;
+    }
+
+    private int cumulative(int index) {
+        return cumulative != null ? cumulative[index] : index == 0 ? 0 : size;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, key);
+    }
+
+    public boolean contains(int value) {
+        int idx = indexOf(key(value));
+        return idx >= 0 && containers[idx].contains((char) value);
+    }
+
+    public int firstInt() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return value(keys[0], containers[0].first());
+    }
+
+    public int lastInt() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int last = keys.length - 1;
+        return value(keys[last], containers[last].last());
+    }
+
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        for (int i = 0; i < keys.length; i++) {
+            containers[i].forEach((keys[i] ^ 0x8000) << 16, action);
+        }
+    }
+
+    /**
+     * @return the number of elements that are less than or equal to {@code value}
+     */
+    public int rank(int value) {
+        int idx = indexOf(key(value));
+        if (idx >= 0) {
+            return cumulative(idx) + containers[idx].rank((char) value);
+        }
+        return cumulative(-(idx + 1));
+    }
+
+    /**
+     * @return the element at position {@code index} in ascending order, which is the element whose {@link #rank(int)}
+     *         is {@code index + 1}
+     * @throws IndexOutOfBoundsException if {@code index} is negative or not less than the size of this set
+     */
+    public int select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        int container = 0;
+        if (cumulative != null) {
+            // the last container that starts at or before index
+            int idx = Arrays.binarySearch(cumulative, 0, keys.length, index);
+            container = idx >= 0 ? idx : -(idx + 1) - 1;
+            // containers are never empty, so an exact match is the start of the container
+        }
+        return value(keys[container], containers[container].select(index - cumulative(container)));
+    }
+
+    /**
+     * @return the elements that are in both this set and {@code other}
+     */
+    public RoaringIntSortedSet and(RoaringIntSortedSet other) {
+        char[] keys = new char[Math.min(this.keys.length, other.keys.length)];
+        Container[] containers = new Container[keys.length];
+        int count = 0;
+        for (int i = 0, j = 0; i < this.keys.length && j < other.keys.length; ) {
+            if (this.keys[i] < other.keys[j]) {
+                i++;
+            } else if (this.keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = this.containers[i].and(other.containers[j]);
+                if (container != null) {
+                    keys[count] = this.keys[i];
+                    containers[count++] = container;
+                }
+                i++;
+                j++;
+            }
+        }
+        return count == 0 ? EMPTY : new RoaringIntSortedSet(keys, containers, count);
+    }
+
+    /**
+     * @return the elements that are in this set, in {@code other} or in both
+     */
+    public RoaringIntSortedSet or(RoaringIntSortedSet other) {
+        char[] keys = new char[this.keys.length + other.keys.length];
+        Container[] containers = new Container[keys.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < this.keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < this.keys.length && this.keys[i] < other.keys[j])) {
+                keys[count] = this.keys[i];
+                containers[count++] = this.containers[i++];
+            } else if (i == this.keys.length || this.keys[i] > other.keys[j]) {
+                keys[count] = other.keys[j];
+                containers[count++] = other.containers[j++];
+            } else {
+                keys[count] = this.keys[i];
+                containers[count++] = this.containers[i++].or(other.containers[j++]);
+            }
+        }
+        return count == 0 ? EMPTY : new RoaringIntSortedSet(keys, containers, count);
+    }
+
+    /**
+     * @return the elements of this set that are not in {@code other}
+     */
+    public RoaringIntSortedSet andNot(RoaringIntSortedSet other) {
+        char[] keys = new char[this.keys.length];
+        Container[] containers = new Container[keys.length];
+        int count = 0;
+        for (int i = 0, j = 0; i < this.keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < this.keys[i]) {
+                j++;
+            }
+            Container container = this.containers[i];
+            if (j < other.keys.length && other.keys[j] == this.keys[i]) {
+                container = container.andNot(other.containers[j]);
+            }
+            if (container != null) {
+                keys[count] = this.keys[i];
+                containers[count++] = container;
+            }
+        }
+        return count == 0 ? EMPTY : new RoaringIntSortedSet(keys, containers, count);
+    }
+
+    /*
+     * The methods below operate on the elements within an inclusive range [lo, hi] and back both this set (with the
+     * range of all ints) and its range views. The bounds are longs so that an exclusive bound at either end of the
+     * ints still has an inclusive counterpart; a range with lo > hi is empty.
+     */
+
+    private Integer ceilingInRange(int value, int hi) {
+        int idx = indexOf(key(value));
+        int next;
+        if (idx >= 0) {
+            int low = containers[idx].ceiling((char) value);
+            if (low >= 0) {
+                next = value(keys[idx], low);
+                return next <= hi ? next : null;
+            }
+            idx++;
+        } else {
+            idx = -(idx + 1);
+        }
+        if (idx == keys.length) {
+            return null;
+        }
+        next = value(keys[idx], containers[idx].first());
+        return next <= hi ? next : null;
+    }
+
+    private Integer floorInRange(int value, int lo) {
+        int idx = indexOf(key(value));
+        int previous;
+        if (idx >= 0) {
+            int low = containers[idx].floor((char) value);
+            if (low >= 0) {
+                previous = value(keys[idx], low);
+                return previous >= lo ? previous : null;
+            }
+            idx--;
+        } else {
+            idx = -(idx + 1) - 1;
+        }
+        if (idx < 0) {
+            return null;
+        }
+        previous = value(keys[idx], containers[idx].last());
+        return previous >= lo ? previous : null;
+    }
+
+    private Integer rangeFirst(long lo, long hi) {
+        return lo > hi ? null : ceilingInRange((int) lo, (int) hi);
+    }
+
+    private Integer rangeLast(long lo, long hi) {
+        return lo > hi ? null : floorInRange((int) hi, (int) lo);
+    }
+
+    private int rangeSize(long lo, long hi) {
+        if (lo > hi) {
+            return 0;
+        }
+        return rank((int) hi) - (lo == Integer.MIN_VALUE ? 0 : rank((int) lo - 1));
+    }
+
+    private NavigableSet<Integer> view(int lo, boolean loInclusive, int hi, boolean hiInclusive) {
+        return new SubSet(loInclusive ? lo : lo + 1L, hiInclusive ? hi : hi - 1L, !loInclusive, !hiInclusive);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null; // we use the natural ordering of elements
+    }
+
+    @Override
+    public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+        // fromElement inclusive, toElement exclusive
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Integer> subSet(Integer fromElement, boolean fromInclusive, Integer toElement,
+                                        boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return view(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public SortedSet<Integer> headSet(Integer toElement) {
+        // return all elements strictly less than toElement
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<Integer> headSet(Integer toElement, boolean inclusive) {
+        return view(Integer.MIN_VALUE, true, toElement, inclusive);
+    }
+
+    @Override
+    public SortedSet<Integer> tailSet(Integer fromElement) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<Integer> tailSet(Integer fromElement, boolean inclusive) {
+        return view(fromElement, inclusive, Integer.MAX_VALUE, true);
+    }
+
+    @Override
+    public Integer lower(Integer value) {
+        return value == Integer.MIN_VALUE ? null : floorInRange(value - 1, Integer.MIN_VALUE);
+    }
+
+    @Override
+    public Integer floor(Integer value) {
+        return floorInRange(value, Integer.MIN_VALUE);
+    }
+
+    @Override
+    public Integer ceiling(Integer value) {
+        return ceilingInRange(value, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Integer higher(Integer value) {
+        return value == Integer.MAX_VALUE ? null : ceilingInRange(value + 1, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Integer> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return new ContainerIterator(Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return new ContainerSpliterator(0, keys.length);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains(((Integer) o).intValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new ContainerIterator(Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * @return a copy of the elements of this set, in ascending order
+     */
+    public int[] toIntArray() {
+        int[] array = new int[size];
+        int[] i = new int[1];
+        forEach((IntConsumer) value -> array[i[0]++] = value);
+        return array;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        if (contains(value.intValue())) {
+            return false;
+        }
+        // see or()
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        if (containsAll(c)) {
+            return false;
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof RoaringIntSortedSet) {
+            RoaringIntSortedSet rhs = (RoaringIntSortedSet) o;
+            if (size != rhs.size || !Arrays.equals(keys, rhs.keys)) {
+                return false;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (!containers[i].sameValues(rhs.containers[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hashCode = new int[1];
+        forEach((IntConsumer) value -> hashCode[0] += value);
+        return hashCode[0];
+    }
+
+    /**
+     * The kinds of containers, for tests and diagnostics: the simple class name of each container, in key order.
+     */
+    String[] containerKinds() {
+        String[] kinds = new String[containers.length];
+        for (int i = 0; i < containers.length; i++) {
+            kinds[i] = containers[i].getClass().getSimpleName();
+        }
+        return kinds;
+    }
+
+    /**
+     * The low 16 bits of the elements of one chunk, as unsigned {@code char}s. Containers are immutable and never
+     * empty; operations that would leave nothing return null.
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract int first();
+
+        abstract int last();
+
+        /**
+         * @return the smallest value {@code >= low}, or -1
+         */
+        abstract int ceiling(char low);
+
+        /**
+         * @return the greatest value {@code <= low}, or -1
+         */
+        abstract int floor(char low);
+
+        /**
+         * @return the number of values {@code <= low}
+         */
+        abstract int rank(char low);
+
+        abstract int select(int index);
+
+        /**
+         * Passes {@code high | value} for every value, in ascending order.
+         */
+        abstract void forEach(int high, IntConsumer action);
+
+        /**
+         * Sets the bits of the values in a bitmap of {@link #BITMAP_WORDS} words.
+         */
+        abstract void addTo(long[] words);
+
+        /**
+         * Whether this container holds few enough values to combine by looking them up one at a time.
+         */
+        boolean isSmall() {
+            return false;
+        }
+
+        long[] toWords() {
+            long[] words = new long[BITMAP_WORDS];
+            addTo(words);
+            return words;
+        }
+
+        /**
+         * Copies the values into {@code values}, which must have room for all of them.
+         */
+        void toChars(char[] values) {
+            int[] n = new int[1];
+            forEach(0, value -> values[n[0]++] = (char) value);
+        }
+
+        Container and(Container other) {
+            if (isSmall() || other.isSmall()) {
+                Container small = isSmall() ? this : other;
+                Container large = small == this ? other : this;
+                char[] values = new char[small.cardinality()];
+                int[] n = new int[1];
+                small.forEach(0, value -> {
+                    if (large.contains((char) value)) {
+                        values[n[0]++] = (char) value;
+                    }
+                });
+                return ofSorted(values, n[0]);
+            }
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= otherWords[i];
+            }
+            return ofWords(words);
+        }
+
+        Container or(Container other) {
+            if (isSmall() && other.isSmall() && cardinality() + other.cardinality() <= MAX_ARRAY_SIZE) {
+                char[] left = new char[cardinality()];
+                char[] right = new char[other.cardinality()];
+                toChars(left);
+                other.toChars(right);
+                char[] values = new char[left.length + right.length];
+                int n = 0;
+                int i = 0;
+                int j = 0;
+                while (i < left.length || j < right.length) {
+                    if (j == right.length || (i < left.length && left[i] < right[j])) {
+                        values[n++] = left[i++];
+                    } else if (i == left.length || left[i] > right[j]) {
+                        values[n++] = right[j++];
+                    } else {
+                        values[n++] = left[i++];
+                        j++;
+                    }
+                }
+                return ofSorted(values, n);
+            }
+            long[] words = toWords();
+            other.addTo(words);
+            return ofWords(words);
+        }
+
+        Container andNot(Container other) {
+            if (isSmall()) {
+                char[] values = new char[cardinality()];
+                int[] n = new int[1];
+                forEach(0, value -> {
+                    if (!other.contains((char) value)) {
+                        values[n[0]++] = (char) value;
+                    }
+                });
+                return ofSorted(values, n[0]);
+            }
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= ~otherWords[i];
+            }
+            return ofWords(words);
+        }
+
+        boolean sameValues(Container other) {
+            if (cardinality() != other.cardinality()) {
+                return false;
+            }
+            char[] left = new char[cardinality()];
+            char[] right = new char[cardinality()];
+            toChars(left);
+            other.toChars(right);
+            return Arrays.equals(left, right);
+        }
+
+        /**
+         * The smallest container for the first {@code n} of the ascending {@code values}, or null if {@code n} is 0.
+         */
+        static Container ofSorted(char[] values, int n) {
+            if (n == 0) {
+                return null;
+            }
+            if (n == 1) {
+                return new SingletonContainer(values[0]);
+            }
+            int runs = 1;
+            for (int i = 1; i < n; i++) {
+                if (values[i] != values[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            if (RunContainer.isSmallest(runs, n)) {
+                char[] starts = new char[runs];
+                char[] lengths = new char[runs];
+                int run = 0;
+                starts[0] = values[0];
+                for (int i = 1; i < n; i++) {
+                    if (values[i] != values[i - 1] + 1) {
+                        lengths[run] = (char) (values[i - 1] - starts[run]);
+                        starts[++run] = values[i];
+                    }
+                }
+                lengths[run] = (char) (values[n - 1] - starts[run]);
+                return new RunContainer(starts, lengths, n);
+            }
+            if (n <= MAX_ARRAY_SIZE) {
+                return new ArrayContainer(Arrays.copyOf(values, n));
+            }
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < n; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words, n);
+        }
+
+        /**
+         * The smallest container for the values of a bitmap, or null if it is empty. Takes over {@code words}.
+         */
+        static Container ofWords(long[] words) {
+            int cardinality = 0;
+            int runs = 0;
+            long carry = 0; // the top bit of the previous word
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+                // a run starts at every set bit whose lower neighbor is clear
+                runs += Long.bitCount(word & ~((word << 1) | carry));
+                carry = word >>> 63;
+            }
+            if (cardinality == 0) {
+                return null;
+            }
+            if (RunContainer.isSmallest(runs, cardinality) || cardinality <= MAX_ARRAY_SIZE) {
+                char[] values = new char[cardinality];
+                int n = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    for (long word = words[i]; word != 0; word &= word - 1) {
+                        values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    }
+                }
+                return ofSorted(values, n);
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    private static final class SingletonContainer extends Container {
+        private final char value;
+
+        SingletonContainer(char value) {
+            this.value = value;
+        }
+
+        @Override
+        int cardinality() {
+            return 1;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return low == value;
+        }
+
+        @Override
+        int first() {
+            return value;
+        }
+
+        @Override
+        int last() {
+            return value;
+        }
+
+        @Override
+        int ceiling(char low) {
+            return value >= low ? value : -1;
+        }
+
+        @Override
+        int floor(char low) {
+            return value <= low ? value : -1;
+        }
+
+        @Override
+        int rank(char low) {
+            return value <= low ? 1 : 0;
+        }
+
+        @Override
+        int select(int index) {
+            return value;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            action.accept(high | value);
+        }
+
+        @Override
+        void addTo(long[] words) {
+            words[value >>> 6] |= 1L << value;
+        }
+
+        @Override
+        boolean isSmall() {
+            return true;
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        @Override
+        int first() {
+            return values[0];
+        }
+
+        @Override
+        int last() {
+            return values[values.length - 1];
+        }
+
+        @Override
+        int ceiling(char low) {
+            int idx = Arrays.binarySearch(values, low);
+            int i = idx >= 0 ? idx : -(idx + 1);
+            return i < values.length ? values[i] : -1;
+        }
+
+        @Override
+        int floor(char low) {
+            int idx = Arrays.binarySearch(values, low);
+            int i = idx >= 0 ? idx : -(idx + 1) - 1;
+            return i >= 0 ? values[i] : -1;
+        }
+
+        @Override
+        int rank(char low) {
+            int idx = Arrays.binarySearch(values, low);
+            return idx >= 0 ? idx + 1 : -(idx + 1);
+        }
+
+        @Override
+        int select(int index) {
+            return values[index];
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (char value : values) {
+                action.accept(high | value);
+            }
+        }
+
+        @Override
+        void addTo(long[] words) {
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+        }
+
+        @Override
+        void toChars(char[] values) {
+            System.arraycopy(this.values, 0, values, 0, this.values.length);
+        }
+
+        @Override
+        boolean isSmall() {
+            return true;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int first() {
+            return ceiling((char) 0);
+        }
+
+        @Override
+        int last() {
+            return floor(Character.MAX_VALUE);
+        }
+
+        @Override
+        int ceiling(char low) {
+            int i = low >>> 6;
+            long word = words[i] & (-1L << low);
+            while (word == 0) {
+                if (++i == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int floor(char low) {
+            int i = low >>> 6;
+            long word = words[i] & (-1L >>> (63 - (low & 63)));
+            while (word == 0) {
+                if (--i < 0) {
+                    return -1;
+                }
+                word = words[i];
+            }
+            return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+        }
+
+        @Override
+        int rank(char low) {
+            int i = low >>> 6;
+            int rank = 0;
+            for (int j = 0; j < i; j++) {
+                rank += Long.bitCount(words[j]);
+            }
+            return rank + Long.bitCount(words[i] & (-1L >>> (63 - (low & 63))));
+        }
+
+        @Override
+        int select(int index) {
+            int remaining = index;
+            for (int i = 0; ; i++) {
+                int count = Long.bitCount(words[i]);
+                if (remaining < count) {
+                    long word = words[i];
+                    for (int j = 0; j < remaining; j++) {
+                        word &= word - 1;
+                    }
+                    return (i << 6) + Long.numberOfTrailingZeros(word);
+                }
+                remaining -= count;
+            }
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long word = words[i]; word != 0; word &= word - 1) {
+                    action.accept(high | ((i << 6) + Long.numberOfTrailingZeros(word)));
+                }
+            }
+        }
+
+        @Override
+        void addTo(long[] words) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= this.words[i];
+            }
+        }
+
+        @Override
+        long[] toWords() {
+            return words.clone();
+        }
+    }
+
+    private static final class RunContainer extends Container {
+        // runs [starts[i], starts[i] + lengths[i]], ascending and not adjacent
+        private final char[] starts;
+        private final char[] lengths;
+        private final int cardinality;
+
+        RunContainer(char[] starts, char[] lengths, int cardinality) {
+            this.starts = starts;
+            this.lengths = lengths;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * Whether {@code runs} runs of {@code cardinality} values in total take less room than both an array and a
+         * bitmap: 4 bytes a run against 2 bytes a value or 8 KB.
+         */
+        static boolean isSmallest(int runs, int cardinality) {
+            return 4 * runs < Math.min(2 * cardinality, 8 * BITMAP_WORDS);
+        }
+
+        /**
+         * The index of the last run that starts at or before {@code low}, or -1.
+         */
+        private int runAtOrBefore(char low) {
+            int idx = Arrays.binarySearch(starts, low);
+            return idx >= 0 ? idx : -(idx + 1) - 1;
+        }
+
+        private int end(int run) {
+            return starts[run] + lengths[run];
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            int run = runAtOrBefore(low);
+            return run >= 0 && low <= end(run);
+        }
+
+        @Override
+        int first() {
+            return starts[0];
+        }
+
+        @Override
+        int last() {
+            return end(starts.length - 1);
+        }
+
+        @Override
+        int ceiling(char low) {
+            int run = runAtOrBefore(low);
+            if (run >= 0 && low <= end(run)) {
+                return low;
+            }
+            return run + 1 < starts.length ? starts[run + 1] : -1;
+        }
+
+        @Override
+        int floor(char low) {
+            int run = runAtOrBefore(low);
+            return run >= 0 ? Math.min(low, end(run)) : -1;
+        }
+
+        @Override
+        int rank(char low) {
+            int run = runAtOrBefore(low);
+            int rank = 0;
+            for (int i = 0; i < run; i++) {
+                rank += lengths[i] + 1;
+            }
+            return run >= 0 ? rank + Math.min(low, end(run)) - starts[run] + 1 : 0;
+        }
+
+        @Override
+        int select(int index) {
+            int remaining = index;
+            for (int i = 0; ; i++) {
+                if (remaining <= lengths[i]) {
+                    return starts[i] + remaining;
+                }
+                remaining -= lengths[i] + 1;
+            }
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < starts.length; i++) {
+                for (int value = starts[i], end = end(i); value <= end; value++) {
+                    action.accept(high | value);
+                }
+            }
+        }
+
+        @Override
+        void addTo(long[] words) {
+            for (int i = 0; i < starts.length; i++) {
+                int start = starts[i];
+                int end = end(i);
+                int first = start >>> 6;
+                int last = end >>> 6;
+                if (first == last) {
+                    words[first] |= (-1L << start) & (-1L >>> (63 - (end & 63)));
+                } else {
+                    words[first] |= -1L << start;
+                    for (int w = first + 1; w < last; w++) {
+                        words[w] = -1L;
+                    }
+                    words[last] |= -1L >>> (63 - (end & 63));
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the elements within {@code [lo, hi]} container by container, in either direction.
+     */
+    private class ContainerIterator implements PrimitiveIterator.OfInt {
+        private final long lo;
+        private final long hi;
+        private final boolean descending;
+        private boolean hasNext;
+        // the next element and the index of its container
+        private int next;
+        private int container;
+
+        private ContainerIterator(long lo, long hi, boolean descending) {
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+            Integer from = descending ? rangeLast(lo, hi) : rangeFirst(lo, hi);
+            hasNext = from != null;
+            if (hasNext) {
+                next = from;
+                container = indexOf(key(next));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            int value = next;
+            int low = (char) value;
+            int following = -1;
+            if (descending) {
+                if (low > 0) {
+                    following = containers[container].floor((char) (low - 1));
+                }
+                if (following < 0 && --container >= 0) {
+                    following = containers[container].last();
+                }
+            } else {
+                if (low < Character.MAX_VALUE) {
+                    following = containers[container].ceiling((char) (low + 1));
+                }
+                if (following < 0 && ++container < keys.length) {
+                    following = containers[container].first();
+                }
+            }
+            if (following < 0) {
+                hasNext = false;
+            } else {
+                next = value(keys[container], following);
+                hasNext = descending ? next >= lo && next < value : next <= hi && next > value;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Splits along the containers, whose running counts give every piece its exact size.
+     */
+    private class ContainerSpliterator implements Spliterator.OfInt {
+        // the containers [container, end), of which the first has been consumed up to, not including, element next
+        private int container;
+        private final int end;
+        private Integer next;
+        private long remaining;
+
+        private ContainerSpliterator(int container, int end) {
+            this.container = container;
+            this.end = end;
+            this.remaining = cumulative(end) - cumulative(container);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            if (next != null || end - container < 2) {
+                return null;
+            }
+            int mid = (container + end) >>> 1;
+            ContainerSpliterator prefix = new ContainerSpliterator(container, mid);
+            container = mid;
+            remaining -= prefix.remaining;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            Objects.requireNonNull(action);
+            if (remaining == 0) {
+                return false;
+            }
+            int value = next != null ? next : value(keys[container], containers[container].first());
+            int low = (char) value;
+            int following = low < Character.MAX_VALUE ? containers[container].ceiling((char) (low + 1)) : -1;
+            if (following >= 0) {
+                next = value(keys[container], following);
+            } else {
+                container++;
+                next = null;
+            }
+            remaining--;
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            Objects.requireNonNull(action);
+            // finish the container that tryAdvance() started, then hand out whole containers
+            while (next != null) {
+                tryAdvance(action);
+            }
+            for (; container < end; container++) {
+                containers[container].forEach((keys[container] ^ 0x8000) << 16, action);
+            }
+            remaining = 0;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return SPLITERATOR_CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null; // natural ordering
+        }
+    }
+
+    /**
+     * A view of the elements within {@code [lo, hi]}. Bounds are inclusive: an exclusive bound was turned into the
+     * neighboring value when the view was created, which is exact for ints and, as a long, never overflows.
+     */
+    private class SubSet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+        private final long lo;
+        private final long hi;
+        // whether lo and hi were given as the exclusive bounds lo - 1 and hi + 1
+        private final boolean loExclusive;
+        private final boolean hiExclusive;
+
+        private SubSet(long lo, long hi, boolean loExclusive, boolean hiExclusive) {
+            this.lo = lo;
+            this.hi = hi;
+            this.loExclusive = loExclusive;
+            this.hiExclusive = hiExclusive;
+        }
+
+        private boolean inRange(long value) {
+            return lo <= value && value <= hi;
+        }
+
+        /**
+         * Whether {@code t} can be used as a bound of a nested view; same as TreeMap's sub-maps, an exclusive bound may
+         * sit on an exclusive bound of this view.
+         */
+        private boolean inRange(int t, boolean inclusive) {
+            return inclusive ? inRange(t) : (loExclusive ? lo - 1 : lo) <= t && t <= (hiExclusive ? hi + 1 : hi);
+        }
+
+        @Override
+        public Comparator<? super Integer> comparator() {
+            return null; // we use the natural ordering of elements
+        }
+
+        @Override
+        public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public NavigableSet<Integer> subSet(Integer fromElement, boolean fromInclusive, Integer toElement,
+                                            boolean toInclusive) {
+            if (fromElement > toElement) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            if (!inRange(fromElement, fromInclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            if (!inRange(toElement, toInclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return view(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public SortedSet<Integer> headSet(Integer toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public NavigableSet<Integer> headSet(Integer toElement, boolean inclusive) {
+            if (!inRange(toElement, inclusive)) {
+                throw new IllegalArgumentException("toElement out of range");
+            }
+            return new SubSet(lo, inclusive ? toElement : toElement - 1L, loExclusive, !inclusive);
+        }
+
+        @Override
+        public SortedSet<Integer> tailSet(Integer fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public NavigableSet<Integer> tailSet(Integer fromElement, boolean inclusive) {
+            if (!inRange(fromElement, inclusive)) {
+                throw new IllegalArgumentException("fromElement out of range");
+            }
+            return new SubSet(inclusive ? fromElement : fromElement + 1L, hi, !inclusive, hiExclusive);
+        }
+
+        @Override
+        public Integer lower(Integer value) {
+            return rangeLast(lo, Math.min(hi, value - 1L));
+        }
+
+        @Override
+        public Integer floor(Integer value) {
+            return rangeLast(lo, Math.min(hi, value));
+        }
+
+        @Override
+        public Integer ceiling(Integer value) {
+            return rangeFirst(Math.max(lo, value), hi);
+        }
+
+        @Override
+        public Integer higher(Integer value) {
+            return rangeFirst(Math.max(lo, value + 1L), hi);
+        }
+
+        @Override
+        public Integer pollFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Integer pollLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public NavigableSet<Integer> descendingSet() {
+            return new DescendingNavigableSet<>(this);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt descendingIterator() {
+            return new ContainerIterator(lo, hi, true);
+        }
+
+        @Override
+        public Integer first() {
+            Integer first = rangeFirst(lo, hi);
+            if (first == null) {
+                throw new NoSuchElementException();
+            }
+            return first;
+        }
+
+        @Override
+        public Integer last() {
+            Integer last = rangeLast(lo, hi);
+            if (last == null) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+
+        @Override
+        public int size() {
+            return rangeSize(lo, hi);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return rangeFirst(lo, hi) == null;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && inRange((Integer) o)
+                    && RoaringIntSortedSet.this.contains(((Integer) o).intValue());
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return new ContainerIterator(lo, hi, false);
+        }
+
+        @Override
+        public boolean add(Integer value) {
+            if (contains(value)) {
+                return false;
+            }
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
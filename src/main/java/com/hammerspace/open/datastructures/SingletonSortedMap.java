@@ -0,0 +1,276 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The {@link SortedMap} counterpart of {@link SingletonSortedSet}: an immutable map with exactly one entry, held in
+ * two fields instead of a {@link java.util.TreeMap} with its {@code TreeMap.Entry}.
+ *
+ * The same rules apply as for {@link SingletonSortedSet}: the key must implement {@link Comparable}, and neither the
+ * key nor the value can be null. Every view of the map is either the map itself or the empty map, so the views do not
+ * allocate. No entry is stored: the iterator of {@link #entrySet()} is itself the entry that it returns, and
+ * {@link #forEach(BiConsumer)} hands out the key and the value without any entry at all.
+ */
+public class SingletonSortedMap<K extends Comparable<? super K>, V> implements SortedMap<K, V> {
+
+    // not an AbstractMap: its two cached view fields would add 8 bytes to every instance
+
+    private final K key;
+    private final V value;
+
+    public SingletonSortedMap(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("cannot have null keys");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("cannot have null values");
+        }
+        this.key = key;
+        this.value = value;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return null; // we use the natural ordering of keys
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        // fromKey inclusive, toKey exclusive
+        if (fromKey.compareTo(toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return fromKey.compareTo(key) <= 0 && toKey.compareTo(key) > 0 ? this : Collections.emptySortedMap();
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        // return all entries with keys strictly less than toKey
+        return toKey.compareTo(key) > 0 ? this : Collections.emptySortedMap();
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        // return all entries with keys greater than or equal to fromKey
+        return fromKey.compareTo(key) <= 0 ? this : Collections.emptySortedMap();
+    }
+
+    @Override
+    public K firstKey() {
+        return key;
+    }
+
+    @Override
+    public K lastKey() {
+        return key;
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean containsKey(Object o) {
+        return key.equals(o);
+    }
+
+    @Override
+    public boolean containsValue(Object o) {
+        return value.equals(o);
+    }
+
+    @Override
+    public V get(Object o) {
+        return key.equals(o) ? value : null;
+    }
+
+    @Override
+    public V getOrDefault(Object o, V defaultValue) {
+        return key.equals(o) ? value : defaultValue;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        action.accept(key, value);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new SingletonSortedSet<>(key);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return Collections.singletonList(value);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public V remove(Object o) {
+        // a singleton map is precisely that - singleton. it cannot become an empty map
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Map)) {
+            return false;
+        }
+        Map<?, ?> rhs = (Map<?, ?>) o;
+        if (rhs.size() != 1) {
+            return false;
+        }
+        try {
+            return value.equals(rhs.get(key));
+        } catch (ClassCastException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode() ^ value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "{" + key + "=" + value + "}";
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return key.equals(entry.getKey()) && value.equals(entry.getValue());
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * The iterator is the entry, so iterating allocates nothing but the iterator; the map has a single entry, so the
+     * entry stays valid once the iterator is exhausted.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>>, Map.Entry<K, V> {
+        private boolean hasNext = true;
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            hasNext = false;
+            return this;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return key.equals(entry.getKey()) && value.equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -17,21 +17,28 @@ package com.hammerspace.open.datastructures;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.lang.reflect.Array;
 import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * @author Anantharaman "Anand" Ganesh
  * @since 2020-01-21
  */
-public class SingletonSortedSet<T extends Comparable<? super T>> extends AbstractSet<T> implements SortedSet<T> {
+public class SingletonSortedSet<T extends Comparable<? super T>> extends AbstractSet<T>
+        implements PersistentSortedSet<T> {
+
+    private static final SortedSetMetrics METRICS = SortedSetMetrics.of(SingletonSortedSet.class);
 
     private final T element;
 
@@ -44,6 +51,7 @@ public class SingletonSortedSet<T extends Comparable<? super T>> extends Abstrac
             throw new IllegalArgumentException("cannot have null elements");
         }
         this.element = element;
+        METRICS.created(1);
     }
 
     /**
@@ -58,47 +66,165 @@ public class SingletonSortedSet<T extends Comparable<? super T>> extends Abstrac
         return element;
     }
 
+    @Override
     @Nullable
     public T getElement(T element) {
+        METRICS.lookup();
         if (this.element.compareTo(element) == 0) {
             return this.element;
         }
         return null;
     }
 
+    /**
+     * The batch form of {@link #getElement(Comparable)}: passes the element of this set to {@code action} if
+     * {@code probes} holds an element that compares equal to it. For {@code probes} in natural order that is a single
+     * lookup in {@code probes}, however many probes there are.
+     *
+     * @return the number of probes found: 0 or 1
+     */
+    @Override
+    public int getElements(SortedSet<T> probes, Consumer<? super T> action) {
+        boolean found;
+        if (probes.comparator() == null) {
+            found = probes.contains(element);
+        } else {
+            found = false;
+            for (T probe : probes) {
+                if (element.compareTo(probe) == 0) {
+                    found = true;
+                    break;
+                }
+            }
+        }
+        if (found) {
+            action.accept(element);
+        }
+        return found ? 1 : 0;
+    }
+
+    @Override
+    public PersistentSortedSet<T> with(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        int cmp = element.compareTo(this.element);
+        if (cmp == 0) {
+            return this;
+        }
+        return cmp < 0 ? PersistentTreeSortedSet.of(element, this.element)
+                : PersistentTreeSortedSet.of(this.element, element);
+    }
+
+    @Override
+    public PersistentSortedSet<T> without(Object element) {
+        return contains(element) ? PersistentTreeSortedSet.empty() : this;
+    }
+
+    @Override
+    public PersistentTreeSortedSet.Builder<T> toBuilder() {
+        return PersistentTreeSortedSet.<T>builder().add(element);
+    }
+
     @Override
     public Comparator<? super T> comparator() {
         return null; // we use the natural ordering of elements
     }
 
+    /*
+     * A singleton set never changes, so any view of it is either the set itself or the empty set. Returning those
+     * (shared) instances honors the "backed by the original set" contract without allocating a view object.
+     */
+
     @Override
     public SortedSet<T> subSet(T fromElement, T toElement) {
         // fromElement inclusive, toElement exclusive
-        if (fromElement.compareTo(element) <= 0 && toElement.compareTo(element) > 0) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        int fromCmp = fromElement.compareTo(element);
+        int toCmp = toElement.compareTo(element);
+        if ((fromCmp < 0 || (fromCmp == 0 && fromInclusive)) && (toCmp > 0 || (toCmp == 0 && toInclusive))) {
             return this;
         }
-        // TODO(aganesh): violating the "subset is backed by the original set" contract here; fix when needed
-        return Collections.emptySortedSet();
+        return Collections.emptyNavigableSet();
     }
 
     @Override
     public SortedSet<T> headSet(T toElement) {
         // return all elements strictly less than toElement
-        if (toElement.compareTo(element) > 0) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        int cmp = toElement.compareTo(element);
+        if (cmp > 0 || (cmp == 0 && inclusive)) {
             return this;
         }
-        // TODO(aganesh): violating the "subset is backed by the original set" contract here; fix when needed
-        return Collections.emptySortedSet();
+        return Collections.emptyNavigableSet();
     }
 
     @Override
     public SortedSet<T> tailSet(T fromElement) {
-        // return all elements strictly greater than fromElement
-        if (fromElement.compareTo(element) < 0) {
+        // return all elements greater than or equal to fromElement
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        int cmp = fromElement.compareTo(element);
+        if (cmp < 0 || (cmp == 0 && inclusive)) {
             return this;
         }
-        // TODO(aganesh): violating the "subset is backed by the original set" contract here; fix when needed
-        return Collections.emptySortedSet();
+        return Collections.emptyNavigableSet();
+    }
+
+    @Override
+    public T lower(T t) {
+        return element.compareTo(t) < 0 ? element : null;
+    }
+
+    @Override
+    public T floor(T t) {
+        return element.compareTo(t) <= 0 ? element : null;
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return element.compareTo(t) >= 0 ? element : null;
+    }
+
+    @Override
+    public T higher(T t) {
+        return element.compareTo(t) > 0 ? element : null;
+    }
+
+    @Override
+    public T pollFirst() {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw unsupported();
+    }
+
+    @Override
+    public T pollLast() {
+        // a singleton set is precisely that - singleton. it cannot become an empty set
+        throw unsupported();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingNavigableSet<>(this);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return iterator(); // one element reads the same in both directions
     }
 
     @Override
@@ -128,6 +254,7 @@ public class SingletonSortedSet<T extends Comparable<? super T>> extends Abstrac
 
     @Override
     public boolean contains(Object o) {
+        METRICS.lookup();
         return element.equals(o);
     }
 
@@ -142,8 +269,35 @@ public class SingletonSortedSet<T extends Comparable<? super T>> extends Abstrac
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T1> T1[] toArray(T1[] a) {
-        throw new UnsupportedOperationException();
+        if (a.length == 0) {
+            a = (T1[]) Array.newInstance(a.getClass().getComponentType(), 1);
+        }
+        a[0] = (T1) element;
+        if (a.length > 1) {
+            a[1] = null;
+        }
+        return a;
+    }
+
+    /*
+     * forEach() and removeIf() are overridden so that they do not go through an iterator: calling them on a singleton
+     * set allocates nothing.
+     */
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        action.accept(element);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        if (filter.test(element)) {
+            // a singleton set cannot become an empty set
+            throw unsupported();
+        }
+        return false;
     }
 
     @Override
@@ -151,13 +305,13 @@ public class SingletonSortedSet<T extends Comparable<? super T>> extends Abstrac
         if (t.equals(element)) {
             return false;
         }
-        throw new UnsupportedOperationException();
+        throw unsupported();
     }
 
     @Override
     public boolean remove(Object o) {
         // a singleton set is precisely that - singleton. it cannot become an empty set
-        throw new UnsupportedOperationException();
+        throw unsupported();
     }
 
     @Override
@@ -180,22 +334,27 @@ public class SingletonSortedSet<T extends Comparable<? super T>> extends Abstrac
             return false;
         }
         // we cannot grow
-        throw new UnsupportedOperationException();
+        throw unsupported();
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        throw new UnsupportedOperationException();
+        throw unsupported();
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
-        throw new UnsupportedOperationException();
+        throw unsupported();
     }
 
     @Override
     public void clear() {
-        throw new UnsupportedOperationException();
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        METRICS.unsupported();
+        return new UnsupportedOperationException();
     }
 
     @Override
@@ -205,17 +364,14 @@ public class SingletonSortedSet<T extends Comparable<? super T>> extends Abstrac
 
     @Override
     public boolean equals(Object o) {
-        if (o == null) {
-            return false;
-        }
         if (o == this) {
             return true;
         }
-        if (o.getClass() != getClass()) {
-            return false;
+        if (o instanceof SingletonSortedSet) {
+            return element.equals(((SingletonSortedSet<?>) o).element);
         }
-        SingletonSortedSet rhs = (SingletonSortedSet) o;
-        return element.equals(rhs.element);
+        // the Set contract: equal to any set that holds just an equal element, whatever its class
+        return o instanceof Set && super.equals(o);
     }
 
     @Override
@@ -0,0 +1,182 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out one shared {@link SingletonSortedSet} per distinct element.
+ *
+ * {@link SingletonSortedSet} is immutable and its {@code equals()}/{@code hashCode()} only look at the element, so
+ * millions of sets that wrap the same few thousand values (a share id, a tier name) can all be the same instance. The
+ * interner keeps the shared sets weakly: once nothing else refers to the set of an element, the garbage collector is
+ * free to reclaim it and the entry is dropped on a later call.
+ *
+ * The interner is bounded by {@code maxSize} entries. When it is full it stops admitting new elements and returns an
+ * unshared set instead; the values that were interned first, which are usually the most common ones, stay shared. The
+ * {@link #hitCount()}, {@link #missCount()} and {@link #rejectedCount()} counters tell whether the bound fits the
+ * workload. All methods are safe to call concurrently.
+ */
+public class SingletonSortedSetInterner {
+
+    private final int maxSize;
+    private final ConcurrentMap<Object, SetReference> sets = new ConcurrentHashMap<>();
+    private final ReferenceQueue<SingletonSortedSet<?>> collected = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public SingletonSortedSetInterner(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the shared set of {@code element}, creating it if this is the first time the element is seen (or the
+     *         previous set has been garbage collected)
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Comparable<? super T>> SingletonSortedSet<T> intern(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("cannot have null elements");
+        }
+        SetReference reference = sets.get(element);
+        SingletonSortedSet<?> shared = reference == null ? null : reference.get();
+        if (shared != null && shared.getElement().getClass() == element.getClass()) {
+            hits.increment();
+            return (SingletonSortedSet<T>) shared;
+        }
+
+        purge();
+        SingletonSortedSet<T> set = new SingletonSortedSet<>(element);
+        if (shared != null || (reference == null && sets.size() >= maxSize)) {
+            // an equal element of another class owns the entry, or there is no room for a new one
+            rejected.increment();
+            return set;
+        }
+        SetReference newReference = new SetReference(element, set, collected);
+        while (true) {
+            SetReference previous = sets.putIfAbsent(element, newReference);
+            if (previous == null) {
+                misses.increment();
+                return set;
+            }
+            shared = previous.get();
+            if (shared != null) {
+                // lost the race to another thread
+                if (shared.getElement().getClass() != element.getClass()) {
+                    rejected.increment();
+                    return set;
+                }
+                hits.increment();
+                return (SingletonSortedSet<T>) shared;
+            }
+            if (sets.replace(element, previous, newReference)) {
+                misses.increment();
+                return set;
+            }
+        }
+    }
+
+    /**
+     * @return the number of elements that currently have a shared set, including those whose set has been collected
+     *         but whose entry has not been dropped yet
+     */
+    public int size() {
+        return sets.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of {@link #intern(Comparable)} calls that returned an existing shared set
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of {@link #intern(Comparable)} calls that created a new shared set
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of {@link #intern(Comparable)} calls that returned an unshared set because the interner was
+     *         full
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the fraction of {@link #intern(Comparable)} calls that returned an existing shared set, or 0 if there
+     *         have been none
+     */
+    public double hitRate() {
+        long hitCount = hitCount();
+        long total = hitCount + missCount() + rejectedCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Drops every entry and resets the counters. Sets handed out before remain valid, they are just no longer shared
+     * with the sets handed out after.
+     */
+    public void clear() {
+        sets.clear();
+        hits.reset();
+        misses.reset();
+        rejected.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SingletonSortedSetInterner{size=" + size() + ", maxSize=" + maxSize + ", hits=" + hitCount()
+                + ", misses=" + missCount() + ", rejected=" + rejectedCount() + "}";
+    }
+
+    /**
+     * Drops the entries of the sets that have been garbage collected. A set whose reference the collector has cleared
+     * but not enqueued yet keeps its entry until a later call.
+     */
+    void purge() {
+        SetReference reference;
+        while ((reference = (SetReference) collected.poll()) != null) {
+            sets.remove(reference.element, reference);
+        }
+    }
+
+    private static class SetReference extends WeakReference<SingletonSortedSet<?>> {
+        // the key of the entry, so that the entry can be found once the set is gone
+        private final Object element;
+
+        private SetReference(Object element, SingletonSortedSet<?> set,
+                             ReferenceQueue<SingletonSortedSet<?>> queue) {
+            super(set, queue);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,673 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Streaming merges and set operations over any number of {@link SortedSet}s.
+ *
+ * {@link #merge(Collection)} is a k-way merge: a heap of one cursor per input set, so walking the merged elements takes
+ * O(n log k) time and O(k) memory no matter how many elements there are. {@link #union(Collection)},
+ * {@link #intersection(Collection)} and {@link #difference(SortedSet, Collection)} are lazy, read-only views that
+ * compute their elements while they are iterated and never copy them; their range views are the same operation over
+ * the range views of the inputs.
+ *
+ * The cursors know the sets of this package: a {@link SingletonSortedSet} is read without an iterator, and an
+ * {@link ArraySortedSet} is walked over its array, where skipping ahead to an element (as the intersection and the
+ * difference do) is a galloping search instead of a step at a time. Every other set is walked with its iterator.
+ *
+ * All the input sets must have the same order: they must all use the natural ordering of their elements, or
+ * {@link Object#equals(Object) equal} comparators. Null elements are not supported. The views are not snapshots: they
+ * see later changes to their inputs, and like any iterator, theirs must not outlive a change to an input.
+ */
+public final class SortedSetAlgebra {
+
+    private SortedSetAlgebra() {
+    }
+
+    /**
+     * Iterates over the elements of all of {@code sets} in ascending order. Unlike {@link #union(Collection)} an
+     * element that is in several sets is returned once for each of them.
+     */
+    public static <T> Iterator<T> merge(Collection<? extends SortedSet<T>> sets) {
+        return new MergeIterator<>(comparatorOf(sets), cursors(sets), false);
+    }
+
+    /**
+     * @return a view of the elements that are in at least one of {@code sets}
+     */
+    public static <T> SortedSet<T> union(Collection<? extends SortedSet<T>> sets) {
+        return new Union<>(comparatorOf(sets), new ArrayList<>(sets));
+    }
+
+    @SafeVarargs
+    public static <T> SortedSet<T> union(SortedSet<T>... sets) {
+        return union(Arrays.asList(sets));
+    }
+
+    /**
+     * @return a view of the elements that are in all of {@code sets}, of which there must be at least one
+     */
+    public static <T> SortedSet<T> intersection(Collection<? extends SortedSet<T>> sets) {
+        if (sets.isEmpty()) {
+            throw new IllegalArgumentException("the intersection of no sets is undefined");
+        }
+        return new Intersection<>(comparatorOf(sets), new ArrayList<>(sets));
+    }
+
+    @SafeVarargs
+    public static <T> SortedSet<T> intersection(SortedSet<T>... sets) {
+        return intersection(Arrays.asList(sets));
+    }
+
+    /**
+     * @return a view of the elements of {@code minuend} that are in none of {@code subtrahends}
+     */
+    public static <T> SortedSet<T> difference(SortedSet<T> minuend, Collection<? extends SortedSet<T>> subtrahends) {
+        List<SortedSet<T>> sets = new ArrayList<>(subtrahends.size() + 1);
+        sets.add(minuend);
+        sets.addAll(subtrahends);
+        return new Difference<>(comparatorOf(sets), minuend, new ArrayList<>(subtrahends));
+    }
+
+    @SafeVarargs
+    public static <T> SortedSet<T> difference(SortedSet<T> minuend, SortedSet<T>... subtrahends) {
+        return difference(minuend, Arrays.asList(subtrahends));
+    }
+
+    private static <T> Comparator<? super T> comparatorOf(Collection<? extends SortedSet<T>> sets) {
+        Comparator<? super T> comparator = null;
+        boolean first = true;
+        for (SortedSet<T> set : sets) {
+            if (set == null) {
+                throw new IllegalArgumentException("cannot have null sets");
+            }
+            if (first) {
+                comparator = set.comparator();
+                first = false;
+            } else if (!Objects.equals(comparator, set.comparator())) {
+                throw new IllegalArgumentException("all sets must have the same order");
+            }
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> int compare(Comparator<? super T> comparator, T a, T b) {
+        return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    /**
+     * The index of the first element of {@code elements[from, to)} (sorted by {@code comparator}, or naturally if it is
+     * null) that is not less than {@code key}, or {@code to} if there is none. The search gallops from {@code from}:
+     * it doubles its step until it overshoots and then binary searches the last step, so its cost grows with the log
+     * of the distance to the result rather than with the log of the length of the range.
+     */
+    static int gallop(Object[] elements, int from, int to, Object key, Comparator<?> comparator) {
+        // elements[lo] is less than the key (or lo == from - 1) and elements[hi] is not (or hi == to)
+        int lo = from - 1;
+        int hi = from;
+        int step = 1;
+        while (hi < to && compareObjects(comparator, elements[hi], key) < 0) {
+            lo = hi;
+            hi = step < to - lo ? lo + step : to;
+            step <<= 1;
+        }
+        while (lo + 1 < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareObjects(comparator, elements[mid], key) < 0) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * The batch lookup behind the {@code getElements} methods of the array sets: a single galloping pass over
+     * {@code elements[from, to)} for {@code probes}, which must be sorted by the same {@code comparator}.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> int getElements(Object[] elements, int from, int to, Comparator<?> comparator,
+                               SortedSet<? extends T> probes, Consumer<? super T> action) {
+        int found = 0;
+        int idx = from;
+        for (T probe : probes) {
+            idx = gallop(elements, idx, to, probe, comparator);
+            if (idx == to) {
+                break;
+            }
+            if (compareObjects(comparator, elements[idx], probe) == 0) {
+                action.accept((T) elements[idx++]);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The batch form of {@code containsAll} for the array sets: a single galloping pass over
+     * {@code elements[from, to)} for {@code probes}, which must be sorted by the same {@code comparator}.
+     */
+    static boolean containsAll(Object[] elements, int from, int to, Comparator<?> comparator, SortedSet<?> probes) {
+        int idx = from;
+        for (Object probe : probes) {
+            idx = gallop(elements, idx, to, probe, comparator);
+            if (idx == to || compareObjects(comparator, elements[idx], probe) != 0) {
+                return false;
+            }
+            idx++;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareObjects(Comparator<?> comparator, Object a, Object b) {
+        return comparator == null
+                ? ((Comparable<Object>) a).compareTo(b)
+                : ((Comparator<Object>) comparator).compare(a, b);
+    }
+
+    private static <T> List<Cursor<T>> cursors(Collection<? extends SortedSet<T>> sets) {
+        List<Cursor<T>> cursors = new ArrayList<>(sets.size());
+        for (SortedSet<T> set : sets) {
+            cursors.add(cursor(set));
+        }
+        return cursors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Cursor<T> cursor(SortedSet<T> set) {
+        if (set instanceof SingletonSortedSet) {
+            return new SingletonCursor<>(set.first());
+        }
+        if (set instanceof ComparatorSingletonSortedSet) {
+            return new SingletonCursor<>(((ComparatorSingletonSortedSet<T>) set).getElement());
+        }
+        if (set instanceof AbstractArraySortedSet) {
+            AbstractArraySortedSet<?> array = (AbstractArraySortedSet<?>) set;
+            return new ArrayCursor<>(array.array(), array.arrayFrom(), array.arrayTo());
+        }
+        return new IteratorCursor<>(set.iterator());
+    }
+
+    /**
+     * A position in one of the input sets: {@link #current} is the element at that position, or null once the cursor
+     * has moved past the last element.
+     */
+    private abstract static class Cursor<T> {
+        T current;
+
+        abstract void advance();
+
+        /**
+         * Moves forward to the first element that is not less than {@code target}.
+         */
+        void seek(Comparator<? super T> comparator, T target) {
+            while (current != null && compare(comparator, current, target) < 0) {
+                advance();
+            }
+        }
+    }
+
+    private static final class SingletonCursor<T> extends Cursor<T> {
+        private SingletonCursor(T element) {
+            this.current = element;
+        }
+
+        @Override
+        void advance() {
+            current = null;
+        }
+    }
+
+    private static final class IteratorCursor<T> extends Cursor<T> {
+        private final Iterator<T> iterator;
+
+        private IteratorCursor(Iterator<T> iterator) {
+            this.iterator = iterator;
+            advance();
+        }
+
+        @Override
+        void advance() {
+            current = iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    private static final class ArrayCursor<T> extends Cursor<T> {
+        private final Object[] elements;
+        private final int to;
+        private int index;
+
+        private ArrayCursor(Object[] elements, int from, int to) {
+            this.elements = elements;
+            this.to = to;
+            this.index = from;
+            this.current = from < to ? elementAt(from) : null;
+        }
+
+        @Override
+        void advance() {
+            index++;
+            current = index < to ? elementAt(index) : null;
+        }
+
+        @Override
+        void seek(Comparator<? super T> comparator, T target) {
+            if (current == null || compare(comparator, current, target) >= 0) {
+                return;
+            }
+            index = gallop(elements, index + 1, to, target, comparator);
+            current = index < to ? elementAt(index) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T elementAt(int idx) {
+            return (T) elements[idx];
+        }
+    }
+
+    /**
+     * Merges the cursors through a binary min-heap keyed on their current elements.
+     */
+    private static final class MergeIterator<T> implements Iterator<T> {
+        private final Comparator<? super T> comparator;
+        private final boolean distinct;
+        private final Object[] heap;
+        private int size;
+
+        private MergeIterator(Comparator<? super T> comparator, List<Cursor<T>> cursors, boolean distinct) {
+            this.comparator = comparator;
+            this.distinct = distinct;
+            this.heap = new Object[cursors.size()];
+            for (Cursor<T> cursor : cursors) {
+                if (cursor.current != null) {
+                    heap[size++] = cursor;
+                }
+            }
+            for (int i = (size >>> 1) - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return size > 0;
+        }
+
+        @Override
+        public T next() {
+            if (size == 0) {
+                throw new NoSuchElementException();
+            }
+            T next = top().current;
+            advanceTop();
+            while (distinct && size > 0 && compare(comparator, top().current, next) == 0) {
+                advanceTop();
+            }
+            return next;
+        }
+
+        private void advanceTop() {
+            Cursor<T> top = top();
+            top.advance();
+            if (top.current == null) {
+                heap[0] = heap[--size];
+                heap[size] = null;
+            }
+            siftDown(0);
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && compare(comparator, at(left).current, at(smallest).current) < 0) {
+                    smallest = left;
+                }
+                if (right < size && compare(comparator, at(right).current, at(smallest).current) < 0) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                Object swap = heap[i];
+                heap[i] = heap[smallest];
+                heap[smallest] = swap;
+                i = smallest;
+            }
+        }
+
+        private Cursor<T> top() {
+            return at(0);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Cursor<T> at(int i) {
+            return (Cursor<T>) heap[i];
+        }
+    }
+
+    /**
+     * Leapfrogs the cursors: each one in turn seeks to the largest element seen so far, until they all agree.
+     */
+    private static final class IntersectionIterator<T> implements Iterator<T> {
+        private final Comparator<? super T> comparator;
+        private final List<Cursor<T>> cursors;
+        private T next;
+
+        private IntersectionIterator(Comparator<? super T> comparator, List<Cursor<T>> cursors) {
+            this.comparator = comparator;
+            this.cursors = cursors;
+            this.next = findNext();
+        }
+
+        private T findNext() {
+            int count = cursors.size();
+            T target = cursors.get(0).current;
+            int agreeing = 1;
+            for (int i = 1 % count; target != null && agreeing < count; i = (i + 1) % count) {
+                Cursor<T> cursor = cursors.get(i);
+                cursor.seek(comparator, target);
+                if (cursor.current == null) {
+                    return null;
+                }
+                if (compare(comparator, cursor.current, target) == 0) {
+                    agreeing++;
+                } else {
+                    target = cursor.current;
+                    agreeing = 1;
+                }
+            }
+            return target;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            // every cursor is at the element being returned; moving the first one on starts the next round
+            cursors.get(0).advance();
+            next = findNext();
+            return result;
+        }
+    }
+
+    private static final class DifferenceIterator<T> implements Iterator<T> {
+        private final Comparator<? super T> comparator;
+        private final Cursor<T> minuend;
+        private final List<Cursor<T>> subtrahends;
+        private T next;
+
+        private DifferenceIterator(Comparator<? super T> comparator, Cursor<T> minuend, List<Cursor<T>> subtrahends) {
+            this.comparator = comparator;
+            this.minuend = minuend;
+            this.subtrahends = subtrahends;
+            this.next = findNext();
+        }
+
+        private T findNext() {
+            for (; minuend.current != null; minuend.advance()) {
+                if (!inSubtrahends(minuend.current)) {
+                    return minuend.current;
+                }
+            }
+            return null;
+        }
+
+        private boolean inSubtrahends(T element) {
+            for (Cursor<T> subtrahend : subtrahends) {
+                subtrahend.seek(comparator, element);
+                if (subtrahend.current != null && compare(comparator, subtrahend.current, element) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            minuend.advance();
+            next = findNext();
+            return result;
+        }
+    }
+
+    /**
+     * The read-only view behind the operations. {@link #size()} and {@link #last()} walk the elements, so they take
+     * linear time unless a subclass knows better.
+     */
+    private abstract static class LazySortedSet<T> extends AbstractSet<T> implements SortedSet<T> {
+        final Comparator<? super T> comparator;
+
+        LazySortedSet(Comparator<? super T> comparator) {
+            this.comparator = comparator;
+        }
+
+        /**
+         * @return the same operation over the given range views of the inputs
+         */
+        abstract SortedSet<T> restrict(UnaryOperator<SortedSet<T>> range);
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            if (compare(comparator, fromElement, toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            return restrict(set -> set.subSet(fromElement, toElement));
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return restrict(set -> set.headSet(toElement));
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return restrict(set -> set.tailSet(fromElement));
+        }
+
+        @Override
+        public T first() {
+            return iterator().next();
+        }
+
+        @Override
+        public T last() {
+            Iterator<T> iterator = iterator();
+            T last = iterator.next();
+            while (iterator.hasNext()) {
+                last = iterator.next();
+            }
+            return last;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<T> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+                size++;
+            }
+            return size;
+        }
+    }
+
+    private static final class Union<T> extends LazySortedSet<T> {
+        private final List<SortedSet<T>> sets;
+
+        private Union(Comparator<? super T> comparator, List<SortedSet<T>> sets) {
+            super(comparator);
+            this.sets = sets;
+        }
+
+        @Override
+        SortedSet<T> restrict(UnaryOperator<SortedSet<T>> range) {
+            List<SortedSet<T>> ranges = new ArrayList<>(sets.size());
+            for (SortedSet<T> set : sets) {
+                ranges.add(range.apply(set));
+            }
+            return new Union<>(comparator, ranges);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new MergeIterator<>(comparator, cursors(sets), true);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            for (SortedSet<T> set : sets) {
+                if (set.contains(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            for (SortedSet<T> set : sets) {
+                if (!set.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public T last() {
+            T last = null;
+            for (SortedSet<T> set : sets) {
+                if (!set.isEmpty() && (last == null || compare(comparator, set.last(), last) > 0)) {
+                    last = set.last();
+                }
+            }
+            if (last == null) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+    }
+
+    private static final class Intersection<T> extends LazySortedSet<T> {
+        private final List<SortedSet<T>> sets;
+
+        private Intersection(Comparator<? super T> comparator, List<SortedSet<T>> sets) {
+            super(comparator);
+            this.sets = sets;
+        }
+
+        @Override
+        SortedSet<T> restrict(UnaryOperator<SortedSet<T>> range) {
+            List<SortedSet<T>> ranges = new ArrayList<>(sets.size());
+            for (SortedSet<T> set : sets) {
+                ranges.add(range.apply(set));
+            }
+            return new Intersection<>(comparator, ranges);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new IntersectionIterator<>(comparator, cursors(sets));
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            for (SortedSet<T> set : sets) {
+                if (!set.contains(o)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Difference<T> extends LazySortedSet<T> {
+        private final SortedSet<T> minuend;
+        private final List<SortedSet<T>> subtrahends;
+
+        private Difference(Comparator<? super T> comparator, SortedSet<T> minuend, List<SortedSet<T>> subtrahends) {
+            super(comparator);
+            this.minuend = minuend;
+            this.subtrahends = subtrahends;
+        }
+
+        @Override
+        SortedSet<T> restrict(UnaryOperator<SortedSet<T>> range) {
+            // the minuend bounds the elements, so the subtrahends need no range of their own
+            return new Difference<>(comparator, range.apply(minuend), subtrahends);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new DifferenceIterator<>(comparator, cursor(minuend), cursors(subtrahends));
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!minuend.contains(o)) {
+                return false;
+            }
+            for (SortedSet<T> subtrahend : subtrahends) {
+                if (subtrahend.contains(o)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
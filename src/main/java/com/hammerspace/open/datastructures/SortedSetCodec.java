@@ -0,0 +1,68 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+
+/**
+ * Writes sorted sets to and reads them from a compact binary form, without going through Java serialization or an
+ * intermediate {@link java.util.TreeSet}.
+ *
+ * Every encoding starts with the number of elements as a varint, followed by the elements in ascending order. Reading
+ * looks at that count first and decodes straight into the smallest representation: the shared empty set, a singleton
+ * set or a set packed into a single array of exactly the right length. {@link SortedSetCodecs} has the codecs for
+ * {@code long}s and {@code int}s, which delta-encode the elements, and for any other element type given an
+ * {@link ElementCodec}.
+ *
+ * Only sets in the natural order of their elements can be written; encoded data that is not strictly ascending, or
+ * otherwise malformed, makes {@code read} throw an {@link IOException}.
+ */
+public interface SortedSetCodec<T> {
+
+    void write(SortedSet<T> set, DataOutput out) throws IOException;
+
+    NavigableSet<T> read(DataInput in) throws IOException;
+
+    /**
+     * Writes {@code set} at the position of {@code buffer} and advances the position past it.
+     *
+     * @throws java.nio.BufferOverflowException if the set does not fit in the remaining bytes of the buffer, in which
+     *         case part of it may have been written
+     */
+    void write(SortedSet<T> set, ByteBuffer buffer) throws IOException;
+
+    /**
+     * Reads a set from the position of {@code buffer} and advances the position past it.
+     *
+     * @throws java.io.EOFException if the buffer ends before the set does
+     */
+    NavigableSet<T> read(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Writes and reads single elements for {@link SortedSetCodecs#of(ElementCodec)}.
+     */
+    interface ElementCodec<T> {
+
+        void write(T element, DataOutput out) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+}
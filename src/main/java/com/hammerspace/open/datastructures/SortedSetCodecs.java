@@ -0,0 +1,481 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+
+/**
+ * The {@link SortedSetCodec}s of this package.
+ *
+ * Counts are unsigned varints: 7 bits per byte, least significant group first, the high bit set on every byte but the
+ * last. The {@code long} and {@code int} codecs write the first element as a zigzag varint (so small negative numbers
+ * stay short) and every following element as the varint of its distance to the previous one, minus one, which turns a
+ * set of nearby values into about one byte per element.
+ */
+public final class SortedSetCodecs {
+
+    private static final SortedSetCodec<Long> LONGS = new LongCodec();
+    private static final SortedSetCodec<Integer> INTS = new IntCodec();
+    private static final SortedSetCodec.ElementCodec<String> UTF8 = new Utf8Codec();
+
+    // a DataInput cannot tell how many bytes are left, so reading from one allocates room for at most this many
+    // elements (or bytes) up front and grows as they arrive: a corrupt count then ends in an EOFException, not in a
+    // multi-gigabyte allocation
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private SortedSetCodecs() {
+    }
+
+    /**
+     * A delta-encoding codec that reads into {@link LongSingletonSortedSet}s and {@link LongArraySortedSet}s.
+     */
+    public static SortedSetCodec<Long> longs() {
+        return LONGS;
+    }
+
+    /**
+     * A delta-encoding codec that reads into {@link IntSingletonSortedSet}s and {@link IntArraySortedSet}s.
+     */
+    public static SortedSetCodec<Integer> ints() {
+        return INTS;
+    }
+
+    /**
+     * A codec that writes the elements with {@code elementCodec} and reads into {@link SingletonSortedSet}s (through
+     * {@link SortedSets#singletonOf(Comparable)}, so interning applies) and {@link ArraySortedSet}s.
+     */
+    public static <T extends Comparable<? super T>> SortedSetCodec<T> of(SortedSetCodec.ElementCodec<T> elementCodec) {
+        if (elementCodec == null) {
+            throw new IllegalArgumentException("elementCodec cannot be null");
+        }
+        return new ObjectCodec<>(elementCodec);
+    }
+
+    /**
+     * An {@link SortedSetCodec.ElementCodec} for strings: the varint length of the UTF-8 bytes, then the bytes. Unlike
+     * {@link DataOutput#writeUTF(String)} it has no 64 KB limit.
+     */
+    public static SortedSetCodec.ElementCodec<String> utf8() {
+        return UTF8;
+    }
+
+    static void writeVarLong(long value, DataOutput out) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    static void writeVarLong(long value, ByteBuffer buffer) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long readVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                // the same exception as DataInput throws, whichever codec reads the buffer
+                throw new EOFException();
+            }
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void checkNaturalOrder(SortedSet<?> set) {
+        if (set.comparator() != null) {
+            throw new IllegalArgumentException("only sets in natural order can be written");
+        }
+    }
+
+    private static int readSize(long size, int remaining) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("malformed size: " + size);
+        }
+        if (size > remaining) {
+            // every element takes at least one byte, so the input ends before the set does
+            throw new EOFException();
+        }
+        return (int) size;
+    }
+
+    /**
+     * @return the capacity to grow an array of {@code capacity} elements to, on the way to {@code size}
+     */
+    private static int grow(int capacity, int size) {
+        return (int) Math.min(size, 2L * capacity);
+    }
+
+    private static final class LongCodec implements SortedSetCodec<Long> {
+
+        @Override
+        public void write(SortedSet<Long> set, DataOutput out) throws IOException {
+            long[] values = toLongArray(set);
+            writeVarLong(values.length, out);
+            for (int i = 0; i < values.length; i++) {
+                writeVarLong(i == 0 ? zigzag(values[0]) : values[i] - values[i - 1] - 1, out);
+            }
+        }
+
+        @Override
+        public void write(SortedSet<Long> set, ByteBuffer buffer) {
+            long[] values = toLongArray(set);
+            writeVarLong(values.length, buffer);
+            for (int i = 0; i < values.length; i++) {
+                writeVarLong(i == 0 ? zigzag(values[0]) : values[i] - values[i - 1] - 1, buffer);
+            }
+        }
+
+        @Override
+        public NavigableSet<Long> read(DataInput in) throws IOException {
+            int size = readSize(readVarLong(in), Integer.MAX_VALUE);
+            if (size == 0) {
+                return Collections.emptyNavigableSet();
+            }
+            long first = unzigzag(readVarLong(in));
+            if (size == 1) {
+                return new LongSingletonSortedSet(first);
+            }
+            long[] values = new long[Math.min(size, MAX_INITIAL_CAPACITY)];
+            values[0] = first;
+            for (int i = 1; i < size; i++) {
+                if (i == values.length) {
+                    values = Arrays.copyOf(values, grow(i, size));
+                }
+                values[i] = next(values[i - 1], readVarLong(in));
+            }
+            return new LongArraySortedSet(values, 0, size);
+        }
+
+        @Override
+        public NavigableSet<Long> read(ByteBuffer buffer) throws IOException {
+            int size = readSize(readVarLong(buffer), buffer.remaining());
+            if (size == 0) {
+                return Collections.emptyNavigableSet();
+            }
+            long first = unzigzag(readVarLong(buffer));
+            if (size == 1) {
+                return new LongSingletonSortedSet(first);
+            }
+            long[] values = new long[size];
+            values[0] = first;
+            for (int i = 1; i < size; i++) {
+                values[i] = next(values[i - 1], readVarLong(buffer));
+            }
+            return new LongArraySortedSet(values, 0, size);
+        }
+
+        private static long next(long previous, long gap) throws IOException {
+            // the gap is unsigned; a sum that wraps around past Long.MAX_VALUE is not ascending
+            long value = previous + gap + 1;
+            if (value <= previous) {
+                throw new IOException("elements are not in ascending order");
+            }
+            return value;
+        }
+
+        private static long[] toLongArray(SortedSet<Long> set) {
+            if (set instanceof LongArraySortedSet) {
+                return ((LongArraySortedSet) set).toLongArray();
+            }
+            if (set instanceof LongSingletonSortedSet) {
+                return new long[]{((LongSingletonSortedSet) set).getLong()};
+            }
+            checkNaturalOrder(set);
+            long[] values = new long[set.size()];
+            int i = 0;
+            for (Long value : set) {
+                values[i++] = value;
+            }
+            return values;
+        }
+    }
+
+    private static final class IntCodec implements SortedSetCodec<Integer> {
+
+        @Override
+        public void write(SortedSet<Integer> set, DataOutput out) throws IOException {
+            int[] values = toIntArray(set);
+            writeVarLong(values.length, out);
+            for (int i = 0; i < values.length; i++) {
+                writeVarLong(i == 0 ? zigzag(values[0]) : (long) values[i] - values[i - 1] - 1, out);
+            }
+        }
+
+        @Override
+        public void write(SortedSet<Integer> set, ByteBuffer buffer) {
+            int[] values = toIntArray(set);
+            writeVarLong(values.length, buffer);
+            for (int i = 0; i < values.length; i++) {
+                writeVarLong(i == 0 ? zigzag(values[0]) : (long) values[i] - values[i - 1] - 1, buffer);
+            }
+        }
+
+        @Override
+        public NavigableSet<Integer> read(DataInput in) throws IOException {
+            int size = readSize(readVarLong(in), Integer.MAX_VALUE);
+            if (size == 0) {
+                return Collections.emptyNavigableSet();
+            }
+            int first = toInt(unzigzag(readVarLong(in)));
+            if (size == 1) {
+                return new IntSingletonSortedSet(first);
+            }
+            int[] values = new int[Math.min(size, MAX_INITIAL_CAPACITY)];
+            values[0] = first;
+            for (int i = 1; i < size; i++) {
+                if (i == values.length) {
+                    values = Arrays.copyOf(values, grow(i, size));
+                }
+                values[i] = next(values[i - 1], readVarLong(in));
+            }
+            return new IntArraySortedSet(values, 0, size);
+        }
+
+        @Override
+        public NavigableSet<Integer> read(ByteBuffer buffer) throws IOException {
+            int size = readSize(readVarLong(buffer), buffer.remaining());
+            if (size == 0) {
+                return Collections.emptyNavigableSet();
+            }
+            int first = toInt(unzigzag(readVarLong(buffer)));
+            if (size == 1) {
+                return new IntSingletonSortedSet(first);
+            }
+            int[] values = new int[size];
+            values[0] = first;
+            for (int i = 1; i < size; i++) {
+                values[i] = next(values[i - 1], readVarLong(buffer));
+            }
+            return new IntArraySortedSet(values, 0, size);
+        }
+
+        private static int next(int previous, long gap) throws IOException {
+            // the gap is unsigned and below 2^32 between two ints; a larger one is either past Integer.MAX_VALUE or,
+            // read as a negative long, not ascending
+            if (gap < 0 || gap > 0xFFFFFFFFL) {
+                throw new IOException("elements are not in ascending order");
+            }
+            return toInt(previous + gap + 1);
+        }
+
+        private static int toInt(long value) throws IOException {
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new IOException("element out of int range: " + value);
+            }
+            return (int) value;
+        }
+
+        private static int[] toIntArray(SortedSet<Integer> set) {
+            if (set instanceof IntArraySortedSet) {
+                return ((IntArraySortedSet) set).toIntArray();
+            }
+            if (set instanceof IntSingletonSortedSet) {
+                return new int[]{((IntSingletonSortedSet) set).getInt()};
+            }
+            checkNaturalOrder(set);
+            int[] values = new int[set.size()];
+            int i = 0;
+            for (Integer value : set) {
+                values[i++] = value;
+            }
+            return values;
+        }
+    }
+
+    private static final class ObjectCodec<T extends Comparable<? super T>> implements SortedSetCodec<T> {
+
+        private final ElementCodec<T> elementCodec;
+
+        private ObjectCodec(ElementCodec<T> elementCodec) {
+            this.elementCodec = elementCodec;
+        }
+
+        @Override
+        public void write(SortedSet<T> set, DataOutput out) throws IOException {
+            checkNaturalOrder(set);
+            Object[] elements = set.toArray();
+            writeVarLong(elements.length, out);
+            for (Object element : elements) {
+                @SuppressWarnings("unchecked")
+                T t = (T) element;
+                elementCodec.write(t, out);
+            }
+        }
+
+        @Override
+        public void write(SortedSet<T> set, ByteBuffer buffer) throws IOException {
+            // the streams do not buffer, so the buffer position ends up right after the set
+            write(set, (DataOutput) new DataOutputStream(new ByteBufferOutputStream(buffer)));
+        }
+
+        @Override
+        public NavigableSet<T> read(DataInput in) throws IOException {
+            return read(in, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public NavigableSet<T> read(ByteBuffer buffer) throws IOException {
+            return read(new DataInputStream(new ByteBufferInputStream(buffer)), buffer.remaining());
+        }
+
+        private NavigableSet<T> read(DataInput in, int remaining) throws IOException {
+            int size = readSize(readVarLong(in), remaining);
+            if (size == 0) {
+                return Collections.emptyNavigableSet();
+            }
+            if (size == 1) {
+                return SortedSets.singletonOf(readElement(in));
+            }
+            Object[] elements = new Object[Math.min(size, MAX_INITIAL_CAPACITY)];
+            T previous = null;
+            for (int i = 0; i < size; i++) {
+                if (i == elements.length) {
+                    elements = Arrays.copyOf(elements, grow(i, size));
+                }
+                T element = readElement(in);
+                if (previous != null && previous.compareTo(element) >= 0) {
+                    throw new IOException("elements are not in ascending order");
+                }
+                elements[i] = element;
+                previous = element;
+            }
+            return ArraySortedSet.wrap(elements, 0, size);
+        }
+
+        private T readElement(DataInput in) throws IOException {
+            T element = elementCodec.read(in);
+            if (element == null) {
+                throw new IOException("the element codec read a null element");
+            }
+            return element;
+        }
+    }
+
+    private static final class Utf8Codec implements SortedSetCodec.ElementCodec<String> {
+
+        @Override
+        public void write(String element, DataOutput out) throws IOException {
+            byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length, out);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            long length = readVarLong(in);
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("malformed length: " + length);
+            }
+            byte[] bytes = new byte[(int) Math.min(length, MAX_INITIAL_CAPACITY)];
+            int read = 0;
+            while (true) {
+                in.readFully(bytes, read, bytes.length - read);
+                read = bytes.length;
+                if (read == length) {
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+                bytes = Arrays.copyOf(bytes, grow(read, (int) length));
+            }
+        }
+    }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.put(b, off, len);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
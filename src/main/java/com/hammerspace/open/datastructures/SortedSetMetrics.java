@@ -0,0 +1,227 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the shape and use of the sets of one class of this package: a histogram of the sizes the sets are
+ * created with, the number of lookups and range views, the number of moves of {@link AdaptiveSortedSet} from one
+ * representation to the next and the number of changes that {@link SingletonSortedSet} refused with an
+ * {@link UnsupportedOperationException}. They tell which representation the sets of an application actually end up
+ * in, and whether thresholds such as {@link AdaptiveSortedSet#DEFAULT_TREE_THRESHOLD} fit it.
+ *
+ * The counters are off unless the {@link #ENABLED_PROPERTY} system property is {@code true} at startup. The property
+ * is read once into a constant, so when it is off the JIT drops the calls altogether; when it is on every event costs
+ * an uncontended {@link LongAdder} increment and allocates nothing. All methods are safe to call concurrently.
+ */
+public final class SortedSetMetrics {
+
+    /**
+     * The system property that turns the counters on at startup.
+     */
+    public static final String ENABLED_PROPERTY = "com.hammerspace.open.datastructures.metrics";
+
+    private static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    // bucket 0 counts the empty sets and bucket i > 0 the sets of [2^(i-1), 2^i) elements
+    private static final int SIZE_BUCKETS = 33;
+
+    private static final ConcurrentMap<String, SortedSetMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final LongAdder[] sizes = new LongAdder[SIZE_BUCKETS];
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder rangeViews = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+    private final LongAdder unsupported = new LongAdder();
+
+    private SortedSetMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            sizes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return whether the counters were turned on at startup
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return the counters of the sets of {@code type}, shared by all of them
+     */
+    public static SortedSetMetrics of(Class<?> type) {
+        return METRICS.computeIfAbsent(type.getSimpleName(), SortedSetMetrics::new);
+    }
+
+    /**
+     * @return the counters of every class that has any, by the simple name of the class
+     */
+    public static Map<String, SortedSetMetrics> all() {
+        return Collections.unmodifiableMap(new TreeMap<>(METRICS));
+    }
+
+    /**
+     * Resets the counters of every class, for instance after a warmup.
+     */
+    public static void resetAll() {
+        METRICS.values().forEach(SortedSetMetrics::reset);
+    }
+
+    /*
+     * The events, called by the sets. Each one tests the constant first, so that it costs nothing when the counters
+     * are off.
+     */
+
+    void created(int size) {
+        if (ENABLED) {
+            sizes[bucket(size)].increment();
+        }
+    }
+
+    void lookup() {
+        if (ENABLED) {
+            lookups.increment();
+        }
+    }
+
+    void rangeView() {
+        if (ENABLED) {
+            rangeViews.increment();
+        }
+    }
+
+    void promoted() {
+        if (ENABLED) {
+            promotions.increment();
+        }
+    }
+
+    void demoted() {
+        if (ENABLED) {
+            demotions.increment();
+        }
+    }
+
+    void unsupported() {
+        if (ENABLED) {
+            unsupported.increment();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of sets created
+     */
+    public long creationCount() {
+        long count = 0;
+        for (LongAdder bucket : sizes) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of sets created with each size: element 0 counts the empty sets and element {@code i > 0}
+     *         the sets of {@code 2^(i-1)} to {@code 2^i - 1} elements
+     */
+    public long[] sizeHistogram() {
+        long[] histogram = new long[SIZE_BUCKETS];
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            histogram[i] = sizes[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the number of {@code contains()} and {@code getElement()} calls
+     */
+    public long lookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return the number of range views created, not counting those that are the set itself or the empty set
+     */
+    public long rangeViewCount() {
+        return rangeViews.sum();
+    }
+
+    /**
+     * @return the number of moves to a larger representation, such as from an array to a tree
+     */
+    public long promotionCount() {
+        return promotions.sum();
+    }
+
+    /**
+     * @return the number of moves back to a smaller representation
+     */
+    public long demotionCount() {
+        return demotions.sum();
+    }
+
+    /**
+     * @return the number of changes refused with an {@link UnsupportedOperationException}
+     */
+    public long unsupportedCount() {
+        return unsupported.sum();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : sizes) {
+            bucket.reset();
+        }
+        lookups.reset();
+        rangeViews.reset();
+        promotions.reset();
+        demotions.reset();
+        unsupported.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder("{");
+        long[] counts = sizeHistogram();
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            if (counts[i] != 0) {
+                if (histogram.length() > 1) {
+                    histogram.append(", ");
+                }
+                histogram.append(i == 0 ? "0" : "<" + (1L << i)).append('=').append(counts[i]);
+            }
+        }
+        return "SortedSetMetrics{name=" + name + ", sizes=" + histogram.append('}') + ", lookups=" + lookupCount()
+                + ", rangeViews=" + rangeViewCount() + ", promotions=" + promotionCount() + ", demotions="
+                + demotionCount() + ", unsupported=" + unsupportedCount() + "}";
+    }
+
+    private static int bucket(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+}
@@ -0,0 +1,182 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Static factories for the compact sorted sets of this package.
+ *
+ * The {@code copyOf} methods and the collectors return the most compact immutable set for the number of elements: the
+ * shared empty set, a singleton set or a set packed into a single array. Elements cannot be null.
+ */
+public final class SortedSets {
+
+    /**
+     * The system property that enables {@link #singletonOf(Comparable)} interning at startup; its value is the maximum
+     * number of interned elements. Interning is off when the property is absent or not a positive number.
+     */
+    public static final String SINGLETON_INTERN_SIZE_PROPERTY =
+            "com.hammerspace.open.datastructures.singletonInternSize";
+
+    private static volatile SingletonSortedSetInterner singletonInterner =
+            createInterner(Integer.getInteger(SINGLETON_INTERN_SIZE_PROPERTY, 0));
+
+    private SortedSets() {
+    }
+
+    /**
+     * Returns a {@link SingletonSortedSet} of {@code element}. When interning is on (see
+     * {@link #internSingletons(int)}) equal elements get the same shared instance, otherwise every call creates a new
+     * set.
+     */
+    public static <T extends Comparable<? super T>> SingletonSortedSet<T> singletonOf(T element) {
+        SingletonSortedSetInterner interner = singletonInterner;
+        return interner == null ? new SingletonSortedSet<>(element) : interner.intern(element);
+    }
+
+    /**
+     * Turns interning of {@link #singletonOf(Comparable)} on, with room for {@code maxSize} elements, or off if
+     * {@code maxSize} is 0. Either way the previous interner and its counters are discarded.
+     */
+    public static void internSingletons(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize cannot be negative: " + maxSize);
+        }
+        singletonInterner = createInterner(maxSize);
+    }
+
+    /**
+     * @return the interner behind {@link #singletonOf(Comparable)}, for its hit-rate statistics, or null if interning
+     *         is off
+     */
+    public static SingletonSortedSetInterner singletonInterner() {
+        return singletonInterner;
+    }
+
+    private static SingletonSortedSetInterner createInterner(int maxSize) {
+        return maxSize > 0 ? new SingletonSortedSetInterner(maxSize) : null;
+    }
+
+    /**
+     * Returns an immutable set of the elements of {@code c} in their natural order. Duplicates are dropped, keeping
+     * the first one encountered; a {@link SortedSet} in natural order is not sorted again.
+     */
+    public static <T extends Comparable<? super T>> NavigableSet<T> copyOf(Collection<? extends T> c) {
+        if (c instanceof SingletonSortedSet) {
+            @SuppressWarnings("unchecked") // immutable, so a set of a subtype of T can be handed out as a set of T
+            SingletonSortedSet<T> singleton = (SingletonSortedSet<T>) c;
+            return singleton; // already as small as it gets
+        }
+        switch (c.size()) {
+            case 0:
+                return Collections.emptyNavigableSet();
+            case 1:
+                return singletonOf(c.iterator().next());
+            default:
+                ArraySortedSet<T> set = new ArraySortedSet<>(c);
+                return set.size() == 1 ? singletonOf(set.first()) : set;
+        }
+    }
+
+    public static <T extends Comparable<? super T>> NavigableSet<T> copyOf(Stream<? extends T> stream) {
+        return copyOf(stream.collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns an immutable set of the elements of {@code c} ordered by {@code comparator}. Duplicates (as defined by
+     * the comparator) are dropped, keeping the first one encountered; a {@link SortedSet} ordered by an equal
+     * comparator is not sorted again. For many sets of the same ordering prefer a {@link ComparatorSortedSetFactory},
+     * which also shares the empty set.
+     */
+    public static <T> NavigableSet<T> copyOf(Comparator<? super T> comparator, Collection<? extends T> c) {
+        if (c instanceof ComparatorSingletonSortedSet && comparator.equals(((SortedSet<?>) c).comparator())) {
+            @SuppressWarnings("unchecked") // immutable, so a set of a subtype of T can be handed out as a set of T
+            ComparatorSingletonSortedSet<T> singleton = (ComparatorSingletonSortedSet<T>) c;
+            return singleton;
+        }
+        if (c.isEmpty()) {
+            return ComparatorArraySortedSet.empty(comparator);
+        }
+        if (c.size() == 1) {
+            return new ComparatorSingletonSortedSet<>(comparator, c.iterator().next());
+        }
+        ComparatorArraySortedSet<T> set = new ComparatorArraySortedSet<>(comparator, c);
+        return set.size() == 1 ? new ComparatorSingletonSortedSet<>(comparator, set.first()) : set;
+    }
+
+    public static <T> NavigableSet<T> copyOf(Comparator<? super T> comparator, Stream<? extends T> stream) {
+        return copyOf(comparator, stream.collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns an immutable set of the elements of {@code sortedSet} in the same order, whether that is the natural
+     * order or the order of its comparator. The elements are never sorted again.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> NavigableSet<T> copyOfSorted(SortedSet<T> sortedSet) {
+        Comparator<? super T> comparator = sortedSet.comparator();
+        if (comparator != null) {
+            return copyOf(comparator, sortedSet);
+        }
+        // no comparator means that the elements are Comparable
+        return (NavigableSet<T>) copyOf((Collection) sortedSet);
+    }
+
+    /**
+     * Returns {@code set} itself if it is already a {@link LookupSortedSet}, such as the compact sets of this package,
+     * or else a view of it that finds the instance it holds with a single {@link NavigableSet#ceiling} call. This
+     * lets a {@link java.util.TreeSet} or a {@link java.util.concurrent.ConcurrentSkipListSet} share the
+     * {@link LookupSortedSet#getElement(Object)} code paths of the compact sets; the view writes through to
+     * {@code set}.
+     */
+    public static <T> LookupSortedSet<T> asLookupSet(NavigableSet<T> set) {
+        if (set instanceof LookupSortedSet) {
+            return (LookupSortedSet<T>) set;
+        }
+        return new NavigableLookupSortedSet<>(set);
+    }
+
+    /**
+     * A {@link Collector} that ends a stream in the same set as {@link #copyOf(Collection)}.
+     */
+    public static <T extends Comparable<? super T>> Collector<T, ?, NavigableSet<T>> toSortedSet() {
+        return Collector.<T, List<T>, NavigableSet<T>>of(ArrayList::new, List::add, SortedSets::concat,
+                SortedSets::copyOf);
+    }
+
+    /**
+     * A {@link Collector} that ends a stream in the same set as {@link #copyOf(Comparator, Collection)}.
+     */
+    public static <T> Collector<T, ?, NavigableSet<T>> toSortedSet(Comparator<? super T> comparator) {
+        return Collector.<T, List<T>, NavigableSet<T>>of(ArrayList::new, List::add, SortedSets::concat,
+                list -> copyOf(comparator, list));
+    }
+
+    private static <T> List<T> concat(List<T> left, List<T> right) {
+        left.addAll(right);
+        return left;
+    }
+}
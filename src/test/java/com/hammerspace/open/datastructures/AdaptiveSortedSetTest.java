@@ -0,0 +1,446 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class AdaptiveSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new AdaptiveSortedSet<Integer>(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddNull() {
+        new AdaptiveSortedSet<Integer>().add(null);
+    }
+
+    @Test
+    public void testEmpty() {
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(0, set.size());
+        Assert.assertFalse(set.contains(1));
+        Assert.assertFalse(set.contains(null));
+        Assert.assertNull(set.getElement(1));
+        Assert.assertFalse(set.iterator().hasNext());
+        Assert.assertFalse(set.remove(1));
+        try {
+            set.first();
+            Assert.fail("first() on an empty set must throw NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        try {
+            set.last();
+            Assert.fail("last() on an empty set must throw NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSingleElement() {
+        Integer value = 1000;
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>();
+        Assert.assertTrue(set.add(value));
+        Assert.assertFalse(set.add(1000));
+        Assert.assertEquals(1, set.size());
+        Assert.assertSame(value, set.getElement(1000));
+        Assert.assertNull(set.getElement(1));
+        Assert.assertEquals(value, set.first());
+        Assert.assertEquals(value, set.last());
+        Assert.assertEquals(Collections.singleton(1000), set);
+        Assert.assertEquals(new SingletonSortedSet<>(1000).hashCode(), set.hashCode());
+        Assert.assertEquals("[1000]", set.toString());
+
+        Assert.assertFalse(set.remove(1));
+        Assert.assertTrue(set.remove(1000));
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testPromotionAndDemotion() {
+        int threshold = 8;
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(threshold);
+        Assert.assertEquals(threshold, set.getTreeThreshold());
+        TreeSet<Integer> expected = new TreeSet<>();
+        // grow well beyond the threshold and shrink back to empty, in reverse order to exercise insertion points
+        for (int i = 4 * threshold; i > 0; i--) {
+            Assert.assertEquals(expected.add(i), set.add(i));
+            assertSameContents(expected, set);
+        }
+        for (int i = 1; i <= 4 * threshold; i++) {
+            Assert.assertEquals(expected.remove(i), set.remove(i));
+            assertSameContents(expected, set);
+        }
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        for (int threshold : new int[]{2, 3, 8, AdaptiveSortedSet.DEFAULT_TREE_THRESHOLD}) {
+            AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(threshold);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < 10_000; i++) {
+                int value = RANDOM.nextInt(4 * threshold);
+                if (RANDOM.nextBoolean()) {
+                    Assert.assertEquals(expected.add(value), set.add(value));
+                } else {
+                    Assert.assertEquals(expected.remove(value), set.remove(value));
+                }
+                Assert.assertEquals(expected.contains(value), set.contains(value));
+                assertSameContents(expected, set);
+            }
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        for (int size : new int[]{1, 2, 5, 40, 100}) {
+            AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(8);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < size; i++) {
+                set.add(i);
+                expected.add(i);
+            }
+            // remove every other element, then everything that is left
+            Iterator<Integer> it = set.iterator();
+            Iterator<Integer> expectedIt = expected.iterator();
+            while (it.hasNext()) {
+                Integer value = it.next();
+                Assert.assertEquals(expectedIt.next(), value);
+                if (value % 2 == 0) {
+                    it.remove();
+                    expectedIt.remove();
+                }
+            }
+            assertSameContents(expected, set);
+
+            it = set.iterator();
+            while (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            Assert.assertTrue(set.isEmpty());
+            Assert.assertFalse(set.iterator().hasNext());
+            set.add(7);
+            Assert.assertEquals(Collections.singleton(7), set);
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveTwice() {
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(Arrays.asList(1, 2, 3));
+        Iterator<Integer> it = set.iterator();
+        it.next();
+        it.remove();
+        try {
+            it.remove();
+            Assert.fail("Iterator::remove() twice in a row should have thrown IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testConcurrentModification() {
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(Arrays.asList(1, 2, 3));
+        Iterator<Integer> it = set.iterator();
+        it.next();
+        set.add(4);
+        it.next();
+    }
+
+    @Test
+    public void testRangeViews() {
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(Arrays.asList(1, 3, 5, 7, 9));
+        TreeSet<Integer> expected = new TreeSet<>(set);
+        Assert.assertEquals(expected.subSet(2, 8), set.subSet(2, 8));
+        Assert.assertEquals(expected.subSet(3, 3), set.subSet(3, 3));
+        Assert.assertEquals(expected.headSet(5), set.headSet(5));
+        Assert.assertEquals(expected.tailSet(5), set.tailSet(5));
+        Assert.assertEquals(expected.subSet(2, 8).headSet(7), set.subSet(2, 8).headSet(7));
+        Assert.assertEquals(expected.subSet(2, 8).tailSet(3), set.subSet(2, 8).tailSet(3));
+        Assert.assertEquals(expected.subSet(2, 8).subSet(4, 6), set.subSet(2, 8).subSet(4, 6));
+        Assert.assertNull(set.subSet(2, 8).comparator());
+        Assert.assertEquals(3, (int) set.subSet(2, 8).first());
+        Assert.assertEquals(7, (int) set.subSet(2, 8).last());
+
+        SortedSet<Integer> view = set.subSet(2, 8);
+        try {
+            view.add(8);
+            Assert.fail("adding an element outside of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            view.headSet(9);
+            Assert.fail("a nested view outside of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            view.tailSet(1);
+            Assert.fail("a nested view outside of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            set.subSet(8, 2);
+            Assert.fail("subSet(from > to) must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            view.subSet(4, 3);
+            Assert.fail("subSet(from > to) must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertFalse(view.contains(9));
+        Assert.assertFalse(view.remove(9));
+        Assert.assertTrue(set.contains(9));
+    }
+
+    @Test
+    public void testRangeViewsAreLive() {
+        // the views must follow the set across all of its representations
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(8);
+        TreeSet<Integer> expected = new TreeSet<>();
+        SortedSet<Integer> view = set.subSet(10, 30);
+        SortedSet<Integer> head = set.headSet(20);
+        SortedSet<Integer> tail = set.tailSet(20);
+        for (int i = 0; i < 10_000; i++) {
+            int value = RANDOM.nextInt(40);
+            switch (RANDOM.nextInt(4)) {
+                case 0:
+                    Assert.assertEquals(expected.add(value), set.add(value));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(value), set.remove(value));
+                    break;
+                case 2:
+                    if (value >= 10 && value < 30) {
+                        Assert.assertEquals(expected.add(value), view.add(value));
+                    }
+                    break;
+                default:
+                    Assert.assertEquals(expected.subSet(10, 30).remove(value), view.remove(value));
+                    break;
+            }
+            assertSameView(expected.subSet(10, 30), view);
+            assertSameView(expected.headSet(20), head);
+            assertSameView(expected.tailSet(20), tail);
+        }
+
+        // removals through the view's iterator
+        for (int i = 0; i < 40; i++) {
+            set.add(i);
+            expected.add(i);
+        }
+        Iterator<Integer> it = view.iterator();
+        while (it.hasNext()) {
+            if (it.next() % 3 == 0) {
+                it.remove();
+            }
+        }
+        expected.subSet(10, 30).removeIf(value -> value % 3 == 0);
+        assertSameContents(expected, set);
+        view.clear();
+        expected.subSet(10, 30).clear();
+        assertSameContents(expected, set);
+        Assert.assertTrue(view.isEmpty());
+    }
+
+    private static void assertSameView(SortedSet<Integer> expected, SortedSet<Integer> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.first(), actual.first());
+            Assert.assertEquals(expected.last(), actual.last());
+        }
+    }
+
+    @Test
+    public void testCollectionConstructor() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(RANDOM.nextInt(50));
+        }
+        assertSameContents(new TreeSet<>(values), new AdaptiveSortedSet<>(values));
+    }
+
+    private static void assertSameContents(NavigableSet<Integer> expected, AdaptiveSortedSet<Integer> actual) {
+        NavigableSetAssertions.assertSameContents(expected, actual);
+        for (Integer value : expected) {
+            Assert.assertSame(value, actual.getElement(value));
+        }
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        List<Integer> probes = new ArrayList<>();
+        for (int probe = -1; probe <= 13; probe++) {
+            probes.add(probe);
+        }
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(4);
+        TreeSet<Integer> expected = new TreeSet<>();
+        // go through every representation
+        for (int value : new int[]{6, 2, 10, 4, 8, 0, 12}) {
+            NavigableSetAssertions.assertSameNavigation(expected, set, probes);
+            set.add(value);
+            expected.add(value);
+        }
+        NavigableSetAssertions.assertSameNavigation(expected, set, probes);
+
+        // views of views, in both directions
+        NavigableSetAssertions.assertSameNavigation(expected.subSet(2, false, 10, true), set.subSet(2, false, 10, true),
+                probes);
+        NavigableSetAssertions.assertSameNavigation(expected.descendingSet().subSet(10, true, 2, false),
+                set.descendingSet().subSet(10, true, 2, false), probes);
+    }
+
+    @Test
+    public void testPollAndDescendingIterator() {
+        for (int size : new int[]{0, 1, 2, 5, 40}) {
+            AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(8);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < size; i++) {
+                set.add(i);
+                expected.add(i);
+            }
+            // remove every other element through the descending iterator
+            Iterator<Integer> it = set.descendingIterator();
+            Iterator<Integer> expectedIt = expected.descendingIterator();
+            while (expectedIt.hasNext()) {
+                Integer value = it.next();
+                Assert.assertEquals(expectedIt.next(), value);
+                if (value % 2 == 0) {
+                    it.remove();
+                    expectedIt.remove();
+                }
+            }
+            Assert.assertFalse(it.hasNext());
+            assertSameContents(expected, set);
+
+            NavigableSet<Integer> view = set.subSet(3, true, 30, false);
+            NavigableSet<Integer> expectedView = expected.subSet(3, true, 30, false);
+            while (!expectedView.isEmpty()) {
+                Assert.assertEquals(expectedView.pollFirst(), view.pollFirst());
+                Assert.assertEquals(expectedView.pollLast(), view.pollLast());
+                assertSameContents(expected, set);
+            }
+            Assert.assertNull(view.pollFirst());
+            while (!expected.isEmpty()) {
+                Assert.assertEquals(expected.pollLast(), set.pollLast());
+                Assert.assertEquals(expected.pollFirst(), set.pollFirst());
+                assertSameContents(expected, set);
+            }
+            Assert.assertNull(set.pollFirst());
+            Assert.assertNull(set.pollLast());
+        }
+    }
+
+    @Test
+    public void testBulkMethods() {
+        for (int size = 0; size < 12; size++) {
+            for (int m = 1; m <= 4; m++) {
+                int modulus = m;
+                TreeSet<Integer> expected = new TreeSet<>();
+                for (int i = 0; i < size; i++) {
+                    expected.add(i);
+                }
+                AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(4);
+                set.addAll(expected);
+                Assert.assertArrayEquals(expected.toArray(), set.toArray());
+                Assert.assertArrayEquals(expected.toArray(new Integer[0]), set.toArray(new Integer[0]));
+                List<Integer> seen = new ArrayList<>();
+                set.forEach(seen::add);
+                Assert.assertEquals(new ArrayList<>(expected), seen);
+
+                int remainder = m - 1;
+                Assert.assertEquals(expected.removeIf(value -> value % modulus == remainder),
+                        set.removeIf(value -> value % modulus == remainder));
+                Assert.assertEquals(expected, set);
+                Assert.assertEquals(expected.size(), set.size());
+                // the set keeps working after it has changed its representation
+                set.add(100);
+                expected.add(100);
+                Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveIfWithThrowingFilter() {
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(Arrays.asList(1, 2, 3, 4, 5));
+        try {
+            set.removeIf(value -> {
+                if (value == 4) {
+                    throw new IllegalStateException();
+                }
+                return value % 2 == 0;
+            });
+            Assert.fail("removeIf() should have passed the exception of the filter on");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        // the elements removed before the filter threw are gone, all the others are still there
+        Assert.assertEquals(Arrays.asList(1, 3, 4, 5), new ArrayList<>(set));
+        Assert.assertEquals(4, set.size());
+    }
+
+    @Test
+    public void testBatchLookups() {
+        for (int size = 0; size < 200; size += 1 + size / 4) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(expected);
+            for (int probeCount : new int[]{1, 3, size / 2, 2 * size}) {
+                TreeSet<Integer> probes = new TreeSet<>();
+                for (int i = 0; i < probeCount; i++) {
+                    probes.add(RANDOM.nextInt(4 * size + 2) - 1);
+                }
+                TreeSet<Integer> hits = new TreeSet<>(probes);
+                hits.retainAll(expected);
+                List<Integer> found = new ArrayList<>();
+                Assert.assertEquals(hits.size(), set.getElements(probes, found::add));
+                Assert.assertEquals(new ArrayList<>(hits), found);
+                Assert.assertEquals(expected.containsAll(probes), set.containsAll(probes));
+                Assert.assertTrue(set.containsAll(hits));
+            }
+        }
+    }
+}
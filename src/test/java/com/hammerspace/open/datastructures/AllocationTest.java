@@ -0,0 +1,196 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Counts the bytes allocated by the fast paths of the compact collections and fails when a call allocates.
+ *
+ * {@code forEach()}, {@code toArray(T1[])} into an array that is large enough, {@code removeIf()} that removes nothing
+ * and the lookups are called in hot loops, so they must not allocate at all: not an iterator, not a spliterator, not
+ * a boxed value. Every call is warmed up before it is measured, and the bytes the measuring loop allocates on its own
+ * are subtracted. Where the JVM cannot count the bytes allocated by a thread the test is skipped.
+ */
+public class AllocationTest {
+
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int MEASURED_CALLS = 100_000;
+    // the counter is read in chunks of a thread-local allocation buffer on some VMs; anything below this is noise
+    private static final long TOLERANCE_BYTES = 1024;
+    private static final int MAP_SIZE = 16;
+    // the entry set view and its iterator; an entry per element would add 16 entries of 24 bytes each
+    private static final long ENTRY_SET_BYTES = 48;
+
+    // written by the calls so that the JIT cannot drop them
+    private static long sink;
+
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+    private static final Consumer<Integer> CONSUMER = value -> sink += value;
+    private static final BiConsumer<Integer, Integer> BI_CONSUMER = (key, value) -> sink += key + value;
+    private static final LongConsumer LONG_CONSUMER = value -> sink += value;
+    private static final IntConsumer INT_CONSUMER = value -> sink += value;
+    private static final Predicate<Integer> NOTHING = value -> value < 0;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    @BeforeClass
+    public static void checkCounter() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @Test
+    public void testFastPathsDoNotAllocate() {
+        Assume.assumeTrue("the JVM cannot count the bytes allocated by a thread", threadBean != null);
+
+        List<Integer> elements = Arrays.asList(1000, 2000, 3000, 4000);
+        Integer probe = 3000;
+        Integer[] array = new Integer[elements.size()];
+        SingletonSortedSet<Integer> singleton = new SingletonSortedSet<>(1000);
+        ArraySortedSet<Integer> arraySet = new ArraySortedSet<>(elements);
+        ComparatorSingletonSortedSet<Integer> comparatorSingleton =
+                new ComparatorSingletonSortedSet<>(DESCENDING, 1000);
+        ComparatorArraySortedSet<Integer> comparatorArray = new ComparatorArraySortedSet<>(DESCENDING, elements);
+        AdaptiveSortedSet<Integer> adaptiveSingle = new AdaptiveSortedSet<>(Collections.singleton(1000));
+        AdaptiveSortedSet<Integer> adaptiveArray = new AdaptiveSortedSet<>(elements);
+        ConcurrentCompactSortedSet<Integer> concurrent = new ConcurrentCompactSortedSet<>(elements);
+        LongArraySortedSet longArray = new LongArraySortedSet(1000, 2000, 3000, 4000);
+        IntArraySortedSet intArray = new IntArraySortedSet(1000, 2000, 3000, 4000);
+        TreeMap<Integer, Integer> entries = new TreeMap<>();
+        elements.forEach(element -> entries.put(element, element));
+        SingletonSortedMap<Integer, Integer> singletonMap = new SingletonSortedMap<>(1000, 1000);
+        ArraySortedMap<Integer, Integer> arrayMap = new ArraySortedMap<>(entries);
+
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("SingletonSortedSet.forEach()", () -> singleton.forEach(CONSUMER));
+        calls.put("SingletonSortedSet.toArray(T1[])", () -> singleton.toArray(array));
+        calls.put("SingletonSortedSet.removeIf()", () -> singleton.removeIf(NOTHING));
+        calls.put("SingletonSortedSet.contains()", () -> singleton.contains(probe));
+        calls.put("ArraySortedSet.forEach()", () -> arraySet.forEach(CONSUMER));
+        calls.put("ArraySortedSet.toArray(T1[])", () -> arraySet.toArray(array));
+        calls.put("ArraySortedSet.removeIf()", () -> arraySet.removeIf(NOTHING));
+        calls.put("ArraySortedSet.getElement()", () -> arraySet.getElement(probe));
+        calls.put("ComparatorSingletonSortedSet.forEach()", () -> comparatorSingleton.forEach(CONSUMER));
+        calls.put("ComparatorSingletonSortedSet.toArray(T1[])", () -> comparatorSingleton.toArray(array));
+        calls.put("ComparatorSingletonSortedSet.removeIf()", () -> comparatorSingleton.removeIf(NOTHING));
+        calls.put("ComparatorArraySortedSet.forEach()", () -> comparatorArray.forEach(CONSUMER));
+        calls.put("ComparatorArraySortedSet.toArray(T1[])", () -> comparatorArray.toArray(array));
+        calls.put("ComparatorArraySortedSet.removeIf()", () -> comparatorArray.removeIf(NOTHING));
+        calls.put("AdaptiveSortedSet(1).forEach()", () -> adaptiveSingle.forEach(CONSUMER));
+        calls.put("AdaptiveSortedSet(1).toArray(T1[])", () -> adaptiveSingle.toArray(array));
+        calls.put("AdaptiveSortedSet(1).removeIf()", () -> adaptiveSingle.removeIf(NOTHING));
+        calls.put("AdaptiveSortedSet(4).forEach()", () -> adaptiveArray.forEach(CONSUMER));
+        calls.put("AdaptiveSortedSet(4).toArray(T1[])", () -> adaptiveArray.toArray(array));
+        calls.put("AdaptiveSortedSet(4).removeIf()", () -> adaptiveArray.removeIf(NOTHING));
+        calls.put("AdaptiveSortedSet(4).contains()", () -> adaptiveArray.contains(probe));
+        calls.put("ConcurrentCompactSortedSet.forEach()", () -> concurrent.forEach(CONSUMER));
+        calls.put("ConcurrentCompactSortedSet.toArray(T1[])", () -> concurrent.toArray(array));
+        calls.put("ConcurrentCompactSortedSet.contains()", () -> concurrent.contains(probe));
+        calls.put("LongArraySortedSet.forEach(LongConsumer)", () -> longArray.forEach(LONG_CONSUMER));
+        calls.put("IntArraySortedSet.forEach(IntConsumer)", () -> intArray.forEach(INT_CONSUMER));
+        calls.put("SingletonSortedMap.forEach()", () -> singletonMap.forEach(BI_CONSUMER));
+        calls.put("SingletonSortedMap.get()", () -> singletonMap.get(probe));
+        calls.put("ArraySortedMap.forEach()", () -> arrayMap.forEach(BI_CONSUMER));
+        calls.put("ArraySortedMap.get()", () -> arrayMap.get(probe));
+
+        long baseline = allocatedBytes(() -> sink++);
+        List<String> failures = new ArrayList<>();
+        System.out.println(String.format("%-45s %12s", "bytes allocated per " + MEASURED_CALLS + " calls", "bytes"));
+        for (Map.Entry<String, Runnable> entry : calls.entrySet()) {
+            long bytes = Math.max(0, allocatedBytes(entry.getValue()) - baseline);
+            System.out.println(String.format("%-45s %12d", entry.getKey(), bytes));
+            if (bytes > TOLERANCE_BYTES) {
+                failures.add(entry.getKey() + " allocated " + bytes + " bytes in " + MEASURED_CALLS + " calls");
+            }
+        }
+        Assert.assertTrue(String.join("\n", failures), failures.isEmpty());
+    }
+
+    /**
+     * Iterating the compact maps allocates no entry per element: a call over a map of {@link #MAP_SIZE} entries costs
+     * the same as over one. The iterator of the singleton entry set is also the entry it returns; an array map hands
+     * out its keys and values through {@code forEach()}.
+     */
+    @Test
+    public void testMapIterationAllocatesNoEntries() {
+        Assume.assumeTrue("the JVM cannot count the bytes allocated by a thread", threadBean != null);
+
+        TreeMap<Integer, Integer> entries = new TreeMap<>();
+        for (int i = 0; i < MAP_SIZE; i++) {
+            entries.put(1000 + i, i);
+        }
+        SingletonSortedMap<Integer, Integer> singletonMap = new SingletonSortedMap<>(1000, 1000);
+        ArraySortedMap<Integer, Integer> arrayMap = new ArraySortedMap<>(entries);
+
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("SingletonSortedMap.entrySet() iteration", () -> iterate(singletonMap));
+        calls.put("ArraySortedMap.forEach()", () -> arrayMap.forEach((key, value) -> sink += key + value));
+
+        long baseline = allocatedBytes(() -> sink++);
+        List<String> failures = new ArrayList<>();
+        System.out.println(String.format("%-45s %12s", "bytes allocated per call", "bytes"));
+        for (Map.Entry<String, Runnable> entry : calls.entrySet()) {
+            long bytes = Math.max(0, allocatedBytes(entry.getValue()) - baseline) / MEASURED_CALLS;
+            System.out.println(String.format("%-45s %12d", entry.getKey(), bytes));
+            if (bytes > ENTRY_SET_BYTES) {
+                failures.add(entry.getKey() + " allocated " + bytes + " bytes per call");
+            }
+        }
+        Assert.assertTrue(String.join("\n", failures), failures.isEmpty());
+    }
+
+    private static void iterate(Map<Integer, Integer> map) {
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            sink += entry.getKey() + entry.getValue();
+        }
+    }
+
+    private static long allocatedBytes(Runnable call) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            call.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            call.run();
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public class ArraySortedMapTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testConstructor() {
+        Map<Integer, String> unsorted = new LinkedHashMap<>();
+        unsorted.put(3, "c");
+        unsorted.put(1, "a");
+        unsorted.put(2, "b");
+        ArraySortedMap<Integer, String> map = new ArraySortedMap<>(unsorted);
+        Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(map.keySet()));
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(map.values()));
+        Assert.assertEquals(map, new ArraySortedMap<>(new TreeMap<>(unsorted)));
+        Assert.assertTrue(new ArraySortedMap<>(Collections.<Integer, String>emptyMap()).isEmpty());
+
+        // 1.0 and 1.00 are different HashMap keys, but the same key of a sorted map
+        Map<BigDecimal, String> sameKeys = new LinkedHashMap<>();
+        sameKeys.put(new BigDecimal("1.0"), "x");
+        sameKeys.put(new BigDecimal("1.00"), "y");
+        Assert.assertEquals(Collections.singletonMap(new BigDecimal("1.0"), "x"), new ArraySortedMap<>(sameKeys));
+    }
+
+    @Test
+    public void testEntrySet() {
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        expected.put(1, "a");
+        expected.put(2, "b");
+        expected.put(3, "c");
+        ArraySortedMap<Integer, String> map = new ArraySortedMap<>(expected);
+
+        // every entry stays valid once the iterator has moved on
+        Iterator<Map.Entry<Integer, String>> iterator = map.entrySet().iterator();
+        Map.Entry<Integer, String> first = iterator.next();
+        Assert.assertEquals(new AbstractMap.SimpleImmutableEntry<>(1, "a"), first);
+        Assert.assertEquals(expected.firstEntry().hashCode(), first.hashCode());
+        Assert.assertEquals("1=a", first.toString());
+        Assert.assertNotSame(first, iterator.next());
+        Assert.assertEquals(Integer.valueOf(1), first.getKey());
+
+        List<Map.Entry<Integer, String>> entries = new ArrayList<>(expected.entrySet());
+        Assert.assertEquals(entries, new ArrayList<>(map.entrySet()));
+        Assert.assertEquals(new HashSet<>(entries), new HashSet<>(map.entrySet()));
+        Assert.assertEquals(entries, Arrays.asList(map.entrySet().toArray(new Map.Entry<?, ?>[0])));
+        Assert.assertEquals(entries, map.entrySet().stream().collect(Collectors.toList()));
+        Assert.assertEquals(expected.lastEntry(), Collections.max(map.entrySet(), Map.Entry.comparingByKey()));
+        Assert.assertEquals(map, new ArraySortedMap<>(map));
+        Assert.assertEquals(map.subMap(2, 4), new ArraySortedMap<>(map.tailMap(2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNullValue() {
+        new ArraySortedMap<>(Collections.singletonMap("a", null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNullKey() {
+        Map<String, String> map = new HashMap<>();
+        map.put(null, "a");
+        new ArraySortedMap<>(map);
+    }
+
+    @Test
+    public void testAgainstTreeMap() {
+        for (int size = 0; size < 40; size++) {
+            TreeMap<Integer, String> expected = new TreeMap<>();
+            while (expected.size() < size) {
+                int key = RANDOM.nextInt(4 * size) - size;
+                expected.put(key, "v" + key);
+            }
+            ArraySortedMap<Integer, String> map = new ArraySortedMap<>(new HashMap<>(expected));
+            assertSameMap(expected, map);
+            for (int probe = -size - 1; probe <= 3 * size + 1; probe++) {
+                Assert.assertEquals(expected.get(probe), map.get(probe));
+                Assert.assertEquals(expected.containsKey(probe), map.containsKey(probe));
+                Assert.assertEquals(expected.containsValue("v" + probe), map.containsValue("v" + probe));
+                assertSameMap(expected.headMap(probe), map.headMap(probe));
+                assertSameMap(expected.tailMap(probe), map.tailMap(probe));
+                assertSameMap(expected.subMap(probe, probe + 3), map.subMap(probe, probe + 3));
+                assertSameMap(expected.tailMap(probe).headMap(probe + 5), map.tailMap(probe).headMap(probe + 5));
+            }
+        }
+    }
+
+    private static void assertSameMap(SortedMap<Integer, String> expected, SortedMap<Integer, String> actual) {
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+        Assert.assertEquals(expected.toString(), actual.toString());
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        Assert.assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(actual.values()));
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.firstKey(), actual.firstKey());
+            Assert.assertEquals(expected.lastKey(), actual.lastKey());
+        }
+    }
+
+    @Test
+    public void testViewsShareTheArrays() {
+        ArraySortedMap<Integer, String> map = new ArraySortedMap<>(new TreeMap<>(Collections.singletonMap(1, "a")));
+        Assert.assertSame(map, map.headMap(2));
+        Assert.assertSame(map, map.tailMap(0));
+        Assert.assertSame(Collections.emptySortedMap(), map.headMap(1));
+        Assert.assertTrue(map.keySet() instanceof ArraySortedSet);
+    }
+
+    @Test
+    public void testForEach() {
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        expected.put("b", 2);
+        expected.put("a", 1);
+        expected.put("c", 3);
+        List<String> seen = new ArrayList<>();
+        new ArraySortedMap<>(expected).tailMap("b").forEach((key, value) -> seen.add(key + value));
+        Assert.assertEquals(Arrays.asList("b2", "c3"), seen);
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        ArraySortedMap<String, Integer> map = new ArraySortedMap<>(Collections.singletonMap("a", 1));
+        try {
+            map.put("b", 2);
+            Assert.fail("put() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            map.remove("a");
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            map.values().clear();
+            Assert.fail("values().clear() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            map.entrySet().iterator().remove();
+            Assert.fail("entrySet().iterator().remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,320 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static java.util.Spliterator.DISTINCT;
+import static java.util.Spliterator.IMMUTABLE;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterator.SIZED;
+import static java.util.Spliterator.SORTED;
+import static java.util.Spliterator.SUBSIZED;
+
+public class ArraySortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNull() {
+        new ArraySortedSet<>(Arrays.asList(1, null, 3));
+    }
+
+    @Test
+    public void testConstructorSortsAndRemovesDuplicates() {
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(5, 3, 9, 3, 1, 5));
+        Assert.assertEquals(Arrays.asList(1, 3, 5, 9), new ArrayList<>(set));
+        Assert.assertEquals(4, set.size());
+        Assert.assertArrayEquals(new Object[]{1, 3, 5, 9}, set.toArray());
+        Assert.assertEquals(Object[].class, set.toArray().getClass());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        for (int size = 0; size < 70; size++) {
+            TreeSet<Integer> expected = randomSet(size);
+            ArraySortedSet<Integer> set = new ArraySortedSet<>(expected);
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(set, expected);
+            Assert.assertEquals(new ArraySortedSet<>(expected), set);
+            Assert.assertEquals(expected.hashCode(), set.hashCode());
+            Assert.assertEquals(expected.toString(), set.toString());
+        }
+        Assert.assertNotEquals(new ArraySortedSet<>(Arrays.asList(1, 2)), new ArraySortedSet<>(Arrays.asList(1, 3)));
+        Assert.assertNotEquals(new ArraySortedSet<>(Arrays.asList(1, 2)), new ArraySortedSet<>(Arrays.asList(1)));
+    }
+
+    /**
+     * test the methods of {@link ArraySortedSet}
+     */
+    @Test
+    public void testGetElement() {
+        Integer one = 1000;
+        Integer two = 2000;
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(two, one));
+        Assert.assertSame(one, set.getElement(1000));
+        Assert.assertSame(two, set.getElement(2000));
+        Assert.assertNull(set.getElement(1500));
+        Assert.assertNull(set.getElement(null));
+    }
+
+    @Test
+    public void testLookups() {
+        for (int size = 0; size < 70; size++) {
+            TreeSet<Integer> expected = randomSet(size);
+            ArraySortedSet<Integer> set = new ArraySortedSet<>(expected);
+            for (int probe = -1; probe <= 4 * size + 1; probe++) {
+                Assert.assertEquals(expected.contains(probe), set.contains(probe));
+            }
+            Assert.assertFalse(set.contains(null));
+            if (size == 0) {
+                assertThrows(set::first, NoSuchElementException.class);
+                assertThrows(set::last, NoSuchElementException.class);
+            } else {
+                Assert.assertEquals(expected.first(), set.first());
+                Assert.assertEquals(expected.last(), set.last());
+            }
+        }
+    }
+
+    /**
+     * test the methods of {@link SortedSet}
+     */
+    @Test
+    public void testRangeMethods() {
+        for (int size = 0; size < 20; size++) {
+            TreeSet<Integer> expected = randomSet(size);
+            ArraySortedSet<Integer> set = new ArraySortedSet<>(expected);
+            for (int lo = -1; lo <= 4 * size + 1; lo++) {
+                Assert.assertEquals(expected.headSet(lo), set.headSet(lo));
+                Assert.assertEquals(expected.tailSet(lo), set.tailSet(lo));
+                for (int hi = lo; hi <= 4 * size + 1; hi++) {
+                    SortedSet<Integer> subSet = set.subSet(lo, hi);
+                    Assert.assertEquals(expected.subSet(lo, hi), subSet);
+                    if (hi > lo) {
+                        // slices of slices
+                        Assert.assertEquals(expected.subSet(lo, hi).headSet(hi - 1), subSet.headSet(hi - 1));
+                        Assert.assertEquals(expected.subSet(lo, hi).tailSet(hi - 1), subSet.tailSet(hi - 1));
+                    }
+                }
+            }
+        }
+
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(1, 2, 3));
+        Assert.assertSame(set, set.subSet(0, 4));
+        Assert.assertSame(set, set.headSet(4));
+        Assert.assertSame(set, set.tailSet(1));
+        Assert.assertSame(Collections.emptySortedSet(), set.subSet(4, 5));
+        assertThrows(() -> set.subSet(3, 1), IllegalArgumentException.class);
+        Assert.assertNull(set.comparator());
+    }
+
+    @Test
+    public void testIterator() {
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(3, 1, 2));
+        Iterator<Integer> iterator = set.iterator();
+        for (int i = 1; i <= 3; i++) {
+            Assert.assertTrue(iterator.hasNext());
+            Assert.assertEquals(i, (int) iterator.next());
+        }
+        Assert.assertFalse(iterator.hasNext());
+        assertThrows(iterator::next, NoSuchElementException.class);
+        assertThrows(() -> {
+            set.iterator().remove();
+            return null;
+        }, UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testSpliterator() {
+        TreeSet<Integer> expected = randomSet(64);
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(expected);
+        Spliterator<Integer> spliterator = set.spliterator();
+        Assert.assertEquals(ORDERED | DISTINCT | SORTED | SIZED | NONNULL | IMMUTABLE | SUBSIZED,
+                spliterator.characteristics());
+        Assert.assertEquals(expected.size(), spliterator.estimateSize());
+        Assert.assertEquals(expected.size(), spliterator.getExactSizeIfKnown());
+        Assert.assertNull(spliterator.getComparator());
+
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        Assert.assertNotNull(prefix);
+        Assert.assertEquals(expected.size(), prefix.estimateSize() + spliterator.estimateSize());
+        List<Integer> values = new ArrayList<>();
+        prefix.forEachRemaining(values::add);
+        while (spliterator.tryAdvance(values::add)) {
+            // keep going
+        }
+        Assert.assertEquals(new ArrayList<>(expected), values);
+
+        Assert.assertEquals(new ArrayList<>(expected),
+                StreamSupport.stream(set.spliterator(), true).collect(Collectors.toList()));
+        Assert.assertNull(new ArraySortedSet<>(Collections.singleton(1)).spliterator().trySplit());
+    }
+
+    @Test
+    public void testToArray() {
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(3, 1, 2));
+        Assert.assertArrayEquals(new Integer[]{1, 2, 3}, set.toArray(new Integer[0]));
+        Integer[] larger = new Integer[]{9, 9, 9, 9, 9};
+        Assert.assertSame(larger, set.toArray(larger));
+        Assert.assertArrayEquals(new Integer[]{1, 2, 3, null, 9}, larger);
+        Assert.assertArrayEquals(new Integer[]{2, 3}, set.tailSet(2).toArray(new Integer[2]));
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(1, 2));
+        Assert.assertFalse(set.add(1));
+        Assert.assertFalse(set.addAll(Arrays.asList(1, 2)));
+        assertThrows(() -> set.add(3), UnsupportedOperationException.class);
+        assertThrows(() -> set.addAll(Arrays.asList(1, 3)), UnsupportedOperationException.class);
+        assertThrows(() -> set.remove(1), UnsupportedOperationException.class);
+        assertThrows(() -> set.removeAll(Arrays.asList(1)), UnsupportedOperationException.class);
+        assertThrows(() -> set.retainAll(Arrays.asList(1)), UnsupportedOperationException.class);
+        assertThrows(() -> {
+            set.clear();
+            return null;
+        }, UnsupportedOperationException.class);
+    }
+
+    private static TreeSet<Integer> randomSet(int size) {
+        TreeSet<Integer> set = new TreeSet<>();
+        while (set.size() < size) {
+            set.add(RANDOM.nextInt(4 * size));
+        }
+        return set;
+    }
+
+    private static void assertThrows(Supplier<?> func, Class<? extends Exception> expected) {
+        try {
+            func.get();
+            Assert.fail("expected " + expected.getSimpleName());
+        } catch (Exception e) {
+            Assert.assertEquals(expected, e.getClass());
+        }
+    }
+
+    /**
+     * test the methods of {@link NavigableSet}
+     */
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 8; size++) {
+            TreeSet<Integer> expected = randomSet(size);
+            List<Integer> probes = new ArrayList<>();
+            for (int probe = -1; probe <= 4 * size + 1; probe++) {
+                probes.add(probe);
+            }
+            NavigableSetAssertions.assertSameNavigation(expected, new ArraySortedSet<>(expected), probes);
+        }
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(1, 2, 3));
+        Assert.assertSame(set, set.subSet(1, true, 3, true));
+        Assert.assertSame(set, set.descendingSet().descendingSet());
+        assertThrows(set::pollFirst, UnsupportedOperationException.class);
+        assertThrows(set::pollLast, UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testNestedViewBounds() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(2 * i);
+        }
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(expected);
+        List<Integer> probes = new ArrayList<>();
+        for (int probe = 8; probe <= 12; probe++) {
+            probes.add(probe);
+            probes.add(probe + 30);
+        }
+        for (boolean fromInclusive : new boolean[]{false, true}) {
+            for (boolean toInclusive : new boolean[]{false, true}) {
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.subSet(10, fromInclusive, 40, toInclusive),
+                        set.subSet(10, fromInclusive, 40, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.tailSet(10, fromInclusive).headSet(40, toInclusive),
+                        set.tailSet(10, fromInclusive).headSet(40, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.headSet(40, toInclusive).tailSet(10, fromInclusive),
+                        set.headSet(40, toInclusive).tailSet(10, fromInclusive), probes);
+            }
+        }
+        try {
+            set.subSet(10, true, 40, false).headSet(50);
+            Assert.fail("a bound past the exclusive bound of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBatchLookups() {
+        for (int size = 0; size < 60; size++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            ArraySortedSet<Integer> set = new ArraySortedSet<>(expected);
+            TreeSet<Integer> probes = new TreeSet<>();
+            for (int i = RANDOM.nextInt(2 * size + 1); i > 0; i--) {
+                probes.add(RANDOM.nextInt(4 * size + 2) - 1);
+            }
+            TreeSet<Integer> hits = new TreeSet<>(probes);
+            hits.retainAll(expected);
+
+            List<Integer> found = new ArrayList<>();
+            Assert.assertEquals(hits.size(), set.getElements(probes, found::add));
+            Assert.assertEquals(new ArrayList<>(hits), found);
+            Assert.assertEquals(expected.containsAll(probes), set.containsAll(probes));
+            Assert.assertTrue(set.containsAll(hits));
+            Assert.assertTrue(set.containsAll(new ArraySortedSet<>(hits)));
+
+            // probes in another order take the slow path, with the same results
+            TreeSet<Integer> descending = new TreeSet<>(Collections.reverseOrder());
+            descending.addAll(probes);
+            Assert.assertEquals(hits.size(), set.getElements(descending, value -> { }));
+            Assert.assertEquals(expected.containsAll(probes), set.containsAll(descending));
+        }
+    }
+
+    @Test
+    public void testGetElementsReturnsTheHeldInstances() {
+        String a = new String("a");
+        String c = new String("c");
+        ArraySortedSet<String> set = new ArraySortedSet<>(Arrays.asList(a, "b", c));
+        List<String> found = new ArrayList<>();
+        set.getElements(new TreeSet<>(Arrays.asList("a", "c", "d")), found::add);
+        Assert.assertEquals(2, found.size());
+        Assert.assertSame(a, found.get(0));
+        Assert.assertSame(c, found.get(1));
+    }
+}
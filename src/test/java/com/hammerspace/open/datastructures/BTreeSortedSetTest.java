@@ -0,0 +1,359 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class BTreeSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNodeSize() {
+        new BTreeSortedSet<Integer>(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddNull() {
+        new BTreeSortedSet<Integer>().add(null);
+    }
+
+    @Test
+    public void testEmpty() {
+        BTreeSortedSet<Integer> set = new BTreeSortedSet<>();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(Collections.emptySet(), set);
+        Assert.assertFalse(set.contains(1));
+        Assert.assertNull(set.getElement(1));
+        Assert.assertNull(set.ceiling(1));
+        Assert.assertNull(set.floor(1));
+        Assert.assertNull(set.pollFirst());
+        Assert.assertNull(set.pollLast());
+        Assert.assertFalse(set.iterator().hasNext());
+        Assert.assertFalse(set.descendingIterator().hasNext());
+        Assert.assertEquals(0, set.stream().count());
+        Assert.assertEquals(0, set.headSet(5).size());
+        Assert.assertEquals(0, set.toArray().length);
+        Assert.assertFalse(set.remove(1));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        for (int nodeSize : new int[]{4, 5, 7, BTreeSortedSet.DEFAULT_NODE_SIZE}) {
+            BTreeSortedSet<Integer> set = new BTreeSortedSet<>(nodeSize);
+            TreeSet<Integer> expected = new TreeSet<>();
+            int range = 50 * nodeSize;
+            for (int i = 0; i < 20_000; i++) {
+                int value = RANDOM.nextInt(range);
+                // phases that mostly add and mostly remove, so the tree grows and shrinks by several levels
+                boolean add = RANDOM.nextInt(10) < ((i / 2_000) % 2 == 0 ? 7 : 3);
+                if (add) {
+                    Assert.assertEquals(expected.add(value), set.add(value));
+                } else {
+                    Assert.assertEquals(expected.remove(value), set.remove(value));
+                }
+                Assert.assertEquals(expected.size(), set.size());
+                Assert.assertEquals(expected.contains(value), set.contains(value));
+                Assert.assertEquals(expected.ceiling(value), set.ceiling(value));
+                Assert.assertEquals(expected.lower(value), set.lower(value));
+                if (i % 500 == 0) {
+                    NavigableSetAssertions.assertSameContents(expected, set);
+                }
+            }
+            NavigableSetAssertions.assertSameContents(expected, set);
+            while (!expected.isEmpty()) {
+                Assert.assertEquals(expected.pollFirst(), set.pollFirst());
+                Assert.assertEquals(expected.pollLast(), set.pollLast());
+            }
+            Assert.assertTrue(set.isEmpty());
+        }
+    }
+
+    @Test
+    public void testAscendingAndDescendingInserts() {
+        BTreeSortedSet<Integer> ascending = new BTreeSortedSet<>(4);
+        BTreeSortedSet<Integer> descending = new BTreeSortedSet<>(4);
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            ascending.add(i);
+            descending.add(999 - i);
+            expected.add(i);
+        }
+        NavigableSetAssertions.assertSameContents(expected, ascending);
+        NavigableSetAssertions.assertSameContents(expected, descending);
+        for (int i = 0; i < 1_000; i += 3) {
+            Assert.assertTrue(ascending.remove(i));
+            Assert.assertTrue(descending.remove(i));
+            expected.remove(i);
+        }
+        NavigableSetAssertions.assertSameContents(expected, ascending);
+        NavigableSetAssertions.assertSameContents(expected, descending);
+    }
+
+    @Test
+    public void testCollectionConstructor() {
+        for (int size : new int[]{0, 1, 4, 5, 17, 64, 65, 1_000, 10_000}) {
+            List<Integer> elements = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                elements.add(RANDOM.nextInt(2 * size));
+            }
+            TreeSet<Integer> expected = new TreeSet<>(elements);
+            for (int nodeSize : new int[]{4, BTreeSortedSet.DEFAULT_NODE_SIZE}) {
+                BTreeSortedSet<Integer> set = new BTreeSortedSet<>(nodeSize, elements);
+                NavigableSetAssertions.assertSameContents(expected, set);
+                Assert.assertEquals(expected, new BTreeSortedSet<>(nodeSize, expected));
+                // the packed tree must take inserts and removals like any other
+                for (int i = 0; i < size; i++) {
+                    int value = RANDOM.nextInt(2 * size + 1);
+                    boolean present = expected.contains(value);
+                    if (RANDOM.nextBoolean()) {
+                        Assert.assertEquals(!present, set.add(value));
+                        Assert.assertEquals(!present, !present && set.remove(value));
+                    } else {
+                        Assert.assertEquals(present, set.remove(value));
+                        Assert.assertEquals(present, present && set.add(value));
+                    }
+                }
+                NavigableSetAssertions.assertSameContents(expected, set);
+            }
+        }
+        try {
+            new BTreeSortedSet<>(Arrays.asList(1, null));
+            Assert.fail("a null element must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetElement() {
+        List<String> held = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            held.add(String.format("%04d", i));
+        }
+        BTreeSortedSet<String> set = new BTreeSortedSet<>(8, held);
+        for (String element : held) {
+            Assert.assertSame(element, set.getElement(new String(element)));
+        }
+        Assert.assertNull(set.getElement("x"));
+        Assert.assertNull(set.getElement(null));
+        Assert.assertSame(held.get(7), ((LookupSortedSet<String>) set.tailSet("0005", true)).getElement("0007"));
+        Assert.assertNull(((LookupSortedSet<String>) set.tailSet("0010", true)).getElement("0007"));
+
+        for (int size : new int[]{0, 1, 100, 3_000}) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            BTreeSortedSet<Integer> tree = new BTreeSortedSet<>(8, expected);
+            for (int probeCount : new int[]{1, 10, size / 2, 2 * size}) {
+                TreeSet<Integer> probes = new TreeSet<>();
+                for (int i = 0; i < probeCount; i++) {
+                    probes.add(RANDOM.nextInt(4 * size + 2) - 1);
+                }
+                List<Integer> hits = new ArrayList<>(probes);
+                hits.retainAll(expected);
+                List<Integer> found = new ArrayList<>();
+                Assert.assertEquals(hits.size(), tree.getElements(probes, found::add));
+                Assert.assertEquals(hits, found);
+            }
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        for (int size : new int[]{1, 2, 5, 40, 1_000}) {
+            BTreeSortedSet<Integer> set = new BTreeSortedSet<>(4);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < size; i++) {
+                set.add(i);
+                expected.add(i);
+            }
+            for (boolean descending : new boolean[]{false, true}) {
+                // remove every third element, then check that the rest are still visited in order
+                Iterator<Integer> it = descending ? set.descendingIterator() : set.iterator();
+                Iterator<Integer> expectedIt = descending ? expected.descendingIterator() : expected.iterator();
+                while (it.hasNext()) {
+                    Integer value = it.next();
+                    Assert.assertEquals(expectedIt.next(), value);
+                    if (value % 3 == 0) {
+                        it.remove();
+                        expectedIt.remove();
+                    }
+                }
+                Assert.assertFalse(expectedIt.hasNext());
+                NavigableSetAssertions.assertSameContents(expected, set);
+            }
+            Assert.assertEquals(expected.removeIf(value -> value % 2 == 0), set.removeIf(value -> value % 2 == 0));
+            NavigableSetAssertions.assertSameContents(expected, set);
+            set.clear();
+            Assert.assertTrue(set.isEmpty());
+            set.add(7);
+            Assert.assertEquals(Collections.singleton(7), set);
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveTwice() {
+        BTreeSortedSet<Integer> set = new BTreeSortedSet<>(Arrays.asList(1, 2, 3));
+        Iterator<Integer> it = set.iterator();
+        it.next();
+        it.remove();
+        try {
+            it.remove();
+            Assert.fail("Iterator::remove() twice in a row should have thrown IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testConcurrentModification() {
+        BTreeSortedSet<Integer> set = new BTreeSortedSet<>(Arrays.asList(1, 2, 3));
+        Iterator<Integer> it = set.iterator();
+        it.next();
+        set.add(4);
+        it.next();
+    }
+
+    @Test
+    public void testRangeViews() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 2_000; i += 2) {
+            expected.add(i);
+        }
+        BTreeSortedSet<Integer> set = new BTreeSortedSet<>(4, expected);
+        for (int i = 0; i < 200; i++) {
+            int from = RANDOM.nextInt(2_100) - 50;
+            int to = from + RANDOM.nextInt(500);
+            boolean fromInclusive = RANDOM.nextBoolean();
+            boolean toInclusive = RANDOM.nextBoolean();
+            NavigableSet<Integer> expectedView = expected.subSet(from, fromInclusive, to, toInclusive);
+            NavigableSet<Integer> view = set.subSet(from, fromInclusive, to, toInclusive);
+            Assert.assertEquals(expectedView.size(), view.size());
+            Assert.assertEquals(new ArrayList<>(expectedView), new ArrayList<>(view));
+            Assert.assertEquals(new ArrayList<>(expectedView.descendingSet()), new ArrayList<>(view.descendingSet()));
+            Assert.assertEquals(expected.headSet(to, toInclusive).size(), set.headSet(to, toInclusive).size());
+            Assert.assertEquals(expected.tailSet(from, fromInclusive).size(), set.tailSet(from, fromInclusive).size());
+        }
+
+        SortedSet<Integer> view = set.subSet(100, 200);
+        try {
+            view.add(200);
+            Assert.fail("adding an element outside of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertTrue(view.add(101));
+        Assert.assertTrue(set.contains(101));
+        Assert.assertTrue(set.remove(102));
+        Assert.assertFalse(view.contains(102));
+        Assert.assertEquals(50, view.size());
+        view.clear();
+        Assert.assertEquals(expected.size() - 50, set.size());
+        Assert.assertTrue(view.isEmpty());
+        Assert.assertEquals(Integer.valueOf(98), set.lower(101));
+        Assert.assertEquals(Integer.valueOf(200), set.higher(98));
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 40; size += 1 + size / 2) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            List<Integer> probes = new ArrayList<>();
+            for (int probe = -1; probe <= 4 * size + 1; probe += 1 + size / 8) {
+                probes.add(probe);
+            }
+            NavigableSetAssertions.assertSameNavigation(expected, new BTreeSortedSet<>(4, expected), probes);
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        for (int size : new int[]{0, 1, 63, 1_000, 100_000}) {
+            List<Integer> elements = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                elements.add(i);
+            }
+            BTreeSortedSet<Integer> set = new BTreeSortedSet<>(elements);
+            Spliterator<Integer> spliterator = set.spliterator();
+            Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.DISTINCT
+                    | Spliterator.SORTED | Spliterator.SIZED | Spliterator.NONNULL));
+            Assert.assertNull(spliterator.getComparator());
+            Assert.assertEquals(size, spliterator.getExactSizeIfKnown());
+
+            Assert.assertEquals(elements, set.parallelStream().collect(Collectors.toList()));
+            Assert.assertEquals((long) size * (size - 1) / 2,
+                    set.parallelStream().mapToLong(Integer::longValue).sum());
+            Assert.assertEquals(elements, StreamSupport.stream(set.spliterator(), false)
+                    .collect(Collectors.toList()));
+
+            // split all the way down and check that the pieces cover the set in order, without overlap
+            List<Spliterator<Integer>> pieces =
+                    NavigableSetAssertions.assertSplitsCover(elements, set.spliterator(), RANDOM);
+            if (size >= 1_000) {
+                Assert.assertTrue(pieces.size() > size / BTreeSortedSet.DEFAULT_NODE_SIZE);
+            }
+        }
+    }
+
+    @Test
+    public void testBulkMethods() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 300; i++) {
+            expected.add(RANDOM.nextInt(1_000));
+        }
+        BTreeSortedSet<Integer> set = new BTreeSortedSet<>(6, expected);
+        List<Integer> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        Assert.assertEquals(new ArrayList<>(expected), visited);
+        Assert.assertArrayEquals(expected.toArray(), set.toArray());
+        Assert.assertArrayEquals(expected.toArray(new Integer[0]), set.toArray(new Integer[0]));
+        Integer[] large = new Integer[expected.size() + 2];
+        Arrays.fill(large, -1);
+        Assert.assertSame(large, set.toArray(large));
+        Assert.assertNull(large[expected.size()]);
+        try {
+            set.toArray(new String[0]);
+            Assert.fail("toArray() into an array of the wrong type must throw ArrayStoreException");
+        } catch (ArrayStoreException e) {
+            // expected
+        }
+        try {
+            set.forEach(value -> set.add(-value - 1));
+            Assert.fail("forEach() that modifies the set must throw ConcurrentModificationException");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class BloomFilterSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testAgainstTreeSet() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        BloomFilterSortedSet<Integer> set = new BloomFilterSortedSet<>(new TreeSet<>());
+        int lookups = 0;
+        for (int i = 0; i < 20000; i++) {
+            int value = RANDOM.nextInt(10000);
+            switch (RANDOM.nextInt(4)) {
+                case 0:
+                    Assert.assertEquals(expected.remove(value), set.remove(value));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.contains(value), set.contains(value));
+                    lookups++;
+                    break;
+                default:
+                    Assert.assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        for (int value = -10; value < 10010; value++) {
+            Assert.assertEquals(expected.contains(value), set.contains(value));
+        }
+        // every lookup is counted exactly once
+        Assert.assertEquals(lookups + 10020, set.negativeCount() + set.falsePositiveCount() + set.hitCount());
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(set, expected);
+        Assert.assertEquals(expected.hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void testStatistics() {
+        TreeSet<Integer> elements = new TreeSet<>();
+        for (int i = 0; i < 10000; i++) {
+            elements.add(2 * i);
+        }
+        BloomFilterSortedSet<Integer> set = new BloomFilterSortedSet<>(elements);
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(set.contains(2 * i));
+            Assert.assertFalse(set.contains(2 * i + 1));
+        }
+        Assert.assertEquals(10000, set.hitCount());
+        Assert.assertEquals(10000, set.negativeCount() + set.falsePositiveCount());
+        // sized for twice the elements, so well under the requested 1%
+        Assert.assertTrue(set.expectedFalsePositiveRate() < 0.01);
+        Assert.assertTrue(set.falsePositiveRate() < 0.02);
+        Assert.assertEquals(0, new BloomFilterSortedSet<>(new TreeSet<Integer>()).falsePositiveRate(), 0);
+    }
+
+    @Test
+    public void testGrowthAndRemoval() {
+        BloomFilterSortedSet<Integer> set = new BloomFilterSortedSet<>(new TreeSet<>(), 0.001);
+        long initialBits = set.filterBits();
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertTrue(set.add(i));
+        }
+        Assert.assertTrue(set.filterBits() > initialBits);
+        Assert.assertTrue(set.expectedFalsePositiveRate() < 0.001);
+        long grownBits = set.filterBits();
+
+        // removals through iterators and views are seen by the filter, which shrinks once most elements are gone
+        set.headSet(90000).clear();
+        for (Iterator<Integer> iterator = set.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(5000, set.size());
+        Assert.assertTrue(set.filterBits() < grownBits);
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertEquals(i >= 90000 && i % 2 == 1, set.contains(i));
+        }
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(initialBits, set.filterBits());
+    }
+
+    @Test
+    public void testViews() {
+        BloomFilterSortedSet<Integer> set = new BloomFilterSortedSet<>(new TreeSet<>(Arrays.asList(10, 20, 30)));
+        NavigableSet<Integer> tail = set.tailSet(15, true);
+        Assert.assertTrue(tail.add(25));
+        Assert.assertTrue(set.contains(25));
+        Assert.assertFalse(tail.contains(10));
+        Assert.assertTrue(set.descendingSet().add(5));
+        Assert.assertEquals(Arrays.asList(5, 10, 20, 25, 30), new ArrayList<>(set));
+        Assert.assertEquals(Integer.valueOf(5), set.pollFirst());
+        Assert.assertFalse(set.contains(5));
+        try {
+            tail.add(1);
+            Assert.fail("adding an element out of the range of a view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertFalse(set.contains(1));
+
+        List<Integer> probes = new ArrayList<>();
+        for (int probe = 0; probe <= 35; probe++) {
+            probes.add(probe);
+        }
+        NavigableSetAssertions.assertSameNavigation(new TreeSet<>(set), set, probes);
+    }
+
+    @Test
+    public void testGetElement() {
+        Comparator<String> caseInsensitive = String.CASE_INSENSITIVE_ORDER;
+        TreeSet<String> names = new TreeSet<>(caseInsensitive);
+        names.addAll(Arrays.asList("alpha", "beta"));
+        // elements that are equal under the ordering must have equal hash codes, so this set is probed in lower case
+        BloomFilterSortedSet<String> set = new BloomFilterSortedSet<>(names);
+        Assert.assertSame(caseInsensitive, set.comparator());
+        String beta = names.last();
+        Assert.assertSame(beta, set.getElement(new String("beta")));
+        Assert.assertNull(set.getElement("gamma"));
+        Assert.assertNull(set.getElement(null));
+        Assert.assertEquals(1, set.getElements(new TreeSet<>(Arrays.asList("beta", "delta")), element -> {
+        }));
+        Assert.assertEquals(Collections.singletonList("alpha"), new ArrayList<>(set.headSet("b")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFalsePositiveRate() {
+        new BloomFilterSortedSet<>(new TreeSet<Integer>(), 1);
+    }
+}
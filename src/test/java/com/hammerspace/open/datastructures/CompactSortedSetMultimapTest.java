@@ -0,0 +1,165 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class CompactSortedSetMultimapTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testSingleValue() {
+        CompactSortedSetMultimap<String, Integer> multimap = new CompactSortedSetMultimap<>();
+        Assert.assertTrue(multimap.isEmpty());
+        Assert.assertTrue(multimap.get("a").isEmpty());
+        Assert.assertTrue(multimap.put("a", 1));
+        Assert.assertFalse(multimap.put("a", 1));
+        Assert.assertEquals(Collections.singleton(1), multimap.get("a"));
+        Assert.assertTrue(multimap.containsKey("a"));
+        Assert.assertTrue(multimap.containsEntry("a", 1));
+        Assert.assertFalse(multimap.containsEntry("a", 2));
+        Assert.assertFalse(multimap.containsEntry("a", "1"));
+        Assert.assertEquals(1, multimap.size());
+        Assert.assertEquals(1, multimap.valueCount("a"));
+        Assert.assertTrue(multimap.remove("a", 1));
+        Assert.assertFalse(multimap.remove("a", 1));
+        Assert.assertFalse(multimap.containsKey("a"));
+        Assert.assertTrue(multimap.isEmpty());
+    }
+
+    @Test
+    public void testGrowAndShrink() {
+        CompactSortedSetMultimap<String, Integer> multimap = new CompactSortedSetMultimap<>();
+        for (int i = 10; i > 0; i--) {
+            Assert.assertTrue(multimap.put("a", i));
+        }
+        multimap.put("b", 42);
+        Assert.assertEquals(11, multimap.size());
+        Assert.assertEquals(10, multimap.valueCount("a"));
+        Assert.assertEquals(Integer.valueOf(1), multimap.get("a").first());
+        for (int i = 1; i < 10; i++) {
+            Assert.assertTrue(multimap.remove("a", i));
+        }
+        Assert.assertEquals(Collections.singleton(10), multimap.get("a"));
+        Assert.assertEquals(Arrays.asList("a", "b"), new ArrayList<>(new TreeSet<>(multimap.keySet())));
+        Assert.assertEquals(Collections.singleton(10), multimap.removeAll("a"));
+        Assert.assertEquals(1, multimap.size());
+        multimap.clear();
+        Assert.assertTrue(multimap.isEmpty());
+    }
+
+    @Test
+    public void testGetIsASnapshot() {
+        CompactSortedSetMultimap<String, Integer> multimap = new CompactSortedSetMultimap<>();
+        multimap.put("a", 1);
+        NavigableSet<Integer> one = multimap.get("a");
+        multimap.put("a", 2);
+        NavigableSet<Integer> two = multimap.get("a");
+        try {
+            two.add(3);
+            Assert.fail("the values returned by get() must be read-only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        multimap.put("a", 3);
+        NavigableSet<Integer> three = multimap.get("a");
+        multimap.remove("a", 1);
+        multimap.remove("a", 2);
+        multimap.removeAll("a");
+        // the same for a bare value, a set of values and a key that has gone since
+        Assert.assertEquals(Arrays.asList(1), new ArrayList<>(one));
+        Assert.assertEquals(Arrays.asList(1, 2), new ArrayList<>(two));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(three));
+    }
+
+    @Test
+    public void testGetElement() {
+        CompactSortedSetMultimap<String, String> multimap = new CompactSortedSetMultimap<>();
+        String x = new String("x");
+        multimap.put("a", x);
+        Assert.assertSame(x, multimap.getElement("a", "x"));
+        multimap.put("a", "y");
+        Assert.assertSame(x, multimap.getElement("a", "x"));
+        Assert.assertNull(multimap.getElement("a", "z"));
+        Assert.assertNull(multimap.getElement("b", "x"));
+    }
+
+    @Test
+    public void testAgainstMapOfTreeSets() {
+        CompactSortedSetMultimap<Integer, Integer> multimap = new CompactSortedSetMultimap<>();
+        Map<Integer, SortedSet<Integer>> expected = new HashMap<>();
+        int expectedSize = 0;
+        for (int i = 0; i < 5000; i++) {
+            int key = RANDOM.nextInt(20);
+            int value = RANDOM.nextInt(8);
+            SortedSet<Integer> values = expected.computeIfAbsent(key, k -> new TreeSet<>());
+            if (RANDOM.nextBoolean()) {
+                boolean added = values.add(value);
+                expectedSize += added ? 1 : 0;
+                Assert.assertEquals(added, multimap.put(key, value));
+            } else {
+                boolean removed = values.remove(value);
+                expectedSize -= removed ? 1 : 0;
+                Assert.assertEquals(removed, multimap.remove(key, value));
+            }
+            if (values.isEmpty()) {
+                expected.remove(key);
+            }
+            Assert.assertEquals(values, multimap.get(key));
+            Assert.assertEquals(expectedSize, multimap.size());
+        }
+        Assert.assertEquals(expected.keySet(), multimap.keySet());
+        List<String> pairs = new ArrayList<>();
+        multimap.forEach((key, value) -> pairs.add(key + "=" + value));
+        Assert.assertEquals(expectedSize, pairs.size());
+    }
+
+    @Test
+    public void testEqualsHashCodeAndToString() {
+        CompactSortedSetMultimap<String, Integer> left = new CompactSortedSetMultimap<>();
+        CompactSortedSetMultimap<String, Integer> right = new CompactSortedSetMultimap<>();
+        left.put("a", 1);
+        left.put("a", 2);
+        right.put("a", 2);
+        Assert.assertNotEquals(left, right);
+        right.put("a", 1);
+        Assert.assertEquals(left, right);
+        Assert.assertEquals(left.hashCode(), right.hashCode());
+        Assert.assertEquals("{a=[1, 2]}", left.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new CompactSortedSetMultimap<String, Integer>().put("a", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullKey() {
+        new CompactSortedSetMultimap<String, Integer>().put(null, 1);
+    }
+}
@@ -0,0 +1,206 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class ComparatorArraySortedSetTest {
+    private static final Random RANDOM = new Random();
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNull() {
+        new ComparatorArraySortedSet<>(DESCENDING, Arrays.asList(1, null, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNullComparator() {
+        new ComparatorArraySortedSet<>(null, Arrays.asList(1, 2, 3));
+    }
+
+    @Test
+    public void testConstructorSortsAndRemovesDuplicates() {
+        ComparatorArraySortedSet<String> set = new ComparatorArraySortedSet<>(String.CASE_INSENSITIVE_ORDER,
+                Arrays.asList("b", "A", "c", "a", "B"));
+        Assert.assertEquals(Arrays.asList("A", "b", "c"), new ArrayList<>(set));
+        Assert.assertSame(String.CASE_INSENSITIVE_ORDER, set.comparator());
+
+        // a SortedSet of the same ordering is taken as-is
+        TreeSet<Integer> descending = new TreeSet<>(DESCENDING);
+        descending.addAll(Arrays.asList(1, 5, 3));
+        Assert.assertEquals(Arrays.asList(5, 3, 1), new ArrayList<>(new ComparatorArraySortedSet<>(DESCENDING,
+                descending)));
+        // ... but one in another order is sorted again
+        Assert.assertEquals(Arrays.asList(5, 3, 1), new ArrayList<>(new ComparatorArraySortedSet<>(DESCENDING,
+                new TreeSet<>(descending))));
+    }
+
+    @Test
+    public void testGetElementHonorsTheComparator() {
+        ComparatorArraySortedSet<String> set = new ComparatorArraySortedSet<>(String.CASE_INSENSITIVE_ORDER,
+                Arrays.asList("Alpha", "beta", "Gamma"));
+        Assert.assertEquals("Alpha", set.getElement("ALPHA"));
+        Assert.assertEquals("beta", set.getElement("Beta"));
+        Assert.assertNull(set.getElement("delta"));
+        Assert.assertNull(set.getElement(null));
+        Assert.assertTrue(set.contains("GAMMA"));
+        Assert.assertFalse(set.contains(null));
+        Assert.assertFalse(set.add("BETA"));
+    }
+
+    @Test
+    public void testAgainstTreeSet() {
+        for (int size = 0; size < 8; size++) {
+            TreeSet<Integer> expected = new TreeSet<>(DESCENDING);
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            List<Integer> probes = new ArrayList<>();
+            for (int probe = -1; probe <= 4 * size + 1; probe++) {
+                probes.add(probe);
+            }
+            ComparatorArraySortedSet<Integer> set = new ComparatorArraySortedSet<>(DESCENDING,
+                    new ArrayList<>(expected));
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(set, expected);
+            Assert.assertEquals(expected.hashCode(), set.hashCode());
+            Assert.assertEquals(expected.toString(), set.toString());
+            Assert.assertArrayEquals(expected.toArray(new Integer[0]), set.toArray(new Integer[0]));
+            NavigableSetAssertions.assertSameNavigation(expected, set, probes);
+        }
+    }
+
+    @Test
+    public void testViewsKeepTheComparator() {
+        ComparatorArraySortedSet<Integer> set = new ComparatorArraySortedSet<>(DESCENDING, Arrays.asList(1, 2, 3, 4));
+        Assert.assertSame(DESCENDING, set.headSet(2).comparator());
+        Assert.assertSame(DESCENDING, set.tailSet(2).comparator());
+        Assert.assertSame(DESCENDING, set.subSet(3, 2).comparator());
+        Assert.assertEquals(Collections.singletonList(3), new ArrayList<>(set.subSet(3, 2)));
+        // an empty view still orders its own views
+        NavigableSet<Integer> empty = set.subSet(9, true, 5, true);
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertSame(DESCENDING, empty.comparator());
+        Assert.assertTrue(empty.headSet(0, true).isEmpty());
+        try {
+            set.subSet(1, 2);
+            Assert.fail("subSet() with fromElement > toElement must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4), new ArrayList<>(set.descendingSet()));
+    }
+
+    @Test
+    public void testNestedViewBounds() {
+        TreeSet<Integer> expected = new TreeSet<>(DESCENDING);
+        for (int i = 0; i < 30; i++) {
+            expected.add(2 * i);
+        }
+        ComparatorArraySortedSet<Integer> set = new ComparatorArraySortedSet<>(DESCENDING, expected);
+        List<Integer> probes = new ArrayList<>();
+        for (int probe = 8; probe <= 12; probe++) {
+            probes.add(probe);
+            probes.add(probe + 30);
+        }
+        for (boolean fromInclusive : new boolean[]{false, true}) {
+            for (boolean toInclusive : new boolean[]{false, true}) {
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.subSet(40, fromInclusive, 10, toInclusive),
+                        set.subSet(40, fromInclusive, 10, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.tailSet(40, fromInclusive).headSet(10, toInclusive),
+                        set.tailSet(40, fromInclusive).headSet(10, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.headSet(10, toInclusive).tailSet(40, fromInclusive),
+                        set.headSet(10, toInclusive).tailSet(40, fromInclusive), probes);
+            }
+        }
+        try {
+            set.subSet(40, true, 10, false).headSet(0);
+            Assert.fail("a bound past the exclusive bound of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            values.add(i);
+        }
+        ComparatorArraySortedSet<Integer> set = new ComparatorArraySortedSet<>(DESCENDING, values);
+        Spliterator<Integer> spliterator = set.spliterator();
+        Assert.assertSame(DESCENDING, spliterator.getComparator());
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.ORDERED
+                | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED));
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        Assert.assertNotNull(prefix);
+        Assert.assertSame(DESCENDING, prefix.getComparator());
+        Assert.assertEquals(40, prefix.estimateSize() + spliterator.estimateSize());
+        Assert.assertEquals(new ArrayList<>(set), StreamSupport.stream(set.spliterator(), true)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        ComparatorArraySortedSet<Integer> set = new ComparatorArraySortedSet<>(DESCENDING, Arrays.asList(1, 2));
+        Assert.assertFalse(set.add(1));
+        Assert.assertFalse(set.addAll(Arrays.asList(1, 2)));
+        try {
+            set.add(3);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.pollFirst();
+            Assert.fail("pollFirst() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBatchLookups() {
+        ComparatorArraySortedSet<Integer> set = new ComparatorArraySortedSet<>(DESCENDING, Arrays.asList(9, 7, 5, 3));
+        TreeSet<Integer> probes = new TreeSet<>(DESCENDING);
+        probes.addAll(Arrays.asList(8, 7, 3, 1));
+        List<Integer> found = new ArrayList<>();
+        Assert.assertEquals(2, set.getElements(probes, found::add));
+        Assert.assertEquals(Arrays.asList(7, 3), found);
+        Assert.assertFalse(set.containsAll(probes));
+        probes.removeAll(Arrays.asList(8, 1));
+        Assert.assertTrue(set.containsAll(probes));
+        // natural order is not the order of the set, so these are looked up one by one
+        Assert.assertEquals(2, set.getElements(new TreeSet<>(Arrays.asList(1, 3, 7, 8)), value -> { }));
+        Assert.assertTrue(set.containsAll(new TreeSet<>(Arrays.asList(3, 7))));
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.Spliterator;
+import java.util.TreeSet;
+
+public class ComparatorSingletonSortedSetTest {
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNull() {
+        new ComparatorSingletonSortedSet<>(DESCENDING, null);
+    }
+
+    @Test
+    public void testGetElementHonorsTheComparator() {
+        ComparatorSingletonSortedSet<String> set = new ComparatorSingletonSortedSet<>(String.CASE_INSENSITIVE_ORDER,
+                "Alpha");
+        Assert.assertEquals("Alpha", set.getElement());
+        Assert.assertEquals("Alpha", set.getElement("ALPHA"));
+        Assert.assertNull(set.getElement("beta"));
+        Assert.assertNull(set.getElement(null));
+        Assert.assertTrue(set.contains("alpha"));
+        Assert.assertFalse(set.contains(null));
+        Assert.assertFalse(set.add("aLPHA"));
+        Assert.assertSame(String.CASE_INSENSITIVE_ORDER, set.comparator());
+    }
+
+    @Test
+    public void testAgainstTreeSet() {
+        ComparatorSingletonSortedSet<Integer> set = new ComparatorSingletonSortedSet<>(DESCENDING, 1);
+        TreeSet<Integer> expected = new TreeSet<>(DESCENDING);
+        expected.add(1);
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(set, expected);
+        Assert.assertEquals(Collections.singleton(1), set);
+        Assert.assertEquals(expected.hashCode(), set.hashCode());
+        Assert.assertEquals(new ComparatorSingletonSortedSet<>(DESCENDING, 1), set);
+        Assert.assertNotEquals(new ComparatorSingletonSortedSet<>(DESCENDING, 2), set);
+        NavigableSetAssertions.assertSameNavigation(expected, set, Arrays.asList(0, 1, 2));
+    }
+
+    @Test
+    public void testViewsKeepTheComparator() {
+        ComparatorSingletonSortedSet<Integer> set = new ComparatorSingletonSortedSet<>(DESCENDING, 1);
+        Assert.assertSame(set, set.headSet(0));
+        Assert.assertSame(set, set.tailSet(1));
+        Assert.assertSame(set, set.subSet(2, 0));
+        NavigableSet<Integer> empty = set.headSet(1, false);
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertSame(DESCENDING, empty.comparator());
+        Assert.assertTrue(set.tailSet(1, false).isEmpty());
+        try {
+            set.subSet(0, 2);
+            Assert.fail("subSet() with fromElement > toElement must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        ComparatorSingletonSortedSet<Integer> set = new ComparatorSingletonSortedSet<>(DESCENDING, 7);
+        Spliterator<Integer> spliterator = set.spliterator();
+        Assert.assertSame(DESCENDING, spliterator.getComparator());
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.SIZED));
+        Assert.assertNull(spliterator.trySplit());
+        Assert.assertEquals(1, spliterator.getExactSizeIfKnown());
+        Assert.assertTrue(spliterator.tryAdvance(value -> Assert.assertEquals(7, (int) value)));
+        Assert.assertFalse(spliterator.tryAdvance(value -> Assert.fail("should not be invoked")));
+        Assert.assertEquals(0, spliterator.getExactSizeIfKnown());
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        ComparatorSingletonSortedSet<Integer> set = new ComparatorSingletonSortedSet<>(DESCENDING, 1);
+        try {
+            set.add(2);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.remove(1);
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetElements() {
+        ComparatorSingletonSortedSet<String> set = new ComparatorSingletonSortedSet<>(String.CASE_INSENSITIVE_ORDER,
+                "b");
+        TreeSet<String> probes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        probes.addAll(Arrays.asList("A", "B", "C"));
+        String[] seen = new String[1];
+        Assert.assertEquals(1, set.getElements(probes, value -> seen[0] = value));
+        Assert.assertEquals("b", seen[0]);
+        // the probes are in natural order here, so they are compared one by one
+        Assert.assertEquals(1, set.getElements(new TreeSet<>(Arrays.asList("B", "a")), value -> { }));
+        Assert.assertEquals(0, set.getElements(new TreeSet<>(Arrays.asList("a", "c")), value -> Assert.fail()));
+    }
+}
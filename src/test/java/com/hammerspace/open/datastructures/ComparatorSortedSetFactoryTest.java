@@ -0,0 +1,65 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+
+public class ComparatorSortedSetFactoryTest {
+
+    private static final ComparatorSortedSetFactory<String> BY_LENGTH = new ComparatorSortedSetFactory<>(
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullComparator() {
+        new ComparatorSortedSetFactory<String>(null);
+    }
+
+    @Test
+    public void testSetsShareTheComparator() {
+        NavigableSet<String> empty = BY_LENGTH.copyOf(Collections.emptyList());
+        NavigableSet<String> singleton = BY_LENGTH.singleton("abc");
+        NavigableSet<String> array = BY_LENGTH.copyOf(Arrays.asList("ccc", "a", "bb"));
+        Assert.assertSame(BY_LENGTH.empty(), empty);
+        Assert.assertSame(BY_LENGTH.comparator(), empty.comparator());
+        Assert.assertSame(BY_LENGTH.comparator(), singleton.comparator());
+        Assert.assertSame(BY_LENGTH.comparator(), array.comparator());
+        Assert.assertSame(BY_LENGTH.comparator(), array.spliterator().getComparator());
+        Assert.assertEquals(Arrays.asList("a", "bb", "ccc"), new ArrayList<>(array));
+    }
+
+    @Test
+    public void testCopyOfPicksTheSmallestRepresentation() {
+        Assert.assertTrue(BY_LENGTH.copyOf(Collections.singleton("a")) instanceof ComparatorSingletonSortedSet);
+        // duplicates collapse into a singleton, keeping the first one encountered
+        NavigableSet<String> set = BY_LENGTH.copyOf(Arrays.asList(new String("a"), "a"));
+        Assert.assertTrue(set instanceof ComparatorSingletonSortedSet);
+        Assert.assertEquals(Collections.singleton("a"), set);
+        Assert.assertTrue(BY_LENGTH.copyOf(Arrays.asList("a", "b")) instanceof ComparatorArraySortedSet);
+        Assert.assertTrue(BY_LENGTH.empty().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCopyOfWithNull() {
+        BY_LENGTH.copyOf(Collections.singleton(null));
+    }
+}
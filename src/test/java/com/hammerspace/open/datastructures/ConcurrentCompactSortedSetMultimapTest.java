@@ -0,0 +1,165 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentCompactSortedSetMultimapTest {
+    private static final Random RANDOM = new Random();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStripes() {
+        new ConcurrentCompactSortedSetMultimap<String, Integer>(0);
+    }
+
+    @Test
+    public void testGetReturnsImmutableSnapshots() {
+        ConcurrentCompactSortedSetMultimap<String, Integer> multimap = new ConcurrentCompactSortedSetMultimap<>(3);
+        Assert.assertTrue(multimap.get("a").isEmpty());
+        multimap.put("a", 2);
+        NavigableSet<Integer> one = multimap.get("a");
+        Assert.assertTrue(one instanceof SingletonSortedSet);
+        multimap.put("a", 1);
+        NavigableSet<Integer> two = multimap.get("a");
+        Assert.assertTrue(two instanceof ArraySortedSet);
+        Assert.assertSame(two, multimap.get("a")); // no copy on read
+        multimap.put("a", 3);
+        Assert.assertEquals(Collections.singleton(2), one);
+        Assert.assertEquals(Arrays.asList(1, 2), new ArrayList<>(two));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(multimap.get("a")));
+
+        multimap.remove("a", 1);
+        multimap.remove("a", 3);
+        Assert.assertTrue(multimap.get("a") instanceof SingletonSortedSet);
+        Assert.assertEquals(1, multimap.size());
+        Assert.assertEquals("{a=[2]}", multimap.toString());
+    }
+
+    @Test
+    public void testGetElement() {
+        ConcurrentCompactSortedSetMultimap<String, String> multimap = new ConcurrentCompactSortedSetMultimap<>();
+        String x = new String("x");
+        multimap.put("a", x);
+        Assert.assertSame(x, multimap.getElement("a", "x"));
+        multimap.put("a", "y");
+        Assert.assertSame(x, multimap.getElement("a", "x"));
+        Assert.assertNull(multimap.getElement("a", "z"));
+        Assert.assertTrue(multimap.containsEntry("a", "y"));
+        Assert.assertFalse(multimap.containsEntry("a", "z"));
+    }
+
+    @Test
+    public void testAgainstMapOfTreeSets() {
+        ConcurrentCompactSortedSetMultimap<Integer, Integer> multimap = new ConcurrentCompactSortedSetMultimap<>();
+        Map<Integer, SortedSet<Integer>> expected = new HashMap<>();
+        int expectedSize = 0;
+        for (int i = 0; i < 5000; i++) {
+            int key = RANDOM.nextInt(20);
+            int value = RANDOM.nextInt(8);
+            SortedSet<Integer> values = expected.computeIfAbsent(key, k -> new TreeSet<>());
+            switch (RANDOM.nextInt(5)) {
+                case 0:
+                    expectedSize -= values.size();
+                    Assert.assertEquals(values, multimap.removeAll(key));
+                    values.clear();
+                    break;
+                case 1:
+                case 2:
+                    boolean removed = values.remove(value);
+                    expectedSize -= removed ? 1 : 0;
+                    Assert.assertEquals(removed, multimap.remove(key, value));
+                    break;
+                default:
+                    boolean added = values.add(value);
+                    expectedSize += added ? 1 : 0;
+                    Assert.assertEquals(added, multimap.put(key, value));
+            }
+            if (values.isEmpty()) {
+                expected.remove(key);
+            }
+            Assert.assertEquals(values, multimap.get(key));
+            Assert.assertEquals(values.size(), multimap.valueCount(key));
+            Assert.assertEquals(expectedSize, multimap.size());
+        }
+        Assert.assertEquals(expected.keySet(), multimap.keySet());
+        multimap.clear();
+        Assert.assertTrue(multimap.isEmpty());
+        Assert.assertEquals(0, multimap.size());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        ConcurrentCompactSortedSetMultimap<Integer, Integer> multimap = new ConcurrentCompactSortedSetMultimap<>(4);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // every thread writes its own values to the same keys
+                    for (int value = offset; value < 200; value += threads) {
+                        for (int key = 0; key < 10; key++) {
+                            Assert.assertTrue(multimap.put(key, value));
+                        }
+                    }
+                    for (int value = offset; value < 200; value += 2 * threads) {
+                        for (int key = 0; key < 10; key++) {
+                            Assert.assertTrue(multimap.remove(key, value));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int value = 0; value < 200; value++) {
+            if (value % (2 * threads) >= threads) {
+                expected.add(value);
+            }
+        }
+        for (int key = 0; key < 10; key++) {
+            Assert.assertEquals(expected, multimap.get(key));
+        }
+        Assert.assertEquals(10 * expected.size(), multimap.size());
+    }
+}
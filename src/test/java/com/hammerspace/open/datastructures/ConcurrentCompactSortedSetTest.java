@@ -0,0 +1,226 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentCompactSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddNull() {
+        new ConcurrentCompactSortedSet<Integer>().add(null);
+    }
+
+    @Test
+    public void testRepresentations() {
+        ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>(4, 0);
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertTrue(set.add(3));
+        Assert.assertFalse(set.add(3));
+        Assert.assertTrue(set.snapshot() instanceof SingletonSortedSet);
+        Assert.assertSame(set.snapshot(), set.snapshot()); // snapshots are shared, not copied
+        set.addAll(Arrays.asList(1, 2, 4));
+        Assert.assertTrue(set.snapshot() instanceof ArraySortedSet);
+        Assert.assertFalse(set.isSkipList());
+        Assert.assertTrue(set.add(5));
+        Assert.assertTrue(set.isSkipList());
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), new ArrayList<>(set.snapshot()));
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertTrue(set.isSkipList()); // once a skip list, always a skip list
+    }
+
+    @Test
+    public void testAgainstTreeSet() {
+        List<Integer> probes = new ArrayList<>();
+        for (int probe = -1; probe <= 13; probe++) {
+            probes.add(probe);
+        }
+        ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>(4, 0);
+        TreeSet<Integer> expected = new TreeSet<>();
+        // go through every representation
+        for (int value : new int[]{6, 2, 10, 4, 8, 0, 12}) {
+            NavigableSetAssertions.assertSameNavigation(expected, set, probes);
+            Assert.assertEquals(expected.add(value), set.add(value));
+        }
+        NavigableSetAssertions.assertSameNavigation(expected, set, probes);
+        NavigableSetAssertions.assertSameNavigation(expected.subSet(2, false, 10, true), set.subSet(2, false, 10, true),
+                probes);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        for (int round = 0; round < 20; round++) {
+            ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>(8, 0);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < 200; i++) {
+                int value = RANDOM.nextInt(12);
+                switch (RANDOM.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        Assert.assertEquals(expected.add(value), set.add(value));
+                        break;
+                    case 2:
+                        Assert.assertEquals(expected.remove(value), set.remove(value));
+                        break;
+                    default:
+                        Assert.assertEquals(expected.pollFirst(), set.pollFirst());
+                }
+                Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+                Assert.assertEquals(expected.size(), set.size());
+            }
+        }
+    }
+
+    @Test
+    public void testGetElement() {
+        ConcurrentCompactSortedSet<String> set = new ConcurrentCompactSortedSet<>(2, 0);
+        String a = new String("a");
+        set.add(a);
+        Assert.assertSame(a, set.getElement("a"));
+        set.add("b");
+        Assert.assertSame(a, set.getElement("a"));
+        set.add("c"); // now a skip list
+        Assert.assertSame(a, set.getElement("a"));
+        Assert.assertNull(set.getElement("d"));
+        Assert.assertNull(set.getElement(null));
+    }
+
+    @Test
+    public void testIteratorsWalkASnapshot() {
+        ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>(Arrays.asList(1, 2, 3));
+        Iterator<Integer> iterator = set.iterator();
+        set.add(4);
+        set.remove(1);
+        List<Integer> seen = new ArrayList<>();
+        iterator.forEachRemaining(seen::add);
+        Assert.assertEquals(Arrays.asList(1, 2, 3), seen);
+
+        // removing through an iterator removes from the current contents
+        iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(Arrays.asList(3), new ArrayList<>(set));
+    }
+
+    @Test
+    public void testSpliterators() {
+        ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>(Arrays.asList(2, 4, 6));
+        Assert.assertTrue(set.spliterator().hasCharacteristics(Spliterator.IMMUTABLE | Spliterator.SIZED));
+        Assert.assertTrue(set.subSet(1, 5).spliterator().hasCharacteristics(Spliterator.IMMUTABLE | Spliterator.SIZED));
+
+        for (int i = 0; i < 80; i += 2) {
+            set.add(i);
+        }
+        Assert.assertTrue(set.isSkipList());
+        Assert.assertTrue(set.spliterator().hasCharacteristics(Spliterator.CONCURRENT));
+        Assert.assertFalse(set.spliterator().hasCharacteristics(Spliterator.SIZED));
+        Assert.assertFalse(set.subSet(0, 100).spliterator().hasCharacteristics(Spliterator.SIZED));
+
+        // adds made ahead of a running stream must not overflow a size taken before it started
+        Object[] all = set.stream().peek(i -> set.add(i < 1000 ? i + 1000 : i)).toArray();
+        Assert.assertEquals(80, all.length);
+        NavigableSet<Integer> view = set.subSet(0, true, 2000, false);
+        Object[] ranged = view.stream().peek(i -> set.add(i + 2000)).toArray();
+        Assert.assertEquals(80, ranged.length);
+    }
+
+    @Test
+    public void testViewsAreLive() {
+        ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>(4, 0);
+        NavigableSet<Integer> view = set.subSet(2, true, 6, false);
+        Assert.assertTrue(view.isEmpty());
+        set.add(1);
+        set.add(3);
+        Assert.assertEquals(Arrays.asList(3), new ArrayList<>(view));
+        Assert.assertTrue(view.add(5));
+        for (int i = 6; i < 10; i++) {
+            set.add(i); // into the skip list
+        }
+        Assert.assertTrue(set.isSkipList());
+        Assert.assertEquals(Arrays.asList(3, 5), new ArrayList<>(view));
+        Assert.assertEquals(Integer.valueOf(3), view.pollFirst());
+        Assert.assertFalse(set.contains(3));
+        try {
+            view.add(6);
+            Assert.fail("add() of an element out of the range of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(Arrays.asList(9, 8, 7, 6, 5, 1), new ArrayList<>(set.descendingSet()));
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        for (int contentionThreshold : new int[]{0, 1000}) {
+            ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>(1000, contentionThreshold);
+            int threads = 4;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    int offset = thread;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        // each thread adds its own residue class and removes half of it again
+                        for (int i = offset; i < 400; i += threads) {
+                            Assert.assertTrue(set.add(i));
+                            Assert.assertTrue(set.contains(i));
+                        }
+                        for (int i = offset; i < 400; i += 2 * threads) {
+                            Assert.assertTrue(set.remove(i));
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < 400; i++) {
+                if (i % (2 * threads) >= threads) {
+                    expected.add(i);
+                }
+            }
+            Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        }
+    }
+}
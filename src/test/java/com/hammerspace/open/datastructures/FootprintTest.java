@@ -0,0 +1,267 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Measures the heap footprint of the sets in this package with JOL and fails when it grows.
+ *
+ * The compact sets exist to save memory across hundreds of millions of instances, so an extra field on one of them is
+ * a regression even when every functional test passes. The budgets below are the sizes on a 64-bit VM with compressed
+ * references and compressed class pointers, the default for heaps under 32 GB. On any other layout the sizes are still
+ * reported but not checked. When a change makes a class smaller, lower its budget so that the saving is kept.
+ */
+public class FootprintTest {
+
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+    private static final List<Integer> SIZES = Arrays.asList(1, 2, 8, 32);
+
+    private static boolean referenceLayout;
+
+    /**
+     * A class with a single reference field: 12 bytes of header and 4 bytes of reference on the reference layout.
+     */
+    @SuppressWarnings("unused")
+    private static class OneReference {
+        private Object reference;
+    }
+
+    @BeforeClass
+    public static void checkLayout() {
+        referenceLayout = ClassLayout.parseClass(OneReference.class).instanceSize() == 16;
+    }
+
+    /**
+     * The size of a single instance of each class, not counting anything it points to.
+     */
+    @Test
+    public void testShallowSizes() {
+        List<Integer> elements = Arrays.asList(1000, 2000, 3000);
+        SingletonSortedSet<Integer> singleton = new SingletonSortedSet<>(1000);
+        ArraySortedSet<Integer> array = new ArraySortedSet<>(elements);
+        AdaptiveSortedSet<Integer> adaptive = new AdaptiveSortedSet<>(elements);
+        LongSingletonSortedSet longSingleton = new LongSingletonSortedSet(1000);
+        LongArraySortedSet longArray = new LongArraySortedSet(1000, 2000, 3000);
+        IntSingletonSortedSet intSingleton = new IntSingletonSortedSet(1000);
+        IntArraySortedSet intArray = new IntArraySortedSet(1000, 2000, 3000);
+        ComparatorSingletonSortedSet<Integer> comparatorSingleton =
+                new ComparatorSingletonSortedSet<>(DESCENDING, 1000);
+        ComparatorArraySortedSet<Integer> comparatorArray = new ComparatorArraySortedSet<>(DESCENDING, elements);
+
+        Map<String, Object[]> budgets = new LinkedHashMap<>();
+        budgets.put("SingletonSortedSet", new Object[]{singleton, 16});
+        budgets.put("SingletonSortedSet.iterator()", new Object[]{singleton.iterator(), 24});
+        budgets.put("SingletonSortedSet.spliterator()", new Object[]{singleton.spliterator(), 24});
+        budgets.put("ArraySortedSet", new Object[]{array, 24});
+        budgets.put("ArraySortedSet.iterator()", new Object[]{array.iterator(), 24});
+        budgets.put("ArraySortedSet.descendingIterator()", new Object[]{array.descendingIterator(), 24});
+        budgets.put("ArraySortedSet.spliterator()", new Object[]{array.spliterator(), 24});
+        budgets.put("AdaptiveSortedSet", new Object[]{adaptive, 24});
+        budgets.put("AdaptiveSortedSet.iterator()", new Object[]{adaptive.iterator(), 40});
+        budgets.put("AdaptiveSortedSet.subSet()", new Object[]{adaptive.subSet(1000, 3000), 32});
+        budgets.put("LongSingletonSortedSet", new Object[]{longSingleton, 24});
+        budgets.put("LongSingletonSortedSet.iterator()", new Object[]{longSingleton.iterator(), 24});
+        budgets.put("LongSingletonSortedSet.spliterator()", new Object[]{longSingleton.spliterator(), 24});
+        budgets.put("LongArraySortedSet", new Object[]{longArray, 24});
+        budgets.put("LongArraySortedSet.iterator()", new Object[]{longArray.iterator(), 24});
+        budgets.put("LongArraySortedSet.spliterator()", new Object[]{longArray.spliterator(), 32});
+        budgets.put("IntSingletonSortedSet", new Object[]{intSingleton, 16});
+        budgets.put("IntSingletonSortedSet.iterator()", new Object[]{intSingleton.iterator(), 24});
+        budgets.put("IntSingletonSortedSet.spliterator()", new Object[]{intSingleton.spliterator(), 24});
+        budgets.put("IntArraySortedSet", new Object[]{intArray, 24});
+        budgets.put("IntArraySortedSet.iterator()", new Object[]{intArray.iterator(), 24});
+        budgets.put("IntArraySortedSet.spliterator()", new Object[]{intArray.spliterator(), 32});
+        budgets.put("ComparatorSingletonSortedSet", new Object[]{comparatorSingleton, 24});
+        budgets.put("ComparatorSingletonSortedSet.iterator()", new Object[]{comparatorSingleton.iterator(), 24});
+        budgets.put("ComparatorSingletonSortedSet.spliterator()", new Object[]{comparatorSingleton.spliterator(), 24});
+        budgets.put("ComparatorArraySortedSet", new Object[]{comparatorArray, 32});
+        budgets.put("ComparatorArraySortedSet.iterator()", new Object[]{comparatorArray.iterator(), 24});
+        budgets.put("ComparatorArraySortedSet.spliterator()", new Object[]{comparatorArray.spliterator(), 24});
+        budgets.put("ConcurrentCompactSortedSet", new Object[]{new ConcurrentCompactSortedSet<>(elements), 24});
+        budgets.put("descendingSet()", new Object[]{array.descendingSet(), 16});
+        BTreeSortedSet<Integer> btree = new BTreeSortedSet<>(elements);
+        budgets.put("BTreeSortedSet", new Object[]{btree, 40});
+        budgets.put("BTreeSortedSet.iterator()", new Object[]{btree.iterator(), 48});
+        budgets.put("BTreeSortedSet.spliterator()", new Object[]{btree.spliterator(), 64});
+        PersistentSortedSet<Integer> persistent = PersistentTreeSortedSet.copyOf(elements);
+        budgets.put("PersistentTreeSortedSet", new Object[]{persistent, 24});
+        budgets.put("PersistentTreeSortedSet.iterator()", new Object[]{persistent.iterator(), 32});
+        budgets.put("PersistentTreeSortedSet.spliterator()", new Object[]{persistent.spliterator(), 48});
+        LongRangeSortedSet ranges = new LongRangeSortedSet();
+        ranges.addRange(0, 1_000_000);
+        budgets.put("LongRangeSortedSet", new Object[]{ranges, 40});
+        budgets.put("LongRangeSortedSet.iterator()", new Object[]{ranges.iterator(), 64});
+        RoaringIntSortedSet roaring = new RoaringIntSortedSet(1000, 2000, 3000);
+        budgets.put("RoaringIntSortedSet", new Object[]{roaring, 32});
+        budgets.put("RoaringIntSortedSet.iterator()", new Object[]{roaring.iterator(), 48});
+        budgets.put("RoaringIntSortedSet.spliterator()", new Object[]{roaring.spliterator(), 40});
+        budgets.put("BloomFilterSortedSet", new Object[]{new BloomFilterSortedSet<>(new TreeSet<>(elements)), 24});
+        budgets.put("asLookupSet(TreeSet)", new Object[]{SortedSets.asLookupSet(new TreeSet<>(elements)), 16});
+        budgets.put("SingletonSortedMap", new Object[]{new SingletonSortedMap<>(1000, 1000), 24});
+        budgets.put("ArraySortedMap", new Object[]{new ArraySortedMap<>(Collections.singletonMap(1000, 1000)), 32});
+
+        List<String> failures = new ArrayList<>();
+        System.out.println(String.format("%-45s %8s %8s", "shallow size", "bytes", "budget"));
+        for (Map.Entry<String, Object[]> entry : budgets.entrySet()) {
+            long size = ClassLayout.parseInstance(entry.getValue()[0]).instanceSize();
+            long budget = ((Integer) entry.getValue()[1]).longValue();
+            System.out.println(String.format("%-45s %8d %8d", entry.getKey(), size, budget));
+            if (size > budget) {
+                failures.add(entry.getKey() + " takes " + size + " bytes, over its budget of " + budget);
+            }
+        }
+        assertWithinBudgets(failures);
+    }
+
+    /**
+     * The bytes a set adds on top of its elements (and of a shared comparator), against the JDK sets that hold the
+     * same elements.
+     */
+    @Test
+    public void testRetainedSizes() {
+        Map<String, Function<List<Integer>, Set<Integer>>> implementations = new LinkedHashMap<>();
+        implementations.put("compact", elements -> elements.size() == 1 ? new SingletonSortedSet<>(elements.get(0))
+                : new ArraySortedSet<>(elements));
+        implementations.put("AdaptiveSortedSet", AdaptiveSortedSet::new);
+        implementations.put("ComparatorSortedSetFactory", new ComparatorSortedSetFactory<>(DESCENDING)::copyOf);
+        implementations.put("ConcurrentCompactSortedSet", ConcurrentCompactSortedSet::new);
+        implementations.put("BTreeSortedSet", BTreeSortedSet::new);
+        implementations.put("PersistentTreeSortedSet", PersistentTreeSortedSet::copyOf);
+        implementations.put("RoaringIntSortedSet", RoaringIntSortedSet::new);
+        implementations.put("ConcurrentSkipListSet", ConcurrentSkipListSet::new);
+        implementations.put("Collections.singleton", elements -> elements.size() == 1
+                ? Collections.singleton(elements.get(0)) : null);
+
+        Map<String, Long> budgets = new LinkedHashMap<>();
+        budgets.put("compact/1", 16L);
+        budgets.put("compact/2", 48L);
+        budgets.put("compact/8", 72L);
+        budgets.put("compact/32", 168L);
+        budgets.put("AdaptiveSortedSet/1", 24L);
+        budgets.put("AdaptiveSortedSet/2", 56L);
+        budgets.put("AdaptiveSortedSet/8", 80L);
+        budgets.put("AdaptiveSortedSet/32", 168L);
+        budgets.put("ComparatorSortedSetFactory/1", 24L);
+        budgets.put("ComparatorSortedSetFactory/2", 56L);
+        budgets.put("ComparatorSortedSetFactory/8", 80L);
+        budgets.put("ComparatorSortedSetFactory/32", 176L);
+        budgets.put("ConcurrentCompactSortedSet/1", 40L);
+        budgets.put("ConcurrentCompactSortedSet/2", 72L);
+        budgets.put("ConcurrentCompactSortedSet/8", 96L);
+        budgets.put("ConcurrentCompactSortedSet/32", 192L);
+        budgets.put("BTreeSortedSet/1", 96L);
+        budgets.put("BTreeSortedSet/2", 96L);
+        budgets.put("BTreeSortedSet/8", 120L);
+        budgets.put("BTreeSortedSet/32", 216L);
+        budgets.put("PersistentTreeSortedSet/1", 16L);
+        budgets.put("PersistentTreeSortedSet/2", 72L);
+        budgets.put("PersistentTreeSortedSet/8", 96L);
+        budgets.put("PersistentTreeSortedSet/32", 192L);
+        budgets.put("RoaringIntSortedSet/1", 96L);
+        budgets.put("RoaringIntSortedSet/2", 120L);
+        budgets.put("RoaringIntSortedSet/8", 152L);
+        budgets.put("RoaringIntSortedSet/32", 152L);
+
+        assertWithinBudgets(checkRetainedSizes(implementations, budgets));
+    }
+
+    /**
+     * The TreeSet gate of {@link #testRetainedSizes()} must fire for a set that is no smaller than a TreeSet, even when
+     * the set is within its own budget.
+     */
+    @Test
+    public void testRetainedSizeOfTreeSetFails() {
+        Map<String, Function<List<Integer>, Set<Integer>>> implementations = new LinkedHashMap<>();
+        implementations.put("unmodifiableSet(TreeSet)",
+                elements -> Collections.unmodifiableSet(new TreeSet<>(elements)));
+        Map<String, Long> budgets = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            budgets.put("unmodifiableSet(TreeSet)/" + size, Long.MAX_VALUE);
+        }
+
+        List<String> failures = checkRetainedSizes(implementations, budgets);
+        Assert.assertEquals(String.join("\n", failures), SIZES.size(), failures.size());
+        for (String failure : failures) {
+            Assert.assertTrue(failure, failure.contains("no less than a TreeSet"));
+        }
+    }
+
+    /**
+     * Measures the retained size of every implementation at every size of {@link #SIZES} and returns the ones that are
+     * over their budget or, when they have a budget, no smaller than a TreeSet of the same elements.
+     */
+    private static List<String> checkRetainedSizes(Map<String, Function<List<Integer>, Set<Integer>>> implementations,
+                                                   Map<String, Long> budgets) {
+        List<String> failures = new ArrayList<>();
+        System.out.println(String.format("%-45s %8s %8s", "retained size, without the elements", "bytes", "budget"));
+        for (int size : SIZES) {
+            List<Integer> elements = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                elements.add(1000 + i); // outside of the Integer cache, so that every element is an object of its own
+            }
+            // the yardstick of the gate below, so it is measured before any of the implementations
+            long treeSetSize = retainedSize(new TreeSet<>(elements), elements);
+            System.out.println(String.format("%-45s %8d %8s", "TreeSet/" + size, treeSetSize, ""));
+            for (Map.Entry<String, Function<List<Integer>, Set<Integer>>> entry : implementations.entrySet()) {
+                Set<Integer> set = entry.getValue().apply(elements);
+                if (set == null) {
+                    continue;
+                }
+                long retained = retainedSize(set, elements);
+                String key = entry.getKey() + "/" + size;
+                Long budget = budgets.get(key);
+                System.out.println(String.format("%-45s %8d %8s", key, retained, budget == null ? "" : budget));
+                if (budget != null && retained > budget) {
+                    failures.add(key + " retains " + retained + " bytes, over its budget of " + budget);
+                }
+                if (budget != null && retained >= treeSetSize) {
+                    failures.add(key + " retains " + retained + " bytes, no less than a TreeSet (" + treeSetSize + ")");
+                }
+            }
+        }
+        return failures;
+    }
+
+    private static long retainedSize(Set<Integer> set, List<Integer> elements) {
+        return GraphLayout.parseInstance(set)
+                .subtract(GraphLayout.parseInstance(elements.toArray()))
+                .subtract(GraphLayout.parseInstance(DESCENDING))
+                .totalSize();
+    }
+
+    private static void assertWithinBudgets(List<String> failures) {
+        Assume.assumeTrue("sizes are only checked with compressed references and class pointers", referenceLayout);
+        Assert.assertTrue(String.join("\n", failures), failures.isEmpty());
+    }
+}
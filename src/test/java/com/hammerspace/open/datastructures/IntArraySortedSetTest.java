@@ -0,0 +1,195 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+public class IntArraySortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testConstructors() {
+        IntArraySortedSet set = new IntArraySortedSet(5, 3, 9, 3, 1, 5);
+        Assert.assertArrayEquals(new int[]{1, 3, 5, 9}, set.toIntArray());
+        Assert.assertEquals(set, new IntArraySortedSet(Arrays.asList(9, 1, 3, 5)));
+        Assert.assertTrue(new IntArraySortedSet().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNull() {
+        new IntArraySortedSet(Arrays.asList(1, null));
+    }
+
+    @Test
+    public void testAgainstTreeSet() {
+        for (int size = 0; size < 70; size++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size) - size);
+            }
+            IntArraySortedSet set = new IntArraySortedSet(expected);
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(set, expected);
+            Assert.assertEquals(expected.hashCode(), set.hashCode());
+            Assert.assertEquals(expected.toString(), set.toString());
+            Assert.assertArrayEquals(expected.toArray(), set.toArray());
+            for (int probe = -size - 1; probe <= 3 * size + 1; probe++) {
+                Assert.assertEquals(expected.contains(probe), set.contains(probe));
+                Assert.assertEquals(expected.contains(probe), set.contains((Object) probe));
+                Assert.assertEquals(expected.headSet(probe), set.headSet(probe));
+                Assert.assertEquals(expected.tailSet(probe), set.tailSet(probe));
+                Assert.assertEquals(expected.subSet(probe, probe + 3), set.subSet(probe, probe + 3));
+            }
+            if (size > 0) {
+                Assert.assertEquals((int) expected.first(), set.firstInt());
+                Assert.assertEquals((int) expected.last(), set.lastInt());
+                Assert.assertEquals(expected.first(), set.first());
+                Assert.assertEquals(expected.last(), set.last());
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveMethods() {
+        IntArraySortedSet set = new IntArraySortedSet(Integer.MAX_VALUE, 0, Integer.MIN_VALUE);
+        Assert.assertTrue(set.contains(Integer.MIN_VALUE));
+        Assert.assertTrue(set.contains(0));
+        Assert.assertFalse(set.contains(1));
+        Assert.assertFalse(set.contains((Object) 0L)); // a Long is not an Integer
+        Assert.assertEquals(Integer.MIN_VALUE, set.firstInt());
+        Assert.assertEquals(Integer.MAX_VALUE, set.lastInt());
+
+        List<Integer> values = new ArrayList<>();
+        set.forEach((IntConsumer) values::add);
+        Assert.assertEquals(Arrays.asList(Integer.MIN_VALUE, 0, Integer.MAX_VALUE), values);
+
+        PrimitiveIterator.OfInt iterator = set.iterator();
+        Assert.assertEquals(Integer.MIN_VALUE, iterator.nextInt());
+        Assert.assertEquals(0, iterator.nextInt());
+        Assert.assertEquals(Integer.MAX_VALUE, iterator.nextInt());
+        Assert.assertFalse(iterator.hasNext());
+        try {
+            iterator.nextInt();
+            Assert.fail("Iterator::nextInt() should have thrown NoSuchElementException here");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+
+        try {
+            new IntArraySortedSet().firstInt();
+            Assert.fail("firstInt() on an empty set should have thrown NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        IntArraySortedSet set = new IntArraySortedSet(1, 2, 3, 4, 5, 6, 7, 8);
+        Spliterator.OfInt spliterator = set.spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE));
+        Assert.assertNull(spliterator.getComparator());
+        Assert.assertNotNull(spliterator.trySplit());
+        Assert.assertEquals(36, set.stream().mapToInt(Integer::intValue).sum());
+        Assert.assertEquals(11, set.tailSet(5).headSet(7).stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        IntArraySortedSet set = new IntArraySortedSet(1, 2);
+        Assert.assertFalse(set.add(1));
+        Assert.assertFalse(set.addAll(Arrays.asList(1, 2)));
+        try {
+            set.add(3);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.remove(1);
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 8; size++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add((int) RANDOM.nextInt(4 * size));
+            }
+            List<Integer> probes = new ArrayList<>();
+            for (int probe = -1; probe <= 4 * size + 1; probe++) {
+                probes.add(probe);
+            }
+            NavigableSetAssertions.assertSameNavigation(expected, new IntArraySortedSet(expected), probes);
+        }
+        IntArraySortedSet set = new IntArraySortedSet(3, 1, 2);
+        PrimitiveIterator.OfInt descending = set.descendingIterator();
+        Assert.assertEquals(3, descending.nextInt());
+        Assert.assertEquals(2, descending.nextInt());
+        Assert.assertEquals(1, descending.nextInt());
+        Assert.assertFalse(descending.hasNext());
+        Assert.assertSame(set, set.descendingSet().descendingSet());
+    }
+
+    @Test
+    public void testNestedViewBounds() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(2 * i);
+        }
+        IntArraySortedSet set = new IntArraySortedSet(expected);
+        List<Integer> probes = new ArrayList<>();
+        for (int probe = 8; probe <= 12; probe++) {
+            probes.add(probe);
+            probes.add(probe + 30);
+        }
+        for (boolean fromInclusive : new boolean[]{false, true}) {
+            for (boolean toInclusive : new boolean[]{false, true}) {
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.subSet(10, fromInclusive, 40, toInclusive),
+                        set.subSet(10, fromInclusive, 40, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.tailSet(10, fromInclusive).headSet(40, toInclusive),
+                        set.tailSet(10, fromInclusive).headSet(40, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.headSet(40, toInclusive).tailSet(10, fromInclusive),
+                        set.headSet(40, toInclusive).tailSet(10, fromInclusive), probes);
+            }
+        }
+        try {
+            set.subSet(10, true, 40, false).headSet(50);
+            Assert.fail("a bound past the exclusive bound of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,195 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+public class LongArraySortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testConstructors() {
+        LongArraySortedSet set = new LongArraySortedSet(5, 3, 9, 3, 1, 5);
+        Assert.assertArrayEquals(new long[]{1, 3, 5, 9}, set.toLongArray());
+        Assert.assertEquals(set, new LongArraySortedSet(Arrays.asList(9L, 1L, 3L, 5L)));
+        Assert.assertTrue(new LongArraySortedSet().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNull() {
+        new LongArraySortedSet(Arrays.asList(1L, null));
+    }
+
+    @Test
+    public void testAgainstTreeSet() {
+        for (int size = 0; size < 70; size++) {
+            TreeSet<Long> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add((long) RANDOM.nextInt(4 * size) - size);
+            }
+            LongArraySortedSet set = new LongArraySortedSet(expected);
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(set, expected);
+            Assert.assertEquals(expected.hashCode(), set.hashCode());
+            Assert.assertEquals(expected.toString(), set.toString());
+            Assert.assertArrayEquals(expected.toArray(), set.toArray());
+            for (long probe = -size - 1; probe <= 3 * size + 1; probe++) {
+                Assert.assertEquals(expected.contains(probe), set.contains(probe));
+                Assert.assertEquals(expected.contains(probe), set.contains((Object) probe));
+                Assert.assertEquals(expected.headSet(probe), set.headSet(probe));
+                Assert.assertEquals(expected.tailSet(probe), set.tailSet(probe));
+                Assert.assertEquals(expected.subSet(probe, probe + 3), set.subSet(probe, probe + 3));
+            }
+            if (size > 0) {
+                Assert.assertEquals((long) expected.first(), set.firstLong());
+                Assert.assertEquals((long) expected.last(), set.lastLong());
+                Assert.assertEquals(expected.first(), set.first());
+                Assert.assertEquals(expected.last(), set.last());
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveMethods() {
+        LongArraySortedSet set = new LongArraySortedSet(Long.MAX_VALUE, 0, Long.MIN_VALUE);
+        Assert.assertTrue(set.contains(Long.MIN_VALUE));
+        Assert.assertTrue(set.contains(0));
+        Assert.assertFalse(set.contains(1));
+        Assert.assertFalse(set.contains((Object) 0)); // an Integer is not a Long
+        Assert.assertEquals(Long.MIN_VALUE, set.firstLong());
+        Assert.assertEquals(Long.MAX_VALUE, set.lastLong());
+
+        List<Long> values = new ArrayList<>();
+        set.forEach((LongConsumer) values::add);
+        Assert.assertEquals(Arrays.asList(Long.MIN_VALUE, 0L, Long.MAX_VALUE), values);
+
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        Assert.assertEquals(Long.MIN_VALUE, iterator.nextLong());
+        Assert.assertEquals(0, iterator.nextLong());
+        Assert.assertEquals(Long.MAX_VALUE, iterator.nextLong());
+        Assert.assertFalse(iterator.hasNext());
+        try {
+            iterator.nextLong();
+            Assert.fail("Iterator::nextLong() should have thrown NoSuchElementException here");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+
+        try {
+            new LongArraySortedSet().firstLong();
+            Assert.fail("firstLong() on an empty set should have thrown NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        LongArraySortedSet set = new LongArraySortedSet(1, 2, 3, 4, 5, 6, 7, 8);
+        Spliterator.OfLong spliterator = set.spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE));
+        Assert.assertNull(spliterator.getComparator());
+        Assert.assertNotNull(spliterator.trySplit());
+        Assert.assertEquals(36, set.stream().mapToLong(Long::longValue).sum());
+        Assert.assertEquals(11, set.tailSet(5L).headSet(7L).stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        LongArraySortedSet set = new LongArraySortedSet(1, 2);
+        Assert.assertFalse(set.add(1L));
+        Assert.assertFalse(set.addAll(Arrays.asList(1L, 2L)));
+        try {
+            set.add(3L);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.remove(1L);
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 8; size++) {
+            TreeSet<Long> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add((long) RANDOM.nextInt(4 * size));
+            }
+            List<Long> probes = new ArrayList<>();
+            for (long probe = -1; probe <= 4 * size + 1; probe++) {
+                probes.add(probe);
+            }
+            NavigableSetAssertions.assertSameNavigation(expected, new LongArraySortedSet(expected), probes);
+        }
+        LongArraySortedSet set = new LongArraySortedSet(3, 1, 2);
+        PrimitiveIterator.OfLong descending = set.descendingIterator();
+        Assert.assertEquals(3, descending.nextLong());
+        Assert.assertEquals(2, descending.nextLong());
+        Assert.assertEquals(1, descending.nextLong());
+        Assert.assertFalse(descending.hasNext());
+        Assert.assertSame(set, set.descendingSet().descendingSet());
+    }
+
+    @Test
+    public void testNestedViewBounds() {
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(2L * i);
+        }
+        LongArraySortedSet set = new LongArraySortedSet(expected);
+        List<Long> probes = new ArrayList<>();
+        for (long probe = 8; probe <= 12; probe++) {
+            probes.add(probe);
+            probes.add(probe + 30);
+        }
+        for (boolean fromInclusive : new boolean[]{false, true}) {
+            for (boolean toInclusive : new boolean[]{false, true}) {
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.subSet(10L, fromInclusive, 40L, toInclusive),
+                        set.subSet(10L, fromInclusive, 40L, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.tailSet(10L, fromInclusive).headSet(40L, toInclusive),
+                        set.tailSet(10L, fromInclusive).headSet(40L, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.headSet(40L, toInclusive).tailSet(10L, fromInclusive),
+                        set.headSet(40L, toInclusive).tailSet(10L, fromInclusive), probes);
+            }
+        }
+        try {
+            set.subSet(10L, true, 40L, false).headSet(50L);
+            Assert.fail("a bound past the exclusive bound of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,287 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class LongRangeSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testRunsMerge() {
+        LongRangeSortedSet set = new LongRangeSortedSet();
+        Assert.assertEquals(10, set.addRange(10, 19));
+        Assert.assertEquals(10, set.addRange(30, 39));
+        Assert.assertEquals(2, set.runCount());
+        Assert.assertEquals(10, set.addRange(20, 29)); // fills the gap exactly
+        Assert.assertEquals(1, set.runCount());
+        Assert.assertEquals(0, set.addRange(15, 35));
+        Assert.assertTrue(set.add(40)); // touches the end
+        Assert.assertTrue(set.add(9)); // touches the start
+        Assert.assertFalse(set.add(25));
+        Assert.assertEquals(1, set.runCount());
+        Assert.assertEquals(32, set.longSize());
+        Assert.assertTrue(set.remove(25)); // splits the run
+        Assert.assertEquals(2, set.runCount());
+        Assert.assertEquals(7, set.removeRange(20, 27));
+        List<long[]> runs = new ArrayList<>();
+        set.forEachRun((start, end) -> runs.add(new long[]{start, end}));
+        Assert.assertEquals(2, runs.size());
+        Assert.assertArrayEquals(new long[]{9, 19}, runs.get(0));
+        Assert.assertArrayEquals(new long[]{28, 40}, runs.get(1));
+        Assert.assertEquals(24, set.removeRange(0, 100));
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(0, set.runCount());
+    }
+
+    @Test
+    public void testExtremeValues() {
+        LongRangeSortedSet set = new LongRangeSortedSet();
+        set.addRange(Long.MAX_VALUE - 2, Long.MAX_VALUE);
+        set.addRange(Long.MIN_VALUE, Long.MIN_VALUE + 2);
+        Assert.assertEquals(6, set.longSize());
+        Assert.assertEquals(Long.MIN_VALUE, set.firstLong());
+        Assert.assertEquals(Long.MAX_VALUE, set.lastLong());
+        Assert.assertNull(set.higher(Long.MAX_VALUE));
+        Assert.assertNull(set.lower(Long.MIN_VALUE));
+        Assert.assertTrue(set.headSet(Long.MIN_VALUE, false).isEmpty());
+        Assert.assertTrue(set.tailSet(Long.MAX_VALUE, false).isEmpty());
+        Assert.assertEquals(Arrays.asList(Long.MAX_VALUE - 2, Long.MAX_VALUE - 1, Long.MAX_VALUE),
+                new ArrayList<>(set.tailSet(0L)));
+        Assert.assertEquals(Arrays.asList(Long.MIN_VALUE + 2, Long.MIN_VALUE + 1, Long.MIN_VALUE),
+                new ArrayList<>(set.headSet(0L, false).descendingSet()));
+        List<Long> visited = new ArrayList<>();
+        set.forEach((LongConsumer) visited::add);
+        Assert.assertEquals(new ArrayList<>(set), visited);
+        Assert.assertEquals(3, set.removeRange(Long.MIN_VALUE, 0));
+        Assert.assertEquals(1, set.runCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new LongRangeSortedSet().addRange(2, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNull() {
+        new LongRangeSortedSet(Arrays.asList(1L, null));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        LongRangeSortedSet set = new LongRangeSortedSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            long start = RANDOM.nextInt(2_000);
+            long end = start + RANDOM.nextInt(i % 7 == 0 ? 50 : 3);
+            // phases that mostly add and mostly remove, so runs grow, merge, split and vanish
+            boolean add = RANDOM.nextInt(10) < ((i / 2_000) % 2 == 0 ? 7 : 3);
+            long changed = 0;
+            for (long value = start; value <= end; value++) {
+                if (add ? expected.add(value) : expected.remove(value)) {
+                    changed++;
+                }
+            }
+            Assert.assertEquals(changed, add ? set.addRange(start, end) : set.removeRange(start, end));
+            Assert.assertEquals(expected.size(), set.size());
+            Assert.assertEquals(expected.ceiling(start), set.ceiling(start));
+            Assert.assertEquals(expected.floor(end), set.floor(end));
+            if (i % 500 == 0) {
+                assertSameContents(expected, set);
+            }
+        }
+        assertSameContents(expected, set);
+        Assert.assertEquals(set, new LongRangeSortedSet(expected));
+        Assert.assertEquals(new LongRangeSortedSet(expected), set);
+        while (!expected.isEmpty()) {
+            Assert.assertEquals(expected.pollFirst(), set.pollFirst());
+            Assert.assertEquals(expected.pollLast(), set.pollLast());
+        }
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 40; size += 1 + size / 2) {
+            TreeSet<Long> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                long start = RANDOM.nextInt(4 * size);
+                for (long value = start; value < start + RANDOM.nextInt(4) && expected.size() < size; value++) {
+                    expected.add(value);
+                }
+            }
+            List<Long> probes = new ArrayList<>();
+            for (long probe = -1; probe <= 4 * size + 4; probe += 1 + size / 8) {
+                probes.add(probe);
+            }
+            NavigableSetAssertions.assertSameNavigation(expected, new LongRangeSortedSet(expected), probes);
+        }
+    }
+
+    @Test
+    public void testRangeViews() {
+        LongRangeSortedSet set = new LongRangeSortedSet();
+        set.addRange(0, 99);
+        set.addRange(200, 299);
+        NavigableSet<Long> view = set.subSet(50L, true, 250L, false);
+        Assert.assertEquals(100, view.size());
+        Assert.assertEquals(Long.valueOf(50), view.first());
+        Assert.assertEquals(Long.valueOf(249), view.last());
+        Assert.assertTrue(view.add(150L));
+        Assert.assertTrue(set.contains(150L));
+        Assert.assertEquals(3, set.runCount());
+        try {
+            view.add(250L);
+            Assert.fail("add() of an element outside of a view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            view.headSet(300L);
+            Assert.fail("headSet() beyond the range of a view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(Long.valueOf(50), view.pollFirst());
+        view.clear();
+        Assert.assertTrue(view.isEmpty());
+        Assert.assertEquals(100, set.size());
+        Assert.assertEquals(Long.valueOf(299), set.last());
+        Assert.assertEquals(Long.valueOf(250), set.higher(49L));
+        Assert.assertEquals(Arrays.asList(49L, 250L), new ArrayList<>(set.subSet(49L, 251L)));
+    }
+
+    @Test
+    public void testNestedViewBounds() {
+        LongRangeSortedSet set = new LongRangeSortedSet();
+        set.addRange(140_000, 210_010);
+        TreeSet<Long> expected = new TreeSet<>(set);
+        List<Long> probes = new ArrayList<>();
+        for (long probe = 139_998; probe <= 140_002; probe++) {
+            probes.add(probe);
+            probes.add(probe + 70_003);
+        }
+        for (boolean fromInclusive : new boolean[]{false, true}) {
+            for (boolean toInclusive : new boolean[]{false, true}) {
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.subSet(140_000L, fromInclusive, 210_003L, toInclusive),
+                        set.subSet(140_000L, fromInclusive, 210_003L, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.tailSet(140_000L, fromInclusive).headSet(210_003L, toInclusive),
+                        set.tailSet(140_000L, fromInclusive).headSet(210_003L, toInclusive), probes);
+            }
+        }
+        try {
+            set.subSet(140_000L, false, 210_003L, true).tailSet(210_004L, false);
+            Assert.fail("a bound past the inclusive bound of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        LongRangeSortedSet set = new LongRangeSortedSet();
+        set.addRange(0, 99);
+        TreeSet<Long> expected = new TreeSet<>(set);
+        for (Iterator<Long> it = set.iterator(); it.hasNext(); ) {
+            long value = it.next();
+            if (value % 3 == 0) {
+                it.remove();
+                expected.remove(value);
+            }
+        }
+        assertSameContents(expected, set);
+        Assert.assertEquals(33, set.runCount());
+        for (Iterator<Long> it = set.descendingIterator(); it.hasNext(); ) {
+            long value = it.next();
+            if (value % 3 == 1) {
+                it.remove();
+                expected.remove(value);
+            }
+        }
+        assertSameContents(expected, set);
+        Assert.assertTrue(set.removeIf(value -> value > 50));
+        Assert.assertEquals(expected.headSet(50L, true), set);
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        iterator.nextLong();
+        set.add(1_000);
+        try {
+            iterator.nextLong();
+            Assert.fail("an iterator must throw ConcurrentModificationException after the set changed");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        LongRangeSortedSet set = new LongRangeSortedSet();
+        List<Long> elements = new ArrayList<>();
+        for (long start = 0; start < 100_000; start += 1_000) {
+            long end = start + RANDOM.nextInt(900);
+            set.addRange(start, end);
+            for (long value = start; value <= end; value++) {
+                elements.add(value);
+            }
+        }
+        set.addRange(1_000_000, 1_099_999); // one long run
+        for (long value = 1_000_000; value < 1_100_000; value++) {
+            elements.add(value);
+        }
+        Spliterator.OfLong spliterator = set.spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.SIZED | Spliterator.NONNULL));
+        Assert.assertNull(spliterator.getComparator());
+        Assert.assertEquals(elements.size(), spliterator.getExactSizeIfKnown());
+        Assert.assertEquals(elements, set.parallelStream().collect(Collectors.toList()));
+        Assert.assertEquals(elements, StreamSupport.stream(set.spliterator(), false).collect(Collectors.toList()));
+
+        // split all the way down to single values and check that the pieces cover the set in order
+        NavigableSet<Long> view = set.subSet(50_000L, true, 1_050_000L, false);
+        List<Spliterator<Long>> pieces =
+                NavigableSetAssertions.assertSplitsCover(new ArrayList<>(view), view.spliterator(), 12, RANDOM);
+        Assert.assertTrue(pieces.size() > 1_000);
+    }
+
+    private static void assertSameContents(TreeSet<Long> expected, LongRangeSortedSet actual) {
+        NavigableSetAssertions.assertSameContents(expected, actual);
+        int[] runs = new int[1];
+        long[] previousEnd = {Long.MIN_VALUE};
+        actual.forEachRun((start, end) -> {
+            Assert.assertTrue(start <= end);
+            Assert.assertTrue("runs must be disjoint and not adjacent", runs[0] == 0 || start > previousEnd[0] + 1);
+            previousEnd[0] = end;
+            runs[0]++;
+        });
+        Assert.assertEquals(runs[0], actual.runCount());
+    }
+}
@@ -0,0 +1,147 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+import static java.util.Spliterator.DISTINCT;
+import static java.util.Spliterator.IMMUTABLE;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterator.SIZED;
+import static java.util.Spliterator.SORTED;
+import static java.util.Spliterator.SUBSIZED;
+
+public class LongSingletonSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testEqualsAndHashCode() {
+        long value = RANDOM.nextLong();
+        LongSingletonSortedSet set = new LongSingletonSortedSet(value);
+        Assert.assertEquals(new LongSingletonSortedSet(value), set);
+        Assert.assertEquals(Collections.singleton(value), set);
+        Assert.assertEquals(set, Collections.singleton(value));
+        Assert.assertEquals(Collections.singleton(value).hashCode(), set.hashCode());
+        Assert.assertNotEquals(new LongSingletonSortedSet(value + 1), set);
+        Assert.assertNotEquals(Collections.singleton((int) value), set);
+        Assert.assertEquals("[" + value + "]", set.toString());
+    }
+
+    @Test
+    public void testPrimitiveMethods() {
+        LongSingletonSortedSet set = new LongSingletonSortedSet(42);
+        Assert.assertEquals(42, set.getLong());
+        Assert.assertEquals(42, set.firstLong());
+        Assert.assertEquals(42, set.lastLong());
+        Assert.assertTrue(set.contains(42));
+        Assert.assertFalse(set.contains(43));
+        long[] seen = new long[1];
+        set.forEach((LongConsumer) value -> seen[0] += value);
+        Assert.assertEquals(42, seen[0]);
+
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals(42, iterator.nextLong());
+        Assert.assertFalse(iterator.hasNext());
+        try {
+            iterator.nextLong();
+            Assert.fail("Iterator::nextLong() should have thrown NoSuchElementException here");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSortedSetMethods() {
+        LongSingletonSortedSet set = new LongSingletonSortedSet(1);
+        TreeSet<Long> expected = new TreeSet<>(set);
+        Assert.assertNull(set.comparator());
+        Assert.assertEquals(Long.valueOf(1), set.first());
+        Assert.assertEquals(Long.valueOf(1), set.last());
+        Assert.assertTrue(set.contains((Object) 1L));
+        Assert.assertFalse(set.contains((Object) 1));
+        Assert.assertFalse(set.contains(null));
+        for (long lo = -1; lo <= 3; lo++) {
+            Assert.assertEquals(expected.headSet(lo), set.headSet(lo));
+            Assert.assertEquals(expected.tailSet(lo), set.tailSet(lo));
+            for (long hi = lo; hi <= 3; hi++) {
+                Assert.assertEquals(expected.subSet(lo, hi), set.subSet(lo, hi));
+            }
+        }
+        Assert.assertArrayEquals(new Object[]{1L}, set.toArray());
+        Assert.assertArrayEquals(new Long[]{1L}, set.toArray(new Long[0]));
+    }
+
+    @Test
+    public void testSpliterator() {
+        LongSingletonSortedSet set = new LongSingletonSortedSet(7);
+        Spliterator.OfLong spliterator = set.spliterator();
+        Assert.assertEquals(ORDERED | DISTINCT | SORTED | SIZED | NONNULL | IMMUTABLE | SUBSIZED,
+                spliterator.characteristics());
+        Assert.assertNull(spliterator.getComparator());
+        Assert.assertNull(spliterator.trySplit());
+        Assert.assertEquals(1, spliterator.getExactSizeIfKnown());
+        Assert.assertTrue(spliterator.tryAdvance((LongConsumer) value -> Assert.assertEquals(7, value)));
+        Assert.assertFalse(spliterator.tryAdvance((LongConsumer) value -> Assert.fail("should not be invoked")));
+        Assert.assertEquals(0, spliterator.getExactSizeIfKnown());
+        Assert.assertEquals(7, set.stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        LongSingletonSortedSet set = new LongSingletonSortedSet(1);
+        Assert.assertFalse(set.add(1L));
+        Assert.assertFalse(set.addAll(Collections.singleton(1L)));
+        try {
+            set.add(2L);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.remove(1L);
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        LongSingletonSortedSet set = new LongSingletonSortedSet(1);
+        NavigableSetAssertions.assertSameNavigation(new TreeSet<>(set), set, Arrays.asList(0L, 1L, 2L));
+        Assert.assertSame(set, set.subSet(1L, true, 1L, true));
+        Assert.assertTrue(set.subSet(1L, false, 1L, true).isEmpty());
+        Assert.assertSame(set, set.descendingSet().descendingSet());
+        try {
+            set.pollFirst();
+            Assert.fail("pollFirst() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
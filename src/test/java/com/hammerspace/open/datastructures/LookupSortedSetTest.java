@@ -0,0 +1,146 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+public class LookupSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testCompactSetsAreLookupSets() {
+        List<NavigableSet<String>> sets = Arrays.asList(
+                new SingletonSortedSet<>("a"),
+                new ArraySortedSet<>(Arrays.asList("a", "b")),
+                new ComparatorSingletonSortedSet<>(Comparator.reverseOrder(), "a"),
+                new ComparatorArraySortedSet<>(Comparator.reverseOrder(), Arrays.asList("a", "b")),
+                new AdaptiveSortedSet<>(Arrays.asList("a", "b")),
+                new ConcurrentCompactSortedSet<>(Arrays.asList("a", "b")));
+        for (NavigableSet<String> set : sets) {
+            LookupSortedSet<String> lookup = SortedSets.asLookupSet(set);
+            Assert.assertSame(set, lookup);
+            Assert.assertEquals("a", lookup.getElement(new String("a")));
+            Assert.assertNull(lookup.getElement("c"));
+        }
+    }
+
+    @Test
+    public void testRangeViewsAreLookupSets() {
+        List<NavigableSet<String>> sets = Arrays.asList(
+                new AdaptiveSortedSet<>(Arrays.asList("a", "b", "c")),
+                new ConcurrentCompactSortedSet<>(Arrays.asList("a", "b", "c")),
+                new BTreeSortedSet<>(Arrays.asList("a", "b", "c")),
+                SortedSets.asLookupSet(new TreeSet<>(Arrays.asList("a", "b", "c"))));
+        for (NavigableSet<String> set : sets) {
+            for (NavigableSet<String> view : Arrays.asList(set.subSet("a", false, "c", true),
+                    set.headSet("c", true).tailSet("b", true), set.tailSet("b", true),
+                    set.tailSet("a", false).headSet("c", true))) {
+                LookupSortedSet<String> lookup = SortedSets.asLookupSet(view);
+                Assert.assertSame(view, lookup);
+                Assert.assertEquals("b", lookup.getElement(new String("b")));
+                Assert.assertNull(lookup.getElement("a"));
+                Assert.assertNull(lookup.getElement("d"));
+            }
+        }
+    }
+
+    @Test
+    public void testGetElementReturnsTheHeldInstance() {
+        for (NavigableSet<String> set : Arrays.<NavigableSet<String>>asList(new TreeSet<>(),
+                new ConcurrentSkipListSet<>(), new TreeSet<>(String.CASE_INSENSITIVE_ORDER))) {
+            String held = new String("b");
+            set.addAll(Arrays.asList("a", held, "c"));
+            LookupSortedSet<String> lookup = SortedSets.asLookupSet(set);
+            Assert.assertSame(held, lookup.getElement(new String("b")));
+            Assert.assertSame(held, lookup.descendingSet().floor("b"));
+            Assert.assertSame(held, ((LookupSortedSet<String>) lookup.descendingSet()).getElement("b"));
+            Assert.assertSame(held, ((LookupSortedSet<String>) lookup.headSet("c", false)).getElement("b"));
+            Assert.assertNull(((LookupSortedSet<String>) lookup.tailSet("c", true)).getElement("b"));
+            Assert.assertNull(lookup.getElement("bb"));
+            Assert.assertNull(lookup.getElement("d"));
+            Assert.assertNull(lookup.getElement(null));
+        }
+        LookupSortedSet<String> caseInsensitive =
+                SortedSets.asLookupSet(new TreeSet<>(String.CASE_INSENSITIVE_ORDER));
+        caseInsensitive.add("Key");
+        Assert.assertEquals("Key", caseInsensitive.getElement("KEY"));
+    }
+
+    @Test
+    public void testAdapterWritesThrough() {
+        TreeSet<Integer> tree = new TreeSet<>(Arrays.asList(1, 2, 3));
+        LookupSortedSet<Integer> lookup = SortedSets.asLookupSet(tree);
+        Assert.assertTrue(lookup.add(4));
+        Assert.assertTrue(lookup.remove(1));
+        Assert.assertEquals(Arrays.asList(2, 3, 4), new ArrayList<>(tree));
+        tree.add(0);
+        Assert.assertEquals(Integer.valueOf(0), lookup.getElement(0));
+        Assert.assertEquals(tree, lookup);
+        Assert.assertEquals(lookup, tree);
+        Assert.assertEquals(tree.hashCode(), lookup.hashCode());
+        Assert.assertEquals(tree.toString(), lookup.toString());
+        Assert.assertTrue(lookup.removeIf(value -> value > 2));
+        Assert.assertEquals(Integer.valueOf(2), lookup.pollLast());
+        Assert.assertEquals(Collections.singleton(0), tree);
+    }
+
+    @Test
+    public void testGetElements() {
+        for (int size = 0; size < 50; size++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            TreeSet<Integer> probes = new TreeSet<>(Collections.reverseOrder());
+            for (int i = RANDOM.nextInt(size + 1); i > 0; i--) {
+                probes.add(RANDOM.nextInt(4 * size + 1));
+            }
+            List<Integer> hits = new ArrayList<>(probes);
+            hits.retainAll(expected);
+            List<Integer> found = new ArrayList<>();
+            LookupSortedSet<Integer> lookup = SortedSets.asLookupSet(new ConcurrentSkipListSet<>(expected));
+            Assert.assertEquals(hits.size(), lookup.getElements(probes, found::add));
+            Assert.assertEquals(hits, found);
+        }
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 8; size++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            List<Integer> probes = new ArrayList<>();
+            for (int probe = -1; probe <= 4 * size + 1; probe++) {
+                probes.add(probe);
+            }
+            NavigableSetAssertions.assertSameNavigation(expected,
+                    SortedSets.asLookupSet(new TreeSet<>(expected)), probes);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class MappedLongSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreateAndOpen() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("ids");
+        MappedLongSortedSet set = MappedLongSortedSet.create(path, 5, 3, 9, 3, 1, 5);
+        Assert.assertArrayEquals(new long[]{1, 3, 5, 9}, set.toLongArray());
+        Assert.assertEquals(path, set.path());
+        Assert.assertEquals(fileSize(4), Files.size(path));
+        MappedLongSortedSet reopened = MappedLongSortedSet.open(path);
+        Assert.assertEquals(set, reopened);
+        Assert.assertEquals(new LongArraySortedSet(1, 3, 5, 9), reopened);
+        Assert.assertEquals(4, reopened.longSize());
+        Assert.assertTrue(MappedLongSortedSet.create(folder.newFile().toPath()).isEmpty());
+    }
+
+    private static long fileSize(int elements) {
+        return MappedLongSortedSet.HEADER_SIZE + elements * Long.BYTES;
+    }
+
+    @Test
+    public void testOpenMalformedFiles() throws IOException {
+        assertOpenFails(new byte[0]);
+        assertOpenFails(new byte[MappedLongSortedSet.HEADER_SIZE]); // no magic number
+        Path path = folder.newFile().toPath();
+        MappedLongSortedSet.create(path, 1, 2, 3);
+        byte[] bytes = Files.readAllBytes(path);
+        assertOpenFails(Arrays.copyOf(bytes, bytes.length - 1)); // shorter than its count
+        ByteBuffer.wrap(bytes).putLong(Long.BYTES, -1);
+        assertOpenFails(bytes);
+    }
+
+    private void assertOpenFails(byte[] bytes) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, bytes);
+        try {
+            MappedLongSortedSet.open(path);
+            Assert.fail("opening " + Arrays.toString(bytes) + " must throw IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAgainstTreeSet() throws IOException {
+        for (int size = 0; size < 70; size++) {
+            TreeSet<Long> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add((long) RANDOM.nextInt(4 * size) - size);
+            }
+            Path path = folder.newFile().toPath();
+            MappedLongSortedSet.create(path, toLongs(expected));
+            // segments of 8 elements, so lookups and iterations cross segments
+            MappedLongSortedSet set = MappedLongSortedSet.open(path, 3);
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(set, expected);
+            Assert.assertEquals(expected.hashCode(), set.hashCode());
+            Assert.assertEquals(expected.toString(), set.toString());
+            Assert.assertArrayEquals(expected.toArray(), set.toArray());
+            for (long probe = -size - 1; probe <= 3 * size + 1; probe++) {
+                Assert.assertEquals(expected.contains(probe), set.contains(probe));
+                Assert.assertEquals(expected.contains(probe), set.contains((Object) probe));
+                Assert.assertEquals(expected.headSet(probe), set.headSet(probe));
+                Assert.assertEquals(expected.tailSet(probe), set.tailSet(probe));
+                Assert.assertEquals(expected.subSet(probe, probe + 3), set.subSet(probe, probe + 3));
+            }
+            if (size > 0) {
+                Assert.assertEquals((long) expected.first(), set.firstLong());
+                Assert.assertEquals((long) expected.last(), set.lastLong());
+            }
+        }
+    }
+
+    @Test
+    public void testNavigableSetMethods() throws IOException {
+        for (int size = 0; size < 20; size += 3) {
+            TreeSet<Long> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add((long) RANDOM.nextInt(4 * size));
+            }
+            List<Long> probes = new ArrayList<>();
+            for (long probe = -1; probe <= 4 * size + 1; probe++) {
+                probes.add(probe);
+            }
+            Path path = folder.newFile().toPath();
+            MappedLongSortedSet.create(path, toLongs(expected));
+            NavigableSetAssertions.assertSameNavigation(expected, MappedLongSortedSet.open(path, 2), probes);
+        }
+    }
+
+    @Test
+    public void testNestedViewBounds() throws IOException {
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(2L * i);
+        }
+        Path path = folder.newFile().toPath();
+        MappedLongSortedSet.create(path, toLongs(expected));
+        MappedLongSortedSet set = MappedLongSortedSet.open(path, 2);
+        List<Long> probes = new ArrayList<>();
+        for (long probe = 8; probe <= 12; probe++) {
+            probes.add(probe);
+            probes.add(probe + 30);
+        }
+        for (boolean fromInclusive : new boolean[]{false, true}) {
+            for (boolean toInclusive : new boolean[]{false, true}) {
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.subSet(10L, fromInclusive, 40L, toInclusive),
+                        set.subSet(10L, fromInclusive, 40L, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.tailSet(10L, fromInclusive).headSet(40L, toInclusive),
+                        set.tailSet(10L, fromInclusive).headSet(40L, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.headSet(40L, toInclusive).tailSet(10L, fromInclusive),
+                        set.headSet(40L, toInclusive).tailSet(10L, fromInclusive), probes);
+            }
+        }
+        try {
+            set.subSet(10L, true, 40L, false).headSet(50L);
+            Assert.fail("a bound past the exclusive bound of the view must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPrimitiveMethods() throws IOException {
+        MappedLongSortedSet set = MappedLongSortedSet.create(folder.newFile().toPath(), Long.MAX_VALUE, 0,
+                Long.MIN_VALUE);
+        Assert.assertTrue(set.contains(Long.MIN_VALUE));
+        Assert.assertFalse(set.contains(1));
+        Assert.assertFalse(set.contains((Object) 0)); // an Integer is not a Long
+        Assert.assertEquals(Long.MIN_VALUE, set.firstLong());
+        Assert.assertEquals(Long.MAX_VALUE, set.lastLong());
+        List<Long> values = new ArrayList<>();
+        set.forEach((LongConsumer) values::add);
+        Assert.assertEquals(Arrays.asList(Long.MIN_VALUE, 0L, Long.MAX_VALUE), values);
+        PrimitiveIterator.OfLong descending = set.descendingIterator();
+        Assert.assertEquals(Long.MAX_VALUE, descending.nextLong());
+        Assert.assertEquals(0, descending.nextLong());
+        Assert.assertEquals(Long.MIN_VALUE, descending.nextLong());
+        Assert.assertFalse(descending.hasNext());
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("merged");
+        MappedLongSortedSet set = MappedLongSortedSet.open(MappedLongSortedSet.create(path).path(), 4);
+        TreeSet<Long> expected = new TreeSet<>();
+        List<MappedLongSortedSet> versions = new ArrayList<>();
+        List<TreeSet<Long>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            long[] batch = new long[RANDOM.nextInt(40)];
+            for (int j = 0; j < batch.length; j++) {
+                // every third batch lands above the last element and is appended in place
+                batch[j] = i % 3 == 0 ? 10_000 * (i + 1) + RANDOM.nextInt(1_000) : RANDOM.nextInt(10_000 * (i + 1));
+            }
+            set = set.merge(batch);
+            for (long value : batch) {
+                expected.add(value);
+            }
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(fileSize(expected.size()), Files.size(path));
+            versions.add(set);
+            expectedVersions.add(new TreeSet<>(expected));
+        }
+        // earlier sets keep their elements, whether the file was appended to or replaced since
+        for (int i = 0; i < versions.size(); i++) {
+            Assert.assertEquals(expectedVersions.get(i), versions.get(i));
+        }
+        Assert.assertEquals(expected, MappedLongSortedSet.open(path));
+        Assert.assertSame(set, set.merge());
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            Assert.assertEquals(Arrays.asList(path), files.collect(Collectors.toList())); // no leftover temp files
+        }
+        try {
+            ((MappedLongSortedSet) set.headSet(set.last())).merge(1);
+            Assert.fail("merge() into a range view must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMergeIntoAStaleSet() throws IOException {
+        Path path = folder.newFile().toPath();
+        // appended in place
+        MappedLongSortedSet v1 = MappedLongSortedSet.create(path, 1, 2, 3);
+        MappedLongSortedSet v2 = v1.merge(10, 11, 12);
+        assertStaleMergeFails(v1, 20);
+        assertStaleMergeFails(v1, 0);
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3), v1);
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3, 10, 11, 12), v2);
+        Assert.assertTrue(v2.contains(10L));
+        Assert.assertEquals(v2, MappedLongSortedSet.open(path));
+
+        // merged into a new file
+        MappedLongSortedSet w1 = v2.merge(5);
+        MappedLongSortedSet w2 = w1.merge(4);
+        assertStaleMergeFails(w1, 0);
+        assertStaleMergeFails(w1, 20);
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3, 4, 5, 10, 11, 12), MappedLongSortedSet.open(path));
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3, 4, 5, 10, 11, 12, 20), w2.merge(20));
+
+        // replaced by create()
+        MappedLongSortedSet x1 = MappedLongSortedSet.open(path);
+        MappedLongSortedSet.create(path, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+        assertStaleMergeFails(x1, 30);
+        Assert.assertEquals(new LongArraySortedSet(7, 8, 9, 10, 11, 12, 13, 14, 15), MappedLongSortedSet.open(path));
+    }
+
+    private static void assertStaleMergeFails(MappedLongSortedSet set, long value) throws IOException {
+        try {
+            set.merge(value);
+            Assert.fail("merge() into a stale set must throw ConcurrentModificationException");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInterruptedAppendIsIgnored() throws IOException {
+        Path path = folder.newFile().toPath();
+        MappedLongSortedSet.create(path, 1, 2, 3);
+        // elements written past the count, as by an append that did not get to update the count
+        Files.write(path, ByteBuffer.allocate(Long.BYTES).putLong(4).array(), StandardOpenOption.APPEND);
+        MappedLongSortedSet set = MappedLongSortedSet.open(path);
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3), set);
+        set = set.merge(5);
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3, 5), set);
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3, 5), MappedLongSortedSet.open(path));
+    }
+
+    @Test
+    public void testSpliterator() throws IOException {
+        long[] values = new long[1_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        MappedLongSortedSet set = MappedLongSortedSet.open(
+                MappedLongSortedSet.create(folder.newFile().toPath(), values).path(), 5);
+        Spliterator.OfLong spliterator = set.spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE));
+        Assert.assertNull(spliterator.getComparator());
+        Assert.assertEquals(1_000, spliterator.getExactSizeIfKnown());
+        Assert.assertNotNull(spliterator.trySplit());
+        Assert.assertEquals(499_500, set.parallelStream().mapToLong(Long::longValue).sum());
+        NavigableSet<Long> view = set.subSet(100L, true, 199L, true);
+        Assert.assertEquals(100, view.size());
+        Assert.assertEquals(14_950, view.stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void testUnsupportedMutations() throws IOException {
+        MappedLongSortedSet set = MappedLongSortedSet.create(folder.newFile().toPath(), 1, 2);
+        Assert.assertFalse(set.add(1L));
+        Assert.assertFalse(set.addAll(Arrays.asList(1L, 2L)));
+        try {
+            set.add(3L);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.remove(1L);
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static long[] toLongs(TreeSet<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Spliterator;
+
+/**
+ * Checks the {@link NavigableSet} methods and the spliterators of a set against a reference implementation, usually a
+ * {@link java.util.TreeSet} with the same elements.
+ */
+final class NavigableSetAssertions {
+
+    private NavigableSetAssertions() {
+    }
+
+    /**
+     * Compares the lookups, iteration orders and views of {@code actual} against those of {@code expected}, using every
+     * probe as the argument of the lookups and every pair of probes as the bounds of the views.
+     */
+    static <T> void assertSameNavigation(NavigableSet<T> expected, NavigableSet<T> actual, List<T> probes) {
+        assertSameNavigation(expected, actual, probes, 2);
+    }
+
+    private static <T> void assertSameNavigation(NavigableSet<T> expected, NavigableSet<T> actual, List<T> probes,
+                                                 int depth) {
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        Assert.assertEquals(toList(expected.descendingIterator()), toList(actual.descendingIterator()));
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.first(), actual.first());
+            Assert.assertEquals(expected.last(), actual.last());
+        }
+        for (T probe : probes) {
+            Assert.assertEquals("lower(" + probe + ")", expected.lower(probe), actual.lower(probe));
+            Assert.assertEquals("floor(" + probe + ")", expected.floor(probe), actual.floor(probe));
+            Assert.assertEquals("ceiling(" + probe + ")", expected.ceiling(probe), actual.ceiling(probe));
+            Assert.assertEquals("higher(" + probe + ")", expected.higher(probe), actual.higher(probe));
+        }
+        if (depth == 0) {
+            return;
+        }
+        assertSameNavigation(expected.descendingSet(), actual.descendingSet(), probes, depth - 1);
+        for (T from : probes) {
+            for (boolean inclusive : new boolean[]{false, true}) {
+                NavigableSet<T> expectedHead = headSetOrNull(expected, from, inclusive);
+                if (expectedHead != null) {
+                    assertSameNavigation(expectedHead, actual.headSet(from, inclusive), probes, depth - 1);
+                }
+                NavigableSet<T> expectedTail = tailSetOrNull(expected, from, inclusive);
+                if (expectedTail != null) {
+                    assertSameNavigation(expectedTail, actual.tailSet(from, inclusive), probes, depth - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the size, the contents in both orders, {@code equals()}, {@code hashCode()}, the first and last elements
+     * and {@code contains()} of {@code actual} against those of {@code expected}.
+     */
+    static <T> void assertSameContents(NavigableSet<T> expected, NavigableSet<T> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        Assert.assertEquals(new ArrayList<>(expected.descendingSet()), new ArrayList<>(actual.descendingSet()));
+        List<T> visited = new ArrayList<>();
+        actual.forEach(visited::add);
+        Assert.assertEquals(new ArrayList<>(expected), visited);
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.first(), actual.first());
+            Assert.assertEquals(expected.last(), actual.last());
+        }
+        for (T value : expected) {
+            Assert.assertTrue(actual.contains(value));
+        }
+    }
+
+    /**
+     * Splits {@code spliterator} all the way down, then checks that the pieces cover {@code expected} in order and
+     * without overlap, consuming each one at random with {@code forEachRemaining()} or {@code tryAdvance()}.
+     *
+     * @return the pieces
+     */
+    static <T> List<Spliterator<T>> assertSplitsCover(List<T> expected, Spliterator<T> spliterator, Random random) {
+        return assertSplitsCover(expected, spliterator, Integer.MAX_VALUE, random);
+    }
+
+    /**
+     * Same as {@link #assertSplitsCover(List, Spliterator, Random)}, but splits at most {@code depth} times
+     * along each path, for sets too large to split down to single elements.
+     */
+    static <T> List<Spliterator<T>> assertSplitsCover(List<T> expected, Spliterator<T> spliterator, int depth,
+                                                      Random random) {
+        List<Spliterator<T>> pieces = new ArrayList<>();
+        split(spliterator, depth, pieces);
+        List<T> covered = new ArrayList<>();
+        for (Spliterator<T> piece : pieces) {
+            if (random.nextBoolean()) {
+                piece.forEachRemaining(covered::add);
+            } else {
+                while (piece.tryAdvance(covered::add)) {
+                    // keep going
+                }
+            }
+            Assert.assertEquals(0, piece.estimateSize());
+        }
+        Assert.assertEquals(expected, covered);
+        return pieces;
+    }
+
+    private static <T> void split(Spliterator<T> spliterator, int depth, List<Spliterator<T>> pieces) {
+        Spliterator<T> prefix = depth == 0 ? null : spliterator.trySplit();
+        if (prefix != null) {
+            split(prefix, depth - 1, pieces);
+            split(spliterator, depth - 1, pieces);
+        } else {
+            pieces.add(spliterator);
+        }
+    }
+
+    /**
+     * Checks that {@code actual} takes as the bound of a nested head or tail set exactly the probes that
+     * {@code expected} takes, and throws {@link IllegalArgumentException} for the others, as the views of
+     * {@link java.util.TreeSet} do.
+     */
+    static <T> void assertSameViewBounds(NavigableSet<T> expected, NavigableSet<T> actual, List<T> probes) {
+        for (T probe : probes) {
+            for (boolean inclusive : new boolean[]{false, true}) {
+                Assert.assertEquals("headSet(" + probe + ", " + inclusive + ")",
+                        headSetOrNull(expected, probe, inclusive) == null,
+                        headSetOrNull(actual, probe, inclusive) == null);
+                Assert.assertEquals("tailSet(" + probe + ", " + inclusive + ")",
+                        tailSetOrNull(expected, probe, inclusive) == null,
+                        tailSetOrNull(actual, probe, inclusive) == null);
+            }
+        }
+    }
+
+    private static <T> NavigableSet<T> headSetOrNull(NavigableSet<T> set, T toElement, boolean inclusive) {
+        try {
+            return set.headSet(toElement, inclusive);
+        } catch (IllegalArgumentException e) {
+            return null; // out of the range of a view
+        }
+    }
+
+    private static <T> NavigableSet<T> tailSetOrNull(NavigableSet<T> set, T fromElement, boolean inclusive) {
+        try {
+            return set.tailSet(fromElement, inclusive);
+        } catch (IllegalArgumentException e) {
+            return null; // out of the range of a view
+        }
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,321 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class PersistentTreeSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testEmpty() {
+        PersistentTreeSortedSet<Integer> set = PersistentTreeSortedSet.empty();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(Collections.emptySet(), set);
+        Assert.assertFalse(set.contains(1));
+        Assert.assertNull(set.getElement(1));
+        Assert.assertNull(set.ceiling(1));
+        Assert.assertNull(set.floor(1));
+        Assert.assertFalse(set.iterator().hasNext());
+        Assert.assertFalse(set.descendingIterator().hasNext());
+        Assert.assertEquals(0, set.stream().count());
+        Assert.assertEquals(0, set.headSet(5).size());
+        Assert.assertSame(set, set.without(1));
+        Assert.assertSame(set, PersistentTreeSortedSet.copyOf(Collections.<Integer>emptyList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithNull() {
+        PersistentTreeSortedSet.<Integer>empty().with(null);
+    }
+
+    @Test
+    public void testSmallVersions() {
+        PersistentSortedSet<Integer> empty = PersistentTreeSortedSet.empty();
+        PersistentSortedSet<Integer> one = empty.with(5);
+        Assert.assertTrue(one instanceof SingletonSortedSet);
+        Assert.assertSame(one, one.with(5));
+        PersistentSortedSet<Integer> two = one.with(3);
+        Assert.assertTrue(two instanceof PersistentTreeSortedSet);
+        Assert.assertEquals(Arrays.asList(3, 5), new ArrayList<>(two));
+        Assert.assertEquals(Arrays.asList(3, 5), new ArrayList<>(one.with(3)));
+        Assert.assertEquals(Arrays.asList(5, 7), new ArrayList<>(one.with(7)));
+        PersistentSortedSet<Integer> back = two.without(5);
+        Assert.assertTrue(back instanceof SingletonSortedSet);
+        Assert.assertEquals(Collections.singleton(3), back);
+        Assert.assertTrue(back.without(3).isEmpty());
+        Assert.assertSame(back, back.without(4));
+        Assert.assertEquals(Collections.singleton(5), one);
+        Assert.assertTrue(PersistentTreeSortedSet.copyOf(Arrays.asList(4, 4)) instanceof SingletonSortedSet);
+    }
+
+    @Test
+    public void testRandomVersions() {
+        PersistentSortedSet<Integer> set = PersistentTreeSortedSet.empty();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // snapshots of earlier versions, which later updates must leave alone
+        List<PersistentSortedSet<Integer>> versions = new ArrayList<>();
+        List<TreeSet<Integer>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            int value = RANDOM.nextInt(5_000);
+            // phases that mostly add and mostly remove, so the tree grows and shrinks by several levels
+            boolean add = RANDOM.nextInt(10) < ((i / 3_000) % 2 == 0 ? 7 : 3);
+            PersistentSortedSet<Integer> next;
+            if (add) {
+                next = set.with(value);
+                Assert.assertEquals(!expected.add(value), next == set);
+            } else {
+                next = set.without(value);
+                Assert.assertEquals(!expected.remove(value), next == set);
+            }
+            set = next;
+            Assert.assertEquals(expected.size(), set.size());
+            Assert.assertEquals(expected.contains(value), set.contains(value));
+            Assert.assertEquals(expected.ceiling(value), set.ceiling(value));
+            Assert.assertEquals(expected.lower(value), set.lower(value));
+            if (i % 1_000 == 0) {
+                NavigableSetAssertions.assertSameContents(expected, set);
+                versions.add(set);
+                expectedVersions.add(new TreeSet<>(expected));
+            }
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            NavigableSetAssertions.assertSameContents(expectedVersions.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    public void testAscendingAndDescendingUpdates() {
+        PersistentSortedSet<Integer> ascending = PersistentTreeSortedSet.empty();
+        PersistentSortedSet<Integer> descending = PersistentTreeSortedSet.empty();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            ascending = ascending.with(i);
+            descending = descending.with(4_999 - i);
+            expected.add(i);
+        }
+        NavigableSetAssertions.assertSameContents(expected, ascending);
+        NavigableSetAssertions.assertSameContents(expected, descending);
+        for (int i = 0; i < 5_000; i += 3) {
+            ascending = ascending.without(i);
+            descending = descending.without(4_999 - i);
+            expected.remove(i);
+        }
+        NavigableSetAssertions.assertSameContents(expected, ascending);
+        for (int i = 0; i < 5_000; i += 3) {
+            expected.add(i);
+            expected.remove(4_999 - i);
+        }
+        NavigableSetAssertions.assertSameContents(expected, descending);
+    }
+
+    @Test
+    public void testCopyOf() {
+        for (int size : new int[]{2, 3, 32, 33, 1_000, 1_025, 50_000}) {
+            List<Integer> elements = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                elements.add(RANDOM.nextInt(2 * size));
+            }
+            TreeSet<Integer> expected = new TreeSet<>(elements);
+            NavigableSetAssertions.assertSameContents(expected, PersistentTreeSortedSet.copyOf(elements));
+            PersistentSortedSet<Integer> set = PersistentTreeSortedSet.copyOf(expected);
+            NavigableSetAssertions.assertSameContents(expected, set);
+            Assert.assertSame(set, PersistentTreeSortedSet.copyOf(set));
+            // the packed tree of a bulk load takes updates as well as one that grew element by element
+            for (int i = 0; i < 2_000; i++) {
+                int value = RANDOM.nextInt(2 * size);
+                if (RANDOM.nextBoolean()) {
+                    expected.add(value);
+                    set = set.with(value);
+                } else {
+                    expected.remove(value);
+                    set = set.without(value);
+                }
+            }
+            NavigableSetAssertions.assertSameContents(expected, set);
+        }
+        try {
+            PersistentTreeSortedSet.copyOf(Arrays.asList(1, null));
+            Assert.fail("copyOf() with a null element must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBuilder() {
+        PersistentTreeSortedSet.Builder<Integer> builder = PersistentTreeSortedSet.builder();
+        Assert.assertTrue(builder.build().isEmpty());
+        TreeSet<Integer> expected = new TreeSet<>();
+        List<PersistentSortedSet<Integer>> versions = new ArrayList<>();
+        List<TreeSet<Integer>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = RANDOM.nextInt(4_000);
+            boolean add = RANDOM.nextInt(10) < ((i / 2_000) % 2 == 0 ? 7 : 3);
+            if (add) {
+                expected.add(value);
+                builder.add(value);
+            } else {
+                expected.remove(value);
+                builder.remove(value);
+            }
+            Assert.assertEquals(expected.size(), builder.size());
+            Assert.assertEquals(expected.contains(value), builder.contains(value));
+            if (i % 777 == 0) {
+                // builds in the middle of a batch must not see the edits that follow
+                PersistentSortedSet<Integer> built = builder.build();
+                NavigableSetAssertions.assertSameContents(expected, built);
+                versions.add(built);
+                expectedVersions.add(new TreeSet<>(expected));
+            }
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            NavigableSetAssertions.assertSameContents(expectedVersions.get(i), versions.get(i));
+        }
+
+        PersistentSortedSet<Integer> set = builder.build();
+        PersistentTreeSortedSet.Builder<Integer> edit = set.toBuilder();
+        for (int i = 0; i < 4_000; i += 2) {
+            edit.remove(i);
+        }
+        PersistentSortedSet<Integer> odd = edit.addAll(Arrays.asList(1, 3, 5)).build();
+        NavigableSetAssertions.assertSameContents(expected, set);
+        for (int i = 0; i < 4_000; i += 2) {
+            expected.remove(i);
+        }
+        expected.addAll(Arrays.asList(1, 3, 5));
+        NavigableSetAssertions.assertSameContents(expected, odd);
+        Assert.assertEquals(set, builder.build());
+    }
+
+    @Test
+    public void testBuilderToSmallSets() {
+        PersistentSortedSet<Integer> set = PersistentTreeSortedSet.copyOf(Arrays.asList(1, 2, 3));
+        PersistentSortedSet<Integer> one = set.toBuilder().remove(1).remove(3).build();
+        Assert.assertTrue(one instanceof SingletonSortedSet);
+        Assert.assertEquals(Collections.singleton(2), one);
+        Assert.assertTrue(one.toBuilder().remove(2).build().isEmpty());
+        Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(set));
+        Assert.assertEquals(Arrays.asList(0, 2), new ArrayList<>(one.toBuilder().add(0).build()));
+        try {
+            set.toBuilder().add(null);
+            Assert.fail("Builder::add() of null must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetElement() {
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            elements.add(new String("element-" + i));
+        }
+        PersistentSortedSet<String> set = PersistentTreeSortedSet.copyOf(elements);
+        for (String element : elements) {
+            Assert.assertSame(element, set.getElement(new String(element)));
+            Assert.assertSame(element, SortedSets.asLookupSet(set.tailSet(element, true))
+                    .getElement(new String(element)));
+        }
+        Assert.assertNull(set.getElement("missing"));
+        Assert.assertNull(set.getElement(null));
+        Assert.assertNull(SortedSets.asLookupSet(set.headSet("element-2", false)).getElement("element-3"));
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 200; size += 1 + size / 2) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextInt(4 * size));
+            }
+            List<Integer> probes = new ArrayList<>();
+            for (int probe = -1; probe <= 4 * size + 1; probe += 1 + size / 8) {
+                probes.add(probe);
+            }
+            PersistentSortedSet<Integer> set = PersistentTreeSortedSet.empty();
+            for (Integer value : expected) {
+                set = set.with(value);
+            }
+            NavigableSetAssertions.assertSameNavigation(expected, set, probes);
+            NavigableSetAssertions.assertSameNavigation(expected, PersistentTreeSortedSet.copyOf(expected), probes);
+        }
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        PersistentSortedSet<Integer> set = PersistentTreeSortedSet.copyOf(Arrays.asList(1, 2, 3));
+        Assert.assertFalse(set.add(1));
+        Assert.assertFalse(set.addAll(Arrays.asList(1, 2)));
+        Assert.assertFalse(set.headSet(3).add(1));
+        try {
+            set.add(4);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.remove(1);
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.pollFirst();
+            Assert.fail("pollFirst() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.iterator().remove();
+            Assert.fail("Iterator::remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        for (int size : new int[]{2, 31, 1_000, 100_000}) {
+            List<Integer> elements = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                elements.add(i);
+            }
+            PersistentSortedSet<Integer> set = PersistentTreeSortedSet.copyOf(elements);
+            Spliterator<Integer> spliterator = set.spliterator();
+            Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.DISTINCT
+                    | Spliterator.SORTED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE));
+            Assert.assertNull(spliterator.getComparator());
+            Assert.assertEquals(size, spliterator.getExactSizeIfKnown());
+            Assert.assertEquals(elements, set.parallelStream().collect(Collectors.toList()));
+            Assert.assertEquals((long) size * (size - 1) / 2,
+                    set.parallelStream().mapToLong(Integer::longValue).sum());
+
+            // split all the way down and check that the pieces cover the set in order, without overlap
+            NavigableSetAssertions.assertSplitsCover(elements, set.spliterator(), RANDOM);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+public class RoaringIntSortedSetTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testConstructors() {
+        RoaringIntSortedSet set = new RoaringIntSortedSet(5, 3, 9, 3, 1, 5);
+        Assert.assertArrayEquals(new int[]{1, 3, 5, 9}, set.toIntArray());
+        Assert.assertEquals(set, new RoaringIntSortedSet(Arrays.asList(9, 1, 3, 5)));
+        Assert.assertTrue(new RoaringIntSortedSet().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNull() {
+        new RoaringIntSortedSet(Arrays.asList(1, null));
+    }
+
+    @Test
+    public void testContainers() {
+        Assert.assertArrayEquals(new String[]{"SingletonContainer"}, new RoaringIntSortedSet(7).containerKinds());
+        Assert.assertArrayEquals(new String[]{"ArrayContainer"},
+                new RoaringIntSortedSet(1, 100, 1000).containerKinds());
+        Assert.assertArrayEquals(new String[]{"RunContainer"},
+                new RoaringIntSortedSet(range(0, 60000, 1)).containerKinds());
+        Assert.assertArrayEquals(new String[]{"BitmapContainer"},
+                new RoaringIntSortedSet(range(0, 60000, 3)).containerKinds());
+        // one container per 65536 values, negative values first
+        Assert.assertArrayEquals(new String[]{"SingletonContainer", "SingletonContainer", "SingletonContainer"},
+                new RoaringIntSortedSet(1 << 16, -1, 0).containerKinds());
+    }
+
+    @Test
+    public void testAgainstTreeSet() {
+        for (int[] values : samples()) {
+            TreeSet<Integer> expected = toTreeSet(values);
+            RoaringIntSortedSet set = new RoaringIntSortedSet(values);
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(set, expected);
+            Assert.assertEquals(expected.hashCode(), set.hashCode());
+            Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+            Assert.assertEquals(expected.size(), set.size());
+            Assert.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toIntArray());
+            for (int i = 0; i < 200 && !expected.isEmpty(); i++) {
+                // half of the probes land next to an element
+                int probe = i % 2 == 0 ? RANDOM.nextInt()
+                        : set.select(RANDOM.nextInt(set.size())) + RANDOM.nextInt(5) - 2;
+                Assert.assertEquals(expected.contains(probe), set.contains(probe));
+                Assert.assertEquals(expected.headSet(probe, true).size(), set.rank(probe));
+                Assert.assertEquals(expected.floor(probe), set.floor(probe));
+                Assert.assertEquals(expected.ceiling(probe), set.ceiling(probe));
+                Assert.assertEquals(expected.lower(probe), set.lower(probe));
+                Assert.assertEquals(expected.higher(probe), set.higher(probe));
+                Assert.assertEquals(expected.tailSet(probe).size(), set.tailSet(probe).size());
+                Assert.assertEquals(expected.headSet(probe), set.headSet(probe));
+            }
+            if (!expected.isEmpty()) {
+                Assert.assertEquals((int) expected.first(), set.firstInt());
+                Assert.assertEquals((int) expected.last(), set.lastInt());
+            }
+        }
+    }
+
+    @Test
+    public void testRankAndSelect() {
+        RoaringIntSortedSet set = new RoaringIntSortedSet(concat(range(-70000, -69000, 1), range(0, 20000, 7),
+                range(1 << 20, (1 << 20) + 5000, 2), new int[]{Integer.MAX_VALUE}));
+        int[] array = set.toIntArray();
+        for (int i = 0; i < array.length; i++) {
+            Assert.assertEquals(array[i], set.select(i));
+            Assert.assertEquals(i + 1, set.rank(array[i]));
+        }
+        Assert.assertEquals(0, set.rank(Integer.MIN_VALUE));
+        Assert.assertEquals(array.length, set.rank(Integer.MAX_VALUE));
+        try {
+            set.select(array.length);
+            Assert.fail("select() past the end must throw IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAlgebra() {
+        List<int[]> samples = samples();
+        for (int[] left : samples) {
+            for (int[] right : samples) {
+                RoaringIntSortedSet a = new RoaringIntSortedSet(left);
+                RoaringIntSortedSet b = new RoaringIntSortedSet(right);
+
+                TreeSet<Integer> and = toTreeSet(left);
+                and.retainAll(toTreeSet(right));
+                Assert.assertEquals(and, a.and(b));
+                Assert.assertEquals(and.size(), a.and(b).size());
+
+                TreeSet<Integer> or = toTreeSet(left);
+                or.addAll(toTreeSet(right));
+                Assert.assertEquals(or, a.or(b));
+                Assert.assertEquals(or.size(), a.or(b).size());
+
+                TreeSet<Integer> andNot = toTreeSet(left);
+                andNot.removeAll(toTreeSet(right));
+                Assert.assertEquals(andNot, a.andNot(b));
+                Assert.assertEquals(andNot.size(), a.andNot(b).size());
+            }
+        }
+        // the result of an operation picks the smallest container again
+        RoaringIntSortedSet dense = new RoaringIntSortedSet(range(0, 60000, 1));
+        RoaringIntSortedSet odd = new RoaringIntSortedSet(range(1, 60000, 2));
+        Assert.assertArrayEquals(new String[]{"BitmapContainer"}, dense.andNot(odd).containerKinds());
+        Assert.assertArrayEquals(new String[]{"RunContainer"}, dense.andNot(odd).or(odd).containerKinds());
+        Assert.assertArrayEquals(new String[]{"SingletonContainer"},
+                dense.and(new RoaringIntSortedSet(5, 70000)).containerKinds());
+    }
+
+    @Test
+    public void testPrimitiveMethods() {
+        RoaringIntSortedSet set = new RoaringIntSortedSet(Integer.MAX_VALUE, 0, Integer.MIN_VALUE);
+        Assert.assertTrue(set.contains(Integer.MIN_VALUE));
+        Assert.assertTrue(set.contains(0));
+        Assert.assertFalse(set.contains(1));
+        Assert.assertFalse(set.contains((Object) 0L)); // a Long is not an Integer
+        Assert.assertEquals(Integer.MIN_VALUE, set.firstInt());
+        Assert.assertEquals(Integer.MAX_VALUE, set.lastInt());
+
+        List<Integer> values = new ArrayList<>();
+        set.forEach((IntConsumer) values::add);
+        Assert.assertEquals(Arrays.asList(Integer.MIN_VALUE, 0, Integer.MAX_VALUE), values);
+
+        PrimitiveIterator.OfInt iterator = set.iterator();
+        Assert.assertEquals(Integer.MIN_VALUE, iterator.nextInt());
+        Assert.assertEquals(0, iterator.nextInt());
+        Assert.assertEquals(Integer.MAX_VALUE, iterator.nextInt());
+        Assert.assertFalse(iterator.hasNext());
+        try {
+            iterator.nextInt();
+            Assert.fail("Iterator::nextInt() should have thrown NoSuchElementException here");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+
+        try {
+            new RoaringIntSortedSet().firstInt();
+            Assert.fail("firstInt() on an empty set should have thrown NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        RoaringIntSortedSet set = new RoaringIntSortedSet(concat(range(0, 300000, 3), range(-5, 5, 1)));
+        Spliterator.OfInt spliterator = set.spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE));
+        Assert.assertNull(spliterator.getComparator());
+        Assert.assertEquals(set.size(), spliterator.getExactSizeIfKnown());
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        Assert.assertNotNull(prefix);
+        Assert.assertEquals(set.size(), prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+
+        List<Integer> seen = new ArrayList<>();
+        Assert.assertTrue(prefix.tryAdvance((IntConsumer) seen::add));
+        prefix.forEachRemaining((IntConsumer) seen::add);
+        spliterator.forEachRemaining((IntConsumer) seen::add);
+        Assert.assertEquals(new ArrayList<>(set), seen);
+        Assert.assertEquals(toTreeSet(set.toIntArray()).stream().mapToLong(Integer::longValue).sum(),
+                set.parallelStream().mapToLong(Integer::longValue).sum());
+        Assert.assertEquals(Arrays.asList(3, 4, 6), set.subSet(3, 7).stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        RoaringIntSortedSet set = new RoaringIntSortedSet(1, 2);
+        Assert.assertFalse(set.add(1));
+        Assert.assertFalse(set.addAll(Arrays.asList(1, 2)));
+        try {
+            set.add(3);
+            Assert.fail("add() of a new element must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            set.remove(1);
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNestedViewBounds() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 65_530; i < 65_560; i++) {
+            expected.add(i);
+        }
+        RoaringIntSortedSet set = new RoaringIntSortedSet(expected);
+        List<Integer> probes = new ArrayList<>();
+        for (int probe = 65_533; probe <= 65_537; probe++) {
+            probes.add(probe);
+            probes.add(probe + 17);
+        }
+        for (boolean fromInclusive : new boolean[]{false, true}) {
+            for (boolean toInclusive : new boolean[]{false, true}) {
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.subSet(65_535, fromInclusive, 65_552, toInclusive),
+                        set.subSet(65_535, fromInclusive, 65_552, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.tailSet(65_535, fromInclusive).headSet(65_552, toInclusive),
+                        set.tailSet(65_535, fromInclusive).headSet(65_552, toInclusive), probes);
+                NavigableSetAssertions.assertSameViewBounds(
+                        expected.headSet(65_552, toInclusive).tailSet(65_535, fromInclusive),
+                        set.headSet(65_552, toInclusive).tailSet(65_535, fromInclusive), probes);
+            }
+        }
+    }
+
+    @Test
+    public void testNavigableSetMethods() {
+        for (int size = 0; size < 8; size++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                // straddle the boundary between two containers
+                expected.add((1 << 16) - 2 * size + RANDOM.nextInt(4 * size));
+            }
+            List<Integer> probes = new ArrayList<>();
+            for (int probe = (1 << 16) - 2 * size - 1; probe <= (1 << 16) + 2 * size + 1; probe++) {
+                probes.add(probe);
+            }
+            probes.add(Integer.MIN_VALUE);
+            probes.add(Integer.MAX_VALUE);
+            NavigableSetAssertions.assertSameNavigation(expected, new RoaringIntSortedSet(expected), probes);
+        }
+        RoaringIntSortedSet set = new RoaringIntSortedSet(3, 1, 70000);
+        PrimitiveIterator.OfInt descending = set.descendingIterator();
+        Assert.assertEquals(70000, descending.nextInt());
+        Assert.assertEquals(3, descending.nextInt());
+        Assert.assertEquals(1, descending.nextInt());
+        Assert.assertFalse(descending.hasNext());
+        Assert.assertSame(set, set.descendingSet().descendingSet());
+        Assert.assertTrue(set.headSet(Integer.MIN_VALUE, false).isEmpty());
+        Assert.assertTrue(set.tailSet(Integer.MAX_VALUE, false).isEmpty());
+    }
+
+    /**
+     * Sets that between them use every kind of container, in one or in several chunks.
+     */
+    private static List<int[]> samples() {
+        List<int[]> samples = new ArrayList<>();
+        samples.add(new int[0]);
+        samples.add(new int[]{42});
+        samples.add(new int[]{Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE});
+        samples.add(range(0, 5000, 1));
+        samples.add(range(0, 65536, 2));
+        samples.add(range(-100000, 100000, 9));
+        samples.add(concat(range(1000, 3000, 1), range(65000, 66000, 1), range(200000, 210000, 5)));
+        int[] random = new int[20000];
+        for (int i = 0; i < random.length; i++) {
+            random[i] = RANDOM.nextInt(1 << 18) - (1 << 17);
+        }
+        samples.add(random);
+        return samples;
+    }
+
+    private static int[] range(int from, int to, int step) {
+        int[] values = new int[(to - from + step - 1) / step];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+
+    private static int[] concat(int[]... arrays) {
+        return Arrays.stream(arrays).flatMapToInt(Arrays::stream).toArray();
+    }
+
+    private static TreeSet<Integer> toTreeSet(int[] values) {
+        TreeSet<Integer> set = new TreeSet<>();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,126 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class SingletonSortedMapTest {
+
+    @Test
+    public void testEqualsAndHashCode() {
+        SingletonSortedMap<String, Integer> map = new SingletonSortedMap<>("a", 1);
+        Assert.assertEquals(Collections.singletonMap("a", 1), map);
+        Assert.assertEquals(map, Collections.singletonMap("a", 1));
+        Assert.assertEquals(new SingletonSortedMap<>("a", 1), map);
+        Assert.assertEquals(Collections.singletonMap("a", 1).hashCode(), map.hashCode());
+        Assert.assertNotEquals(Collections.singletonMap("a", 2), map);
+        Assert.assertNotEquals(Collections.singletonMap("b", 1), map);
+        Assert.assertNotEquals(Collections.singletonMap(1, 1), map);
+        Assert.assertNotEquals(Collections.emptyMap(), map);
+        Assert.assertEquals("{a=1}", map.toString());
+    }
+
+    @Test
+    public void testMapMethods() {
+        SingletonSortedMap<String, Integer> map = new SingletonSortedMap<>("a", 1);
+        Assert.assertEquals("a", map.getKey());
+        Assert.assertEquals(Integer.valueOf(1), map.getValue());
+        Assert.assertEquals(1, map.size());
+        Assert.assertFalse(map.isEmpty());
+        Assert.assertEquals(Integer.valueOf(1), map.get("a"));
+        Assert.assertNull(map.get("b"));
+        Assert.assertNull(map.get(null));
+        Assert.assertEquals(Integer.valueOf(7), map.getOrDefault("b", 7));
+        Assert.assertTrue(map.containsKey("a"));
+        Assert.assertFalse(map.containsKey("b"));
+        Assert.assertTrue(map.containsValue(1));
+        Assert.assertFalse(map.containsValue(2));
+        Assert.assertEquals(Collections.singleton("a"), map.keySet());
+        Assert.assertEquals(Collections.singletonList(1), map.values());
+        Assert.assertEquals(Collections.singleton(new AbstractMap.SimpleImmutableEntry<>("a", 1)), map.entrySet());
+        Assert.assertTrue(map.entrySet().contains(new AbstractMap.SimpleImmutableEntry<>("a", 1)));
+        Assert.assertFalse(map.entrySet().contains(new AbstractMap.SimpleImmutableEntry<>("a", 2)));
+        Map<String, Integer> copy = new HashMap<>();
+        map.forEach(copy::put);
+        Assert.assertEquals(map, copy);
+    }
+
+    @Test
+    public void testSortedMapMethods() {
+        SingletonSortedMap<Integer, String> map = new SingletonSortedMap<>(1, "one");
+        TreeMap<Integer, String> expected = new TreeMap<>(map);
+        Assert.assertNull(map.comparator());
+        Assert.assertEquals(Integer.valueOf(1), map.firstKey());
+        Assert.assertEquals(Integer.valueOf(1), map.lastKey());
+        for (int lo = -1; lo <= 3; lo++) {
+            Assert.assertEquals(expected.headMap(lo), map.headMap(lo));
+            Assert.assertEquals(expected.tailMap(lo), map.tailMap(lo));
+            for (int hi = lo; hi <= 3; hi++) {
+                Assert.assertEquals(expected.subMap(lo, hi), map.subMap(lo, hi));
+            }
+        }
+        Assert.assertSame(map, map.headMap(2));
+        Assert.assertSame(map, map.tailMap(1));
+        Assert.assertSame(map, map.subMap(1, 2));
+        try {
+            map.subMap(2, 1);
+            Assert.fail("subMap() with fromKey > toKey must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnsupportedMutations() {
+        SortedMap<String, Integer> map = new SingletonSortedMap<>("a", 1);
+        try {
+            map.put("a", 2);
+            Assert.fail("put() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            map.remove("a");
+            Assert.fail("remove() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            map.entrySet().iterator().next().setValue(2);
+            Assert.fail("Entry::setValue() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullKey() {
+        new SingletonSortedMap<String, Integer>(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new SingletonSortedMap<String, Integer>("a", null);
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SingletonSortedSetInternerTest {
+
+    @Test
+    public void testSharesEqualElements() {
+        SingletonSortedSetInterner interner = new SingletonSortedSetInterner(10);
+        SingletonSortedSet<String> first = interner.intern(new String("share-1"));
+        SingletonSortedSet<String> second = interner.intern(new String("share-1"));
+        SingletonSortedSet<String> other = interner.intern("share-2");
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, other);
+        Assert.assertEquals("share-1", first.getElement());
+        Assert.assertEquals(2, interner.size());
+        Assert.assertEquals(1, interner.hitCount());
+        Assert.assertEquals(2, interner.missCount());
+        Assert.assertEquals(0, interner.rejectedCount());
+        Assert.assertEquals(1.0 / 3, interner.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testEqualElementsOfDifferentClassesAreNotShared() {
+        SingletonSortedSetInterner interner = new SingletonSortedSetInterner(10);
+        Timestamp timestamp = new Timestamp(0);
+        Date date = new Date(0);
+        Assert.assertTrue(date.equals(timestamp)); // but not the other way around
+        SingletonSortedSet<Date> dateSet = interner.intern(date);
+        SingletonSortedSet<Date> timestampSet = interner.intern((Date) timestamp);
+        Assert.assertSame(date, dateSet.getElement());
+        Assert.assertSame(timestamp, timestampSet.getElement());
+    }
+
+    @Test
+    public void testBound() {
+        SingletonSortedSetInterner interner = new SingletonSortedSetInterner(2);
+        SingletonSortedSet<Integer> one = interner.intern(1);
+        SingletonSortedSet<Integer> two = interner.intern(2);
+        // full: the third element is not shared, the first two still are
+        Assert.assertNotSame(interner.intern(3), interner.intern(3));
+        Assert.assertSame(one, interner.intern(1));
+        Assert.assertSame(two, interner.intern(2));
+        Assert.assertEquals(2, interner.size());
+        Assert.assertEquals(2, interner.rejectedCount());
+        Assert.assertEquals(2, interner.hitCount());
+    }
+
+    @Test
+    public void testClear() {
+        SingletonSortedSetInterner interner = new SingletonSortedSetInterner(2);
+        SingletonSortedSet<Integer> one = interner.intern(1);
+        interner.clear();
+        Assert.assertEquals(0, interner.size());
+        Assert.assertEquals(0, interner.hitCount() + interner.missCount() + interner.rejectedCount());
+        Assert.assertEquals(0, interner.hitRate(), 0);
+        Assert.assertNotSame(one, interner.intern(1));
+    }
+
+    @Test
+    public void testSetsAreHeldWeakly() throws InterruptedException {
+        SingletonSortedSetInterner interner = new SingletonSortedSetInterner(1);
+        WeakReference<SingletonSortedSet<String>> reference = new WeakReference<>(interner.intern(new String("a")));
+        // the collector clears the references first and enqueues them later, on another thread
+        for (int i = 0; i < 50 && interner.size() != 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            interner.purge();
+        }
+        Assume.assumeTrue("the garbage collector did not run", interner.size() == 0);
+        Assert.assertNull(reference.get());
+        // the collected set no longer takes the only slot
+        SingletonSortedSet<String> b = interner.intern("b");
+        Assert.assertSame(b, interner.intern("b"));
+        Assert.assertEquals(1, interner.size());
+    }
+
+    @Test
+    public void testConcurrentCallersGetTheSameSet() throws Exception {
+        SingletonSortedSetInterner interner = new SingletonSortedSetInterner(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<SingletonSortedSet<Integer>>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    List<SingletonSortedSet<Integer>> sets = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        sets.add(interner.intern(i));
+                    }
+                    return sets;
+                }));
+            }
+            List<SingletonSortedSet<Integer>> expected = futures.get(0).get();
+            for (Future<List<SingletonSortedSet<Integer>>> future : futures) {
+                List<SingletonSortedSet<Integer>> actual = future.get();
+                for (int i = 0; i < 500; i++) {
+                    Assert.assertSame(expected.get(i), actual.get(i));
+                }
+            }
+            Assert.assertEquals(500, interner.missCount());
+            Assert.assertEquals(1500, interner.hitCount());
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullElement() {
+        new SingletonSortedSetInterner(1).intern(null);
+    }
+}
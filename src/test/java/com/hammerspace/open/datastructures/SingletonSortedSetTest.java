@@ -18,14 +18,20 @@ package com.hammerspace.open.datastructures;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.Spliterator;
+import java.util.TreeSet;
 import java.util.function.Supplier;
 
 import static java.util.Spliterator.DISTINCT;
@@ -64,6 +70,21 @@ public class SingletonSortedSetTest {
         Assert.assertEquals(s2, s1);
     }
 
+    @Test
+    public void testEqualsOtherSets() {
+        SingletonSortedSet<Integer> set = new SingletonSortedSet<>(1);
+        for (Set<Integer> other : Arrays.<Set<Integer>>asList(new TreeSet<>(Collections.singleton(1)),
+                new HashSet<>(Collections.singleton(1)), Collections.singleton(1), new AdaptiveSortedSet<>(set))) {
+            Assert.assertEquals(set, other);
+            Assert.assertEquals(other, set);
+            Assert.assertEquals(other.hashCode(), set.hashCode());
+        }
+        Assert.assertNotEquals(set, new TreeSet<>(Arrays.asList(1, 2)));
+        Assert.assertNotEquals(set, new TreeSet<>(Collections.singleton(2)));
+        Assert.assertNotEquals(set, Collections.singletonList(1));
+        Assert.assertNotEquals(set, null);
+    }
+
     @Test
     public void testNotEquals() {
         SingletonSortedSet<Integer> s1, s2;
@@ -156,6 +177,8 @@ public class SingletonSortedSetTest {
         SortedSet<Integer> sssTail = sss.tailSet(0);
         Assert.assertEquals(sss, sssTail);
         sssTail = sss.tailSet(1);
+        Assert.assertEquals(sss, sssTail);
+        sssTail = sss.tailSet(2);
         Assert.assertTrue(sssTail.isEmpty());
 
         /**
@@ -169,6 +192,15 @@ public class SingletonSortedSetTest {
         Assert.assertEquals(sss, sssSubset12);
         SortedSet<Integer> sssSubset23 = sss.subSet(2, 3);
         Assert.assertTrue(sssSubset23.isEmpty());
+        assertIllegalArgument(() -> sss.subSet(2, 1), "SortedSet::subSet");
+
+        /**
+         * Views are shared instances: the set itself, or the empty set
+         */
+        Assert.assertSame(sss, sss.headSet(2));
+        Assert.assertSame(sss, sss.tailSet(1));
+        Assert.assertSame(sss, sss.subSet(1, 2));
+        Assert.assertSame(sss.headSet(1), sss.tailSet(2));
 
         /**
          * Testing {@link SortedSet#spliterator()}
@@ -208,6 +240,15 @@ public class SingletonSortedSetTest {
         }
     }
 
+    private void assertIllegalArgument(Supplier<?> func, String method) {
+        try {
+            func.get();
+            Assert.fail(method + " must throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     private void testIterator(SingletonSortedSet<Integer> sss) {
         Iterator<Integer> iterator = sss.iterator();
         Assert.assertTrue(iterator.hasNext());
@@ -364,6 +405,62 @@ public class SingletonSortedSetTest {
         /**
          * Testing {@link Set#toArray(Object[])}
          */
-        assertUnsupported(() -> sss.toArray(new Double[1]), "Set::toArray(T1[])");
+        Assert.assertArrayEquals(new Integer[]{1}, sss.toArray(new Integer[0]));
+        Integer[] array = {7, 8, 9};
+        Assert.assertSame(array, sss.toArray(array));
+        Assert.assertArrayEquals(new Integer[]{1, null, 9}, array);
+        try {
+            sss.toArray(new Double[1]);
+            Assert.fail("Set::toArray(T1[]) must throw ArrayStoreException for an array of the wrong type");
+        } catch (ArrayStoreException e) {
+            // expected
+        }
+    }
+
+    /**
+     * test the methods of {@link NavigableSet}
+     */
+    @Test
+    public void testNavigableSetMethods() {
+        final SingletonSortedSet<Integer> sss = new SingletonSortedSet<>(1);
+        NavigableSetAssertions.assertSameNavigation(new TreeSet<>(sss), sss, Arrays.asList(0, 1, 2));
+
+        Assert.assertSame(sss, sss.subSet(1, true, 1, true));
+        Assert.assertTrue(sss.subSet(1, false, 1, true).isEmpty());
+        Assert.assertSame(sss, sss.headSet(1, true));
+        Assert.assertTrue(sss.headSet(1, false).isEmpty());
+        Assert.assertSame(sss, sss.tailSet(1, true));
+        Assert.assertTrue(sss.tailSet(1, false).isEmpty());
+        Assert.assertSame(sss, sss.descendingSet().descendingSet());
+        assertUnsupported(sss::pollFirst, "NavigableSet::pollFirst");
+        assertUnsupported(sss::pollLast, "NavigableSet::pollLast");
+    }
+
+    @Test
+    public void testGetElements() {
+        String held = new String("b");
+        SingletonSortedSet<String> set = new SingletonSortedSet<>(held);
+        String[] seen = new String[1];
+        Assert.assertEquals(1, set.getElements(new TreeSet<>(Arrays.asList("a", "b", "c")), value -> seen[0] = value));
+        Assert.assertSame(held, seen[0]);
+        Assert.assertEquals(0, set.getElements(new TreeSet<>(Arrays.asList("a", "c")), value -> Assert.fail()));
+        TreeSet<String> descending = new TreeSet<>(Comparator.reverseOrder());
+        descending.addAll(Arrays.asList("a", "b"));
+        Assert.assertEquals(1, set.getElements(descending, value -> { }));
+        descending.remove("b");
+        Assert.assertEquals(0, set.getElements(descending, value -> Assert.fail()));
+    }
+
+    @Test
+    public void testWithAndWithout() {
+        SingletonSortedSet<Integer> set = new SingletonSortedSet<>(2);
+        Assert.assertSame(set, set.with(2));
+        Assert.assertEquals(Arrays.asList(1, 2), new ArrayList<>(set.with(1)));
+        Assert.assertEquals(Arrays.asList(2, 3), new ArrayList<>(set.with(3)));
+        Assert.assertTrue(set.without(2).isEmpty());
+        Assert.assertSame(set, set.without(3));
+        Assert.assertSame(set, set.without("2"));
+        Assert.assertEquals(Arrays.asList(2, 5), new ArrayList<>(set.toBuilder().add(5).build()));
+        Assert.assertEquals(Collections.singleton(2), set);
     }
 }
@@ -0,0 +1,201 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class SortedSetAlgebraTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testMergeKeepsDuplicates() {
+        List<SortedSet<Integer>> sets = Arrays.asList(new SingletonSortedSet<>(3),
+                new ArraySortedSet<>(Arrays.asList(1, 3, 5)), new TreeSet<>(Arrays.asList(2, 3)),
+                Collections.emptySortedSet());
+        List<Integer> merged = new ArrayList<>();
+        SortedSetAlgebra.merge(sets).forEachRemaining(merged::add);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 3, 3, 5), merged);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 5), new ArrayList<>(SortedSetAlgebra.union(sets)));
+        Assert.assertFalse(SortedSetAlgebra.merge(Collections.<SortedSet<Integer>>emptyList()).hasNext());
+    }
+
+    @Test
+    public void testMergeOfManySingletons() {
+        List<SortedSet<Integer>> sets = new ArrayList<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 5000; i++) {
+            int element = RANDOM.nextInt(1000);
+            sets.add(new SingletonSortedSet<>(element));
+            expected.add(element);
+        }
+        Iterator<Integer> merge = SortedSetAlgebra.merge(sets);
+        int count = 0;
+        Integer previous = null;
+        while (merge.hasNext()) {
+            Integer element = merge.next();
+            Assert.assertTrue(previous == null || previous <= element);
+            previous = element;
+            count++;
+        }
+        Assert.assertEquals(sets.size(), count);
+        Assert.assertEquals(expected, SortedSetAlgebra.union(sets));
+        try {
+            merge.next();
+            Assert.fail("Iterator::next() should have thrown NoSuchElementException here");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAgainstTreeSets() {
+        for (int round = 0; round < 300; round++) {
+            int universe = 1 + RANDOM.nextInt(500);
+            List<SortedSet<Integer>> sets = new ArrayList<>();
+            List<TreeSet<Integer>> expectedSets = new ArrayList<>();
+            for (int i = RANDOM.nextInt(5) + 1; i > 0; i--) {
+                TreeSet<Integer> expected = randomSet(universe);
+                expectedSets.add(expected);
+                sets.add(compact(expected));
+            }
+
+            TreeSet<Integer> union = new TreeSet<>();
+            expectedSets.forEach(union::addAll);
+            TreeSet<Integer> intersection = new TreeSet<>(expectedSets.get(0));
+            expectedSets.forEach(intersection::retainAll);
+            TreeSet<Integer> difference = new TreeSet<>(expectedSets.get(0));
+            expectedSets.subList(1, expectedSets.size()).forEach(difference::removeAll);
+
+            assertSameSet(union, SortedSetAlgebra.union(sets), universe);
+            assertSameSet(intersection, SortedSetAlgebra.intersection(sets), universe);
+            assertSameSet(difference, SortedSetAlgebra.difference(sets.get(0), sets.subList(1, sets.size())),
+                    universe);
+        }
+    }
+
+    private static TreeSet<Integer> randomSet(int universe) {
+        TreeSet<Integer> set = new TreeSet<>();
+        int size = RANDOM.nextInt(4) == 0 ? RANDOM.nextInt(2) : RANDOM.nextInt(universe);
+        for (int i = 0; i < size; i++) {
+            set.add(RANDOM.nextInt(universe));
+        }
+        return set;
+    }
+
+    /**
+     * The sets of this package the cursors have fast paths for, or the tree set itself.
+     */
+    private static SortedSet<Integer> compact(TreeSet<Integer> set) {
+        switch (set.size() == 1 ? 0 : RANDOM.nextInt(3)) {
+            case 0:
+                return set.size() == 1 ? new SingletonSortedSet<>(set.first()) : set;
+            case 1:
+                return new ArraySortedSet<>(set);
+            default:
+                return set;
+        }
+    }
+
+    private static void assertSameSet(SortedSet<Integer> expected, SortedSet<Integer> actual, int universe) {
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(expected, actual);
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.first(), actual.first());
+            Assert.assertEquals(expected.last(), actual.last());
+        }
+        for (int i = 0; i < 5; i++) {
+            int probe = RANDOM.nextInt(universe + 2) - 1;
+            Assert.assertEquals(expected.contains(probe), actual.contains(probe));
+            int to = probe + RANDOM.nextInt(universe / 2 + 1);
+            Assert.assertEquals(new ArrayList<>(expected.headSet(probe)), new ArrayList<>(actual.headSet(probe)));
+            Assert.assertEquals(new ArrayList<>(expected.tailSet(probe)), new ArrayList<>(actual.tailSet(probe)));
+            Assert.assertEquals(new ArrayList<>(expected.subSet(probe, to)), new ArrayList<>(actual.subSet(probe, to)));
+        }
+    }
+
+    @Test
+    public void testGallopingOverLargeArrays() {
+        TreeSet<Integer> evens = new TreeSet<>();
+        TreeSet<Integer> sparse = new TreeSet<>();
+        for (int i = 0; i < 100_000; i += 2) {
+            evens.add(i);
+        }
+        for (int i = 0; i < 100_000; i += 999) {
+            sparse.add(i);
+        }
+        TreeSet<Integer> expected = new TreeSet<>(sparse);
+        expected.retainAll(evens);
+        Assert.assertEquals(expected, SortedSetAlgebra.intersection(new ArraySortedSet<>(evens),
+                new ArraySortedSet<>(sparse)));
+        Assert.assertEquals(expected, SortedSetAlgebra.intersection(sparse, new ArraySortedSet<>(evens)));
+        TreeSet<Integer> odd = new TreeSet<>(sparse);
+        odd.removeAll(evens);
+        Assert.assertEquals(odd, SortedSetAlgebra.difference(sparse, new ArraySortedSet<>(evens)));
+    }
+
+    @Test
+    public void testComparatorSets() {
+        Comparator<Integer> descending = Comparator.reverseOrder();
+        ComparatorSortedSetFactory<Integer> factory = new ComparatorSortedSetFactory<>(descending);
+        SortedSet<Integer> left = factory.copyOf(Arrays.asList(1, 2, 3, 4));
+        SortedSet<Integer> right = factory.copyOf(Arrays.asList(3, 4, 5));
+        SortedSet<Integer> union = SortedSetAlgebra.union(left, right, factory.singleton(9));
+        Assert.assertEquals(Arrays.asList(9, 5, 4, 3, 2, 1), new ArrayList<>(union));
+        Assert.assertSame(descending, union.comparator());
+        Assert.assertEquals(Arrays.asList(4, 3), new ArrayList<>(SortedSetAlgebra.intersection(left, right)));
+        Assert.assertEquals(Arrays.asList(2, 1), new ArrayList<>(SortedSetAlgebra.difference(left, right)));
+        Assert.assertEquals(Arrays.asList(4, 3, 2), new ArrayList<>(union.subSet(4, 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentOrders() {
+        SortedSetAlgebra.union(new TreeSet<>(Arrays.asList(1, 2)), new TreeSet<>(Comparator.<Integer>reverseOrder()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntersectionOfNoSets() {
+        SortedSetAlgebra.intersection(Collections.<SortedSet<Integer>>emptyList());
+    }
+
+    @Test
+    public void testViewsAreReadOnlyAndLive() {
+        TreeSet<Integer> left = new TreeSet<>(Arrays.asList(1, 2));
+        SortedSet<Integer> union = SortedSetAlgebra.union(left, new SingletonSortedSet<>(5));
+        left.add(3);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 5), new ArrayList<>(union));
+        try {
+            union.add(4);
+            Assert.fail("add() must throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertTrue(SortedSetAlgebra.union(Collections.<SortedSet<Integer>>emptyList()).isEmpty());
+    }
+}
@@ -0,0 +1,226 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class SortedSetCodecsTest {
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testLongs() throws IOException {
+        SortedSetCodec<Long> codec = SortedSetCodecs.longs();
+        assertRoundTrip(codec, new TreeSet<>());
+        assertRoundTrip(codec, new TreeSet<>(Collections.singleton(Long.MIN_VALUE)));
+        assertRoundTrip(codec, new TreeSet<>(Arrays.asList(Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE)));
+        for (int size = 0; size < 50; size++) {
+            TreeSet<Long> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextBoolean() ? RANDOM.nextLong() : RANDOM.nextInt(1000));
+            }
+            assertRoundTrip(codec, expected);
+            assertRoundTrip(codec, new LongArraySortedSet(expected));
+        }
+        Assert.assertTrue(read(codec, write(codec, new LongSingletonSortedSet(7))) instanceof LongSingletonSortedSet);
+        Assert.assertTrue(read(codec, write(codec, new LongArraySortedSet(7, 8))) instanceof LongArraySortedSet);
+        Assert.assertSame(Collections.emptyNavigableSet(), read(codec, write(codec, new TreeSet<>())));
+    }
+
+    @Test
+    public void testInts() throws IOException {
+        SortedSetCodec<Integer> codec = SortedSetCodecs.ints();
+        assertRoundTrip(codec, new TreeSet<>(Arrays.asList(Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE)));
+        for (int size = 0; size < 50; size++) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(RANDOM.nextBoolean() ? RANDOM.nextInt() : RANDOM.nextInt(1000));
+            }
+            assertRoundTrip(codec, expected);
+            assertRoundTrip(codec, new IntArraySortedSet(expected));
+        }
+        Assert.assertTrue(read(codec, write(codec, new IntSingletonSortedSet(7))) instanceof IntSingletonSortedSet);
+        Assert.assertTrue(read(codec, write(codec, new IntArraySortedSet(7, 8))) instanceof IntArraySortedSet);
+    }
+
+    @Test
+    public void testDeltaEncodingIsCompact() throws IOException {
+        TreeSet<Long> inodes = new TreeSet<>();
+        for (long inode = 1L << 40; inodes.size() < 100; inode += 3) {
+            inodes.add(inode);
+        }
+        // the size, the first inode in 6 bytes, then one byte per inode
+        Assert.assertEquals(1 + 6 + 99, write(SortedSetCodecs.longs(), inodes).length);
+        Assert.assertEquals(2, write(SortedSetCodecs.ints(), new IntSingletonSortedSet(-1)).length);
+    }
+
+    @Test
+    public void testObjects() throws IOException {
+        SortedSetCodec<String> codec = SortedSetCodecs.of(SortedSetCodecs.utf8());
+        assertRoundTrip(codec, new TreeSet<>());
+        assertRoundTrip(codec, new TreeSet<>(Collections.singleton("")));
+        assertRoundTrip(codec, new TreeSet<>(Arrays.asList("a", "bé", "😀", "tier-1")));
+        Assert.assertTrue(read(codec, write(codec, new TreeSet<>(Collections.singleton("a"))))
+                instanceof SingletonSortedSet);
+        Assert.assertTrue(read(codec, write(codec, new TreeSet<>(Arrays.asList("a", "b")))) instanceof ArraySortedSet);
+    }
+
+    @Test
+    public void testSetsBackToBackInOneBuffer() throws IOException {
+        SortedSetCodec<Long> longs = SortedSetCodecs.longs();
+        SortedSetCodec<String> strings = SortedSetCodecs.of(SortedSetCodecs.utf8());
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        longs.write(new LongArraySortedSet(1, 2, 3), buffer);
+        strings.write(new ArraySortedSet<>(Arrays.asList("x", "y")), buffer);
+        longs.write(new LongSingletonSortedSet(4), buffer);
+        buffer.flip();
+        Assert.assertEquals(new LongArraySortedSet(1, 2, 3), longs.read(buffer));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("x", "y")), strings.read(buffer));
+        Assert.assertEquals(new LongSingletonSortedSet(4), longs.read(buffer));
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteInReverseOrder() throws IOException {
+        TreeSet<Long> set = new TreeSet<>(Arrays.asList(1L, 2L));
+        write(SortedSetCodecs.longs(), set.descendingSet());
+    }
+
+    @Test
+    public void testMalformedInput() throws IOException {
+        assertMalformed(SortedSetCodecs.longs(), new byte[]{2, 4, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01});
+        assertMalformed(SortedSetCodecs.ints(), new byte[]{2, 4, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                0x0F});
+        // 10 and a gap of -5, which read as a long would give the set [10, 6]
+        assertMalformed(SortedSetCodecs.ints(), new byte[]{2, 20, (byte) 0xFB, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01});
+        byte[] strings = {2, 1, 'b', 1, 'a'};
+        assertMalformed(SortedSetCodecs.of(SortedSetCodecs.utf8()), strings);
+        Assert.assertEquals(new LongArraySortedSet(2, 3), read(SortedSetCodecs.longs(), new byte[]{2, 4, 0}));
+
+        byte[] truncated = {3, 4, 0};
+        for (SortedSetCodec<?> codec : Arrays.asList(SortedSetCodecs.longs(), SortedSetCodecs.ints())) {
+            try {
+                codec.read(ByteBuffer.wrap(truncated));
+                Assert.fail("reading a truncated buffer must throw EOFException");
+            } catch (EOFException e) {
+                // expected
+            }
+            try {
+                codec.read(new DataInputStream(new ByteArrayInputStream(truncated)));
+                Assert.fail("reading a truncated stream must throw EOFException");
+            } catch (EOFException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testHugeClaimedCount() throws IOException {
+        // a count of Integer.MAX_VALUE followed by two elements: the stream ends long before the set does
+        byte[] huge = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 2, 1};
+        for (SortedSetCodec<?> codec : Arrays.asList(SortedSetCodecs.longs(), SortedSetCodecs.ints(),
+                SortedSetCodecs.of(SortedSetCodecs.utf8()))) {
+            try {
+                codec.read(new DataInputStream(new ByteArrayInputStream(huge)));
+                Assert.fail("reading a count larger than the stream must throw EOFException");
+            } catch (EOFException e) {
+                // expected
+            }
+        }
+        // one string that claims to be 2 GB long
+        byte[] hugeString = {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'a'};
+        try {
+            SortedSetCodecs.of(SortedSetCodecs.utf8()).read(new DataInputStream(new ByteArrayInputStream(hugeString)));
+            Assert.fail("reading a length larger than the stream must throw EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+
+        // sets and strings larger than the up-front allocation still read back
+        long[] longs = new long[5000];
+        int[] ints = new int[5000];
+        List<String> strings = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            longs[i] = 3L * i;
+            ints[i] = 3 * i;
+            sb.append((char) ('a' + i % 26));
+            strings.add(String.format("%05d", i));
+        }
+        strings.add(sb.toString());
+        assertRoundTrip(SortedSetCodecs.longs(), new LongArraySortedSet(longs));
+        assertRoundTrip(SortedSetCodecs.ints(), new IntArraySortedSet(ints));
+        assertRoundTrip(SortedSetCodecs.of(SortedSetCodecs.utf8()), new ArraySortedSet<>(strings));
+    }
+
+    private static <T> void assertMalformed(SortedSetCodec<T> codec, byte[] bytes) {
+        try {
+            codec.read(ByteBuffer.wrap(bytes));
+            Assert.fail("reading " + Arrays.toString(bytes) + " must throw IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+            Assert.fail("reading " + Arrays.toString(bytes) + " must throw IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static <T> void assertRoundTrip(SortedSetCodec<T> codec, SortedSet<T> expected) throws IOException {
+        byte[] bytes = write(codec, expected);
+        NavigableSet<T> fromStream = read(codec, bytes);
+        Assert.assertEquals(expected, fromStream);
+        Assert.assertEquals(expected.size(), fromStream.size());
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        codec.write(expected, buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        Assert.assertArrayEquals(bytes, buffer.array());
+        buffer.flip();
+        Assert.assertEquals(expected, codec.read(buffer));
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    private static <T> byte[] write(SortedSetCodec<T> codec, SortedSet<T> set) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(set, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static <T> NavigableSet<T> read(SortedSetCodec<T> codec, byte[] bytes) throws IOException {
+        return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,61 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * The build runs this test a second time with {@link SortedSetMetrics#ENABLED_PROPERTY} off; with the counters on it is
+ * skipped.
+ */
+public class SortedSetMetricsDisabledTest {
+
+    @Test
+    public void testCountersStayAtZero() {
+        Assume.assumeFalse("the counters are on", SortedSetMetrics.isEnabled());
+        SingletonSortedSet<Integer> singleton = new SingletonSortedSet<>(1);
+        singleton.contains(1);
+        try {
+            singleton.add(2);
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        ArraySortedSet<Integer> array = new ArraySortedSet<>(Arrays.asList(1, 2, 3));
+        array.getElement(2);
+        array.subSet(1, 3);
+        AdaptiveSortedSet<Integer> adaptive = new AdaptiveSortedSet<>(2);
+        for (int i = 0; i < 4; i++) {
+            adaptive.add(i);
+        }
+        adaptive.clear();
+        ConcurrentCompactSortedSet<Integer> concurrent = new ConcurrentCompactSortedSet<>();
+        concurrent.addAll(Arrays.asList(1, 2, 3));
+
+        for (SortedSetMetrics metrics : SortedSetMetrics.all().values()) {
+            Assert.assertEquals(metrics.toString(), 0, metrics.creationCount());
+            Assert.assertEquals(metrics.toString(), 0, metrics.lookupCount());
+            Assert.assertEquals(metrics.toString(), 0, metrics.rangeViewCount());
+            Assert.assertEquals(metrics.toString(), 0, metrics.promotionCount());
+            Assert.assertEquals(metrics.toString(), 0, metrics.demotionCount());
+            Assert.assertEquals(metrics.toString(), 0, metrics.unsupportedCount());
+        }
+        Assert.assertTrue(SortedSetMetrics.all().containsKey("ArraySortedSet"));
+    }
+}
@@ -0,0 +1,134 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+/**
+ * The build turns the counters on with {@link SortedSetMetrics#ENABLED_PROPERTY}; run from elsewhere without it the
+ * tests are skipped.
+ */
+public class SortedSetMetricsTest {
+
+    @Before
+    public void reset() {
+        Assume.assumeTrue("the counters are off", SortedSetMetrics.isEnabled());
+        SortedSetMetrics.resetAll();
+    }
+
+    @Test
+    public void testSingletonSortedSet() {
+        SingletonSortedSet<Integer> set = new SingletonSortedSet<>(1);
+        set.contains(1);
+        set.getElement(2);
+        Assert.assertFalse(set.add(1));
+        try {
+            set.add(2);
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            set.pollFirst();
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        // the set itself, not a new view
+        Assert.assertSame(set, set.headSet(5));
+
+        SortedSetMetrics metrics = SortedSetMetrics.of(SingletonSortedSet.class);
+        Assert.assertEquals(1, metrics.creationCount());
+        Assert.assertEquals(1, metrics.sizeHistogram()[1]);
+        Assert.assertEquals(2, metrics.lookupCount());
+        Assert.assertEquals(2, metrics.unsupportedCount());
+        Assert.assertEquals(0, metrics.rangeViewCount());
+    }
+
+    @Test
+    public void testArraySortedSet() {
+        ArraySortedSet<Integer> set = new ArraySortedSet<>(Arrays.asList(5, 1, 4, 2, 3));
+        set.contains(3);
+        set.getElement(6);
+        set.subSet(2, 4);
+        set.tailSet(1); // the set itself
+
+        SortedSetMetrics metrics = SortedSetMetrics.of(ArraySortedSet.class);
+        Assert.assertEquals(1, metrics.creationCount());
+        Assert.assertEquals(1, metrics.sizeHistogram()[3]); // 4 to 7 elements
+        Assert.assertEquals(2, metrics.lookupCount());
+        Assert.assertEquals(1, metrics.rangeViewCount());
+    }
+
+    @Test
+    public void testArraySortedSetsBuiltInThePackage() throws IOException {
+        ConcurrentCompactSortedSet<Integer> set = new ConcurrentCompactSortedSet<>();
+        for (int i = 0; i < 4; i++) {
+            set.add(i); // one snapshot per write, an array from the second on
+        }
+        set.remove(0);
+        SortedSetCodec<String> codec = SortedSetCodecs.of(SortedSetCodecs.utf8());
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        codec.write(new TreeSet<>(Arrays.asList("a", "b", "c")), buffer);
+        buffer.flip();
+        codec.read(buffer);
+        new ArraySortedMap<>(Collections.singletonMap(1, "a")).keySet();
+
+        SortedSetMetrics metrics = SortedSetMetrics.of(ArraySortedSet.class);
+        // [0, 1], [0, 1, 2], [0, 1, 2, 3], [1, 2, 3] and [a, b, c]; the key set is a view of the map's keys
+        Assert.assertEquals(5, metrics.creationCount());
+        Assert.assertEquals(0, metrics.sizeHistogram()[1]);
+        Assert.assertEquals(4, metrics.sizeHistogram()[2]);
+        Assert.assertEquals(1, metrics.sizeHistogram()[3]);
+        Assert.assertEquals(1, metrics.rangeViewCount());
+    }
+
+    @Test
+    public void testAdaptiveSortedSetPromotions() {
+        AdaptiveSortedSet<Integer> set = new AdaptiveSortedSet<>(4);
+        for (int i = 0; i < 5; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 3; i++) {
+            set.remove(i);
+        }
+        set.contains(4);
+        set.headSet(3).contains(2);
+
+        SortedSetMetrics metrics = SortedSetMetrics.of(AdaptiveSortedSet.class);
+        Assert.assertEquals(1, metrics.sizeHistogram()[0]);
+        // a single element to an array and an array to a tree, then back once the tree has shrunk to 2 elements
+        Assert.assertEquals(2, metrics.promotionCount());
+        Assert.assertEquals(1, metrics.demotionCount());
+        Assert.assertEquals(2, metrics.lookupCount());
+        Assert.assertEquals(1, metrics.rangeViewCount());
+        Assert.assertTrue(SortedSetMetrics.all().containsKey("AdaptiveSortedSet"));
+    }
+
+    @Test
+    public void testToString() {
+        new ArraySortedSet<>(Arrays.asList(1, 2));
+        Assert.assertEquals("SortedSetMetrics{name=ArraySortedSet, sizes={<4=1}, lookups=0, rangeViews=0, "
+                + "promotions=0, demotions=0, unsupported=0}", SortedSetMetrics.of(ArraySortedSet.class).toString());
+    }
+}
@@ -0,0 +1,126 @@
+// Copyright (c) 2020 Hammerspace, Inc.
+// 	  www.hammer.space
+//
+// Licensed under the Eclipse Public License - v 2.0 ("the License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.eclipse.org/org/documents/epl-2.0/EPL-2.0.txt
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.hammerspace.open.datastructures;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class SortedSetsTest {
+
+    @After
+    public void tearDown() {
+        SortedSets.internSingletons(0);
+    }
+
+    @Test
+    public void testSingletonOfWithoutInterning() {
+        SortedSets.internSingletons(0);
+        Assert.assertNull(SortedSets.singletonInterner());
+        SingletonSortedSet<String> set = SortedSets.singletonOf("a");
+        Assert.assertEquals("a", set.getElement());
+        Assert.assertNotSame(set, SortedSets.singletonOf("a"));
+    }
+
+    @Test
+    public void testSingletonOfWithInterning() {
+        SortedSets.internSingletons(100);
+        SingletonSortedSet<String> set = SortedSets.singletonOf("a");
+        Assert.assertSame(set, SortedSets.singletonOf(new String("a")));
+        Assert.assertEquals(1, SortedSets.singletonInterner().hitCount());
+        Assert.assertEquals(100, SortedSets.singletonInterner().getMaxSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSingletonOfNull() {
+        SortedSets.singletonOf(null);
+    }
+
+    @Test
+    public void testCopyOfPicksTheSmallestRepresentation() {
+        Assert.assertSame(Collections.emptyNavigableSet(), SortedSets.copyOf(Collections.<Integer>emptyList()));
+        Assert.assertTrue(SortedSets.copyOf(Collections.singletonList(1)) instanceof SingletonSortedSet);
+        // duplicates collapse into a singleton
+        Assert.assertTrue(SortedSets.copyOf(Arrays.asList(1, 1, 1)) instanceof SingletonSortedSet);
+        NavigableSet<Integer> set = SortedSets.copyOf(Arrays.asList(3, 1, 2, 1));
+        Assert.assertTrue(set instanceof ArraySortedSet);
+        Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(set));
+
+        SingletonSortedSet<Integer> singleton = new SingletonSortedSet<>(1);
+        Assert.assertSame(singleton, SortedSets.copyOf(singleton));
+    }
+
+    @Test
+    public void testCopyOfSingletonsAreInterned() {
+        SortedSets.internSingletons(10);
+        Assert.assertSame(SortedSets.copyOf(Collections.singleton(7)), SortedSets.copyOf(Arrays.asList(7, 7)));
+    }
+
+    @Test
+    public void testCopyOfWithComparator() {
+        Comparator<String> order = String.CASE_INSENSITIVE_ORDER;
+        NavigableSet<String> empty = SortedSets.copyOf(order, Collections.<String>emptySet());
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertSame(order, empty.comparator());
+        Assert.assertTrue(SortedSets.copyOf(order, Arrays.asList("a", "A")) instanceof ComparatorSingletonSortedSet);
+        NavigableSet<String> set = SortedSets.copyOf(order, Arrays.asList("c", "B", "a"));
+        Assert.assertTrue(set instanceof ComparatorArraySortedSet);
+        Assert.assertEquals(Arrays.asList("a", "B", "c"), new ArrayList<>(set));
+        Assert.assertSame(order, set.comparator());
+    }
+
+    @Test
+    public void testCopyOfSortedKeepsTheOrdering() {
+        TreeSet<Integer> natural = new TreeSet<>(Arrays.asList(3, 1, 2));
+        NavigableSet<Integer> copy = SortedSets.copyOfSorted(natural);
+        Assert.assertNull(copy.comparator());
+        Assert.assertEquals(new ArrayList<>(natural), new ArrayList<>(copy));
+
+        TreeSet<Integer> descending = new TreeSet<>(Comparator.reverseOrder());
+        descending.addAll(natural);
+        copy = SortedSets.copyOfSorted(descending);
+        Assert.assertSame(descending.comparator(), copy.comparator());
+        Assert.assertEquals(Arrays.asList(3, 2, 1), new ArrayList<>(copy));
+    }
+
+    @Test
+    public void testStreamsAndCollectors() {
+        Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(SortedSets.copyOf(Stream.of(2, 3, 1, 2))));
+        NavigableSet<Integer> collected = IntStream.range(0, 1000).parallel().map(i -> i % 100).boxed()
+                .collect(SortedSets.toSortedSet());
+        Assert.assertTrue(collected instanceof ArraySortedSet);
+        Assert.assertEquals(100, collected.size());
+        Assert.assertEquals(Integer.valueOf(99), collected.last());
+        NavigableSet<Integer> descending = Stream.of(1, 2, 3)
+                .collect(SortedSets.toSortedSet(Comparator.reverseOrder()));
+        Assert.assertEquals(Arrays.asList(3, 2, 1), new ArrayList<>(descending));
+        Assert.assertTrue(Stream.<Integer>empty().collect(SortedSets.toSortedSet()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCopyOfWithNull() {
+        SortedSets.copyOf(Arrays.asList(1, null));
+    }
+}